@@ -152,8 +152,9 @@ public class BotCommandsHandler {
             return rideService.updateDriverFeedback(ride.getId(), feedback);
           }
 
-          if (user.getId().equals(ride.getPassenger().getId())) {
-            return rideService.updatePassengerFeedback(ride.getId(), feedback);
+          if (ride.getPassengerLegs().stream()
+              .anyMatch(leg -> user.getId().equals(leg.getPassenger().getId()))) {
+            return rideService.updatePassengerFeedback(ride.getId(), user.getId(), feedback);
           }
 
           return Mono.error(new FeedbackUpdateException("Feedback can not be updated"));
@@ -0,0 +1,116 @@
+package com.elanlum.ecs.map.config;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.reader.osm.GraphHopperOSM;
+import com.graphhopper.routing.util.EncodingManager;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * Creates configured {@link GraphHopper} instances for the application and for the offline
+ * {@link GraphImporter}, so both of them prepare exactly the same graph.
+ */
+@Slf4j
+final class GraphHopperFactory {
+
+  static final String ROUTING_MODE_MARKER = "routing_mode";
+
+  private GraphHopperFactory() {
+  }
+
+  /**
+   * Creates GraphHopper which is ready for import or load but has not touched the disk yet.
+   */
+  static GraphHopper create(String workingDirectory, RoutingMode routingMode,
+      GraphStorageMode storageMode) {
+    return configure(new GraphHopperOSM().forServer(), workingDirectory, routingMode,
+        storageMode);
+  }
+
+  /**
+   * Applies working directory, routing mode and storage mode to the given GraphHopper.
+   */
+  static GraphHopper configure(GraphHopper hopper, String workingDirectory,
+      RoutingMode routingMode, GraphStorageMode storageMode) {
+    hopper.setGraphHopperLocation(workingDirectory);
+    hopper.setEncodingManager(new EncodingManager("car"));
+    if (storageMode == GraphStorageMode.MMAP) {
+      hopper.setMemoryMapped();
+    } else {
+      hopper.setStoreOnFlush(storageMode == GraphStorageMode.RAM_STORE);
+    }
+    hopper.getCHFactoryDecorator().setEnabled(routingMode == RoutingMode.CH);
+    hopper.getLMFactoryDecorator().setEnabled(routingMode == RoutingMode.LM);
+    if (routingMode == RoutingMode.CH) {
+      hopper.getCHFactoryDecorator().setWeightingsAsStrings(MapConfig.WEIGHTING);
+    } else if (routingMode == RoutingMode.LM) {
+      hopper.getLMFactoryDecorator().addWeighting(MapConfig.WEIGHTING);
+    }
+    return hopper;
+  }
+
+  /**
+   * Imports the OSM file into the working directory or loads the graph prepared earlier. The graph
+   * prepared for another routing mode is removed and imported again.
+   */
+  static void importOrLoad(GraphHopper hopper, String source, RoutingMode routingMode)
+      throws IOException {
+    hopper.setDataReaderFile(resolveSource(source).getPath());
+    String preparedRoutingMode = readRoutingMode(hopper);
+    if (preparedRoutingMode != null && !routingMode.name().equals(preparedRoutingMode)) {
+      log.info("Graph in {} was prepared for {}, importing it for {}",
+          hopper.getGraphHopperLocation(), preparedRoutingMode, routingMode);
+      hopper.clean();
+    }
+    hopper.importOrLoad();
+    Path marker = marker(hopper);
+    if (Files.isDirectory(marker.getParent())) {
+      Files.write(marker, routingMode.name().getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Loads the graph prepared earlier without importing anything.
+   *
+   * @throws IllegalStateException if there is no graph prepared for the routing mode
+   */
+  static void load(GraphHopper hopper, RoutingMode routingMode) throws IOException {
+    String location = hopper.getGraphHopperLocation();
+    if (!routingMode.name().equals(readRoutingMode(hopper)) || !hopper.load(location)) {
+      throw new IllegalStateException("No graph prepared for " + routingMode + " in " + location
+          + ", run the importGraph task first");
+    }
+  }
+
+  private static File resolveSource(String source) throws IOException {
+    File file = new File(source);
+    if (file.exists()) {
+      return file;
+    }
+    file = new File(MapConfig.PATHNAME);
+    if (!file.exists()) {
+      try (InputStream resource = new ClassPathResource(source).getInputStream()) {
+        Files.copy(resource, file.toPath());
+      }
+    }
+    return file;
+  }
+
+  private static String readRoutingMode(GraphHopper hopper) throws IOException {
+    Path marker = marker(hopper);
+    return Files.exists(marker)
+        ? new String(Files.readAllBytes(marker), StandardCharsets.UTF_8).trim()
+        : null;
+  }
+
+  private static Path marker(GraphHopper hopper) {
+    return Paths.get(hopper.getGraphHopperLocation(), ROUTING_MODE_MARKER);
+  }
+}
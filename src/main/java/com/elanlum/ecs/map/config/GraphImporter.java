@@ -0,0 +1,37 @@
+package com.elanlum.ecs.map.config;
+
+import com.graphhopper.GraphHopper;
+import java.io.IOException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Offline import of the OSM map into the GraphHopper working directory. The prepared directory
+ * is shipped with the application which then only loads it with import on startup disabled.
+ *
+ * <p>Arguments: OSM file or classpath resource, working directory and optional routing mode.
+ */
+@Slf4j
+public final class GraphImporter {
+
+  private GraphImporter() {
+  }
+
+  /**
+   * Imports the graph and exits.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      throw new IllegalArgumentException(
+          "Usage: GraphImporter <osm file> <working directory> [CH|LM|FLEXIBLE]");
+    }
+    RoutingMode routingMode = args.length > 2 ? RoutingMode.valueOf(args[2]) : RoutingMode.CH;
+    GraphHopper hopper = GraphHopperFactory
+        .create(args[1], routingMode, GraphStorageMode.RAM_STORE);
+    try {
+      GraphHopperFactory.importOrLoad(hopper, args[0], routingMode);
+      log.info("Graph for {} is prepared in {}", routingMode, args[1]);
+    } finally {
+      hopper.close();
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package com.elanlum.ecs.map.config;
+
+/**
+ * How GraphHopper keeps the routing graph in memory.
+ */
+public enum GraphStorageMode {
+  /**
+   * Graph lives on the heap and is never written to the working directory.
+   */
+  RAM,
+  /**
+   * Graph lives on the heap and is flushed to the working directory after import.
+   */
+  RAM_STORE,
+  /**
+   * Graph files in the working directory are memory mapped, the heap holds almost nothing.
+   */
+  MMAP
+}
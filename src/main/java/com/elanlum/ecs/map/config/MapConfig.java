@@ -1,45 +1,43 @@
 package com.elanlum.ecs.map.config;
 
 import com.graphhopper.GraphHopper;
-import com.graphhopper.reader.osm.GraphHopperOSM;
-import com.graphhopper.routing.util.EncodingManager;
-import java.io.File;
-import java.io.InputStream;
-import java.nio.file.Files;
 import lombok.SneakyThrows;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.io.ClassPathResource;
 
 @Configuration
 public class MapConfig {
 
   public static final String PATHNAME = "map.osm.pbf";
+  public static final String WEIGHTING = "fastest";
 
   @Value("${graphhopper.source}")
   private String graphSource;
   @Value("${graphhopper.workingDirectory}")
   private String graphWorkingDirectory;
+  @Value("${graphhopper.routingMode:CH}")
+  private RoutingMode routingMode;
+  @Value("${graphhopper.storageMode:RAM_STORE}")
+  private GraphStorageMode storageMode;
+  @Value("${graphhopper.importOnStartup:true}")
+  private boolean importOnStartup;
 
   /**
-   * GraphHopper bean.
+   * GraphHopper bean. The graph prepared for the configured routing mode is loaded from the
+   * working directory, it is imported again only when the directory was prepared for another
+   * mode. With import on startup disabled the graph must be prepared by {@link GraphImporter}.
    */
   @SneakyThrows
   @Bean
   public GraphHopper graphHopper() {
-    GraphHopper hopper = new GraphHopperOSM().forServer();
-    try (InputStream resource = new ClassPathResource(graphSource).getInputStream()) {
-      File file = new File(PATHNAME);
-      if (!file.exists()) {
-        Files.copy(resource, file.toPath());
-      }
-      hopper.setDataReaderFile(file.getPath());
+    GraphHopper hopper = GraphHopperFactory
+        .create(graphWorkingDirectory, routingMode, storageMode);
+    if (importOnStartup) {
+      GraphHopperFactory.importOrLoad(hopper, graphSource, routingMode);
+    } else {
+      GraphHopperFactory.load(hopper, routingMode);
     }
-
-    hopper.setGraphHopperLocation(graphWorkingDirectory);
-    hopper.setEncodingManager(new EncodingManager("car"));
-    hopper.importOrLoad();
     return hopper;
   }
 }
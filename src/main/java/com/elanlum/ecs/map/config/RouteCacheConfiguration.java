@@ -0,0 +1,19 @@
+package com.elanlum.ecs.map.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "route-cache")
+@Getter
+@Setter
+public class RouteCacheConfiguration {
+
+  private long maximumSize = 100_000;
+  private long expireAfterWriteMinutes = 60;
+  private double cellDegrees = 0.0005;
+  private long snapMaximumSize = 100_000;
+  private long isochroneMaximumSize = 1_000;
+}
@@ -0,0 +1,19 @@
+package com.elanlum.ecs.map.config;
+
+/**
+ * Speed-up technique prepared for the routing graph at import time.
+ */
+public enum RoutingMode {
+  /**
+   * Contraction Hierarchies, the fastest queries for the fixed weighting.
+   */
+  CH,
+  /**
+   * Landmarks for A*, fast queries which still allow to change the weighting per request.
+   */
+  LM,
+  /**
+   * No preparation, plain bidirectional Dijkstra for every request.
+   */
+  FLEXIBLE
+}
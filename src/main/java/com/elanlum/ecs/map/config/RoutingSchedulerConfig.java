@@ -0,0 +1,25 @@
+package com.elanlum.ecs.map.config;
+
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+@Configuration
+public class RoutingSchedulerConfig {
+
+  public static final String ROUTING_SCHEDULER = "routingScheduler";
+
+  /**
+   * Bounded scheduler for blocking and CPU-heavy GraphHopper routing. Parallelism defaults to the
+   * number of available cores.
+   */
+  @Bean(name = ROUTING_SCHEDULER, destroyMethod = "dispose")
+  public Scheduler routingScheduler(MatchingConfiguration matchingConfiguration) {
+    int parallelism = matchingConfiguration.getRoutingParallelism() > 0
+        ? matchingConfiguration.getRoutingParallelism()
+        : Runtime.getRuntime().availableProcessors();
+    return Schedulers.newParallel("routing", parallelism);
+  }
+}
@@ -0,0 +1,65 @@
+package com.elanlum.ecs.map.service;
+
+import com.carrotsearch.hppc.IntDoubleHashMap;
+import com.graphhopper.coll.GHIntLongHashMap;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+
+/**
+ * Nodes of the routing graph reachable from one position within a time limit, together with the
+ * time and distance of the fastest route to every node. An unbounded isochrone contains every
+ * position, it is used when the origin itself couldn't be snapped.
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class Isochrone {
+
+  private static final Isochrone UNBOUNDED = new Isochrone(null, null);
+
+  private final GHIntLongHashMap times;
+  private final IntDoubleHashMap distances;
+
+  /**
+   * Creates isochrone of the explored nodes, the maps are kept without copying.
+   *
+   * @param times - travel time in milliseconds by node
+   * @param distances - distance in meters by node
+   * @return bounded isochrone
+   */
+  public static Isochrone of(GHIntLongHashMap times, IntDoubleHashMap distances) {
+    return new Isochrone(times, distances);
+  }
+
+  public static Isochrone unbounded() {
+    return UNBOUNDED;
+  }
+
+  public boolean isBounded() {
+    return times != null;
+  }
+
+  /**
+   * Checks whether the position is reachable, positions which couldn't be snapped are never
+   * reachable within a bounded isochrone.
+   */
+  public boolean contains(SnappedPosition position) {
+    return times == null || position.isFound() && times.containsKey(position.getNode());
+  }
+
+  /**
+   * Returns the fastest route from the origin found by the isochrone search, so the position
+   * doesn't need to be routed again.
+   *
+   * @param position - snapped position
+   * @return route to the position or null if it is outside or the isochrone is unbounded
+   */
+  public RouteDistance getRoute(SnappedPosition position) {
+    if (times == null || !contains(position)) {
+      return null;
+    }
+    return new RouteDistance(distances.get(position.getNode()), times.get(position.getNode()));
+  }
+
+  public int size() {
+    return times == null ? Integer.MAX_VALUE : times.size();
+  }
+}
@@ -0,0 +1,69 @@
+package com.elanlum.ecs.map.service;
+
+import com.elanlum.ecs.map.config.RouteCacheConfiguration;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.function.Supplier;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of isochrones by the snapped origin node and the time limit. Drivers departing
+ * from the same place with the same waiting time share one graph exploration.
+ */
+@Component
+public class IsochroneCache implements MeterBinder {
+
+  private final Cache<IsochroneKey, Isochrone> cache;
+
+  /**
+   * Creates the cache bounded by {@code route-cache.isochrone-maximum-size} isochrones.
+   */
+  public IsochroneCache(RouteCacheConfiguration routeCacheConfiguration) {
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(routeCacheConfiguration.getIsochroneMaximumSize())
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * Returns cached isochrone or explores and caches it.
+   *
+   * @param node - snapped origin node
+   * @param maxTimeMillis - travel time limit
+   * @param explorer - explores the isochrone on cache miss
+   * @return isochrone
+   */
+  public Isochrone get(int node, long maxTimeMillis, Supplier<Isochrone> explorer) {
+    return cache.get(new IsochroneKey(node, maxTimeMillis), key -> explorer.get());
+  }
+
+  /**
+   * Returns hit, miss and eviction counters of the cache.
+   */
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  /**
+   * Publishes the counters of the cache as {@code cache.*} metrics tagged with
+   * {@code cache=isochroneCache}.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, cache, "isochroneCache");
+  }
+
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  private static final class IsochroneKey {
+
+    private final int node;
+    private final long maxTimeMillis;
+  }
+}
@@ -1,12 +1,46 @@
 package com.elanlum.ecs.map.service;
 
+import com.carrotsearch.hppc.IntDoubleHashMap;
+import com.elanlum.ecs.map.config.MapConfig;
 import com.elanlum.ecs.map.exceptions.MapException;
 import com.elanlum.ecs.ride.model.values.Position;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.PathWrapper;
+import com.graphhopper.coll.GHIntLongHashMap;
+import com.graphhopper.coll.IntDoubleBinaryHeap;
+import com.graphhopper.routing.AlgorithmOptions;
+import com.graphhopper.routing.DijkstraOneToMany;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.QueryGraph;
+import com.graphhopper.routing.RoutingAlgorithm;
+import com.graphhopper.routing.RoutingAlgorithmFactory;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.HintsMap;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.CHGraph;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.Parameters;
+import com.graphhopper.util.exceptions.ConnectionNotFoundException;
+import com.graphhopper.util.exceptions.PointNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -14,7 +48,12 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class MapService {
 
+  private static final String VEHICLE = "car";
+
   private final GraphHopper hopper;
+  private final RouteCache routeCache;
+  private final SnapCache snapCache;
+  private final IsochroneCache isochroneCache;
 
   /**
    * PathWrapper object that contains info about distance, time, path.
@@ -32,11 +71,194 @@ public class MapService {
     return rsp.getBest();
   }
 
+  /**
+   * Returns distance and time of the route between positions, recurring routes are served from
+   * the {@link RouteCache}.
+   */
+  public RouteDistance getRouteDistance(Position from, Position to) {
+    return routeCache.get(from, to, () -> getRouteDistance(snap(from), snap(to)));
+  }
+
+  /**
+   * Returns distance and time of the route between already snapped positions. The route starts
+   * and ends at the snapped nodes, so the location index is not used at all.
+   *
+   * @throws MapException if any of the positions was not snapped or there is no route
+   */
+  public RouteDistance getRouteDistance(SnappedPosition from, SnappedPosition to) {
+    if (!from.isFound() || !to.isFound()) {
+      int pointIndex = from.isFound() ? 1 : 0;
+      throw new MapException(
+          new PointNotFoundException("Cannot find point " + pointIndex, pointIndex));
+    }
+    Path path = createRoutingAlgorithm().calcPath(from.getNode(), to.getNode());
+    if (!path.isFound()) {
+      throw new MapException(new ConnectionNotFoundException(
+          "Connection between locations not found", Collections.emptyMap()));
+    }
+    return new RouteDistance(path.getDistance(), path.getTime());
+  }
+
+  /**
+   * Finds all the nodes reachable from the snapped position within the time limit with one
+   * Dijkstra exploration which stops at the limit. Membership in this node set replaces routing
+   * from the origin to every single candidate. Isochrones are served from the
+   * {@link IsochroneCache} by the origin node and the limit.
+   *
+   * @param from - origin of the routes
+   * @param maxTimeMillis - travel time limit
+   * @return reachable nodes or unbounded isochrone if the origin was not snapped
+   */
+  public Isochrone getIsochrone(SnappedPosition from, long maxTimeMillis) {
+    if (!from.isFound()) {
+      return Isochrone.unbounded();
+    }
+    return isochroneCache.get(from.getNode(), maxTimeMillis,
+        () -> exploreIsochrone(from.getNode(), maxTimeMillis));
+  }
+
+  private Isochrone exploreIsochrone(int from, long maxTimeMillis) {
+    FlagEncoder encoder = hopper.getEncodingManager().getEncoder(VEHICLE);
+    Weighting weighting = new FastestWeighting(encoder);
+    EdgeExplorer explorer = hopper.getGraphHopperStorage()
+        .createEdgeExplorer(new DefaultEdgeFilter(encoder, false, true));
+    GHIntLongHashMap times = new GHIntLongHashMap();
+    IntDoubleHashMap distances = new IntDoubleHashMap();
+    IntDoubleBinaryHeap heap = new IntDoubleBinaryHeap(1000);
+    times.put(from, 0L);
+    distances.put(from, 0.0);
+    heap.insert_(0, from);
+    while (!heap.isEmpty()) {
+      long nodeTime = (long) heap.peek_key();
+      int node = heap.poll_element();
+      if (nodeTime > times.get(node)) {
+        continue;
+      }
+      EdgeIterator edge = explorer.setBaseNode(node);
+      while (edge.next()) {
+        int adjNode = edge.getAdjNode();
+        long time = nodeTime + weighting.calcMillis(edge, false, EdgeIterator.NO_EDGE);
+        if (time <= maxTimeMillis
+            && (!times.containsKey(adjNode) || time < times.get(adjNode))) {
+          times.put(adjNode, time);
+          distances.put(adjNode, distances.get(node) + edge.getDistance());
+          heap.insert_(time, adjNode);
+        }
+      }
+    }
+    return Isochrone.of(times, distances);
+  }
+
+  /**
+   * Resolves the position to the closest node of the routing graph, every position is looked up
+   * in the location index only once and then served from the {@link SnapCache}.
+   */
+  public SnappedPosition snap(Position position) {
+    return snapCache.get(position, key -> {
+      QueryResult queryResult = hopper.getLocationIndex()
+          .findClosest(key.getLatitude(), key.getLongitude(), EdgeFilter.ALL_EDGES);
+      return new SnappedPosition(key, queryResult.isValid() ? queryResult.getClosestNode()
+          : SnappedPosition.NOT_FOUND);
+    });
+  }
+
+  /**
+   * Snaps all the given positions, missing positions are skipped.
+   *
+   * @param positions - positions, e.g. departure and destination of a ride request
+   * @return snapped positions in the same order
+   */
+  public List<SnappedPosition> snapAll(Collection<Position> positions) {
+    return positions.stream()
+        .filter(Objects::nonNull)
+        .map(this::snap)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Calculates road distances from every source to every target. A single shortest path tree is
+   * explored for each source and shared by all the targets, so the cost is one graph exploration
+   * per source instead of one per pair.
+   *
+   * @param sources - origins of the routes
+   * @param targets - destinations of the routes
+   * @return matrix where [i][j] is the distance in meters from i-th source to j-th target or
+   *     {@link Double#POSITIVE_INFINITY} if there is no route
+   */
+  public double[][] getDistanceMatrix(List<Position> sources, List<Position> targets) {
+    double[][] distances = new double[sources.size()][targets.size()];
+    for (double[] row : distances) {
+      Arrays.fill(row, Double.POSITIVE_INFINITY);
+    }
+    if (sources.isEmpty() || targets.isEmpty()) {
+      return distances;
+    }
+
+    LocationIndex locationIndex = hopper.getLocationIndex();
+    List<QueryResult> sourceResults = snap(locationIndex, sources);
+    List<QueryResult> targetResults = snap(locationIndex, targets);
+    List<QueryResult> validResults = new ArrayList<>(sourceResults);
+    validResults.addAll(targetResults);
+    validResults.removeIf(queryResult -> !queryResult.isValid());
+    QueryGraph queryGraph = new QueryGraph(hopper.getGraphHopperStorage());
+    queryGraph.lookup(validResults);
+
+    FlagEncoder encoder = hopper.getEncodingManager().getEncoder(VEHICLE);
+    DijkstraOneToMany algorithm = new DijkstraOneToMany(queryGraph,
+        new FastestWeighting(encoder), TraversalMode.NODE_BASED);
+    for (int source = 0; source < sourceResults.size(); source++) {
+      QueryResult sourceResult = sourceResults.get(source);
+      if (!sourceResult.isValid()) {
+        continue;
+      }
+      algorithm.clear();
+      for (int target = 0; target < targetResults.size(); target++) {
+        QueryResult targetResult = targetResults.get(target);
+        if (!targetResult.isValid()) {
+          continue;
+        }
+        Path path = algorithm.calcPath(sourceResult.getClosestNode(),
+            targetResult.getClosestNode());
+        if (path.isFound()) {
+          distances[source][target] = path.getDistance();
+        }
+      }
+    }
+    return distances;
+  }
+
+  /**
+   * Creates the algorithm prepared for the configured routing mode, with contraction hierarchies
+   * the route is searched in the prepared graph.
+   */
+  private RoutingAlgorithm createRoutingAlgorithm() {
+    RoutingAlgorithmFactory algorithmFactory = hopper.getAlgorithmFactory(
+        new HintsMap().setWeighting(MapConfig.WEIGHTING).setVehicle(VEHICLE));
+    Graph graph = hopper.getGraphHopperStorage();
+    Weighting weighting = new FastestWeighting(hopper.getEncodingManager().getEncoder(VEHICLE));
+    if (algorithmFactory instanceof PrepareContractionHierarchies) {
+      weighting = ((PrepareContractionHierarchies) algorithmFactory).getWeighting();
+      graph = hopper.getGraphHopperStorage().getGraph(CHGraph.class, weighting);
+    }
+    return algorithmFactory.createAlgo(graph, AlgorithmOptions.start()
+        .algorithm(Parameters.Algorithms.ASTAR_BI)
+        .traversalMode(TraversalMode.NODE_BASED)
+        .weighting(weighting)
+        .build());
+  }
+
+  private List<QueryResult> snap(LocationIndex locationIndex, List<Position> positions) {
+    return positions.stream()
+        .map(position -> locationIndex.findClosest(position.getLatitude(),
+            position.getLongitude(), EdgeFilter.ALL_EDGES))
+        .collect(Collectors.toList());
+  }
+
   private GHRequest map(Position from, Position to) {
     GHRequest req = new GHRequest(from.getLatitude(), from.getLongitude(),
         to.getLatitude(), to.getLongitude())
-        .setWeighting("fastest")
-        .setVehicle("car")
+        .setWeighting(MapConfig.WEIGHTING)
+        .setVehicle(VEHICLE)
         .setLocale(Locale.US);
 
     return req;
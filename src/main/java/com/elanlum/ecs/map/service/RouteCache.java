@@ -0,0 +1,75 @@
+package com.elanlum.ecs.map.service;
+
+import com.elanlum.ecs.map.config.RouteCacheConfiguration;
+import com.elanlum.ecs.ride.index.SpatialGrid;
+import com.elanlum.ecs.ride.model.values.Position;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.function.Supplier;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of route distances. Origin and destination are snapped to the cells of a fine
+ * grid, so requests from the same place share the route computed for the first of them.
+ */
+@Component
+public class RouteCache implements MeterBinder {
+
+  private final SpatialGrid grid;
+  private final Cache<RouteKey, RouteDistance> cache;
+
+  /**
+   * Creates the cache with entries expiring after {@code route-cache.expire-after-write-minutes}.
+   */
+  public RouteCache(RouteCacheConfiguration routeCacheConfiguration) {
+    this.grid = new SpatialGrid(routeCacheConfiguration.getCellDegrees());
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(routeCacheConfiguration.getMaximumSize())
+        .expireAfterWrite(Duration.ofMinutes(routeCacheConfiguration.getExpireAfterWriteMinutes()))
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * Returns cached distance between the cells of the given positions or computes and caches it.
+   *
+   * @param from - origin of the route
+   * @param to - destination of the route
+   * @param router - computes the route on cache miss
+   * @return route distance
+   */
+  public RouteDistance get(Position from, Position to, Supplier<RouteDistance> router) {
+    return cache.get(new RouteKey(grid.cellOf(from), grid.cellOf(to)), key -> router.get());
+  }
+
+  /**
+   * Returns hit, miss and eviction counters of the cache.
+   */
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  /**
+   * Publishes the counters of the cache as {@code cache.*} metrics tagged with
+   * {@code cache=routeCache}.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, cache, "routeCache");
+  }
+
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  private static final class RouteKey {
+
+    private final long fromCell;
+    private final long toCell;
+  }
+}
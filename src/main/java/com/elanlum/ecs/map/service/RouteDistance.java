@@ -0,0 +1,25 @@
+package com.elanlum.ecs.map.service;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Compact result of routing which keeps only the values needed for matching.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class RouteDistance {
+
+  /**
+   * Distance in meters.
+   */
+  private final double distance;
+  /**
+   * Travel time in milliseconds.
+   */
+  private final long time;
+}
@@ -0,0 +1,60 @@
+package com.elanlum.ecs.map.service;
+
+import com.elanlum.ecs.map.config.RouteCacheConfiguration;
+import com.elanlum.ecs.ride.model.values.Position;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.function.Function;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of positions resolved to the nodes of the routing graph. Ride request positions
+ * are snapped when the requests are saved, so routing during matching finds them here.
+ */
+@Component
+public class SnapCache implements MeterBinder {
+
+  private final Cache<Position, SnappedPosition> cache;
+
+  /**
+   * Creates the cache bounded by {@code route-cache.snap-maximum-size} positions.
+   */
+  public SnapCache(RouteCacheConfiguration routeCacheConfiguration) {
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(routeCacheConfiguration.getSnapMaximumSize())
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * Returns cached snapped position or snaps and caches it.
+   *
+   * @param position - raw position
+   * @param snapper - resolves the position on cache miss
+   * @return snapped position
+   */
+  public SnappedPosition get(Position position,
+      Function<Position, SnappedPosition> snapper) {
+    return cache.get(position, snapper);
+  }
+
+  /**
+   * Returns hit, miss and eviction counters of the cache.
+   */
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  /**
+   * Publishes the counters of the cache as {@code cache.*} metrics tagged with
+   * {@code cache=snapCache}.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, cache, "snapCache");
+  }
+}
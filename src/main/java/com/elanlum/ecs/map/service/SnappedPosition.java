@@ -0,0 +1,27 @@
+package com.elanlum.ecs.map.service;
+
+import com.elanlum.ecs.ride.model.values.Position;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Position resolved to the closest node of the routing graph, routes between snapped positions
+ * don't touch the location index anymore.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class SnappedPosition {
+
+  public static final int NOT_FOUND = -1;
+
+  private final Position position;
+  private final int node;
+
+  public boolean isFound() {
+    return node != NOT_FOUND;
+  }
+}
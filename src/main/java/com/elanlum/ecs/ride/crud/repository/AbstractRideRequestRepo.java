@@ -2,10 +2,20 @@ package com.elanlum.ecs.ride.crud.repository;
 
 import com.elanlum.ecs.ride.model.common.AbstractRideRequest;
 import com.elanlum.ecs.ride.model.values.RideRequestStatus;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
 import javax.annotation.Nonnull;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort.Direction;
 import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
@@ -13,21 +23,46 @@ import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+@Slf4j
 @Repository
 @RequiredArgsConstructor
 public abstract class AbstractRideRequestRepo<T extends AbstractRideRequest> {
 
+  public static final String LAST_MODIFIED = "lastModified";
+  public static final String STATUS_TRANSITION = "statusTransition";
+  protected static final List<String> MATCHING_FIELDS = List.of("userId", "role", "rideDate",
+      "departurePoint", "destinationPoint", "status", LAST_MODIFIED);
+
   protected final ReactiveMongoTemplate reactiveMongoTemplate;
   protected final Class<T> genericClass;
 
+  /**
+   * Declares indexes backing the status, time overlap, change tracking and bulk status transition
+   * queries, so none of them scans the whole collection. Already existing indexes are kept.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void ensureIndexes() {
+    ReactiveIndexOperations indexOperations = reactiveMongoTemplate.indexOps(genericClass);
+    Flux.just(
+        new Index().on("status", Direction.ASC).on("rideDate.start", Direction.ASC)
+            .on("rideDate.end", Direction.ASC),
+        new Index().on("status", Direction.ASC).on(LAST_MODIFIED, Direction.ASC),
+        new Index().on(LAST_MODIFIED, Direction.ASC),
+        new Index().on("userId", Direction.ASC).on("status", Direction.ASC),
+        new Index().on(STATUS_TRANSITION, Direction.ASC).sparse())
+        .concatMap(indexOperations::ensureIndex)
+        .subscribe(index -> log.debug("Index {} of {} is ensured", index, genericClass),
+            throwable -> log.warn("Ensuring indexes of {} failed: ", genericClass, throwable));
+  }
+
   public Mono<T> save(T ride) {
     return reactiveMongoTemplate.save(ride);
   }
 
   /**
-   * Update field "status" for concrete id if {@link AbstractRideRequest} was AVAILABLE. {@link
-   * FindAndModifyOptions} allows returning updated entity. Without this parameter method returns
-   * entity before updating.
+   * Update field "status" for concrete id if {@link AbstractRideRequest} was AVAILABLE and touch
+   * its last modification time. {@link FindAndModifyOptions} allows returning updated entity.
+   * Without this parameter method returns entity before updating.
    *
    * @param rideRequestId - where we want update status
    * @param fromStatus - what status is expected to be in the entity
@@ -39,22 +74,75 @@ public abstract class AbstractRideRequestRepo<T extends AbstractRideRequest> {
     return reactiveMongoTemplate.findAndModify(
         Query.query(Criteria.where("_id").is(rideRequestId))
             .addCriteria(Criteria.where("status").is(fromStatus)),
-        Update.update("status", toStatus),
+        Update.update("status", toStatus).set(LAST_MODIFIED, LocalDateTime.now()),
         new FindAndModifyOptions().returnNew(true), genericClass);
   }
 
+  /**
+   * Moves all given requests which are still in the expected status to the new one with a single
+   * multi-document update. Every call marks its documents with a unique transition token, so the
+   * requests updated by this call are read back with one more query regardless of their number.
+   * The token is unset once the requests are read, so it doesn't stay in the documents and in the
+   * sparse index.
+   *
+   * @param rideRequestIds - requests we want to update
+   * @param fromStatus - what status is expected to be in the entities
+   * @param toStatus - set this status for field {@link RideRequestStatus} in entities
+   * @return Flux of requests which were actually updated by this call
+   */
+  public Flux<T> updateStatuses(@Nonnull Collection<String> rideRequestIds,
+      @Nonnull RideRequestStatus fromStatus, @Nonnull RideRequestStatus toStatus) {
+    String transition = UUID.randomUUID().toString();
+    return reactiveMongoTemplate.updateMulti(
+        Query.query(Criteria.where("_id").in(rideRequestIds))
+            .addCriteria(Criteria.where("status").is(fromStatus)),
+        Update.update("status", toStatus).set(LAST_MODIFIED, LocalDateTime.now())
+            .set(STATUS_TRANSITION, transition), genericClass)
+        .filter(updateResult -> updateResult.getModifiedCount() > 0)
+        .flatMapMany(updateResult -> {
+          Query transitionQuery = Query.query(Criteria.where(STATUS_TRANSITION).is(transition));
+          return reactiveMongoTemplate.find(transitionQuery, genericClass)
+              .concatWith(reactiveMongoTemplate.updateMulti(transitionQuery,
+                  new Update().unset(STATUS_TRANSITION), genericClass).then(Mono.<T>empty()));
+        });
+  }
+
   public Mono<T> findById(String id) {
     return reactiveMongoTemplate.findById(id, genericClass);
   }
 
+  public Flux<T> findAllById(Collection<String> ids) {
+    return reactiveMongoTemplate
+        .find(Query.query(Criteria.where("_id").in(ids)), genericClass);
+  }
+
   public Flux<T> findByUserId(String userId) {
     return reactiveMongoTemplate
         .find(Query.query(Criteria.where("userId").is(userId)), genericClass);
   }
 
-  public Flux<T> getAvailableRequests() {
-    return reactiveMongoTemplate.find(Query.query(Criteria.where("status").is(
-        RideRequestStatus.AVAILABLE)), genericClass);
+  /**
+   * Returns matching views of all available requests, see {@link #findMatchingViews(Query)}.
+   *
+   * @return Flux of available requests with matching fields only
+   */
+  public Flux<T> getAvailableMatchingViews() {
+    return findMatchingViews(Query.query(Criteria.where("status").is(
+        RideRequestStatus.AVAILABLE)));
+  }
+
+  /**
+   * Returns ids of the given requests which are still AVAILABLE. Only ids are fetched, so the
+   * query is served by the primary key index.
+   *
+   * @param rideRequestIds - ids of the requests to check
+   * @return Flux of ids of available requests
+   */
+  public Flux<String> findAvailableIds(Collection<String> rideRequestIds) {
+    Query query = Query.query(Criteria.where("_id").in(rideRequestIds))
+        .addCriteria(Criteria.where("status").is(RideRequestStatus.AVAILABLE));
+    query.fields().include("_id");
+    return reactiveMongoTemplate.find(query, genericClass).map(AbstractRideRequest::getId);
   }
 
   /**
@@ -68,4 +156,44 @@ public abstract class AbstractRideRequestRepo<T extends AbstractRideRequest> {
         .is(userId))
         .addCriteria(Criteria.where("status").is(status)), genericClass);
   }
+
+  /**
+   * Returns requests in any status which were saved or changed since the given time.
+   *
+   * @param since - lower bound of the last modification time, inclusive
+   * @return Flux of changed requests
+   */
+  public Flux<T> findModifiedSince(LocalDateTime since) {
+    return reactiveMongoTemplate
+        .find(Query.query(Criteria.where(LAST_MODIFIED).gte(since)), genericClass);
+  }
+
+  /**
+   * Returns available requests which were saved or changed since the given time.
+   *
+   * @param since - lower bound of the last modification time, inclusive
+   * @return Flux of changed available requests
+   */
+  public Flux<T> findAvailableModifiedSince(LocalDateTime since) {
+    return reactiveMongoTemplate.find(Query.query(Criteria.where("status").is(
+        RideRequestStatus.AVAILABLE))
+        .addCriteria(Criteria.where(LAST_MODIFIED).gte(since)), genericClass);
+  }
+
+  /**
+   * Runs the query fetching only the fields matching works with. Last modification time is kept
+   * for incremental matching, the status transition token is neither sent by the database nor
+   * decoded, so the returned views must not be saved back.
+   *
+   * @param query - query to restrict
+   * @return Flux of requests with matching fields only
+   */
+  protected Flux<T> findMatchingViews(Query query) {
+    getMatchingFields().forEach(query.fields()::include);
+    return reactiveMongoTemplate.find(query, genericClass);
+  }
+
+  protected List<String> getMatchingFields() {
+    return MATCHING_FIELDS;
+  }
 }
@@ -0,0 +1,21 @@
+package com.elanlum.ecs.ride.crud.repository;
+
+import com.elanlum.ecs.ride.model.common.AbstractRideRequest;
+import java.time.LocalDateTime;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Touches last modification time of every saved {@link AbstractRideRequest}. Status updates
+ * don't go through mapping events, so {@link AbstractRideRequestRepo} sets the time itself.
+ */
+@Component
+public class RideRequestLastModifiedListener
+    extends AbstractMongoEventListener<AbstractRideRequest> {
+
+  @Override
+  public void onBeforeConvert(BeforeConvertEvent<AbstractRideRequest> event) {
+    event.getSource().setLastModified(LocalDateTime.now());
+  }
+}
@@ -2,15 +2,71 @@ package com.elanlum.ecs.ride.crud.repository.impl;
 
 import com.elanlum.ecs.ride.crud.repository.AbstractRideRequestRepo;
 import com.elanlum.ecs.ride.model.common.DriverRideRequest;
+import com.elanlum.ecs.ride.model.values.RideRequestStatus;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
 
 @Repository
 public class DriverRideRequestRepo extends AbstractRideRequestRepo<DriverRideRequest> {
 
+  private static final List<String> DRIVER_MATCHING_FIELDS = Stream
+      .concat(MATCHING_FIELDS.stream(), Stream.of("seats"))
+      .collect(Collectors.toUnmodifiableList());
+
   @Autowired
   public DriverRideRequestRepo(ReactiveMongoTemplate reactiveMongoTemplate) {
     super(reactiveMongoTemplate, DriverRideRequest.class);
   }
+
+  /**
+   * This method is intended to give you drivers which have coincided time slots for a Ride. Only
+   * the fields matching works with are fetched, so the requests must not be saved back.
+   *
+   * @param passengerStart from passenger request.
+   * @param passengerEnd from passenger request.
+   * @param passengerId user id of the passenger.
+   * @return matching views of all fitted driver requests.
+   */
+  public Flux<DriverRideRequest> getAvailableDriverViewsInTime(LocalDateTime passengerStart,
+      LocalDateTime passengerEnd, String passengerId) {
+    return findMatchingViews(getInTimeQuery(passengerStart, passengerEnd, passengerId));
+  }
+
+  /**
+   * Same as {@link #getAvailableDriverViewsInTime(LocalDateTime, LocalDateTime, String)}, but
+   * looks only through the given candidates.
+   *
+   * @param passengerStart from passenger request.
+   * @param passengerEnd from passenger request.
+   * @param passengerId user id of the passenger.
+   * @param candidateIds ids of driver requests to choose from.
+   * @return matching views of all fitted driver requests.
+   */
+  public Flux<DriverRideRequest> getAvailableDriverViewsInTime(LocalDateTime passengerStart,
+      LocalDateTime passengerEnd, String passengerId, Collection<String> candidateIds) {
+    return findMatchingViews(getInTimeQuery(passengerStart, passengerEnd, passengerId)
+        .addCriteria(Criteria.where("_id").in(candidateIds)));
+  }
+
+  @Override
+  protected List<String> getMatchingFields() {
+    return DRIVER_MATCHING_FIELDS;
+  }
+
+  private Query getInTimeQuery(LocalDateTime passengerStart, LocalDateTime passengerEnd,
+      String passengerId) {
+    return Query.query(Criteria.where("status").is(RideRequestStatus.AVAILABLE))
+        .addCriteria(Criteria.where("userId").ne(passengerId))
+        .addCriteria(Criteria.where("rideDate.end").gte(passengerStart)
+            .andOperator(Criteria.where("rideDate.start").lte(passengerEnd)));
+  }
 }
@@ -0,0 +1,125 @@
+package com.elanlum.ecs.ride.crud.repository.impl;
+
+import com.elanlum.ecs.ride.model.common.NormalizedRide;
+import com.elanlum.ecs.ride.model.values.Feedback;
+import com.elanlum.ecs.ride.model.values.RideStatus;
+import java.util.Objects;
+import javax.annotation.Nonnull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Same operations as {@link RideRepository}, but for rides stored in the normalized layout.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class NormalizedRideRepository {
+
+  private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+  /**
+   * Declares indexes backing the lookup of rides by their driver and passengers. Already existing
+   * indexes are kept.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void ensureIndexes() {
+    ReactiveIndexOperations indexOperations = reactiveMongoTemplate.indexOps(NormalizedRide.class);
+    Flux.just(
+        new Index().on("driverId", Direction.ASC),
+        new Index().on("passengerId", Direction.ASC),
+        new Index().on("passengerLegs.passengerId", Direction.ASC))
+        .concatMap(indexOperations::ensureIndex)
+        .subscribe(index -> log.debug("Index {} of normalized rides is ensured", index),
+            throwable -> log.warn("Ensuring indexes of normalized rides failed: ", throwable));
+  }
+
+  public Mono<NormalizedRide> save(NormalizedRide ride) {
+    return reactiveMongoTemplate.save(ride);
+  }
+
+  /**
+   * Moves both ride requests of the Ride from AVAILABLE to MATCHED and saves the Ride in one
+   * multi-document transaction, see {@link RideRepository#saveMatched}.
+   *
+   * @return Mono from successfully saved Ride or Mono with error
+   */
+  public Mono<NormalizedRide> saveMatched(NormalizedRide ride) {
+    return reactiveMongoTemplate.inTransaction()
+        .execute(operations -> RideRepository.matchRequests(operations,
+            ride.getDriverRideRequestId(), ride.getPassengerRideRequestId())
+            .then(operations.insert(ride)))
+        .next();
+  }
+
+  public Mono<NormalizedRide> findById(String id) {
+    return reactiveMongoTemplate.findById(id, NormalizedRide.class);
+  }
+
+  /**
+   * Sets driver's feedback of the ride unless it is already set.
+   *
+   * @param rideId Id of a certain ride that field needs to be set
+   * @param feedback Entity that contains boolean value to set
+   * @return Mono object that contains updated Ride
+   */
+  public Mono<NormalizedRide> updateDriverFeedback(String rideId, Feedback feedback) {
+    return reactiveMongoTemplate.findAndModify(
+        Query.query(Criteria.where("_id").is(rideId).and("driverFeedback").exists(false)),
+        Update.update("driverFeedback", feedback),
+        new FindAndModifyOptions().returnNew(true), NormalizedRide.class);
+  }
+
+  /**
+   * Sets passenger's feedback in the leg of the passenger unless it is already set.
+   *
+   * @param rideId Id of a certain ride that field needs to be set
+   * @param passengerId Id of the passenger who gives the feedback
+   * @param feedback Entity that contains boolean value to set
+   * @return Mono object that contains updated Ride
+   */
+  public Mono<NormalizedRide> updatePassengerFeedback(@Nonnull String rideId,
+      @Nonnull String passengerId, Feedback feedback) {
+    return reactiveMongoTemplate.findAndModify(
+        Query.query(Criteria.where("_id").is(rideId).and("passengerLegs")
+            .elemMatch(Criteria.where("passengerId").is(passengerId)
+                .and("passengerFeedback").exists(false))),
+        Update.update("passengerLegs.$.passengerFeedback", feedback),
+        new FindAndModifyOptions().returnNew(true), NormalizedRide.class);
+  }
+
+  /**
+   * Returns rides of the user in the given status, see {@link RideRepository}. The user may be
+   * the driver, the passenger or a passenger of any leg of a pooled ride.
+   *
+   * @param userId user userId.
+   * @param rideStatus Status for the Ride entity.
+   * @return Flux of Rides from DB
+   */
+  public Flux<NormalizedRide> getRidesForUserByStatus(String userId, RideStatus rideStatus) {
+    Criteria fieldsCriteria = new Criteria()
+        .orOperator(Criteria.where("driverId").is(userId),
+            Criteria.where("passengerId").is(userId),
+            Criteria.where("passengerLegs.passengerId").is(userId));
+
+    if (Objects.nonNull(rideStatus)) {
+      return reactiveMongoTemplate.find(Query.query(
+          Criteria.where("status").is(rideStatus)
+              .andOperator(fieldsCriteria)), NormalizedRide.class);
+    }
+    return reactiveMongoTemplate.findAll(NormalizedRide.class);
+  }
+}
@@ -4,6 +4,7 @@ import com.elanlum.ecs.ride.crud.repository.AbstractRideRequestRepo;
 import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
 import com.elanlum.ecs.ride.model.values.RideRequestStatus;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
@@ -25,19 +26,37 @@ public class PassengerRideRequestRepo extends AbstractRideRequestRepo<PassengerR
 
   /**
    * This method is intended to give you passengers which have coincided time slots for a Ride.
+   * Only the fields matching works with are fetched, so the requests must not be saved back.
    *
    * @param driverStart from diver request.
    * @param driverEnd from driver request.
-   * @return all fitted passengers requests.
+   * @return matching views of all fitted passengers requests.
    */
-  public Flux<PassengerRideRequest> getAvailablePassengerRequestsInTime(LocalDateTime driverStart,
+  public Flux<PassengerRideRequest> getAvailablePassengerViewsInTime(LocalDateTime driverStart,
       LocalDateTime driverEnd, String driverId) {
+    return findMatchingViews(getInTimeQuery(driverStart, driverEnd, driverId));
+  }
 
-    Query query = Query.query(Criteria.where("status").is(RideRequestStatus.AVAILABLE))
+  /**
+   * Same as {@link #getAvailablePassengerViewsInTime(LocalDateTime, LocalDateTime, String)}, but
+   * looks only through the given candidates.
+   *
+   * @param driverStart from diver request.
+   * @param driverEnd from driver request.
+   * @param candidateIds ids of passenger requests to choose from.
+   * @return matching views of all fitted passengers requests.
+   */
+  public Flux<PassengerRideRequest> getAvailablePassengerViewsInTime(LocalDateTime driverStart,
+      LocalDateTime driverEnd, String driverId, Collection<String> candidateIds) {
+    return findMatchingViews(getInTimeQuery(driverStart, driverEnd, driverId)
+        .addCriteria(Criteria.where("_id").in(candidateIds)));
+  }
+
+  private Query getInTimeQuery(LocalDateTime driverStart, LocalDateTime driverEnd,
+      String driverId) {
+    return Query.query(Criteria.where("status").is(RideRequestStatus.AVAILABLE))
         .addCriteria(Criteria.where("userId").ne(driverId))
         .addCriteria(Criteria.where("rideDate.end").gte(driverStart)
             .andOperator(Criteria.where("rideDate.start").lte(driverEnd)));
-
-    return reactiveMongoTemplate.find(query, PassengerRideRequest.class);
   }
 }
@@ -1,12 +1,20 @@
 package com.elanlum.ecs.ride.crud.repository.impl;
 
+import com.elanlum.ecs.ride.crud.repository.AbstractRideRequestRepo;
+import com.elanlum.ecs.ride.exceptions.RideRequestStatusUpdatingException;
+import com.elanlum.ecs.ride.model.common.AbstractRideRequest;
+import com.elanlum.ecs.ride.model.common.DriverRideRequest;
+import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
 import com.elanlum.ecs.ride.model.common.Ride;
 import com.elanlum.ecs.ride.model.values.Feedback;
+import com.elanlum.ecs.ride.model.values.RideRequestStatus;
 import com.elanlum.ecs.ride.model.values.RideStatus;
+import java.time.LocalDateTime;
 import java.util.Objects;
 import javax.annotation.Nonnull;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
@@ -30,6 +38,51 @@ public class RideRepository {
     return reactiveMongoTemplate.save(ride);
   }
 
+  /**
+   * Moves both ride requests of the Ride from AVAILABLE to MATCHED and saves the Ride in one
+   * multi-document transaction. If any of the requests is not available anymore the transaction
+   * is aborted and nothing is written. Requires MongoDB 4.0 replica set.
+   *
+   * @return Mono from successfully saved Ride or Mono with
+   *     {@link RideRequestStatusUpdatingException}
+   */
+  public Mono<Ride> saveMatched(Ride ride) {
+    return reactiveMongoTemplate.inTransaction()
+        .execute(operations -> matchRequests(operations, ride.getDriverRideRequest().getId(),
+            ride.getPassengerRideRequest().getId())
+            .then(operations.insert(ride)))
+        .next();
+  }
+
+  /**
+   * Moves both given requests from AVAILABLE to MATCHED within the transaction of the operations.
+   * A session doesn't support concurrent operations, so the requests are updated one by one.
+   *
+   * @return empty Mono or Mono with {@link RideRequestStatusUpdatingException} if any of the
+   *     requests is not available anymore
+   */
+  static Mono<Void> matchRequests(ReactiveMongoOperations operations, String driverRequestId,
+      String passengerRequestId) {
+    return matchRequest(operations, driverRequestId, DriverRideRequest.class)
+        .flatMap(driverRequest -> matchRequest(operations, passengerRequestId,
+            PassengerRideRequest.class))
+        .switchIfEmpty(Mono.error(new RideRequestStatusUpdatingException(
+            "Matching driver request " + driverRequestId
+                + " with passenger request " + passengerRequestId
+                + " failed because one of them was not \"AVAILABLE\" anymore")))
+        .then();
+  }
+
+  private static <T extends AbstractRideRequest> Mono<T> matchRequest(
+      ReactiveMongoOperations operations, String rideRequestId, Class<T> rideRequestClass) {
+    return operations.findAndModify(
+        Query.query(Criteria.where("_id").is(rideRequestId))
+            .addCriteria(Criteria.where("status").is(RideRequestStatus.AVAILABLE)),
+        Update.update("status", RideRequestStatus.MATCHED)
+            .set(AbstractRideRequestRepo.LAST_MODIFIED, LocalDateTime.now()),
+        rideRequestClass);
+  }
+
   /**
    * Returns Ride by its Id.
    *
@@ -55,21 +108,31 @@ public class RideRepository {
   }
 
   /**
-   * Sets a boolean field of Passenger for Driver.
+   * Sets a boolean field of Feedback for the Passenger. A pooled ride keeps the feedback in the leg
+   * of the passenger, a single passenger ride in the ride itself.
    *
    * @param rideId Id of a certain ride that field needs to be set
+   * @param passengerId Id of the passenger who gives the feedback
    * @param feedback Entity that contains boolean value to set
    * @return Mono object that contains updated Ride entity
    */
-  public Mono<Ride> updatePassengerFeedback(@Nonnull String rideId, Feedback feedback) {
+  public Mono<Ride> updatePassengerFeedback(@Nonnull String rideId, @Nonnull String passengerId,
+      Feedback feedback) {
     return reactiveMongoTemplate.findAndModify(
-        Query.query(Criteria.where("_id").is(rideId).and("passengerFeedback").exists(false)),
-        Update.update("passengerFeedback", feedback),
-        new FindAndModifyOptions().returnNew(true), Ride.class);
+        Query.query(Criteria.where("_id").is(rideId).and("passengerLegs")
+            .elemMatch(Criteria.where("passenger.id").is(passengerId)
+                .and("passengerFeedback").exists(false))),
+        Update.update("passengerLegs.$.passengerFeedback", feedback),
+        new FindAndModifyOptions().returnNew(true), Ride.class)
+        .switchIfEmpty(Mono.defer(() -> reactiveMongoTemplate.findAndModify(
+            Query.query(Criteria.where("_id").is(rideId).and("passengerLegs").exists(false)
+                .and("passenger.id").is(passengerId).and("passengerFeedback").exists(false)),
+            Update.update("passengerFeedback", feedback),
+            new FindAndModifyOptions().returnNew(true), Ride.class)));
   }
 
   /**
-   * Returns all opened Rides entities.
+   * Returns all opened Rides entities where the user is the driver or one of the passengers.
    *
    * @param userId user userId.
    * @param rideStatus Status for the Ride entity.
@@ -78,7 +141,8 @@ public class RideRepository {
   public Flux<Ride> getRidesForUserByStatus(String userId, RideStatus rideStatus) {
     Criteria fieldsCriteria = new Criteria()
         .orOperator(Criteria.where("driver.id").is(userId),
-            Criteria.where("passenger.id").is(userId));
+            Criteria.where("passenger.id").is(userId),
+            Criteria.where("passengerLegs.passenger.id").is(userId));
 
     if (Objects.nonNull(rideStatus)) {
       return reactiveMongoTemplate.find(Query.query(
@@ -13,8 +13,14 @@ import com.elanlum.ecs.user.model.User;
 import com.elanlum.ecs.user.service.UserService;
 import com.elanlum.ecs.validation.ValidationForSave;
 import com.elanlum.ecs.validation.ValidationService;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -28,6 +34,7 @@ public abstract class AbstractRideRequestService<T extends AbstractRideRequest,
   protected final N abstractRideRequestRepo;
   protected final ValidationService<T> validationService;
   protected final UserService userService;
+  protected final ApplicationEventPublisher applicationEventPublisher;
 
   /**
    * Save rideRequest in repo. Firstly, check that rideRequest is valid(id = null). Secondly, check
@@ -46,6 +53,7 @@ public abstract class AbstractRideRequestService<T extends AbstractRideRequest,
         (source1, source2) -> source2)
         .flatMap(user -> abstractRideRequestRepo.save(ride))
         .doOnNext(ride1 -> log.debug("Ride request was created with id {}", ride1.getId()))
+        .doOnNext(this::notifyChanged)
         .single();
   }
 
@@ -73,7 +81,36 @@ public abstract class AbstractRideRequestService<T extends AbstractRideRequest,
         }))
         .doOnNext(rideRequest ->
             log.debug("The status of given ride request with id {} was updated to {}",
-                rideRequest.getId(), toStatus));
+                rideRequest.getId(), toStatus))
+        .doOnNext(this::notifyChanged);
+  }
+
+  /**
+   * Update field "status" for all given ids in one round trip. Requests which are not in the
+   * expected status anymore are left untouched.
+   *
+   * @param rideRequestIds - where we want update status
+   * @param fromStatus - what status is expected to be in the entities
+   * @param toStatus - set this status for field {@link RideRequestStatus} in entities
+   * @return {@link Flux} with actually updated requests or {@link Flux} with error
+   */
+  public Flux<T> updateStatuses(Collection<String> rideRequestIds, RideRequestStatus fromStatus,
+      RideRequestStatus toStatus) {
+    if (rideRequestIds == null) {
+      return Flux.error(new InvalidRideRequestUpdatingException("Ride requests can't be null"));
+    }
+    if (fromStatus == null || toStatus == null) {
+      return Flux.error(new InvalidRideRequestUpdatingException("Status can't be null"));
+    }
+    if (rideRequestIds.isEmpty()) {
+      return Flux.empty();
+    }
+
+    return abstractRideRequestRepo.updateStatuses(rideRequestIds, fromStatus, toStatus)
+        .doOnNext(rideRequest ->
+            log.debug("The status of given ride request with id {} was updated to {}",
+                rideRequest.getId(), toStatus))
+        .doOnNext(this::notifyChanged);
   }
 
   /**
@@ -93,6 +130,10 @@ public abstract class AbstractRideRequestService<T extends AbstractRideRequest,
     return abstractRideRequestRepo.findById(id);
   }
 
+  public Flux<T> findAllById(Collection<String> ids) {
+    return abstractRideRequestRepo.findAllById(ids);
+  }
+
   public Flux<T> findByUserId(String userId) {
     return abstractRideRequestRepo.findByUserId(userId);
   }
@@ -111,7 +152,84 @@ public abstract class AbstractRideRequestService<T extends AbstractRideRequest,
         .flatMapMany(status -> abstractRideRequestRepo.findUserRequestByStatus(userId, status));
   }
 
-  public Flux<T> getAvailableRequests() {
-    return abstractRideRequestRepo.getAvailableRequests();
+  /**
+   * Returns available requests for matching and indexing. Only the fields matching works with
+   * are fetched, so the requests must not be saved back.
+   *
+   * @return Flux of available requests with matching fields only
+   */
+  public Flux<T> getAvailableMatchingViews() {
+    return abstractRideRequestRepo.getAvailableMatchingViews();
+  }
+
+  public Flux<T> findModifiedSince(LocalDateTime since) {
+    return abstractRideRequestRepo.findModifiedSince(since);
+  }
+
+  public Flux<T> findAvailableModifiedSince(LocalDateTime since) {
+    return abstractRideRequestRepo.findAvailableModifiedSince(since);
+  }
+
+  /**
+   * Keeps only those requests read from the columnar store which are still AVAILABLE in the
+   * database. The store may lag behind status changes made by other instances or directly in
+   * Mongo, so the final status check stays in the database, it fetches nothing but ids. Requests
+   * which are not available anymore are forgotten via {@link #onRideRequestRemoved}.
+   *
+   * @param storedRequests - requests found in the columnar store
+   * @return Flux of requests which are still available
+   */
+  protected Flux<T> confirmAvailable(List<T> storedRequests) {
+    if (storedRequests.isEmpty()) {
+      return Flux.empty();
+    }
+    Set<String> storedIds = storedRequests.stream()
+        .map(AbstractRideRequest::getId)
+        .collect(Collectors.toSet());
+    return abstractRideRequestRepo.findAvailableIds(storedIds)
+        .collect(Collectors.toSet())
+        .flatMapMany(availableIds -> {
+          storedIds.stream()
+              .filter(id -> !availableIds.contains(id))
+              .forEach(this::notifyRemoved);
+          return Flux.fromIterable(storedRequests)
+              .filter(rideRequest -> availableIds.contains(rideRequest.getId()));
+        });
+  }
+
+  /**
+   * Forgets the request matched by a transaction which bypassed {@link #updateStatus}, so it is
+   * not offered for matching anymore. Must be called after the transaction is committed.
+   *
+   * @param rideRequestId - id of the matched request
+   */
+  public void onMatchedInTransaction(String rideRequestId) {
+    notifyRemoved(rideRequestId);
+  }
+
+  private void notifyChanged(T rideRequest) {
+    onRideRequestChanged(rideRequest);
+    applicationEventPublisher.publishEvent(new RideRequestChangedEvent(rideRequest.getId()));
+  }
+
+  private void notifyRemoved(String rideRequestId) {
+    onRideRequestRemoved(rideRequestId);
+    applicationEventPublisher.publishEvent(new RideRequestChangedEvent(rideRequestId));
+  }
+
+  /**
+   * Callback invoked after ride request stopped being available outside of this service.
+   *
+   * @param rideRequestId - id of the request
+   */
+  protected void onRideRequestRemoved(String rideRequestId) {
+  }
+
+  /**
+   * Callback invoked after ride request was saved or its status was changed.
+   *
+   * @param rideRequest - saved or updated ride request
+   */
+  protected void onRideRequestChanged(T rideRequest) {
   }
 }
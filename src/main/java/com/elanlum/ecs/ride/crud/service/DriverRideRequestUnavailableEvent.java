@@ -0,0 +1,15 @@
+package com.elanlum.ecs.ride.crud.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published after a driver request stopped being AVAILABLE or was forgotten, so everything kept
+ * for matching this request can be dropped.
+ */
+@Getter
+@AllArgsConstructor
+public class DriverRideRequestUnavailableEvent {
+
+  private final String driverRideRequestId;
+}
@@ -0,0 +1,15 @@
+package com.elanlum.ecs.ride.crud.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published after a ride request was saved, its status was changed or it stopped being
+ * available, so copies of the request kept elsewhere can be dropped.
+ */
+@Getter
+@AllArgsConstructor
+public class RideRequestChangedEvent {
+
+  private final String rideRequestId;
+}
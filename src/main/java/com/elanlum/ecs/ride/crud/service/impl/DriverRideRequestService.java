@@ -1,21 +1,146 @@
 package com.elanlum.ecs.ride.crud.service.impl;
 
+import com.elanlum.ecs.map.config.RoutingSchedulerConfig;
+import com.elanlum.ecs.map.service.MapService;
 import com.elanlum.ecs.ride.crud.repository.impl.DriverRideRequestRepo;
 import com.elanlum.ecs.ride.crud.service.AbstractRideRequestService;
+import com.elanlum.ecs.ride.crud.service.DriverRideRequestUnavailableEvent;
+import com.elanlum.ecs.ride.index.DriverRideRequestIndex;
 import com.elanlum.ecs.ride.model.common.DriverRideRequest;
+import com.elanlum.ecs.ride.model.values.RideRequestStatus;
 import com.elanlum.ecs.user.service.UserService;
 import com.elanlum.ecs.validation.ValidationService;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
+@Slf4j
 @Service
 public class DriverRideRequestService extends
     AbstractRideRequestService<DriverRideRequest, DriverRideRequestRepo> {
 
+  private final DriverRideRequestIndex driverRideRequestIndex;
+  private final MapService mapService;
+  private final Scheduler routingScheduler;
+
+  /**
+   * Positions of loaded and changed requests are snapped on the {@code routingScheduler}.
+   */
   @Autowired
   public DriverRideRequestService(DriverRideRequestRepo driverRideRequestRepo,
       ValidationService<DriverRideRequest> validationService,
-      UserService userService) {
-    super(driverRideRequestRepo, validationService, userService);
+      UserService userService, ApplicationEventPublisher applicationEventPublisher,
+      DriverRideRequestIndex driverRideRequestIndex,
+      MapService mapService,
+      @Qualifier(RoutingSchedulerConfig.ROUTING_SCHEDULER) Scheduler routingScheduler) {
+    super(driverRideRequestRepo, validationService, userService, applicationEventPublisher);
+    this.driverRideRequestIndex = driverRideRequestIndex;
+    this.mapService = mapService;
+    this.routingScheduler = routingScheduler;
+  }
+
+  public Flux<DriverRideRequest> getAvailableDriverMatchingViews(LocalDateTime passengerStart,
+      LocalDateTime passengerEnd, String passengerId) {
+    return abstractRideRequestRepo
+        .getAvailableDriverViewsInTime(passengerStart, passengerEnd, passengerId);
+  }
+
+  /**
+   * Returns available driver requests which have coincided time slots and belong to the given
+   * candidates. Empty candidates collection doesn't produce a database query at all. With the
+   * columnar store enabled the requests are read from the index and only their statuses are
+   * checked in the database. Until the index is loaded the candidates are ignored and all the
+   * requests with coincided time slots are returned.
+   *
+   * @param passengerStart from passenger request.
+   * @param passengerEnd from passenger request.
+   * @param passengerId user id of the passenger.
+   * @param candidateIds ids of the driver requests to choose from.
+   * @return fitted driver requests.
+   */
+  public Flux<DriverRideRequest> getAvailableDriverMatchingViews(LocalDateTime passengerStart,
+      LocalDateTime passengerEnd, String passengerId, Collection<String> candidateIds) {
+    if (!driverRideRequestIndex.isLoaded()) {
+      return getAvailableDriverMatchingViews(passengerStart, passengerEnd, passengerId);
+    }
+    if (candidateIds.isEmpty()) {
+      return Flux.empty();
+    }
+    if (driverRideRequestIndex.isStoringRequests()) {
+      return Flux.defer(() -> confirmAvailable(driverRideRequestIndex
+          .getAvailable(candidateIds, passengerStart, passengerEnd, passengerId)));
+    }
+    return abstractRideRequestRepo
+        .getAvailableDriverViewsInTime(passengerStart, passengerEnd, passengerId, candidateIds);
+  }
+
+  /**
+   * Fills the spatial index with requests that were available before the application start and
+   * snaps their positions to the routing graph on the routing scheduler.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadIndex() {
+    getAvailableMatchingViews()
+        .publishOn(routingScheduler)
+        .doOnNext(this::snapPositions)
+        .subscribe(driverRideRequestIndex::update,
+            throwable -> log.warn("Driver requests index loading failed: ", throwable),
+            () -> {
+              driverRideRequestIndex.markLoaded();
+              log.debug("Driver requests index loaded with {} requests",
+                  driverRideRequestIndex.size());
+            });
+  }
+
+  /**
+   * Applies changes of the requests made since the given time, including the ones made by other
+   * instances, to the spatial index.
+   *
+   * @param since - lower bound of the last modification time, inclusive
+   * @return {@link Mono} with the number of applied changes
+   */
+  public Mono<Long> refreshIndex(LocalDateTime since) {
+    return findModifiedSince(since)
+        .doOnNext(this::onRideRequestChanged)
+        .count();
+  }
+
+  @Override
+  protected void onRideRequestChanged(DriverRideRequest rideRequest) {
+    driverRideRequestIndex.update(rideRequest);
+    if (rideRequest.getStatus() == RideRequestStatus.AVAILABLE) {
+      snapPositionsAsync(rideRequest);
+    } else {
+      applicationEventPublisher
+          .publishEvent(new DriverRideRequestUnavailableEvent(rideRequest.getId()));
+    }
+  }
+
+  @Override
+  protected void onRideRequestRemoved(String rideRequestId) {
+    driverRideRequestIndex.remove(rideRequestId);
+    applicationEventPublisher.publishEvent(new DriverRideRequestUnavailableEvent(rideRequestId));
+  }
+
+  private void snapPositionsAsync(DriverRideRequest rideRequest) {
+    Mono.fromRunnable(() -> snapPositions(rideRequest))
+        .subscribeOn(routingScheduler)
+        .subscribe(null, throwable -> log.warn("Snapping positions of request {} failed: ",
+            rideRequest.getId(), throwable));
+  }
+
+  private void snapPositions(DriverRideRequest rideRequest) {
+    mapService.snapAll(Arrays.asList(rideRequest.getDeparturePoint(),
+        rideRequest.getDestinationPoint()));
   }
 }
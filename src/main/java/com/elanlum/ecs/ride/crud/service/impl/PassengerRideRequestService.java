@@ -1,31 +1,140 @@
 package com.elanlum.ecs.ride.crud.service.impl;
 
+import com.elanlum.ecs.map.config.RoutingSchedulerConfig;
+import com.elanlum.ecs.map.service.MapService;
 import com.elanlum.ecs.ride.crud.repository.impl.PassengerRideRequestRepo;
 import com.elanlum.ecs.ride.crud.service.AbstractRideRequestService;
+import com.elanlum.ecs.ride.index.PassengerRideRequestIndex;
 import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
+import com.elanlum.ecs.ride.model.values.RideRequestStatus;
 import com.elanlum.ecs.user.service.UserService;
 import com.elanlum.ecs.validation.ValidationService;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 @Slf4j
 @Service
 public class PassengerRideRequestService extends
     AbstractRideRequestService<PassengerRideRequest, PassengerRideRequestRepo> {
 
+  private final PassengerRideRequestIndex passengerRideRequestIndex;
+  private final MapService mapService;
+  private final Scheduler routingScheduler;
+
+  /**
+   * Positions of loaded and changed requests are snapped on the {@code routingScheduler}.
+   */
   @Autowired
   public PassengerRideRequestService(PassengerRideRequestRepo passengerRideRequestRepo,
       ValidationService<PassengerRideRequest> validationService,
-      UserService userService) {
-    super(passengerRideRequestRepo, validationService, userService);
+      UserService userService, ApplicationEventPublisher applicationEventPublisher,
+      PassengerRideRequestIndex passengerRideRequestIndex, MapService mapService,
+      @Qualifier(RoutingSchedulerConfig.ROUTING_SCHEDULER) Scheduler routingScheduler) {
+    super(passengerRideRequestRepo, validationService, userService, applicationEventPublisher);
+    this.passengerRideRequestIndex = passengerRideRequestIndex;
+    this.mapService = mapService;
+    this.routingScheduler = routingScheduler;
   }
 
-  public Flux<PassengerRideRequest> getAvailablePassengerRequestsInTime(LocalDateTime driverStart,
+  public Flux<PassengerRideRequest> getAvailablePassengerMatchingViews(LocalDateTime driverStart,
       LocalDateTime driverEnd, String driverId) {
     return abstractRideRequestRepo
-        .getAvailablePassengerRequestsInTime(driverStart, driverEnd, driverId);
+        .getAvailablePassengerViewsInTime(driverStart, driverEnd, driverId);
+  }
+
+  /**
+   * Returns available passenger requests which have coincided time slots and belong to the given
+   * candidates. Empty candidates collection doesn't produce a database query at all. With the
+   * columnar store enabled the requests are read from the index and only their statuses are
+   * checked in the database. Until the index is loaded the candidates are ignored and all the
+   * requests with coincided time slots are returned.
+   *
+   * @param driverStart from driver request.
+   * @param driverEnd from driver request.
+   * @param driverId user id of the driver.
+   * @param candidateIds ids of the passenger requests to choose from.
+   * @return fitted passenger requests.
+   */
+  public Flux<PassengerRideRequest> getAvailablePassengerMatchingViews(LocalDateTime driverStart,
+      LocalDateTime driverEnd, String driverId, Collection<String> candidateIds) {
+    if (!passengerRideRequestIndex.isLoaded()) {
+      return getAvailablePassengerMatchingViews(driverStart, driverEnd, driverId);
+    }
+    if (candidateIds.isEmpty()) {
+      return Flux.empty();
+    }
+    if (passengerRideRequestIndex.isStoringRequests()) {
+      return Flux.defer(() -> confirmAvailable(passengerRideRequestIndex
+          .getAvailable(candidateIds, driverStart, driverEnd, driverId)));
+    }
+    return abstractRideRequestRepo
+        .getAvailablePassengerViewsInTime(driverStart, driverEnd, driverId, candidateIds);
+  }
+
+  /**
+   * Fills the spatial index with requests that were available before the application start and
+   * snaps their positions to the routing graph on the routing scheduler.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadIndex() {
+    getAvailableMatchingViews()
+        .publishOn(routingScheduler)
+        .doOnNext(this::snapPositions)
+        .subscribe(passengerRideRequestIndex::update,
+            throwable -> log.warn("Passenger requests index loading failed: ", throwable),
+            () -> {
+              passengerRideRequestIndex.markLoaded();
+              log.debug("Passenger requests index loaded with {} requests",
+                  passengerRideRequestIndex.size());
+            });
+  }
+
+  /**
+   * Applies changes of the requests made since the given time, including the ones made by other
+   * instances, to the spatial index.
+   *
+   * @param since - lower bound of the last modification time, inclusive
+   * @return {@link Mono} with the number of applied changes
+   */
+  public Mono<Long> refreshIndex(LocalDateTime since) {
+    return findModifiedSince(since)
+        .doOnNext(this::onRideRequestChanged)
+        .count();
+  }
+
+  @Override
+  protected void onRideRequestChanged(PassengerRideRequest rideRequest) {
+    passengerRideRequestIndex.update(rideRequest);
+    if (rideRequest.getStatus() == RideRequestStatus.AVAILABLE) {
+      snapPositionsAsync(rideRequest);
+    }
+  }
+
+  @Override
+  protected void onRideRequestRemoved(String rideRequestId) {
+    passengerRideRequestIndex.remove(rideRequestId);
+  }
+
+  private void snapPositionsAsync(PassengerRideRequest rideRequest) {
+    Mono.fromRunnable(() -> snapPositions(rideRequest))
+        .subscribeOn(routingScheduler)
+        .subscribe(null, throwable -> log.warn("Snapping positions of request {} failed: ",
+            rideRequest.getId(), throwable));
+  }
+
+  private void snapPositions(PassengerRideRequest rideRequest) {
+    mapService.snapAll(Arrays.asList(rideRequest.getDeparturePoint(),
+        rideRequest.getDestinationPoint()));
   }
 }
@@ -0,0 +1,74 @@
+package com.elanlum.ecs.ride.crud.service.impl;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Bounded cache of documents referenced by id. Missing ids requested together are loaded with
+ * one query and concurrent requests of the same id wait for the same load.
+ *
+ * @param <T> type of the referenced documents
+ */
+public class ReferenceLoader<T> {
+
+  private final AsyncLoadingCache<String, T> cache;
+
+  /**
+   * Creates the loader with a bounded cache of loaded documents.
+   *
+   * @param finder - loads documents with the given ids, unknown ids are skipped
+   * @param idOf - returns id of a loaded document
+   * @param maximumSize - maximal number of cached documents
+   * @param expireAfterWrite - time a loaded document is kept
+   */
+  public ReferenceLoader(Function<Collection<String>, Flux<T>> finder, Function<T, String> idOf,
+      long maximumSize, Duration expireAfterWrite) {
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(expireAfterWrite)
+        .buildAsync(new AsyncCacheLoader<String, T>() {
+          @Override
+          public CompletableFuture<T> asyncLoad(String id, Executor executor) {
+            return asyncLoadAll(List.of(id), executor).thenApply(documents -> documents.get(id));
+          }
+
+          @Override
+          public CompletableFuture<Map<String, T>> asyncLoadAll(Iterable<? extends String> ids,
+              Executor executor) {
+            List<String> missingIds = new ArrayList<>();
+            ids.forEach(missingIds::add);
+            return finder.apply(missingIds).collectMap(idOf).toFuture();
+          }
+        });
+  }
+
+  /**
+   * Returns documents with the given ids, only the ones which are not cached yet are loaded.
+   *
+   * @param ids - ids of the documents
+   * @return Mono with found documents by id
+   */
+  public Mono<Map<String, T>> loadAll(Collection<String> ids) {
+    return Mono.defer(() -> Mono.fromFuture(cache.getAll(ids)));
+  }
+
+  /**
+   * Drops the cached document, it is loaded again on the next request.
+   *
+   * @param id - id of the changed document
+   */
+  public void invalidate(String id) {
+    cache.synchronous().invalidate(id);
+  }
+}
@@ -0,0 +1,98 @@
+package com.elanlum.ecs.ride.crud.service.impl;
+
+import com.elanlum.ecs.ride.crud.service.RideRequestChangedEvent;
+import com.elanlum.ecs.ride.model.common.DriverRideRequest;
+import com.elanlum.ecs.ride.model.common.NormalizedRide;
+import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
+import com.elanlum.ecs.ride.model.common.Ride;
+import com.elanlum.ecs.ride.scheduling.config.RideStorageConfiguration;
+import com.elanlum.ecs.user.model.User;
+import com.elanlum.ecs.user.service.UserChangedEvent;
+import com.elanlum.ecs.user.service.UserService;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Restores {@link Ride} from its normalized layout. Rides are resolved in batches: users and
+ * requests referenced by the whole batch are taken from bounded caches and the missing ones are
+ * loaded with one query per collection. Cached users and requests are dropped as soon as they
+ * are changed.
+ */
+@Component
+public class RideReferenceResolver {
+
+  private final ReferenceLoader<User> users;
+  private final ReferenceLoader<DriverRideRequest> driverRideRequests;
+  private final ReferenceLoader<PassengerRideRequest> passengerRideRequests;
+  private final RideStorageConfiguration rideStorageConfiguration;
+
+  /**
+   * Users and ride requests are cached by separate loaders bounded by the same settings.
+   */
+  @Autowired
+  public RideReferenceResolver(UserService userService,
+      DriverRideRequestService driverRideRequestService,
+      PassengerRideRequestService passengerRideRequestService,
+      RideStorageConfiguration rideStorageConfiguration) {
+    long maximumSize = rideStorageConfiguration.getReferenceCacheMaximumSize();
+    Duration ttl = Duration.ofMinutes(rideStorageConfiguration.getReferenceCacheTtlMinutes());
+    this.users = new ReferenceLoader<>(userService::findAllById, User::getId, maximumSize, ttl);
+    this.driverRideRequests = new ReferenceLoader<>(driverRideRequestService::findAllById,
+        DriverRideRequest::getId, maximumSize, ttl);
+    this.passengerRideRequests = new ReferenceLoader<>(passengerRideRequestService::findAllById,
+        PassengerRideRequest::getId, maximumSize, ttl);
+    this.rideStorageConfiguration = rideStorageConfiguration;
+  }
+
+  public Mono<Ride> resolve(Mono<NormalizedRide> normalizedRide) {
+    return resolveAll(normalizedRide.flux()).next();
+  }
+
+  public Flux<Ride> resolveAll(Flux<NormalizedRide> normalizedRides) {
+    return normalizedRides.buffer(rideStorageConfiguration.getResolveBatchSize())
+        .concatMap(this::resolveBatch);
+  }
+
+  @EventListener
+  public void onUserChanged(UserChangedEvent event) {
+    users.invalidate(event.getUserId());
+  }
+
+  /**
+   * Drops the changed request, ids are unique across both request collections.
+   */
+  @EventListener
+  public void onRideRequestChanged(RideRequestChangedEvent event) {
+    driverRideRequests.invalidate(event.getRideRequestId());
+    passengerRideRequests.invalidate(event.getRideRequestId());
+  }
+
+  private Flux<Ride> resolveBatch(List<NormalizedRide> batch) {
+    return Mono.zip(users.loadAll(getIds(batch, NormalizedRide::getUserIds)),
+        driverRideRequests.loadAll(getIds(batch,
+            normalizedRide -> Stream.of(normalizedRide.getDriverRideRequestId()))),
+        passengerRideRequests.loadAll(getIds(batch, NormalizedRide::getPassengerRideRequestIds)))
+        .flatMapIterable(references -> batch.stream()
+            .map(normalizedRide -> normalizedRide.toRide(references.getT1(),
+                references.getT2(), references.getT3()))
+            .collect(Collectors.toList()));
+  }
+
+  private Set<String> getIds(List<NormalizedRide> batch,
+      Function<NormalizedRide, Stream<String>> ids) {
+    return batch.stream()
+        .flatMap(ids)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toSet());
+  }
+}
@@ -1,12 +1,16 @@
 package com.elanlum.ecs.ride.crud.service.impl;
 
 import com.elanlum.ecs.ride.crud.controller.values.RideCriteria;
+import com.elanlum.ecs.ride.crud.repository.impl.NormalizedRideRepository;
 import com.elanlum.ecs.ride.crud.repository.impl.RideRepository;
 import com.elanlum.ecs.ride.exceptions.FeedbackUpdateException;
+import com.elanlum.ecs.ride.model.common.NormalizedRide;
 import com.elanlum.ecs.ride.model.common.Ride;
 import com.elanlum.ecs.ride.model.values.Feedback;
 import com.elanlum.ecs.ride.model.values.RideStatus;
+import com.elanlum.ecs.ride.scheduling.config.RideStorageConfiguration;
 import com.elanlum.ecs.validation.ValidationService;
+import java.util.function.Supplier;
 import javax.annotation.Nonnull;
 import javax.validation.groups.Default;
 import lombok.RequiredArgsConstructor;
@@ -24,25 +28,47 @@ public class RideService {
 
   private final RideRepository rideRepository;
   private final ValidationService<Ride> validationService;
+  private final NormalizedRideRepository normalizedRideRepository;
+  private final RideReferenceResolver rideReferenceResolver;
+  private final RideStorageConfiguration rideStorageConfiguration;
 
   /**
-   * Uses repo save method to pass valid Ride to DB.
+   * Uses repo save method to pass valid Ride to DB. In the normalized layout only ids of the
+   * participants and requests are stored together with a short summary.
    *
    * @return Mono from valid Ride
    */
   public Mono<Ride> save(Ride ride) {
     return validationService.entityValidate(ride, Default.class)
-        .flatMap(rideRepository::save)
+        .flatMap(this::store)
         .doOnNext(ride1 -> log.debug("Ride with id {} was saved", ride1.getId()));
   }
 
   /**
-   * Returns Ride by Its ID.
+   * Validates the Ride and saves it together with MATCHED statuses of its requests in one
+   * transaction.
+   *
+   * @return Mono from valid Ride or Mono with error if its requests are not available anymore
+   */
+  public Mono<Ride> saveMatched(Ride ride) {
+    return validationService.entityValidate(ride, Default.class)
+        .flatMap(this::storeMatched)
+        .doOnNext(ride1 -> log.debug("Ride with id {} was saved with matched requests",
+            ride1.getId()));
+  }
+
+  /**
+   * Returns Ride by Its ID. In the normalized layout rides saved before the switch are looked up
+   * in the embedded layout unless the fallback is disabled.
    *
    * @param id of Ride
    * @return Mono from desired Ride
    */
   public Mono<Ride> findById(String id) {
+    if (isNormalized()) {
+      return orEmbedded(rideReferenceResolver.resolve(normalizedRideRepository.findById(id)),
+          () -> rideRepository.findById(id));
+    }
     return rideRepository.findById(id);
   }
 
@@ -57,21 +83,33 @@ public class RideService {
     if (rideId == null) {
       return Mono.error(new FeedbackUpdateException("Ride Id was null"));
     }
+    if (isNormalized()) {
+      return orEmbedded(rideReferenceResolver
+          .resolve(normalizedRideRepository.updateDriverFeedback(rideId, feedback)),
+          () -> rideRepository.updateDriverFeedback(rideId, feedback));
+    }
     return rideRepository.updateDriverFeedback(rideId, feedback);
   }
 
   /**
-   * Calls Passenger update method of Repo in case it feedback has a null value.
+   * Calls Passenger update method of Repo in case feedback of the passenger has a null value.
    *
    * @param rideId Ride id to be passed to repo method
+   * @param passengerId Id of the passenger who gives the feedback
    * @param feedback Boolean value to be passed to repo method
    * @return Mono that contains updated Ride
    */
-  public Mono<Ride> updatePassengerFeedback(String rideId, Feedback feedback) {
+  public Mono<Ride> updatePassengerFeedback(String rideId, String passengerId,
+      Feedback feedback) {
     if (rideId == null) {
       return Mono.error(new FeedbackUpdateException("Ride Id was null"));
     }
-    return rideRepository.updatePassengerFeedback(rideId, feedback);
+    if (isNormalized()) {
+      return orEmbedded(rideReferenceResolver.resolve(
+          normalizedRideRepository.updatePassengerFeedback(rideId, passengerId, feedback)),
+          () -> rideRepository.updatePassengerFeedback(rideId, passengerId, feedback));
+    }
+    return rideRepository.updatePassengerFeedback(rideId, passengerId, feedback);
   }
 
   /**
@@ -84,12 +122,51 @@ public class RideService {
   public Flux<Ride> getRidesForUserByStatus(@Nonnull String userId,
       @Nonnull RideCriteria criteria) {
     if (criteria.getStatus() == null) {
-      return rideRepository.getRidesForUserByStatus(userId, null);
+      return findRides(userId, null);
     }
 
     return RideStatus.getRideStatusByString(criteria.getStatus())
         .switchIfEmpty(Mono.error(new IllegalArgumentException("Wrong criteria parameter"
             + " was passed to the method")))
-        .flatMapMany(status -> rideRepository.getRidesForUserByStatus(userId, status));
+        .flatMapMany(status -> findRides(userId, status));
+  }
+
+  private Mono<Ride> store(Ride ride) {
+    if (isNormalized()) {
+      return normalizedRideRepository.save(NormalizedRide.of(ride))
+          .map(normalizedRide -> normalizedRide.identify(ride));
+    }
+    return rideRepository.save(ride);
+  }
+
+  private Mono<Ride> storeMatched(Ride ride) {
+    if (isNormalized()) {
+      return normalizedRideRepository.saveMatched(NormalizedRide.of(ride))
+          .map(normalizedRide -> normalizedRide.identify(ride));
+    }
+    return rideRepository.saveMatched(ride);
+  }
+
+  private Flux<Ride> findRides(String userId, RideStatus status) {
+    if (isNormalized()) {
+      Flux<Ride> rides = rideReferenceResolver
+          .resolveAll(normalizedRideRepository.getRidesForUserByStatus(userId, status));
+      if (rideStorageConfiguration.isEmbeddedReadFallback()) {
+        return rides.concatWith(rideRepository.getRidesForUserByStatus(userId, status));
+      }
+      return rides;
+    }
+    return rideRepository.getRidesForUserByStatus(userId, status);
+  }
+
+  private Mono<Ride> orEmbedded(Mono<Ride> normalizedRide, Supplier<Mono<Ride>> embeddedRide) {
+    if (rideStorageConfiguration.isEmbeddedReadFallback()) {
+      return normalizedRide.switchIfEmpty(Mono.defer(embeddedRide));
+    }
+    return normalizedRide;
+  }
+
+  private boolean isNormalized() {
+    return rideStorageConfiguration.isNormalized();
   }
 }
@@ -0,0 +1,329 @@
+package com.elanlum.ecs.ride.index;
+
+import com.elanlum.ecs.ride.model.common.AbstractRideRequest;
+import com.elanlum.ecs.ride.model.values.Interval;
+import com.elanlum.ecs.ride.model.values.Position;
+import com.elanlum.ecs.ride.model.values.RideRequestStatus;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory spatial and time index over AVAILABLE ride requests. Departure points are kept in
+ * grid cells, ride intervals in fixed-size time buckets. It only keeps ids and intervals, the
+ * database stays the source of truth for everything else. With the columnar store enabled the
+ * index also keeps the matching fields of the requests, so candidates are read from memory
+ * instead of the database.
+ */
+@Slf4j
+public abstract class AbstractRideRequestIndex<T extends AbstractRideRequest> {
+
+  private final SpatialGrid grid;
+  private final int ringRadius;
+  private final Map<String, Long> cellsByRequestId = new ConcurrentHashMap<>();
+  private final Map<Long, Set<String>> requestIdsByCell = new ConcurrentHashMap<>();
+  private final long timeBucketSeconds;
+  private final Map<String, Interval> intervalsByRequestId = new ConcurrentHashMap<>();
+  private final NavigableMap<Long, Set<String>> requestIdsByTimeBucket =
+      new ConcurrentSkipListMap<>();
+  private final RideRequestColumns columns;
+  private volatile boolean loaded;
+
+  protected AbstractRideRequestIndex(MatchingConfiguration matchingConfiguration) {
+    this.grid = new SpatialGrid(matchingConfiguration.getGridCellDegrees());
+    this.ringRadius = matchingConfiguration.getGridRing();
+    this.timeBucketSeconds = TimeUnit.MINUTES
+        .toSeconds(Math.max(1, matchingConfiguration.getTimeBucketMinutes()));
+    this.columns = matchingConfiguration.isColumnarStore() ? new RideRequestColumns() : null;
+  }
+
+  /**
+   * Puts AVAILABLE request into the index or removes it from the index for any other status.
+   *
+   * @param rideRequest - saved or updated ride request
+   */
+  public void update(T rideRequest) {
+    if (rideRequest.getStatus() == RideRequestStatus.AVAILABLE
+        && rideRequest.getDeparturePoint() != null) {
+      add(rideRequest.getId(), grid.cellOf(rideRequest.getDeparturePoint()));
+      updateInterval(rideRequest.getId(), rideRequest.getRideDate());
+      updateColumns(rideRequest);
+    } else {
+      remove(rideRequest.getId());
+    }
+  }
+
+  /**
+   * Removes request from the index.
+   *
+   * @param rideRequestId - id of the request
+   */
+  public void remove(String rideRequestId) {
+    Long cell = cellsByRequestId.remove(rideRequestId);
+    if (cell != null) {
+      requestIdsByCell.computeIfPresent(cell, (key, ids) -> {
+        ids.remove(rideRequestId);
+        return ids.isEmpty() ? null : ids;
+      });
+    }
+    removeInterval(rideRequestId);
+    if (columns != null) {
+      columns.remove(rideRequestId);
+    }
+  }
+
+  /**
+   * Returns ids of the requests which departure points lie in the k-ring around the position.
+   *
+   * @param position - center of the search
+   * @return set of ride request ids
+   */
+  public Set<String> findNear(Position position) {
+    if (position == null) {
+      return Collections.emptySet();
+    }
+    Set<String> nearIds = new HashSet<>();
+    for (long cell : grid.ring(position, ringRadius)) {
+      Set<String> ids = requestIdsByCell.get(cell);
+      if (ids != null) {
+        nearIds.addAll(ids);
+      }
+    }
+    return nearIds;
+  }
+
+  /**
+   * Returns ids of the requests which departure points lie in the k-ring around the position and
+   * which ride intervals overlap the given one. The smaller of the spatial and the time
+   * candidate sets is collected and checked against the other condition, so the lookup costs
+   * O(log n + k) in the number of candidates. Requests without an interval are never found.
+   *
+   * @param position - center of the search
+   * @param interval - ride interval the found requests have to overlap
+   * @return set of ride request ids
+   */
+  public Set<String> findNear(Position position, Interval interval) {
+    if (!isComplete(interval)) {
+      return findNear(position);
+    }
+    if (position == null) {
+      return Collections.emptySet();
+    }
+    long[] cells = grid.ring(position, ringRadius);
+    NavigableMap<Long, Set<String>> buckets = getTimeBuckets(interval);
+    Set<String> nearIds = new HashSet<>();
+    if (countCandidates(cells) <= countCandidates(buckets)) {
+      for (long cell : cells) {
+        Set<String> ids = requestIdsByCell.get(cell);
+        if (ids != null) {
+          ids.stream()
+              .filter(id -> overlaps(intervalsByRequestId.get(id), interval))
+              .forEach(nearIds::add);
+        }
+      }
+    } else {
+      Set<Long> ring = LongStream.of(cells).boxed().collect(Collectors.toSet());
+      for (Set<String> ids : buckets.values()) {
+        ids.stream()
+            .filter(id -> ring.contains(cellsByRequestId.get(id))
+                && overlaps(intervalsByRequestId.get(id), interval))
+            .forEach(nearIds::add);
+      }
+    }
+    return nearIds;
+  }
+
+  /**
+   * Returns ids of the requests which ride intervals overlap the given one.
+   *
+   * @param interval - ride interval the found requests have to overlap
+   * @return set of ride request ids
+   */
+  public Set<String> findOverlapping(Interval interval) {
+    if (!isComplete(interval)) {
+      return Collections.emptySet();
+    }
+    Set<String> overlappingIds = new HashSet<>();
+    for (Set<String> ids : getTimeBuckets(interval).values()) {
+      ids.stream()
+          .filter(id -> overlaps(intervalsByRequestId.get(id), interval))
+          .forEach(overlappingIds::add);
+    }
+    return overlappingIds;
+  }
+
+  /**
+   * Checks whether two positions are close enough to be found by {@link #findNear(Position)}.
+   */
+  public boolean isNear(Position center, Position position) {
+    return center != null && position != null && grid.isWithinRing(center, position, ringRadius);
+  }
+
+  /**
+   * Tells whether the index keeps whole requests in the columnar store.
+   */
+  public boolean isStoringRequests() {
+    return columns != null;
+  }
+
+  /**
+   * Returns available requests among the candidates which ride intervals overlap the given time
+   * and which belong to other users. The requests are read from the columnar store, which may lag
+   * behind changes made by other instances, so statuses of the found requests have to be
+   * confirmed in the database.
+   *
+   * @param candidateIds - ids of the requests to choose from
+   * @param start - start of the ride interval
+   * @param end - end of the ride interval
+   * @param excludedUserId - user whose requests are skipped
+   * @return found requests
+   * @throws IllegalStateException if the columnar store is disabled
+   */
+  public List<T> getAvailable(Collection<String> candidateIds, LocalDateTime start,
+      LocalDateTime end, String excludedUserId) {
+    if (columns == null) {
+      throw new IllegalStateException("Columnar store of ride requests is disabled");
+    }
+    return columns.findAvailable(candidateIds, start, end, excludedUserId, this::create);
+  }
+
+  /**
+   * Marks the index as filled with the requests which were available before the start.
+   */
+  public void markLoaded() {
+    loaded = true;
+  }
+
+  /**
+   * Tells whether the initial loading has finished. Until then the index misses requests, so the
+   * candidates have to be found in the database.
+   */
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  public boolean contains(String rideRequestId) {
+    return cellsByRequestId.containsKey(rideRequestId);
+  }
+
+  public int size() {
+    return cellsByRequestId.size();
+  }
+
+  /**
+   * Returns the number of seats to keep in the columnar store.
+   */
+  protected int getSeats(T rideRequest) {
+    return 1;
+  }
+
+  /**
+   * Builds the request of this index from the fields kept in the columnar store.
+   */
+  protected abstract T create(String id, String userId, Interval rideDate,
+      Position departurePoint, Position destinationPoint, int seats);
+
+  private void updateColumns(T rideRequest) {
+    if (columns == null) {
+      return;
+    }
+    if (isComplete(rideRequest.getRideDate())) {
+      columns.put(rideRequest, getSeats(rideRequest));
+    } else {
+      columns.remove(rideRequest.getId());
+    }
+  }
+
+  private void add(String rideRequestId, long cell) {
+    Long previousCell = cellsByRequestId.put(rideRequestId, cell);
+    if (previousCell != null && previousCell != cell) {
+      requestIdsByCell.computeIfPresent(previousCell, (key, ids) -> {
+        ids.remove(rideRequestId);
+        return ids.isEmpty() ? null : ids;
+      });
+    }
+    requestIdsByCell.compute(cell, (key, ids) -> {
+      Set<String> cellIds = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+      cellIds.add(rideRequestId);
+      return cellIds;
+    });
+  }
+
+  private void updateInterval(String rideRequestId, Interval interval) {
+    removeInterval(rideRequestId);
+    if (!isComplete(interval)) {
+      return;
+    }
+    intervalsByRequestId.put(rideRequestId, interval);
+    for (long bucket = bucketOf(interval.getStart()); bucket <= bucketOf(interval.getEnd());
+        bucket++) {
+      requestIdsByTimeBucket.compute(bucket, (key, ids) -> {
+        Set<String> bucketIds = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+        bucketIds.add(rideRequestId);
+        return bucketIds;
+      });
+    }
+  }
+
+  private void removeInterval(String rideRequestId) {
+    Interval interval = intervalsByRequestId.remove(rideRequestId);
+    if (interval == null) {
+      return;
+    }
+    for (long bucket = bucketOf(interval.getStart()); bucket <= bucketOf(interval.getEnd());
+        bucket++) {
+      requestIdsByTimeBucket.computeIfPresent(bucket, (key, ids) -> {
+        ids.remove(rideRequestId);
+        return ids.isEmpty() ? null : ids;
+      });
+    }
+  }
+
+  private NavigableMap<Long, Set<String>> getTimeBuckets(Interval interval) {
+    return requestIdsByTimeBucket.subMap(bucketOf(interval.getStart()), true,
+        bucketOf(interval.getEnd()), true);
+  }
+
+  private long bucketOf(LocalDateTime time) {
+    return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), timeBucketSeconds);
+  }
+
+  private int countCandidates(long[] cells) {
+    int candidates = 0;
+    for (long cell : cells) {
+      Set<String> ids = requestIdsByCell.get(cell);
+      candidates += ids == null ? 0 : ids.size();
+    }
+    return candidates;
+  }
+
+  private int countCandidates(NavigableMap<Long, Set<String>> buckets) {
+    int candidates = 0;
+    for (Set<String> ids : buckets.values()) {
+      candidates += ids.size();
+    }
+    return candidates;
+  }
+
+  private static boolean isComplete(Interval interval) {
+    return interval != null && interval.getStart() != null && interval.getEnd() != null;
+  }
+
+  private static boolean overlaps(Interval interval, Interval other) {
+    return interval != null && !interval.getEnd().isBefore(other.getStart())
+        && !interval.getStart().isAfter(other.getEnd());
+  }
+}
@@ -0,0 +1,30 @@
+package com.elanlum.ecs.ride.index;
+
+import com.elanlum.ecs.ride.model.common.DriverRideRequest;
+import com.elanlum.ecs.ride.model.values.Interval;
+import com.elanlum.ecs.ride.model.values.Position;
+import com.elanlum.ecs.ride.model.values.RideRequestStatus;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class DriverRideRequestIndex extends AbstractRideRequestIndex<DriverRideRequest> {
+
+  @Autowired
+  public DriverRideRequestIndex(MatchingConfiguration matchingConfiguration) {
+    super(matchingConfiguration);
+  }
+
+  @Override
+  protected int getSeats(DriverRideRequest rideRequest) {
+    return rideRequest.getSeats();
+  }
+
+  @Override
+  protected DriverRideRequest create(String id, String userId, Interval rideDate,
+      Position departurePoint, Position destinationPoint, int seats) {
+    return new DriverRideRequest(id, userId, rideDate, departurePoint, destinationPoint,
+        RideRequestStatus.AVAILABLE, seats);
+  }
+}
@@ -0,0 +1,25 @@
+package com.elanlum.ecs.ride.index;
+
+import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
+import com.elanlum.ecs.ride.model.values.Interval;
+import com.elanlum.ecs.ride.model.values.Position;
+import com.elanlum.ecs.ride.model.values.RideRequestStatus;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class PassengerRideRequestIndex extends AbstractRideRequestIndex<PassengerRideRequest> {
+
+  @Autowired
+  public PassengerRideRequestIndex(MatchingConfiguration matchingConfiguration) {
+    super(matchingConfiguration);
+  }
+
+  @Override
+  protected PassengerRideRequest create(String id, String userId, Interval rideDate,
+      Position departurePoint, Position destinationPoint, int seats) {
+    return new PassengerRideRequest(id, userId, rideDate, departurePoint, destinationPoint,
+        RideRequestStatus.AVAILABLE);
+  }
+}
@@ -0,0 +1,196 @@
+package com.elanlum.ecs.ride.index;
+
+import com.elanlum.ecs.ride.model.common.AbstractRideRequest;
+import com.elanlum.ecs.ride.model.values.Interval;
+import com.elanlum.ecs.ride.model.values.Position;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Columnar store of AVAILABLE ride requests. Every request takes one slot in parallel arrays of
+ * primitives: coordinates as floats, ride interval as epoch milliseconds and a status byte. Times
+ * are kept with millisecond precision, the same as in Mongo. Slots of removed requests are
+ * reused, so the arrays only grow with the peak number of requests. Requests are built again only
+ * for the candidates which passed the scan.
+ */
+final class RideRequestColumns {
+
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final byte FREE = 0;
+  private static final byte AVAILABLE = 1;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<String, Integer> slotsById = new HashMap<>();
+  private final Deque<Integer> freeSlots = new ArrayDeque<>();
+  private int usedSlots;
+
+  private byte[] statuses = new byte[INITIAL_CAPACITY];
+  private String[] ids = new String[INITIAL_CAPACITY];
+  private String[] userIds = new String[INITIAL_CAPACITY];
+  private float[] departureLatitudes = new float[INITIAL_CAPACITY];
+  private float[] departureLongitudes = new float[INITIAL_CAPACITY];
+  private float[] destinationLatitudes = new float[INITIAL_CAPACITY];
+  private float[] destinationLongitudes = new float[INITIAL_CAPACITY];
+  private long[] startMillis = new long[INITIAL_CAPACITY];
+  private long[] endMillis = new long[INITIAL_CAPACITY];
+  private int[] seats = new int[INITIAL_CAPACITY];
+
+  /**
+   * Creates a ride request from the columns of one slot.
+   */
+  @FunctionalInterface
+  interface RequestFactory<T> {
+
+    T create(String id, String userId, Interval rideDate, Position departurePoint,
+        Position destinationPoint, int seats);
+  }
+
+  /**
+   * Writes the request into its slot, the request must have departure point and complete ride
+   * interval.
+   */
+  void put(AbstractRideRequest rideRequest, int requestSeats) {
+    lock.writeLock().lock();
+    try {
+      Integer slot = slotsById.get(rideRequest.getId());
+      if (slot == null) {
+        slot = takeSlot();
+        slotsById.put(rideRequest.getId(), slot);
+      }
+      statuses[slot] = AVAILABLE;
+      ids[slot] = rideRequest.getId();
+      userIds[slot] = rideRequest.getUserId();
+      departureLatitudes[slot] = rideRequest.getDeparturePoint().getLatitude();
+      departureLongitudes[slot] = rideRequest.getDeparturePoint().getLongitude();
+      Position destination = rideRequest.getDestinationPoint();
+      destinationLatitudes[slot] = destination == null ? Float.NaN : destination.getLatitude();
+      destinationLongitudes[slot] = destination == null ? Float.NaN : destination.getLongitude();
+      startMillis[slot] = toMillis(rideRequest.getRideDate().getStart());
+      endMillis[slot] = toMillis(rideRequest.getRideDate().getEnd());
+      seats[slot] = requestSeats;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  void remove(String rideRequestId) {
+    lock.writeLock().lock();
+    try {
+      Integer slot = slotsById.remove(rideRequestId);
+      if (slot != null) {
+        statuses[slot] = FREE;
+        ids[slot] = null;
+        userIds[slot] = null;
+        freeSlots.push(slot);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Scans the candidates for available requests which ride intervals overlap the given one and
+   * which belong to other users, the same conditions the repository queries use.
+   *
+   * @param candidateIds - ids of the requests to choose from
+   * @param start - start of the ride interval
+   * @param end - end of the ride interval
+   * @param excludedUserId - user whose requests are skipped
+   * @param factory - builds the found requests
+   * @return found requests
+   */
+  <T> List<T> findAvailable(Collection<String> candidateIds, LocalDateTime start,
+      LocalDateTime end, String excludedUserId, RequestFactory<T> factory) {
+    long fromMillis = toMillis(start);
+    long toMillis = toMillis(end);
+    lock.readLock().lock();
+    try {
+      int[] slots = new int[candidateIds.size()];
+      int candidates = 0;
+      for (String candidateId : candidateIds) {
+        Integer slot = slotsById.get(candidateId);
+        if (slot != null) {
+          slots[candidates++] = slot;
+        }
+      }
+      int found = 0;
+      for (int candidate = 0; candidate < candidates; candidate++) {
+        int slot = slots[candidate];
+        if (statuses[slot] == AVAILABLE && endMillis[slot] >= fromMillis
+            && startMillis[slot] <= toMillis) {
+          slots[found++] = slot;
+        }
+      }
+      List<T> requests = new ArrayList<>(found);
+      for (int index = 0; index < found; index++) {
+        int slot = slots[index];
+        if (excludedUserId == null || !excludedUserId.equals(userIds[slot])) {
+          requests.add(read(slot, factory));
+        }
+      }
+      return requests;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  int size() {
+    lock.readLock().lock();
+    try {
+      return slotsById.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private <T> T read(int slot, RequestFactory<T> factory) {
+    Position destination = Float.isNaN(destinationLatitudes[slot]) ? null
+        : new Position(destinationLatitudes[slot], destinationLongitudes[slot]);
+    return factory.create(ids[slot], userIds[slot],
+        new Interval(toDateTime(startMillis[slot]), toDateTime(endMillis[slot])),
+        new Position(departureLatitudes[slot], departureLongitudes[slot]), destination,
+        seats[slot]);
+  }
+
+  private int takeSlot() {
+    if (!freeSlots.isEmpty()) {
+      return freeSlots.pop();
+    }
+    if (usedSlots == statuses.length) {
+      grow(statuses.length * 2);
+    }
+    return usedSlots++;
+  }
+
+  private void grow(int capacity) {
+    statuses = Arrays.copyOf(statuses, capacity);
+    ids = Arrays.copyOf(ids, capacity);
+    userIds = Arrays.copyOf(userIds, capacity);
+    departureLatitudes = Arrays.copyOf(departureLatitudes, capacity);
+    departureLongitudes = Arrays.copyOf(departureLongitudes, capacity);
+    destinationLatitudes = Arrays.copyOf(destinationLatitudes, capacity);
+    destinationLongitudes = Arrays.copyOf(destinationLongitudes, capacity);
+    startMillis = Arrays.copyOf(startMillis, capacity);
+    endMillis = Arrays.copyOf(endMillis, capacity);
+    seats = Arrays.copyOf(seats, capacity);
+  }
+
+  private static long toMillis(LocalDateTime dateTime) {
+    return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+  }
+
+  private static LocalDateTime toDateTime(long millis) {
+    return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L),
+        (int) Math.floorMod(millis, 1000L) * 1_000_000, ZoneOffset.UTC);
+  }
+}
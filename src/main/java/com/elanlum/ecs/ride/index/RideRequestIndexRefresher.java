@@ -0,0 +1,89 @@
+package com.elanlum.ecs.ride.index;
+
+import com.elanlum.ecs.ride.crud.service.impl.DriverRideRequestService;
+import com.elanlum.ecs.ride.crud.service.impl.PassengerRideRequestService;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import javax.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps the in-memory indexes in sync with requests saved or changed by other instances. Every
+ * {@code matching-settings.index-refresh-seconds} the requests modified since the previous refresh
+ * are applied to the indexes. Each refresh looks one period further back, so changes stamped by a
+ * slightly late clock of another instance are not missed.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RideRequestIndexRefresher {
+
+  private final DriverRideRequestService driverRideRequestService;
+  private final PassengerRideRequestService passengerRideRequestService;
+  private final MatchingConfiguration matchingConfiguration;
+  private final Disposable.Swap subscription = Disposables.swap();
+
+  private volatile LocalDateTime watermark;
+
+  /**
+   * Starts the periodic refresh unless it is disabled.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    if (!isEnabled()) {
+      log.info("Periodic refresh of ride request indexes is disabled");
+      return;
+    }
+    Duration period = getPeriod();
+    watermark = LocalDateTime.now();
+    subscription.update(Flux.interval(period, period)
+        .onBackpressureDrop()
+        .concatMap(tick -> refresh())
+        .subscribe(changes -> log.debug("{} ride request changes applied to indexes", changes),
+            throwable -> log.warn("Ride request indexes refresh stopped: ", throwable)));
+  }
+
+  @PreDestroy
+  public void stop() {
+    subscription.dispose();
+  }
+
+  /**
+   * Tells whether indexes of this instance see requests of the other ones.
+   */
+  public boolean isEnabled() {
+    return matchingConfiguration.getIndexRefreshSeconds() > 0;
+  }
+
+  /**
+   * Applies changes made since the previous refresh to both indexes. The watermark moves forward
+   * only if the refresh succeeded.
+   *
+   * @return {@link Mono} with the number of applied changes
+   */
+  Mono<Long> refresh() {
+    LocalDateTime refreshStart = LocalDateTime.now();
+    LocalDateTime since = watermark.minus(getPeriod());
+    return Flux.concat(driverRideRequestService.refreshIndex(since),
+        passengerRideRequestService.refreshIndex(since))
+        .reduce(Long::sum)
+        .doOnNext(changes -> watermark = refreshStart)
+        .onErrorResume(throwable -> {
+          log.warn("Ride request indexes refresh failed: ", throwable);
+          return Mono.empty();
+        });
+  }
+
+  private Duration getPeriod() {
+    return Duration.ofSeconds(matchingConfiguration.getIndexRefreshSeconds());
+  }
+}
@@ -0,0 +1,66 @@
+package com.elanlum.ecs.ride.index;
+
+import com.elanlum.ecs.ride.model.values.Position;
+
+/**
+ * Regular latitude/longitude grid. Every cell is identified by a single long key which packs
+ * latitude and longitude cell numbers.
+ */
+public class SpatialGrid {
+
+  private final double cellDegrees;
+
+  public SpatialGrid(double cellDegrees) {
+    this.cellDegrees = cellDegrees;
+  }
+
+  /**
+   * Returns key of the cell that contains the given position.
+   */
+  public long cellOf(Position position) {
+    return key(latitudeIndex(position), longitudeIndex(position));
+  }
+
+  /**
+   * Returns keys of all cells within the given number of cells around the position, the k-ring
+   * of radius 1 consists of the central cell and its 8 neighbours.
+   *
+   * @param center - position the ring is built around
+   * @param radius - ring radius in cells
+   * @return array of cell keys
+   */
+  public long[] ring(Position center, int radius) {
+    int centerLatitude = latitudeIndex(center);
+    int centerLongitude = longitudeIndex(center);
+    int side = 2 * radius + 1;
+    long[] cells = new long[side * side];
+    int i = 0;
+    for (int latitude = centerLatitude - radius; latitude <= centerLatitude + radius; latitude++) {
+      for (int longitude = centerLongitude - radius; longitude <= centerLongitude + radius;
+          longitude++) {
+        cells[i++] = key(latitude, longitude);
+      }
+    }
+    return cells;
+  }
+
+  /**
+   * Checks whether the position lies in the k-ring of the given radius around the center.
+   */
+  public boolean isWithinRing(Position center, Position position, int radius) {
+    return Math.abs(latitudeIndex(center) - latitudeIndex(position)) <= radius
+        && Math.abs(longitudeIndex(center) - longitudeIndex(position)) <= radius;
+  }
+
+  private int latitudeIndex(Position position) {
+    return (int) Math.floor(position.getLatitude() / cellDegrees);
+  }
+
+  private int longitudeIndex(Position position) {
+    return (int) Math.floor(position.getLongitude() / cellDegrees);
+  }
+
+  private static long key(int latitudeIndex, int longitudeIndex) {
+    return ((long) latitudeIndex << 32) | (longitudeIndex & 0xFFFFFFFFL);
+  }
+}
@@ -0,0 +1,35 @@
+package com.elanlum.ecs.ride.matcher;
+
+import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Best passenger candidates of a driver request together with the entity tag identifying this
+ * exact list of candidates.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class BestMatches {
+
+  private final String driverRequestId;
+  private final List<PassengerRideRequest> passengers;
+  private final String etag;
+
+  /**
+   * Creates best matches with the entity tag built from the MD5 digest of the ids of the driver
+   * request and the candidates, so the same candidates always get the same tag.
+   */
+  public static BestMatches of(String driverRequestId, List<PassengerRideRequest> passengers) {
+    StringBuilder ids = new StringBuilder(driverRequestId);
+    for (PassengerRideRequest passenger : passengers) {
+      ids.append(':').append(passenger.getId());
+    }
+    return new BestMatches(driverRequestId, passengers, "\""
+        + DigestUtils.md5DigestAsHex(ids.toString().getBytes(StandardCharsets.UTF_8)) + "\"");
+  }
+}
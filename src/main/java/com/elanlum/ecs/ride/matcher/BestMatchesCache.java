@@ -0,0 +1,65 @@
+package com.elanlum.ecs.ride.matcher;
+
+import com.elanlum.ecs.ride.crud.service.DriverRideRequestUnavailableEvent;
+import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+
+/**
+ * Latest top-K passenger candidates of available driver requests refreshed by the matcher.
+ */
+@Component
+public class BestMatchesCache {
+
+  private final Cache<String, List<PassengerRideRequest>> cache;
+  private final DirectProcessor<String> refreshes = DirectProcessor.create();
+  private final FluxSink<String> refreshSink = refreshes.sink();
+
+  BestMatchesCache(MatchingConfiguration matchingConfiguration) {
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(matchingConfiguration.getBestMatchesMaximumSize())
+        .expireAfterWrite(Duration.ofMinutes(matchingConfiguration.getBestMatchesTtlMinutes()))
+        .build();
+  }
+
+  public Optional<List<PassengerRideRequest>> get(String driverRequestId) {
+    return Optional.ofNullable(cache.getIfPresent(driverRequestId));
+  }
+
+  public void put(String driverRequestId, List<PassengerRideRequest> passengers) {
+    cache.put(driverRequestId, passengers);
+    refreshSink.next(driverRequestId);
+  }
+
+  public void evict(String driverRequestId) {
+    cache.invalidate(driverRequestId);
+  }
+
+  @EventListener
+  public void onDriverRideRequestUnavailable(DriverRideRequestUnavailableEvent event) {
+    evict(event.getDriverRideRequestId());
+  }
+
+  /**
+   * Returns candidates of the driver request every time they are refreshed.
+   *
+   * @param driverRequestId - id of the driver request
+   * @return infinite Flux of the refreshed candidates
+   */
+  public Flux<List<PassengerRideRequest>> getRefreshes(String driverRequestId) {
+    return refreshes
+        .filter(driverRequestId::equals)
+        .onBackpressureLatest()
+        .flatMap(id -> Mono.justOrEmpty(get(id)));
+  }
+}
@@ -0,0 +1,178 @@
+package com.elanlum.ecs.ride.matcher;
+
+import com.elanlum.ecs.ride.crud.service.impl.DriverRideRequestService;
+import com.elanlum.ecs.ride.index.DriverRideRequestIndex;
+import com.elanlum.ecs.ride.index.PassengerRideRequestIndex;
+import com.elanlum.ecs.ride.model.common.DriverRideRequest;
+import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
+import com.elanlum.ecs.ride.model.values.RideRequestStatus;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ChangeStreamOptions.ChangeStreamOptionsBuilder;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+
+/**
+ * Event-driven matching. New ride requests are matched as soon as Mongo reports their insertion,
+ * the scheduled matching job remains as a reconciliation sweep for anything missed. Deleted
+ * requests leave the indexes. Requires Mongo replica set, so it is enabled only with
+ * {@code matching-settings.event-driven}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "matching-settings", name = "event-driven", havingValue = "true")
+public class ChangeStreamMatchingListener {
+
+  private static final Duration FIRST_RETRY_BACKOFF = Duration.ofSeconds(1);
+  private static final Duration MAX_RETRY_BACKOFF = Duration.ofMinutes(1);
+
+  private final ReactiveMongoTemplate reactiveMongoTemplate;
+  private final DriverPassengerMatchingOneBuddyService matchingOneBuddyService;
+  private final DriverRideRequestService driverRideRequestService;
+  private final PassengerRideRequestIndex passengerRideRequestIndex;
+  private final DriverRideRequestIndex driverRideRequestIndex;
+  private final MatchingConfiguration matchingConfiguration;
+  private final Disposable.Composite subscriptions = Disposables.composite();
+
+  /**
+   * Subscribes to driver and passenger request change streams. At most
+   * {@code matching-settings.matching-concurrency} changes are handled and as many drivers are
+   * matched at a time.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void subscribe() {
+    int concurrency = matchingConfiguration.getMatchingConcurrency();
+    subscriptions.add(changes(DriverRideRequest.class)
+        .flatMap(this::onDriverChanged, concurrency)
+        .flatMap(matchingOneBuddyService::match, concurrency)
+        .subscribe(ride -> log.debug("Ride {} was matched on a change", ride.getId()),
+            throwable -> log.warn("Driver requests change stream failed: ", throwable)));
+    subscriptions.add(changes(PassengerRideRequest.class)
+        .flatMap(this::onPassengerChanged, concurrency)
+        .flatMap(matchingOneBuddyService::match, concurrency)
+        .subscribe(ride -> log.debug("Ride {} was matched on a change", ride.getId()),
+            throwable -> log.warn("Passenger requests change stream failed: ", throwable)));
+    log.info("Subscribed to ride request change streams");
+  }
+
+  @PreDestroy
+  public void unsubscribe() {
+    subscriptions.dispose();
+  }
+
+  /**
+   * Keeps the driver index in sync with the change.
+   *
+   * @param event - change of a driver request
+   * @return the inserted driver request if it has to be matched
+   */
+  Flux<DriverRideRequest> onDriverChanged(ChangeStreamEvent<DriverRideRequest> event) {
+    if (event.getOperationType() == OperationType.DELETE) {
+      getDeletedId(event).ifPresent(driverRideRequestIndex::remove);
+      return Flux.empty();
+    }
+    DriverRideRequest driverRideRequest = event.getBody();
+    if (driverRideRequest == null) {
+      return Flux.empty();
+    }
+    driverRideRequestIndex.update(driverRideRequest);
+    if (event.getOperationType() == OperationType.INSERT
+        && driverRideRequest.getStatus() == RideRequestStatus.AVAILABLE) {
+      return Flux.just(driverRideRequest);
+    }
+    return Flux.empty();
+  }
+
+  /**
+   * Keeps the passenger index in sync with the change.
+   *
+   * @param event - change of a passenger request
+   * @return near drivers if the passenger request was inserted
+   */
+  Flux<DriverRideRequest> onPassengerChanged(ChangeStreamEvent<PassengerRideRequest> event) {
+    if (event.getOperationType() == OperationType.DELETE) {
+      getDeletedId(event).ifPresent(passengerRideRequestIndex::remove);
+      return Flux.empty();
+    }
+    PassengerRideRequest passengerRideRequest = event.getBody();
+    if (passengerRideRequest == null) {
+      return Flux.empty();
+    }
+    passengerRideRequestIndex.update(passengerRideRequest);
+    if (event.getOperationType() == OperationType.INSERT
+        && passengerRideRequest.getStatus() == RideRequestStatus.AVAILABLE) {
+      return getNearDrivers(passengerRideRequest)
+          .onErrorResume(throwable -> {
+            log.warn("Matching of new passenger request {} failed: ",
+                passengerRideRequest.getId(), throwable);
+            return Flux.empty();
+          });
+    }
+    return Flux.empty();
+  }
+
+  private Flux<DriverRideRequest> getNearDrivers(PassengerRideRequest passengerRideRequest) {
+    return driverRideRequestService.getAvailableDriverMatchingViews(
+        passengerRideRequest.getRideDate().getStart(),
+        passengerRideRequest.getRideDate().getEnd(), passengerRideRequest.getUserId(),
+        driverRideRequestIndex.findNear(passengerRideRequest.getDeparturePoint(),
+            passengerRideRequest.getRideDate()));
+  }
+
+  /**
+   * Returns changes of the collection. After a failure the stream is reopened after the last seen
+   * change, so changes made while it was reconnecting are not lost.
+   */
+  <T> Flux<ChangeStreamEvent<T>> changes(Class<T> type) {
+    AtomicReference<BsonValue> resumeToken = new AtomicReference<>();
+    return Flux.defer(() -> reactiveMongoTemplate.changeStream(
+        reactiveMongoTemplate.getCollectionName(type), getOptions(resumeToken.get()), type))
+        .doOnNext(event -> resumeToken.set(event.getResumeToken()))
+        .retryBackoff(Long.MAX_VALUE, FIRST_RETRY_BACKOFF, MAX_RETRY_BACKOFF);
+  }
+
+  private static ChangeStreamOptions getOptions(BsonValue resumeToken) {
+    ChangeStreamOptionsBuilder options = ChangeStreamOptions.builder()
+        .returnFullDocumentOnUpdate();
+    if (resumeToken != null) {
+      options.resumeAfter(resumeToken);
+    }
+    return options.build();
+  }
+
+  /**
+   * Returns id of the deleted document, deletions carry only the key of the document.
+   */
+  private static Optional<String> getDeletedId(ChangeStreamEvent<?> event) {
+    ChangeStreamDocument<Document> raw = event.getRaw();
+    if (raw == null || raw.getDocumentKey() == null) {
+      return Optional.empty();
+    }
+    BsonValue id = raw.getDocumentKey().get("_id");
+    if (id == null) {
+      return Optional.empty();
+    }
+    if (id.isObjectId()) {
+      return Optional.of(id.asObjectId().getValue().toHexString());
+    }
+    return id.isString() ? Optional.of(id.asString().getValue()) : Optional.empty();
+  }
+}
@@ -0,0 +1,193 @@
+package com.elanlum.ecs.ride.matcher;
+
+import com.elanlum.ecs.map.config.RoutingSchedulerConfig;
+import com.elanlum.ecs.map.service.MapService;
+import com.elanlum.ecs.ride.crud.service.impl.DriverRideRequestService;
+import com.elanlum.ecs.ride.crud.service.impl.PassengerRideRequestService;
+import com.elanlum.ecs.ride.index.PassengerRideRequestIndex;
+import com.elanlum.ecs.ride.matcher.assignment.HungarianAssignmentSolver;
+import com.elanlum.ecs.ride.matcher.scoring.ScoringContainerFactory;
+import com.elanlum.ecs.ride.model.common.AbstractRideRequest;
+import com.elanlum.ecs.ride.model.common.DriverRideRequest;
+import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
+import com.elanlum.ecs.ride.model.common.Ride;
+import com.elanlum.ecs.ride.model.values.Interval;
+import com.elanlum.ecs.ride.model.values.Position;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+@Slf4j
+@Service
+public class DriverPassengerBatchMatchingService {
+
+  private final DriverRideRequestService driverRideRequestService;
+  private final PassengerRideRequestService passengerRideRequestService;
+  private final ScoringContainerFactory containerFactory;
+  private final HungarianAssignmentSolver assignmentSolver;
+  private final RideRequestStatusUpdater rideRequestStatusUpdater;
+  private final DriverPassengerMatchingOneBuddyService matchingOneBuddyService;
+  private final PassengerRideRequestIndex passengerRideRequestIndex;
+  private final MapService mapService;
+  private final MatchingConfiguration matchingConfiguration;
+  private final Scheduler routingScheduler;
+
+  /**
+   * Distance matrix and assignment of a run are computed on the {@code routingScheduler}.
+   */
+  @Autowired
+  public DriverPassengerBatchMatchingService(DriverRideRequestService driverRideRequestService,
+      PassengerRideRequestService passengerRideRequestService,
+      ScoringContainerFactory containerFactory, HungarianAssignmentSolver assignmentSolver,
+      RideRequestStatusUpdater rideRequestStatusUpdater,
+      DriverPassengerMatchingOneBuddyService matchingOneBuddyService,
+      PassengerRideRequestIndex passengerRideRequestIndex, MapService mapService,
+      MatchingConfiguration matchingConfiguration,
+      @Qualifier(RoutingSchedulerConfig.ROUTING_SCHEDULER) Scheduler routingScheduler) {
+    this.driverRideRequestService = driverRideRequestService;
+    this.passengerRideRequestService = passengerRideRequestService;
+    this.containerFactory = containerFactory;
+    this.assignmentSolver = assignmentSolver;
+    this.rideRequestStatusUpdater = rideRequestStatusUpdater;
+    this.matchingOneBuddyService = matchingOneBuddyService;
+    this.passengerRideRequestIndex = passengerRideRequestIndex;
+    this.mapService = mapService;
+    this.matchingConfiguration = matchingConfiguration;
+    this.routingScheduler = routingScheduler;
+  }
+
+  /**
+   * Loads all available driver and passenger requests once, solves the assignment problem for
+   * the whole score matrix, matches statuses of all found pairs in bulk and creates rides for
+   * the pairs that were not taken by concurrent matching. In transactional mode every pair is
+   * matched together with its ride creation instead.
+   *
+   * @return {@link Mono} with the number of created rides
+   */
+  public Mono<Long> matchAll() {
+    return matchAll(driverRideRequest -> true, passengerRideRequest -> true);
+  }
+
+  /**
+   * Same as {@link #matchAll()} but takes into account only requests accepted by the filters,
+   * e.g. requests departing from the partitions owned by this node. The distance matrix and the
+   * assignment are computed on the routing scheduler, so they don't block the caller's thread.
+   *
+   * @param driverFilter - chooses driver requests to match
+   * @param passengerFilter - chooses passenger requests to match
+   * @return {@link Mono} with the number of created rides
+   */
+  public Mono<Long> matchAll(Predicate<? super DriverRideRequest> driverFilter,
+      Predicate<? super PassengerRideRequest> passengerFilter) {
+    return Mono.zip(driverRideRequestService.getAvailableMatchingViews()
+            .filter(driverFilter)
+            .collectList(),
+        passengerRideRequestService.getAvailableMatchingViews()
+            .filter(passengerFilter)
+            .collectList())
+        .publishOn(routingScheduler)
+        .map(driversAndPassengers -> getAssignedPairs(driversAndPassengers.getT1(),
+            driversAndPassengers.getT2()))
+        .flatMapMany(this::createRides)
+        .doOnNext(matchingOneBuddyService::notifyAboutTheRideStart)
+        .count()
+        .doOnNext(ridesCount -> log.debug("Batch matching created {} rides", ridesCount));
+  }
+
+  /**
+   * Builds the score matrix and returns conflict-free driver-passenger pairs. Road distances of
+   * all pairs are taken from one distance matrix request.
+   *
+   * @param drivers - available driver requests
+   * @param passengers - available passenger requests
+   * @return list of pairs where every request takes part at most once
+   */
+  List<Tuple2<DriverRideRequest, PassengerRideRequest>> getAssignedPairs(
+      List<DriverRideRequest> drivers, List<PassengerRideRequest> passengers) {
+    double[][] scores = new double[drivers.size()][passengers.size()];
+    boolean hasFeasiblePairs = false;
+    for (int row = 0; row < drivers.size(); row++) {
+      for (int column = 0; column < passengers.size(); column++) {
+        boolean feasible = isFeasible(drivers.get(row), passengers.get(column));
+        scores[row][column] = feasible ? 0 : HungarianAssignmentSolver.INFEASIBLE;
+        hasFeasiblePairs |= feasible;
+      }
+    }
+
+    if (hasFeasiblePairs) {
+      double[][] distances = mapService.getDistanceMatrix(getDeparturePoints(drivers),
+          getDeparturePoints(passengers));
+      for (int row = 0; row < drivers.size(); row++) {
+        for (int column = 0; column < passengers.size(); column++) {
+          if (scores[row][column] == HungarianAssignmentSolver.INFEASIBLE
+              || !Double.isFinite(distances[row][column])) {
+            scores[row][column] = HungarianAssignmentSolver.INFEASIBLE;
+          } else {
+            scores[row][column] = containerFactory
+                .create(drivers.get(row), passengers.get(column), distances[row][column])
+                .getScore();
+          }
+        }
+      }
+    }
+
+    int[] assignment = assignmentSolver.solve(scores);
+    List<Tuple2<DriverRideRequest, PassengerRideRequest>> pairs = new ArrayList<>();
+    for (int row = 0; row < assignment.length; row++) {
+      if (assignment[row] != HungarianAssignmentSolver.UNASSIGNED) {
+        pairs.add(Tuples.of(drivers.get(row), passengers.get(assignment[row])));
+      }
+    }
+    log.debug("Batch matching assigned {} pairs for {} drivers and {} passengers",
+        pairs.size(), drivers.size(), passengers.size());
+    return pairs;
+  }
+
+  private List<Position> getDeparturePoints(List<? extends AbstractRideRequest> requests) {
+    return requests.stream()
+        .map(AbstractRideRequest::getDeparturePoint)
+        .collect(Collectors.toList());
+  }
+
+  private boolean isFeasible(DriverRideRequest driverRequest,
+      PassengerRideRequest passengerRequest) {
+    if (driverRequest.getUserId().equals(passengerRequest.getUserId())
+        || !passengerRideRequestIndex.isNear(driverRequest.getDeparturePoint(),
+        passengerRequest.getDeparturePoint())) {
+      return false;
+    }
+    Interval driverDate = driverRequest.getRideDate();
+    Interval passengerDate = passengerRequest.getRideDate();
+    return !passengerDate.getEnd().isBefore(driverDate.getStart())
+        && !passengerDate.getStart().isAfter(driverDate.getEnd());
+  }
+
+  private Flux<Ride> createRides(List<Tuple2<DriverRideRequest, PassengerRideRequest>> pairs) {
+    if (matchingConfiguration.isTransactional()) {
+      return Flux.fromIterable(pairs)
+          .flatMap(pair -> logErrors(matchingOneBuddyService
+              .createMatchedRideAndNotify(pair.getT1(), pair.getT2())));
+    }
+    return rideRequestStatusUpdater.updateStatusesToMatched(pairs)
+        .flatMap(pair -> logErrors(matchingOneBuddyService
+            .createRideAndNotify(pair.getT1(), pair.getT2())));
+  }
+
+  private Mono<Ride> logErrors(Mono<Ride> rideMono) {
+    return rideMono.onErrorResume(throwable -> {
+      log.warn("Matching failed: ", throwable);
+      return Mono.empty();
+    });
+  }
+}
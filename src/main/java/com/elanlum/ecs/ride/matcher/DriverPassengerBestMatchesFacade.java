@@ -1,8 +1,13 @@
 package com.elanlum.ecs.ride.matcher;
 
 import com.elanlum.ecs.ride.crud.service.impl.DriverRideRequestService;
+import com.elanlum.ecs.ride.crud.service.impl.PassengerRideRequestService;
+import com.elanlum.ecs.ride.index.PassengerRideRequestIndex;
+import com.elanlum.ecs.ride.matcher.scoring.ScoringContainer;
 import com.elanlum.ecs.ride.model.common.DriverRideRequest;
 import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
+import java.util.List;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
@@ -13,7 +18,10 @@ import reactor.core.publisher.Mono;
 public class DriverPassengerBestMatchesFacade {
 
   private final DriverRideRequestService driverRideRequestService;
+  private final PassengerRideRequestService passengerRideRequestService;
   private final DriverPassengerMatchingService matchingService;
+  private final BestMatchesCache bestMatchesCache;
+  private final PassengerRideRequestIndex passengerRideRequestIndex;
 
   /**
    * Method that returns Flux object of passenger's requests.
@@ -21,10 +29,62 @@ public class DriverPassengerBestMatchesFacade {
    * @param driverRideRequestId - used to determine nearest passengers to the specific driver.
    */
   public Flux<PassengerRideRequest> getBestPassengers(String driverRideRequestId) {
+    return getBestMatches(driverRideRequestId)
+        .flatMapIterable(BestMatches::getPassengers);
+  }
+
+  /**
+   * Method that returns Flux object of driver's requests.
+   *
+   * @param passengerRideRequestId - used to determine nearest drivers to the specific passenger.
+   */
+  public Flux<DriverRideRequest> getBestDrivers(String passengerRideRequestId) {
+    Mono<PassengerRideRequest> passengerRideRequestMono = passengerRideRequestService
+        .findById(passengerRideRequestId);
+    return matchingService.getNearDrivers(passengerRideRequestMono)
+        .map(ScoringContainer::getDriverRequest);
+  }
+
+  /**
+   * Returns the still available best passengers of the driver from the cache refreshed by the
+   * matcher, or computes them if the matcher hasn't scored the driver yet.
+   *
+   * @param driverRideRequestId - used to determine nearest passengers to the specific driver.
+   * @return {@link Mono} of {@link BestMatches} with the candidates and their entity tag
+   */
+  public Mono<BestMatches> getBestMatches(String driverRideRequestId) {
+    return Mono.justOrEmpty(bestMatchesCache.get(driverRideRequestId))
+        .map(passengers -> toBestMatches(driverRideRequestId, passengers))
+        .switchIfEmpty(Mono.defer(() -> computeBestMatches(driverRideRequestId)));
+  }
+
+  /**
+   * Streams the best passengers of the driver: the current candidates first and then every
+   * refresh which changes them.
+   *
+   * @param driverRideRequestId - used to determine nearest passengers to the specific driver.
+   * @return infinite {@link Flux} of {@link BestMatches}
+   */
+  public Flux<BestMatches> streamBestMatches(String driverRideRequestId) {
+    return getBestMatches(driverRideRequestId)
+        .mergeWith(bestMatchesCache.getRefreshes(driverRideRequestId)
+            .map(passengers -> toBestMatches(driverRideRequestId, passengers)))
+        .distinctUntilChanged(BestMatches::getEtag);
+  }
+
+  private Mono<BestMatches> computeBestMatches(String driverRideRequestId) {
     Mono<DriverRideRequest> driverRideRequestMono = driverRideRequestService
         .findById(driverRideRequestId);
     return matchingService.getNearPassengers(driverRideRequestMono)
-        .map(scoringContainer -> scoringContainer.getPassengerRequest());
+        .map(ScoringContainer::getPassengerRequest)
+        .collectList()
+        .map(passengers -> BestMatches.of(driverRideRequestId, passengers));
   }
 
+  private BestMatches toBestMatches(String driverRideRequestId,
+      List<PassengerRideRequest> passengers) {
+    return BestMatches.of(driverRideRequestId, passengers.stream()
+        .filter(passenger -> passengerRideRequestIndex.contains(passenger.getId()))
+        .collect(Collectors.toList()));
+  }
 }
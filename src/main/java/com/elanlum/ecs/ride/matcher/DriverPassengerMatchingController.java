@@ -1,14 +1,22 @@
 package com.elanlum.ecs.ride.matcher;
 
+import com.elanlum.ecs.ride.model.common.DriverRideRequest;
 import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
+import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @RestController
 @RequiredArgsConstructor
@@ -17,10 +25,51 @@ public class DriverPassengerMatchingController {
 
   private final DriverPassengerBestMatchesFacade matchingService;
 
+  /**
+   * Returns the best passengers of the driver request. Responds with 304 status if the client
+   * already has the candidates with the same entity tag.
+   *
+   * @param id - id of the driver request
+   * @param ifNoneMatch - entity tag of the candidates the client already has
+   * @return {@link Mono} of the response with the candidates and their entity tag
+   */
   @GetMapping(value = "/driver/{id}")
+  public Mono<ResponseEntity<List<PassengerRideRequest>>> getNearPassengers(
+      @PathVariable String id,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    return matchingService.getBestMatches(id)
+        .map(bestMatches -> {
+          if (bestMatches.getEtag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(bestMatches.getEtag())
+                .<List<PassengerRideRequest>>build();
+          }
+          return ResponseEntity.ok()
+              .eTag(bestMatches.getEtag())
+              .body(bestMatches.getPassengers());
+        });
+  }
+
+  /**
+   * Streams the best passengers of the driver request as server-sent events, a new event is sent
+   * every time the candidates change.
+   *
+   * @param id - id of the driver request
+   * @return infinite {@link Flux} of events with the candidates, event id is their entity tag
+   */
+  @GetMapping(value = "/driver/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public Flux<ServerSentEvent<List<PassengerRideRequest>>> streamNearPassengers(
+      @PathVariable String id) {
+    return matchingService.streamBestMatches(id)
+        .map(bestMatches -> ServerSentEvent.<List<PassengerRideRequest>>builder()
+            .id(bestMatches.getEtag())
+            .data(bestMatches.getPassengers())
+            .build());
+  }
+
+  @GetMapping(value = "/passenger/{id}")
   @ResponseStatus(HttpStatus.OK)
-  public Flux<PassengerRideRequest> getNearPassengers(@PathVariable String id) {
-    return matchingService.getBestPassengers(id);
+  public Flux<DriverRideRequest> getNearDrivers(@PathVariable String id) {
+    return matchingService.getBestDrivers(id);
   }
 }
-
@@ -6,17 +6,18 @@ import com.elanlum.ecs.notification.values.NotificationRecipient;
 import com.elanlum.ecs.notification.values.RideMatchingNotification;
 import com.elanlum.ecs.ride.crud.service.impl.RideService;
 import com.elanlum.ecs.ride.exceptions.RideRequestStatusUpdatingException;
-import com.elanlum.ecs.ride.scheduling.config.NotificationConfiguration;
-import com.elanlum.ecs.ride.scheduling.notifying.NotificationFacade;
-import com.elanlum.ecs.user.model.User;
-import com.elanlum.ecs.user.service.UserService;
 import com.elanlum.ecs.ride.matcher.scoring.ScoringContainer;
 import com.elanlum.ecs.ride.model.common.DriverRideRequest;
 import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
 import com.elanlum.ecs.ride.model.common.Ride;
-
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import com.elanlum.ecs.ride.scheduling.config.NotificationConfiguration;
+import com.elanlum.ecs.ride.scheduling.notifying.NotificationFacade;
+import com.elanlum.ecs.user.model.User;
+import com.elanlum.ecs.user.service.UserService;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.function.Function;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -35,6 +36,7 @@ public class DriverPassengerMatchingOneBuddyService {
   private final RideService rideService;
   private final NotificationFacade notificationFacade;
   private final NotificationConfiguration notificationConfiguration;
+  private final MatchingConfiguration matchingConfiguration;
 
   /**
    * This method combine matching service and notification. As result, it put notification to
@@ -44,26 +46,92 @@ public class DriverPassengerMatchingOneBuddyService {
    */
   public void matchAndNotify(DriverRideRequest driverRideRequest) {
 
-    getPassenger(Mono.just(driverRideRequest))
-        .flatMap(passengerRideRequest -> Mono.zip(
-            userService.findById(driverRideRequest.getUserId()),
-            userService.findById(passengerRideRequest.getUserId()),
-            Mono.just(passengerRideRequest)))
+    match(driverRideRequest).subscribe();
+  }
+
+  /**
+   * Lazy version of {@link #matchAndNotify(DriverRideRequest)}, matching starts on subscription
+   * and completes when the ride is created and its notifications are scheduled. Matching errors
+   * are logged and swallowed so one failed driver doesn't stop a matching run.
+   *
+   * @param driverRideRequest - find near passenger for this request
+   * @return {@link Mono} of the created {@link Ride} or empty {@link Mono} if nobody was matched
+   */
+  public Mono<Ride> match(DriverRideRequest driverRideRequest) {
+    return getMatchedRide(driverRideRequest)
+        .doOnNext(this::notifyAboutTheRideStart)
+        .onErrorResume(throwable -> {
+          log.warn("Matching failed: ", throwable);
+          return Mono.empty();
+        });
+  }
+
+  private Mono<Ride> getMatchedRide(DriverRideRequest driverRideRequest) {
+    if (matchingConfiguration.isTransactional()) {
+      return getBestPassenger(Mono.just(driverRideRequest))
+          .flatMap(passengerRideRequest -> createMatchedRideAndNotify(driverRideRequest,
+              passengerRideRequest));
+    }
+    return getPassenger(Mono.just(driverRideRequest))
+        .flatMap(passengerRideRequest -> createRideAndNotify(driverRideRequest,
+            passengerRideRequest));
+  }
+
+  /**
+   * Creates a {@link Ride} for already matched requests and immediately notifies both
+   * participants. Ride start notifications are left to the caller.
+   *
+   * @param driverRideRequest - matched driver request
+   * @param passengerRideRequest - matched passenger request
+   * @return {@link Mono} of the saved {@link Ride}
+   */
+  public Mono<Ride> createRideAndNotify(DriverRideRequest driverRideRequest,
+      PassengerRideRequest passengerRideRequest) {
+    return createRideAndNotify(driverRideRequest, passengerRideRequest, rideService::save);
+  }
+
+  private Mono<Ride> createRideAndNotify(DriverRideRequest driverRideRequest,
+      PassengerRideRequest passengerRideRequest, Function<Ride, Mono<Ride>> rideSaver) {
+    return Mono.zip(
+        userService.findById(driverRideRequest.getUserId()),
+        userService.findById(passengerRideRequest.getUserId()),
+        Mono.just(passengerRideRequest))
         .flatMap(driverPassengerAndPassengersRequest -> createRide(driverRideRequest,
-            driverPassengerAndPassengersRequest))
-        .map(ride -> {
-          notificationFacade.sendNow(
-              new RideMatchingNotification(ride.getDriver(),
-                  "We organized a ride for you.", ride, NotificationRecipient.DRIVER));
-          notificationFacade.sendNow(
-              new RideMatchingNotification(ride.getPassenger(),
-                  "We organized a ride for you.", ride, NotificationRecipient.PASSENGER));
-          log.debug("A driver {} and a passenger {} were matched and notified.",
-              ride.getDriver(), ride.getPassenger());
-          return ride;
-        })
-        .subscribe(this::notifyAboutTheRideStart,
-            throwable -> log.warn("Matching failed: ", throwable));
+            driverPassengerAndPassengersRequest, rideSaver))
+        .doOnNext(this::notifyAboutTheMatch);
+  }
+
+  /**
+   * Immediately notifies both participants of the ride that they were matched.
+   *
+   * @param ride - created {@link Ride}
+   */
+  public void notifyAboutTheMatch(Ride ride) {
+    notificationFacade.sendNow(
+        new RideMatchingNotification(ride.getDriver(),
+            "We organized a ride for you.", ride, NotificationRecipient.DRIVER));
+    notificationFacade.sendNow(
+        new RideMatchingNotification(ride.getPassenger(),
+            "We organized a ride for you.", ride, NotificationRecipient.PASSENGER));
+    log.debug("A driver {} and a passenger {} were matched and notified.",
+        ride.getDriver(), ride.getPassenger());
+  }
+
+  /**
+   * Matches still available requests and creates a {@link Ride} for them in one transaction, then
+   * immediately notifies both participants. Ride start notifications are left to the caller.
+   *
+   * @param driverRideRequest - available driver request
+   * @param passengerRideRequest - available passenger request
+   * @return {@link Mono} of the saved {@link Ride} or {@link Mono} with error if any of the
+   *     requests was matched concurrently
+   */
+  public Mono<Ride> createMatchedRideAndNotify(DriverRideRequest driverRideRequest,
+      PassengerRideRequest passengerRideRequest) {
+    return createRideAndNotify(driverRideRequest, passengerRideRequest,
+        ride -> rideService.saveMatched(ride).doOnNext(
+            savedRide -> rideRequestStatusUpdater.onMatchedInTransaction(
+                driverRideRequest.getId(), passengerRideRequest.getId())));
   }
 
   /**
@@ -96,28 +164,66 @@ public class DriverPassengerMatchingOneBuddyService {
     return Mono.from(passengerRequestFlux);
   }
 
+  /**
+   * Method gives the best passenger without changing statuses, they are matched together with
+   * the Ride creation.
+   *
+   * @param driverRideRequestMono driver request from anywhere
+   * @return Mono of PassengerRideRequest
+   */
+  private Mono<PassengerRideRequest> getBestPassenger(
+      Mono<DriverRideRequest> driverRideRequestMono) {
+    return Mono.from(driverPassengerMatchingService.getNearPassengers(driverRideRequestMono)
+        .take(1)
+        .map(ScoringContainer::getPassengerRequest));
+  }
+
   private Mono<Ride> createRide(DriverRideRequest driverRideRequest,
-      Tuple3<User, User, PassengerRideRequest> tuple) {
+      Tuple3<User, User, PassengerRideRequest> tuple, Function<Ride, Mono<Ride>> rideSaver) {
     User driver = tuple.getT1();
     User passenger = tuple.getT2();
     PassengerRideRequest passengerRideRequest = tuple.getT3();
     Ride createdRide = new Ride(driver, passenger, driverRideRequest, passengerRideRequest);
 
-    return rideService.save(createdRide);
+    return rideSaver.apply(createdRide);
   }
 
-  private void notifyAboutTheRideStart(Ride ride) {
+  /**
+   * Schedules "ride starts soon" notifications for both participants of the ride.
+   *
+   * @param ride - created {@link Ride}
+   */
+  public void notifyAboutTheRideStart(Ride ride) {
+    notifyDriverAboutTheRideStart(ride);
+    notifyPassengerAboutTheRideStart(ride);
+  }
+
+  /**
+   * Schedules "ride starts soon" notification for the driver of the ride only, e.g. once for a
+   * pooled ride.
+   *
+   * @param ride - created {@link Ride}
+   */
+  public void notifyDriverAboutTheRideStart(Ride ride) {
+    notifyAboutTheRideStart(ride, ride.getDriver(), NotificationRecipient.DRIVER);
+  }
+
+  /**
+   * Schedules "ride starts soon" notification for the passenger of the ride only.
+   *
+   * @param ride - created {@link Ride}, see {@link Ride#forLeg} for pooled rides
+   */
+  public void notifyPassengerAboutTheRideStart(Ride ride) {
+    notifyAboutTheRideStart(ride, ride.getPassenger(), NotificationRecipient.PASSENGER);
+  }
+
+  private void notifyAboutTheRideStart(Ride ride, User user, NotificationRecipient recipient) {
     int minutesBeforeTheRideStart = notificationConfiguration.getMinutesBeforeTheRideStart();
-    User driver = ride.getDriver();
-    User passenger = ride.getPassenger();
     LocalDateTime notifyBeforeTheRide = ride.getRideDateTime()
         .minus(minutesBeforeTheRideStart, ChronoUnit.MINUTES);
 
-    notificationFacade.sendScheduled(new BeforeRideNotification(driver,
-        "Your ride starts in " + minutesBeforeTheRideStart + " minutes", ride,
-        NotificationRecipient.DRIVER), notifyBeforeTheRide);
-    notificationFacade.sendScheduled(new BeforeRideNotification(passenger,
+    notificationFacade.sendScheduled(new BeforeRideNotification(user,
         "Your ride starts in " + minutesBeforeTheRideStart + " minutes", ride,
-        NotificationRecipient.PASSENGER), notifyBeforeTheRide);
+        recipient), notifyBeforeTheRide);
   }
 }
@@ -1,26 +1,69 @@
 package com.elanlum.ecs.ride.matcher;
 
+import com.elanlum.ecs.map.config.RoutingSchedulerConfig;
+import com.elanlum.ecs.map.service.Isochrone;
+import com.elanlum.ecs.map.service.MapService;
+import com.elanlum.ecs.map.service.RouteDistance;
+import com.elanlum.ecs.map.service.SnappedPosition;
+import com.elanlum.ecs.ride.crud.service.impl.DriverRideRequestService;
 import com.elanlum.ecs.ride.crud.service.impl.PassengerRideRequestService;
+import com.elanlum.ecs.ride.index.DriverRideRequestIndex;
+import com.elanlum.ecs.ride.index.PassengerRideRequestIndex;
 import com.elanlum.ecs.ride.matcher.scoring.ScoringContainer;
 import com.elanlum.ecs.ride.matcher.scoring.ScoringContainerFactory;
 import com.elanlum.ecs.ride.model.common.DriverRideRequest;
 import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
+import com.elanlum.ecs.ride.model.values.Interval;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
-import java.util.stream.Collector;
-import lombok.RequiredArgsConstructor;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 @Service
-@RequiredArgsConstructor
 public class DriverPassengerMatchingService {
 
   private final ScoringContainerFactory containerFactory;
   private final PassengerRideRequestService passengerRideRequestService;
+  private final PassengerRideRequestIndex passengerRideRequestIndex;
+  private final MatchingConfiguration matchingConfiguration;
+  private final Scheduler routingScheduler;
+  private final BestMatchesCache bestMatchesCache;
+  private final DriverRideRequestService driverRideRequestService;
+  private final DriverRideRequestIndex driverRideRequestIndex;
+  private final MapService mapService;
+
+  /**
+   * Scoring and routing of the candidates run on the {@code routingScheduler}.
+   */
+  @Autowired
+  public DriverPassengerMatchingService(ScoringContainerFactory containerFactory,
+      PassengerRideRequestService passengerRideRequestService,
+      PassengerRideRequestIndex passengerRideRequestIndex,
+      MatchingConfiguration matchingConfiguration,
+      @Qualifier(RoutingSchedulerConfig.ROUTING_SCHEDULER) Scheduler routingScheduler,
+      BestMatchesCache bestMatchesCache, DriverRideRequestService driverRideRequestService,
+      DriverRideRequestIndex driverRideRequestIndex, MapService mapService) {
+    this.containerFactory = containerFactory;
+    this.passengerRideRequestService = passengerRideRequestService;
+    this.passengerRideRequestIndex = passengerRideRequestIndex;
+    this.matchingConfiguration = matchingConfiguration;
+    this.routingScheduler = routingScheduler;
+    this.bestMatchesCache = bestMatchesCache;
+    this.driverRideRequestService = driverRideRequestService;
+    this.driverRideRequestIndex = driverRideRequestIndex;
+    this.mapService = mapService;
+  }
 
   /**
    * Method that pairs driver's and passenger's ride requests.
@@ -41,72 +84,133 @@ public class DriverPassengerMatchingService {
   }
 
   /**
-   * Method for getting passengers for driver.
+   * Method for getting passengers for driver. Only near passengers with the best great-circle
+   * estimate are routed, found candidates refresh the {@link BestMatchesCache} of the driver.
    *
    * @param driverRideRequestMonoIn request from Driver.
    * @return Flux<ScoringContainer></ScoringContainer>
    */
   Flux<ScoringContainer> getNearPassengers(Mono<DriverRideRequest> driverRideRequestMonoIn) {
 
-    Flux<PassengerRideRequest> passengerRideRequestFluxIn = driverRideRequestMonoIn.flatMapMany(
-        driverRideRequest -> passengerRideRequestService
-            .getAvailablePassengerRequestsInTime(driverRideRequest.getRideDate().getStart(),
-                driverRideRequest.getRideDate().getEnd(), driverRideRequest.getUserId()));
+    Flux<ScoringContainer> containerFlux = driverRideRequestMonoIn.flatMapMany(
+        driverRideRequest -> {
+          Set<String> nearPassengerIds = passengerRideRequestIndex
+              .findNear(driverRideRequest.getDeparturePoint(), driverRideRequest.getRideDate());
+          Flux<PassengerRideRequest> passengerRideRequestFlux = passengerRideRequestService
+              .getAvailablePassengerMatchingViews(driverRideRequest.getRideDate().getStart(),
+                  driverRideRequest.getRideDate().getEnd(), driverRideRequest.getUserId(),
+                  nearPassengerIds);
+          if (!matchingConfiguration.isIsochroneFiltering()) {
+            return getDriverPassengerPairs(Mono.just(driverRideRequest),
+                passengerRideRequestFlux);
+          }
+          return getReachablePairs(driverRideRequest, passengerRideRequestFlux);
+        });
 
-    Flux<ScoringContainer> containerFlux = getDriverPassengerPairs(driverRideRequestMonoIn,
-        passengerRideRequestFluxIn);
+    return selectBest(containerFlux)
+        .doOnNext(this::refreshBestMatches)
+        .flatMapIterable(containers -> containers);
+  }
 
-    Mono<List<ScoringContainer>> collected = containerFlux
-        .collect(
-            Collector.of(ArrayList::new, //supplier
-                getListScoringContainerBiConsumer(),  // accumulator
-                getListBinaryOperator()  //merging method
-            ));
+  /**
+   * Method for getting drivers for passenger, the mirror of
+   * {@link #getNearPassengers(Mono)}. Only drivers from the grid cells around the passenger's
+   * departure point are considered.
+   *
+   * @param passengerRideRequestMonoIn request from Passenger.
+   * @return Flux of {@link ScoringContainer} sorted from the best driver
+   */
+  Flux<ScoringContainer> getNearDrivers(Mono<PassengerRideRequest> passengerRideRequestMonoIn) {
+    Flux<ScoringContainer> containerFlux = passengerRideRequestMonoIn.flatMapMany(
+        passengerRideRequest -> {
+          Set<String> nearDriverIds = driverRideRequestIndex
+              .findNear(passengerRideRequest.getDeparturePoint(),
+                  passengerRideRequest.getRideDate());
+          return driverRideRequestService
+              .getAvailableDriverMatchingViews(passengerRideRequest.getRideDate().getStart(),
+                  passengerRideRequest.getRideDate().getEnd(), passengerRideRequest.getUserId(),
+                  nearDriverIds)
+              .map(driverRequest -> containerFactory.create(driverRequest, passengerRideRequest));
+        });
 
-    return collected.flatMapMany(Flux::fromIterable);
+    return selectBest(containerFlux)
+        .flatMapIterable(containers -> containers);
   }
 
-  private BiConsumer<List<ScoringContainer>, ScoringContainer> getListScoringContainerBiConsumer() {
-    return (listAcc, scoringContainer) -> {
-      if (listAcc.isEmpty()) {
-        listAcc.add(scoringContainer);
-      } else {
-        boolean inserted = false;
-        int n = 3;
-        for (int i = 0; i < listAcc.size(); i++) {
-          if (scoringContainer.getScore() > listAcc.get(i).getScore()) {
-            listAcc.add(i, scoringContainer);
-            inserted = true;
-            if (listAcc.size() > n) {
-              listAcc.remove(n);
-            }
-            break;
-          }
-        }
-        if (!inserted & listAcc.size() < n) {
-          listAcc.add(scoringContainer);
-        }
-      }
-    };
+  /**
+   * Pairs the driver only with the passengers inside the driver's isochrone, the pickup routes
+   * found by the isochrone search are reused by the scoring.
+   */
+  private Flux<ScoringContainer> getReachablePairs(DriverRideRequest driverRideRequest,
+      Flux<PassengerRideRequest> passengerRideRequestFlux) {
+    return passengerRideRequestFlux
+        .collectList()
+        .filter(passengerRideRequests -> !passengerRideRequests.isEmpty())
+        .flatMapMany(passengerRideRequests -> Mono
+            .fromCallable(() -> mapService.getIsochrone(
+                mapService.snap(driverRideRequest.getDeparturePoint()),
+                getReachTimeMillis(driverRideRequest.getRideDate())))
+            .subscribeOn(routingScheduler)
+            .flatMapIterable(isochrone -> selectReachable(driverRideRequest,
+                passengerRideRequests, isochrone)));
   }
 
-  BinaryOperator<List<ScoringContainer>> getListBinaryOperator() {
-    return (list1, list2) -> {
-      List<ScoringContainer> scoringContainers = new ArrayList<>();
-
-      int i1 = 0;
-      int i2 = 0;
-      for (int i = 0; i < list1.size() + list2.size(); i++) {
-        if (i2 >= list2.size() || (i1 < list1.size()
-            && list1.get(i1).getScore() >= list2.get(i2).getScore())) {
-          scoringContainers.add(list1.get(i1));
-          i1++;
-        } else {
-          scoringContainers.add(list2.get(i2));
-          i2++;
-        }
+  private List<ScoringContainer> selectReachable(DriverRideRequest driverRideRequest,
+      List<PassengerRideRequest> passengerRideRequests, Isochrone isochrone) {
+    List<ScoringContainer> containers = new ArrayList<>();
+    for (PassengerRideRequest passengerRideRequest : passengerRideRequests) {
+      SnappedPosition departure = mapService.snap(passengerRideRequest.getDeparturePoint());
+      if (!isochrone.contains(departure)) {
+        continue;
       }
-      return scoringContainers;
-    };
+      RouteDistance pickupRoute = isochrone.getRoute(departure);
+      containers.add(pickupRoute == null
+          ? containerFactory.create(driverRideRequest, passengerRideRequest)
+          : containerFactory.create(driverRideRequest, passengerRideRequest, pickupRoute));
+    }
+    return containers;
+  }
+
+  /**
+   * Returns the time the driver waits for passengers in whole minutes limited by the configured
+   * maximum.
+   */
+  private long getReachTimeMillis(Interval rideDate) {
+    Duration waitingTime = Duration.between(rideDate.getStart(), rideDate.getEnd());
+    long reachMinutes = Math.max(0, Math.min(waitingTime.toMinutes(),
+        matchingConfiguration.getIsochroneMaxMinutes()));
+    return Duration.ofMinutes(reachMinutes).toMillis();
+  }
+
+  private Mono<List<ScoringContainer>> selectBest(Flux<ScoringContainer> containerFlux) {
+    return containerFlux
+        .sort(Comparator.comparingDouble(ScoringContainer::getEstimatedScore).reversed())
+        .take(matchingConfiguration.getRoutedCandidatesLimit())
+        .parallel()
+        .runOn(routingScheduler)
+        .collect(this::newNearPassengersSelector, getSelectorAccumulator())
+        .reduce(getSelectorMerger())
+        .map(TopKSelector::toSortedList);
+  }
+
+  private void refreshBestMatches(List<ScoringContainer> containers) {
+    if (!containers.isEmpty()) {
+      bestMatchesCache.put(containers.get(0).getDriverRequestId(), containers.stream()
+          .map(ScoringContainer::getPassengerRequest)
+          .collect(Collectors.toList()));
+    }
+  }
+
+  private TopKSelector<ScoringContainer> newNearPassengersSelector() {
+    return new TopKSelector<>(matchingConfiguration.getNearPassengersLimit());
+  }
+
+  private BiConsumer<TopKSelector<ScoringContainer>, ScoringContainer> getSelectorAccumulator() {
+    return (selector, scoringContainer) -> selector
+        .offer(scoringContainer, scoringContainer.getScore());
+  }
+
+  BinaryOperator<TopKSelector<ScoringContainer>> getSelectorMerger() {
+    return TopKSelector::merge;
   }
 }
@@ -0,0 +1,226 @@
+package com.elanlum.ecs.ride.matcher;
+
+import com.elanlum.ecs.map.service.MapService;
+import com.elanlum.ecs.ride.crud.service.impl.DriverRideRequestService;
+import com.elanlum.ecs.ride.crud.service.impl.PassengerRideRequestService;
+import com.elanlum.ecs.ride.crud.service.impl.RideService;
+import com.elanlum.ecs.ride.index.PassengerRideRequestIndex;
+import com.elanlum.ecs.ride.matcher.pooling.InsertionRoutePlanner;
+import com.elanlum.ecs.ride.matcher.scoring.ScoringContainer;
+import com.elanlum.ecs.ride.matcher.scoring.ScoringContainerFactory;
+import com.elanlum.ecs.ride.model.common.AbstractRideRequest;
+import com.elanlum.ecs.ride.model.common.DriverRideRequest;
+import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
+import com.elanlum.ecs.ride.model.common.Ride;
+import com.elanlum.ecs.ride.model.values.Position;
+import com.elanlum.ecs.ride.model.values.RideLeg;
+import com.elanlum.ecs.ride.model.values.RideRequestStatus;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import com.elanlum.ecs.user.service.UserService;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple3;
+import reactor.util.function.Tuples;
+
+/**
+ * Matches a driver with as many passengers as the driver has seats. Drivers with one seat are
+ * matched by {@link DriverPassengerMatchingOneBuddyService}, for the others the best near
+ * passengers are put into one route by {@link InsertionRoutePlanner}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DriverPassengerPoolingService {
+
+  private final DriverPassengerMatchingOneBuddyService matchingOneBuddyService;
+  private final DriverRideRequestService driverRideRequestService;
+  private final PassengerRideRequestService passengerRideRequestService;
+  private final PassengerRideRequestIndex passengerRideRequestIndex;
+  private final ScoringContainerFactory containerFactory;
+  private final InsertionRoutePlanner routePlanner;
+  private final MapService mapService;
+  private final UserService userService;
+  private final RideService rideService;
+  private final MatchingConfiguration matchingConfiguration;
+
+  /**
+   * Matches the driver with near passengers, creates one {@link Ride} for all of them and notifies
+   * the driver and every passenger. If the ride can't be created, all the matched requests are
+   * rolled back to available. Matching errors are logged and swallowed so one failed driver
+   * doesn't stop a matching run.
+   *
+   * @param driverRideRequest - find near passengers for this request
+   * @return {@link Mono} of the created {@link Ride} or empty {@link Mono} if nobody was matched
+   */
+  public Mono<Ride> match(DriverRideRequest driverRideRequest) {
+    if (driverRideRequest.getSeats() <= 1) {
+      return matchingOneBuddyService.match(driverRideRequest);
+    }
+    return getCandidates(driverRideRequest)
+        .map(candidates -> planLegs(driverRideRequest, candidates))
+        .filter(legs -> !legs.isEmpty())
+        .flatMap(legs -> updateStatusesToMatched(driverRideRequest, legs))
+        .flatMap(legs -> createRide(driverRideRequest, legs)
+            .onErrorResume(throwable -> rollBack(driverRideRequest, legs, throwable)))
+        .doOnNext(this::notifyAboutTheRide)
+        .onErrorResume(throwable -> {
+          log.warn("Pooled matching failed: ", throwable);
+          return Mono.empty();
+        });
+  }
+
+  private Mono<List<PassengerRideRequest>> getCandidates(DriverRideRequest driverRideRequest) {
+    Set<String> nearPassengerIds = passengerRideRequestIndex
+        .findNear(driverRideRequest.getDeparturePoint(), driverRideRequest.getRideDate());
+    return passengerRideRequestService
+        .getAvailablePassengerMatchingViews(driverRideRequest.getRideDate().getStart(),
+            driverRideRequest.getRideDate().getEnd(), driverRideRequest.getUserId(),
+            nearPassengerIds)
+        .filter(passengerRideRequest -> passengerRideRequest.getDestinationPoint() != null)
+        .map(passengerRideRequest -> containerFactory.create(driverRideRequest,
+            passengerRideRequest))
+        .sort(Comparator.comparingDouble(ScoringContainer::getEstimatedScore).reversed())
+        .take(matchingConfiguration.getRoutedCandidatesLimit())
+        .map(ScoringContainer::getPassengerRequest)
+        .collectList();
+  }
+
+  /**
+   * Plans the pooled route of the driver with road distances between all the points taken from
+   * one distance matrix request.
+   *
+   * @param driverRideRequest - driver request with more than one seat
+   * @param candidates - passenger requests with destinations, the preferred ones go first
+   * @return passenger requests put into the route with their pickup and dropoff stops
+   */
+  List<Tuple3<PassengerRideRequest, Integer, Integer>> planLegs(
+      DriverRideRequest driverRideRequest, List<PassengerRideRequest> candidates) {
+    if (candidates.isEmpty()) {
+      return List.of();
+    }
+    boolean hasDestination = driverRideRequest.getDestinationPoint() != null;
+    List<Position> points = new ArrayList<>();
+    points.add(driverRideRequest.getDeparturePoint());
+    points.add(hasDestination ? driverRideRequest.getDestinationPoint()
+        : driverRideRequest.getDeparturePoint());
+    for (PassengerRideRequest candidate : candidates) {
+      points.add(candidate.getDeparturePoint());
+      points.add(candidate.getDestinationPoint());
+    }
+    List<Integer> route = routePlanner.plan(mapService.getDistanceMatrix(points, points),
+        candidates.size(), driverRideRequest.getSeats(),
+        matchingConfiguration.getPoolingMaxDetourRatio(), hasDestination);
+    return getLegs(route, candidates);
+  }
+
+  private List<Tuple3<PassengerRideRequest, Integer, Integer>> getLegs(List<Integer> route,
+      List<PassengerRideRequest> candidates) {
+    List<Tuple3<PassengerRideRequest, Integer, Integer>> legs = new ArrayList<>();
+    for (int stop = 0; stop < route.size(); stop++) {
+      int point = route.get(stop);
+      if (point >= InsertionRoutePlanner.pickupOf(0) && point % 2 == 0) {
+        int passenger = InsertionRoutePlanner.passengerOf(point);
+        legs.add(Tuples.of(candidates.get(passenger), stop,
+            route.indexOf(InsertionRoutePlanner.dropoffOf(passenger))));
+      }
+    }
+    return legs;
+  }
+
+  /**
+   * Matches the driver request first, then all the passenger requests with one bulk update.
+   * Passengers taken by concurrent matching are left out of the ride and the stops of the others
+   * are renumbered, the driver is rolled back if no passenger is left.
+   */
+  private Mono<List<Tuple3<PassengerRideRequest, Integer, Integer>>> updateStatusesToMatched(
+      DriverRideRequest driverRideRequest,
+      List<Tuple3<PassengerRideRequest, Integer, Integer>> legs) {
+    List<String> passengerIds = legs.stream()
+        .map(leg -> leg.getT1().getId())
+        .collect(Collectors.toList());
+    return driverRideRequestService.updateStatus(driverRideRequest.getId(),
+        RideRequestStatus.AVAILABLE, RideRequestStatus.MATCHED)
+        .flatMap(driver -> passengerRideRequestService.updateStatuses(passengerIds,
+            RideRequestStatus.AVAILABLE, RideRequestStatus.MATCHED)
+            .map(AbstractRideRequest::getId)
+            .collect(Collectors.toSet()))
+        .flatMap(matchedIds -> {
+          if (matchedIds.isEmpty()) {
+            return rollBackDriver(driverRideRequest);
+          }
+          log.info("Driver request {} matched with {} of {} passenger requests",
+              driverRideRequest.getId(), matchedIds.size(), legs.size());
+          return Mono.just(getMatchedLegs(legs, matchedIds));
+        });
+  }
+
+  private <T> Mono<T> rollBackDriver(DriverRideRequest driverRideRequest) {
+    log.debug("No passengers were left for driver request {}, rolling it back to available",
+        driverRideRequest.getId());
+    return driverRideRequestService.updateStatus(driverRideRequest.getId(),
+        RideRequestStatus.MATCHED, RideRequestStatus.AVAILABLE)
+        .then(Mono.empty());
+  }
+
+  private <T> Mono<T> rollBack(DriverRideRequest driverRideRequest,
+      List<Tuple3<PassengerRideRequest, Integer, Integer>> legs, Throwable throwable) {
+    List<String> passengerIds = legs.stream()
+        .map(leg -> leg.getT1().getId())
+        .collect(Collectors.toList());
+    log.debug("Ride for driver request {} was not created, rolling it back to available together "
+        + "with {} passenger requests", driverRideRequest.getId(), passengerIds.size());
+    return Flux
+        .merge(driverRideRequestService.updateStatus(driverRideRequest.getId(),
+            RideRequestStatus.MATCHED, RideRequestStatus.AVAILABLE),
+            passengerRideRequestService.updateStatuses(passengerIds,
+                RideRequestStatus.MATCHED, RideRequestStatus.AVAILABLE))
+        .then(Mono.error(throwable));
+  }
+
+  private List<Tuple3<PassengerRideRequest, Integer, Integer>> getMatchedLegs(
+      List<Tuple3<PassengerRideRequest, Integer, Integer>> legs, Set<String> matchedIds) {
+    List<Integer> droppedStops = legs.stream()
+        .filter(leg -> !matchedIds.contains(leg.getT1().getId()))
+        .flatMap(leg -> List.of(leg.getT2(), leg.getT3()).stream())
+        .collect(Collectors.toList());
+    return legs.stream()
+        .filter(leg -> matchedIds.contains(leg.getT1().getId()))
+        .map(leg -> Tuples.of(leg.getT1(), renumber(leg.getT2(), droppedStops),
+            renumber(leg.getT3(), droppedStops)))
+        .collect(Collectors.toList());
+  }
+
+  private int renumber(int stop, List<Integer> droppedStops) {
+    return stop - (int) droppedStops.stream()
+        .filter(droppedStop -> droppedStop < stop)
+        .count();
+  }
+
+  private Mono<Ride> createRide(DriverRideRequest driverRideRequest,
+      List<Tuple3<PassengerRideRequest, Integer, Integer>> legs) {
+    return Mono.zip(userService.findById(driverRideRequest.getUserId()),
+        Flux.fromIterable(legs)
+            .concatMap(leg -> userService.findById(leg.getT1().getUserId())
+                .map(passenger -> new RideLeg(passenger, leg.getT1(), leg.getT2(), leg.getT3())))
+            .collectList())
+        .flatMap(driverAndLegs -> rideService.save(
+            new Ride(driverAndLegs.getT1(), driverRideRequest, driverAndLegs.getT2())));
+  }
+
+  private void notifyAboutTheRide(Ride ride) {
+    for (RideLeg leg : ride.getPassengerLegs()) {
+      Ride legRide = ride.forLeg(leg);
+      matchingOneBuddyService.notifyAboutTheMatch(legRide);
+      matchingOneBuddyService.notifyPassengerAboutTheRideStart(legRide);
+    }
+    matchingOneBuddyService.notifyDriverAboutTheRideStart(ride);
+  }
+}
@@ -0,0 +1,103 @@
+package com.elanlum.ecs.ride.matcher;
+
+import com.elanlum.ecs.ride.crud.service.impl.DriverRideRequestService;
+import com.elanlum.ecs.ride.crud.service.impl.PassengerRideRequestService;
+import com.elanlum.ecs.ride.index.PassengerRideRequestIndex;
+import com.elanlum.ecs.ride.model.common.DriverRideRequest;
+import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
+import com.elanlum.ecs.ride.model.values.Interval;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+/**
+ * Chooses driver requests worth matching on the current tick. A driver which stayed unmatched on
+ * the previous tick can't get a different result unless the driver request itself or one of the
+ * passengers it could be paired with has changed, so only such drivers are matched again. Every
+ * {@code fullSweepTicks} tick and the first one match all available drivers.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IncrementalMatchingTracker {
+
+  private final DriverRideRequestService driverRideRequestService;
+  private final PassengerRideRequestService passengerRideRequestService;
+  private final PassengerRideRequestIndex passengerRideRequestIndex;
+  private final MatchingConfiguration matchingConfiguration;
+
+  private LocalDateTime watermark;
+  private int ticksSinceFullSweep;
+  private boolean fullSweepRequested;
+
+  /**
+   * Returns available driver requests to match on this tick. The watermark moves forward only
+   * when the returned {@link Flux} completes, so changes are not lost if the tick fails.
+   *
+   * @return Flux of driver requests
+   */
+  public synchronized Flux<DriverRideRequest> getDriversToMatch() {
+    LocalDateTime tickStart = LocalDateTime.now();
+    LocalDateTime since = watermark;
+    if (!matchingConfiguration.isIncremental() || since == null || fullSweepRequested
+        || ++ticksSinceFullSweep >= matchingConfiguration.getFullSweepTicks()) {
+      ticksSinceFullSweep = 0;
+      fullSweepRequested = false;
+      return driverRideRequestService.getAvailableMatchingViews()
+          .doOnComplete(() -> moveWatermark(tickStart));
+    }
+
+    return passengerRideRequestService.findModifiedSince(since)
+        .collectList()
+        .flatMapMany(changedPassengers -> {
+          log.debug("{} passenger requests changed since {}", changedPassengers.size(), since);
+          if (changedPassengers.isEmpty()) {
+            return driverRideRequestService.findAvailableModifiedSince(since);
+          }
+          return driverRideRequestService.getAvailableMatchingViews()
+              .filter(driver -> isModifiedSince(driver, since)
+                  || isAffectedByAny(driver, changedPassengers));
+        })
+        .doOnComplete(() -> moveWatermark(tickStart));
+  }
+
+  /**
+   * Makes the next tick match all available drivers, e.g. when the set of drivers this node is
+   * responsible for has changed.
+   */
+  public synchronized void requestFullSweep() {
+    fullSweepRequested = true;
+  }
+
+  private synchronized void moveWatermark(LocalDateTime tickStart) {
+    if (watermark == null || watermark.isBefore(tickStart)) {
+      watermark = tickStart;
+    }
+  }
+
+  private boolean isModifiedSince(DriverRideRequest driver, LocalDateTime since) {
+    return driver.getLastModified() == null || !driver.getLastModified().isBefore(since);
+  }
+
+  private boolean isAffectedByAny(DriverRideRequest driver,
+      List<PassengerRideRequest> changedPassengers) {
+    for (PassengerRideRequest passenger : changedPassengers) {
+      if (!driver.getUserId().equals(passenger.getUserId())
+          && overlaps(driver.getRideDate(), passenger.getRideDate())
+          && passengerRideRequestIndex.isNear(driver.getDeparturePoint(),
+          passenger.getDeparturePoint())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean overlaps(Interval driverDate, Interval passengerDate) {
+    return !passengerDate.getEnd().isBefore(driverDate.getStart())
+        && !passengerDate.getStart().isAfter(driverDate.getEnd());
+  }
+}
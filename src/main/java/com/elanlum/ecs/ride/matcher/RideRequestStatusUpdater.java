@@ -2,11 +2,20 @@ package com.elanlum.ecs.ride.matcher;
 
 import com.elanlum.ecs.ride.crud.service.impl.DriverRideRequestService;
 import com.elanlum.ecs.ride.crud.service.impl.PassengerRideRequestService;
+import com.elanlum.ecs.ride.model.common.AbstractRideRequest;
+import com.elanlum.ecs.ride.model.common.DriverRideRequest;
+import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
 import com.elanlum.ecs.ride.model.values.RideRequestStatus;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
 @Slf4j
 @Component
@@ -58,4 +67,74 @@ public class RideRequestStatusUpdater {
           }
         });
   }
+
+  /**
+   * Applies statuses of the requests matched by a committed transaction to their indexes.
+   */
+  void onMatchedInTransaction(String driverRequestId, String passengerRequestId) {
+    driverRideRequestService.onMatchedInTransaction(driverRequestId);
+    passengerRideRequestService.onMatchedInTransaction(passengerRequestId);
+  }
+
+  /**
+   * Moves all requests of the given pairs to MATCHED with one bulk update per collection, a pair
+   * with only one side updated is rolled back.
+   *
+   * @param pairs - driver and passenger requests to match, every request takes part only once
+   * @return pairs where both requests were successfully matched
+   */
+  Flux<Tuple2<DriverRideRequest, PassengerRideRequest>> updateStatusesToMatched(
+      List<Tuple2<DriverRideRequest, PassengerRideRequest>> pairs) {
+    if (pairs.isEmpty()) {
+      return Flux.empty();
+    }
+    return Mono
+        .zip(getMatchedIds(driverRideRequestService.updateStatuses(
+            getIds(pairs, Tuple2::getT1), RideRequestStatus.AVAILABLE, RideRequestStatus.MATCHED)),
+            getMatchedIds(passengerRideRequestService.updateStatuses(
+                getIds(pairs, Tuple2::getT2), RideRequestStatus.AVAILABLE,
+                RideRequestStatus.MATCHED)))
+        .flatMapMany(matchedIds -> {
+          Set<String> driverIds = matchedIds.getT1();
+          Set<String> passengerIds = matchedIds.getT2();
+          List<Tuple2<DriverRideRequest, PassengerRideRequest>> matchedPairs = pairs.stream()
+              .filter(pair -> driverIds.contains(pair.getT1().getId())
+                  && passengerIds.contains(pair.getT2().getId()))
+              .collect(Collectors.toList());
+          List<String> driverIdsToRollBack = pairs.stream()
+              .filter(pair -> driverIds.contains(pair.getT1().getId())
+                  && !passengerIds.contains(pair.getT2().getId()))
+              .map(pair -> pair.getT1().getId())
+              .collect(Collectors.toList());
+          List<String> passengerIdsToRollBack = pairs.stream()
+              .filter(pair -> !driverIds.contains(pair.getT1().getId())
+                  && passengerIds.contains(pair.getT2().getId()))
+              .map(pair -> pair.getT2().getId())
+              .collect(Collectors.toList());
+          log.info("{} of {} pairs successfully matched, rolling back {} driver and {} passenger "
+                  + "requests", matchedPairs.size(), pairs.size(), driverIdsToRollBack.size(),
+              passengerIdsToRollBack.size());
+          return Flux
+              .merge(driverRideRequestService.updateStatuses(driverIdsToRollBack,
+                  RideRequestStatus.MATCHED, RideRequestStatus.AVAILABLE),
+                  passengerRideRequestService.updateStatuses(passengerIdsToRollBack,
+                      RideRequestStatus.MATCHED, RideRequestStatus.AVAILABLE))
+              .thenMany(Flux.fromIterable(matchedPairs));
+        });
+  }
+
+  private List<String> getIds(List<Tuple2<DriverRideRequest, PassengerRideRequest>> pairs,
+      Function<Tuple2<DriverRideRequest, PassengerRideRequest>,
+          ? extends AbstractRideRequest> side) {
+    return pairs.stream()
+        .map(side)
+        .map(AbstractRideRequest::getId)
+        .collect(Collectors.toList());
+  }
+
+  private Mono<Set<String>> getMatchedIds(Flux<? extends AbstractRideRequest> updatedRequests) {
+    return updatedRequests
+        .map(AbstractRideRequest::getId)
+        .collect(Collectors.toSet());
+  }
 }
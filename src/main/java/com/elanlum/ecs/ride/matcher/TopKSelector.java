@@ -0,0 +1,122 @@
+package com.elanlum.ecs.ride.matcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps K items with the highest scores. Scores are stored in a primitive array and the items are
+ * ordered by a binary min-heap of slot indexes, so offering an item costs O(log K) and does not
+ * allocate. Not thread-safe, every parallel rail should use its own selector and merge them.
+ *
+ * @param <T> type of selected items
+ */
+public class TopKSelector<T> {
+
+  private final int limit;
+  private final Object[] items;
+  private final double[] scores;
+  private final int[] heap;
+  private int size;
+
+  /**
+   * Creates selector for the given number of best items.
+   *
+   * @param limit - maximal number of items to keep
+   */
+  public TopKSelector(int limit) {
+    if (limit < 0) {
+      throw new IllegalArgumentException("Limit must not be negative: " + limit);
+    }
+    this.limit = limit;
+    this.items = new Object[limit];
+    this.scores = new double[limit];
+    this.heap = new int[limit];
+  }
+
+  /**
+   * Offers the item to the selector. The item is kept if there is free space or its score is
+   * greater than the lowest kept score.
+   *
+   * @param item - candidate item
+   * @param score - score of the item, the higher the better
+   */
+  public void offer(T item, double score) {
+    if (size < limit) {
+      items[size] = item;
+      scores[size] = score;
+      heap[size] = size;
+      siftUp(size++);
+    } else if (limit > 0 && score > scores[heap[0]]) {
+      int slot = heap[0];
+      items[slot] = item;
+      scores[slot] = score;
+      siftDown(0);
+    }
+  }
+
+  /**
+   * Offers all items of another selector to this one.
+   *
+   * @param other - selector to merge with
+   * @return this selector that keeps the best items of both
+   */
+  @SuppressWarnings("unchecked")
+  public TopKSelector<T> merge(TopKSelector<T> other) {
+    for (int slot = 0; slot < other.size; slot++) {
+      offer((T) other.items[slot], other.scores[slot]);
+    }
+    return this;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns kept items ordered by score from the highest to the lowest.
+   */
+  @SuppressWarnings("unchecked")
+  public List<T> toSortedList() {
+    Integer[] slots = new Integer[size];
+    for (int slot = 0; slot < size; slot++) {
+      slots[slot] = slot;
+    }
+    Arrays.sort(slots, (slot1, slot2) -> Double.compare(scores[slot2], scores[slot1]));
+    List<T> sorted = new ArrayList<>(size);
+    for (Integer slot : slots) {
+      sorted.add((T) items[slot]);
+    }
+    return sorted;
+  }
+
+  private void siftUp(int position) {
+    int slot = heap[position];
+    while (position > 0) {
+      int parent = (position - 1) >>> 1;
+      if (scores[heap[parent]] <= scores[slot]) {
+        break;
+      }
+      heap[position] = heap[parent];
+      position = parent;
+    }
+    heap[position] = slot;
+  }
+
+  private void siftDown(int position) {
+    int slot = heap[position];
+    int half = size >>> 1;
+    while (position < half) {
+      int child = 2 * position + 1;
+      if (child + 1 < size && scores[heap[child + 1]] < scores[heap[child]]) {
+        child++;
+      }
+      if (scores[slot] <= scores[heap[child]]) {
+        break;
+      }
+      heap[position] = heap[child];
+      position = child;
+    }
+    heap[position] = slot;
+  }
+}
@@ -0,0 +1,172 @@
+package com.elanlum.ecs.ride.matcher.assignment;
+
+import java.util.Arrays;
+import org.springframework.stereotype.Component;
+
+/**
+ * Solves the rectangular assignment problem with the Hungarian algorithm in O(n^2 * m) time.
+ * Rows and columns of the score matrix are drivers and passengers, the solver maximizes the
+ * number of feasible pairs first and the total score of these pairs second.
+ */
+@Component
+public class HungarianAssignmentSolver {
+
+  public static final double INFEASIBLE = Double.NEGATIVE_INFINITY;
+  public static final int UNASSIGNED = -1;
+
+  /**
+   * Finds rows to columns assignment with the maximal total score. Cells with {@link #INFEASIBLE}
+   * score are never assigned.
+   *
+   * @param scores - rectangular score matrix, the higher score the better pair
+   * @return array where i-th element is the column assigned to i-th row or {@link #UNASSIGNED}
+   */
+  public int[] solve(double[][] scores) {
+    int rows = scores.length;
+    int[] assignment = new int[rows];
+    Arrays.fill(assignment, UNASSIGNED);
+    if (rows == 0 || scores[0].length == 0) {
+      return assignment;
+    }
+    int columns = scores[0].length;
+
+    if (rows > columns) {
+      int[] transposedAssignment = solve(transpose(scores));
+      for (int column = 0; column < columns; column++) {
+        if (transposedAssignment[column] != UNASSIGNED) {
+          assignment[transposedAssignment[column]] = column;
+        }
+      }
+      return assignment;
+    }
+
+    double[][] costs = toCosts(scores);
+    if (costs == null) {
+      return assignment;
+    }
+    int[] columnOwners = minimizeCost(costs, rows, columns);
+    for (int column = 0; column < columns; column++) {
+      int row = columnOwners[column];
+      if (row != UNASSIGNED && scores[row][column] != INFEASIBLE) {
+        assignment[row] = column;
+      }
+    }
+    return assignment;
+  }
+
+  /**
+   * Converts scores to non-negative costs. Infeasible cells get a cost that is greater than any
+   * sum of feasible costs, so the solver uses them only when a row has nothing else left.
+   *
+   * @return cost matrix or null if there are no feasible cells at all
+   */
+  private double[][] toCosts(double[][] scores) {
+    boolean hasFeasibleCells = false;
+    double maxFinite = Double.NEGATIVE_INFINITY;
+    double minFinite = Double.POSITIVE_INFINITY;
+    for (double[] row : scores) {
+      for (double score : row) {
+        hasFeasibleCells |= score != INFEASIBLE && !Double.isNaN(score);
+        if (Double.isFinite(score)) {
+          maxFinite = Math.max(maxFinite, score);
+          minFinite = Math.min(minFinite, score);
+        }
+      }
+    }
+    if (!hasFeasibleCells) {
+      return null;
+    }
+    if (maxFinite == Double.NEGATIVE_INFINITY) {
+      maxFinite = 0;
+      minFinite = 0;
+    }
+
+    double top = maxFinite + 1;
+    double infeasibleCost = (top - minFinite + 1) * (scores.length + 1);
+    double[][] costs = new double[scores.length][];
+    for (int row = 0; row < scores.length; row++) {
+      costs[row] = new double[scores[row].length];
+      for (int column = 0; column < scores[row].length; column++) {
+        double score = scores[row][column];
+        if (score == INFEASIBLE || Double.isNaN(score)) {
+          costs[row][column] = infeasibleCost;
+        } else if (score == Double.POSITIVE_INFINITY) {
+          costs[row][column] = 0;
+        } else {
+          costs[row][column] = top - score;
+        }
+      }
+    }
+    return costs;
+  }
+
+  /**
+   * Classic potentials based Hungarian algorithm, requires rows <= columns.
+   *
+   * @return array where j-th element is the row owning j-th column or {@link #UNASSIGNED}
+   */
+  private int[] minimizeCost(double[][] costs, int rows, int columns) {
+    double[] rowPotentials = new double[rows + 1];
+    double[] columnPotentials = new double[columns + 1];
+    int[] owners = new int[columns + 1];
+    int[] way = new int[columns + 1];
+
+    for (int row = 1; row <= rows; row++) {
+      owners[0] = row;
+      int currentColumn = 0;
+      double[] minValues = new double[columns + 1];
+      Arrays.fill(minValues, Double.POSITIVE_INFINITY);
+      boolean[] used = new boolean[columns + 1];
+      do {
+        used[currentColumn] = true;
+        int currentRow = owners[currentColumn];
+        double delta = Double.POSITIVE_INFINITY;
+        int nextColumn = 0;
+        for (int column = 1; column <= columns; column++) {
+          if (!used[column]) {
+            double reduced = costs[currentRow - 1][column - 1]
+                - rowPotentials[currentRow] - columnPotentials[column];
+            if (reduced < minValues[column]) {
+              minValues[column] = reduced;
+              way[column] = currentColumn;
+            }
+            if (minValues[column] < delta) {
+              delta = minValues[column];
+              nextColumn = column;
+            }
+          }
+        }
+        for (int column = 0; column <= columns; column++) {
+          if (used[column]) {
+            rowPotentials[owners[column]] += delta;
+            columnPotentials[column] -= delta;
+          } else {
+            minValues[column] -= delta;
+          }
+        }
+        currentColumn = nextColumn;
+      } while (owners[currentColumn] != 0);
+      do {
+        int previousColumn = way[currentColumn];
+        owners[currentColumn] = owners[previousColumn];
+        currentColumn = previousColumn;
+      } while (currentColumn != 0);
+    }
+
+    int[] columnOwners = new int[columns];
+    for (int column = 1; column <= columns; column++) {
+      columnOwners[column - 1] = owners[column] == 0 ? UNASSIGNED : owners[column] - 1;
+    }
+    return columnOwners;
+  }
+
+  private double[][] transpose(double[][] matrix) {
+    double[][] transposed = new double[matrix[0].length][matrix.length];
+    for (int row = 0; row < matrix.length; row++) {
+      for (int column = 0; column < matrix[row].length; column++) {
+        transposed[column][row] = matrix[row][column];
+      }
+    }
+    return transposed;
+  }
+}
@@ -0,0 +1,119 @@
+package com.elanlum.ecs.ride.matcher.pooling;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.stereotype.Component;
+
+/**
+ * Plans the route of a driver taking several passengers with the cheapest insertion heuristic.
+ * Passengers are tried one by one in the given order, pickup and dropoff of every passenger are
+ * inserted at the positions with the least extra distance which keep the detours of the driver
+ * and of all already inserted passengers within the allowed ratio and never put more passengers
+ * on board than the driver has seats. A passenger without any such positions is skipped.
+ *
+ * <p>Points of the distance matrix are the driver's departure {@link #DEPARTURE}, the driver's
+ * destination {@link #DESTINATION}, then pickup and dropoff of every passenger, see
+ * {@link #pickupOf(int)} and {@link #dropoffOf(int)}.
+ */
+@Component
+public class InsertionRoutePlanner {
+
+  public static final int DEPARTURE = 0;
+  public static final int DESTINATION = 1;
+
+  public static int pickupOf(int passenger) {
+    return 2 + 2 * passenger;
+  }
+
+  public static int dropoffOf(int passenger) {
+    return 3 + 2 * passenger;
+  }
+
+  public static int passengerOf(int point) {
+    return (point - 2) / 2;
+  }
+
+  /**
+   * Builds the route with at most seats passengers on board at the same time.
+   *
+   * @param distances - road distances between all the points
+   * @param passengers - number of passengers in the matrix, the preferred ones go first
+   * @param seats - maximal number of passengers on board between any two stops
+   * @param maxDetourRatio - allowed ratio of the distance along the route to the direct distance
+   * @param hasDestination - false if the driver's route may end at the last dropoff
+   * @return points of the route starting with {@link #DEPARTURE} and ending with
+   *     {@link #DESTINATION} if the driver has one
+   */
+  public List<Integer> plan(double[][] distances, int passengers, int seats,
+      double maxDetourRatio, boolean hasDestination) {
+    List<Integer> route = new ArrayList<>();
+    route.add(DEPARTURE);
+    if (hasDestination) {
+      route.add(DESTINATION);
+    }
+    int lastInsertable = hasDestination ? route.size() - 1 : route.size();
+    for (int passenger = 0; passenger < passengers; passenger++) {
+      List<Integer> bestRoute = null;
+      double bestLength = Double.POSITIVE_INFINITY;
+      for (int pickup = 1; pickup <= lastInsertable; pickup++) {
+        for (int dropoff = pickup + 1; dropoff <= lastInsertable + 1; dropoff++) {
+          List<Integer> candidate = new ArrayList<>(route);
+          candidate.add(pickup, pickupOf(passenger));
+          candidate.add(dropoff, dropoffOf(passenger));
+          double length = getLength(distances, candidate, 0, candidate.size() - 1);
+          if (length < bestLength && getMaxOccupancy(candidate) <= seats
+              && isFeasible(distances, candidate, maxDetourRatio, hasDestination)) {
+            bestRoute = candidate;
+            bestLength = length;
+          }
+        }
+      }
+      if (bestRoute != null) {
+        route = bestRoute;
+        lastInsertable += 2;
+      }
+    }
+    return route;
+  }
+
+  private boolean isFeasible(double[][] distances, List<Integer> route, double maxDetourRatio,
+      boolean hasDestination) {
+    if (hasDestination && getLength(distances, route, 0, route.size() - 1)
+        > maxDetourRatio * distances[DEPARTURE][DESTINATION]) {
+      return false;
+    }
+    for (int pickup = 0; pickup < route.size(); pickup++) {
+      int point = route.get(pickup);
+      if (point < 2 || point % 2 != 0) {
+        continue;
+      }
+      int dropoff = route.indexOf(point + 1);
+      if (getLength(distances, route, pickup, dropoff)
+          > maxDetourRatio * distances[point][point + 1]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int getMaxOccupancy(List<Integer> route) {
+    int occupancy = 0;
+    int maxOccupancy = 0;
+    for (int point : route) {
+      if (point < 2) {
+        continue;
+      }
+      occupancy += point % 2 == 0 ? 1 : -1;
+      maxOccupancy = Math.max(maxOccupancy, occupancy);
+    }
+    return maxOccupancy;
+  }
+
+  private double getLength(double[][] distances, List<Integer> route, int from, int to) {
+    double length = 0;
+    for (int stop = from; stop < to; stop++) {
+      length += distances[route.get(stop)][route.get(stop + 1)];
+    }
+    return length;
+  }
+}
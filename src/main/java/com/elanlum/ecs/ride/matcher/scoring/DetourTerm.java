@@ -0,0 +1,48 @@
+package com.elanlum.ecs.ride.matcher.scoring;
+
+import com.elanlum.ecs.ride.model.values.Position;
+import com.elanlum.ecs.ride.scheduling.config.ScoringConfiguration;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ratio of the driver's direct route to the route with the passenger, 1 means no detour at all.
+ */
+@Component
+@RequiredArgsConstructor
+public class DetourTerm implements ScoringTerm {
+
+  private final ScoringConfiguration scoringConfiguration;
+
+  @Override
+  public ScoringTermCost getCost() {
+    return ScoringTermCost.EXTRA_ROUTES;
+  }
+
+  @Override
+  public double getWeight() {
+    return scoringConfiguration.getDetourWeight();
+  }
+
+  @Override
+  public double score(ScoringContainer container) {
+    Position driverDestination = container.getDriverRequest().getDestinationPoint();
+    Position passengerDeparture = container.getPassengerRequest().getDeparturePoint();
+    Position passengerDestination = container.getPassengerRequest().getDestinationPoint();
+    if (driverDestination == null || passengerDestination == null) {
+      return 1.0;
+    }
+    double sharedRoute = container.getPickupDistance()
+        + container.getRouteDistance(passengerDeparture, passengerDestination)
+        + container.getRouteDistance(passengerDestination, driverDestination);
+    if (sharedRoute == 0) {
+      return 1.0;
+    }
+    return Math.min(1.0, container.getDirectRouteDistance() / sharedRoute);
+  }
+
+  @Override
+  public double estimate(ScoringContainer container) {
+    return 1.0;
+  }
+}
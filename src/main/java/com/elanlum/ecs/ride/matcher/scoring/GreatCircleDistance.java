@@ -0,0 +1,32 @@
+package com.elanlum.ecs.ride.matcher.scoring;
+
+import com.elanlum.ecs.ride.model.values.Position;
+
+/**
+ * Great-circle distance on the spherical Earth. The road distance between two points is never
+ * shorter than the great-circle one, so it is used as a cheap lower bound before routing.
+ */
+public final class GreatCircleDistance {
+
+  static final double EARTH_RADIUS_METERS = 6_371_000;
+
+  private GreatCircleDistance() {
+  }
+
+  /**
+   * Calculates haversine distance between two positions.
+   *
+   * @param from - first position
+   * @param to - second position
+   * @return distance in meters
+   */
+  public static double meters(Position from, Position to) {
+    double fromLatitude = Math.toRadians(from.getLatitude());
+    double toLatitude = Math.toRadians(to.getLatitude());
+    double latitudeSin = Math.sin((toLatitude - fromLatitude) / 2);
+    double longitudeSin = Math.sin(Math.toRadians(to.getLongitude() - from.getLongitude()) / 2);
+    double haversine = latitudeSin * latitudeSin
+        + Math.cos(fromLatitude) * Math.cos(toLatitude) * longitudeSin * longitudeSin;
+    return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(haversine)));
+  }
+}
@@ -0,0 +1,42 @@
+package com.elanlum.ecs.ride.matcher.scoring;
+
+import com.elanlum.ecs.ride.scheduling.config.ScoringConfiguration;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Prefers passengers closer to the driver: 1 for the pickup at the driver's departure point, 1/2
+ * for the road distance equal to the configured scale and so on.
+ */
+@Component
+@RequiredArgsConstructor
+public class PickupDistanceTerm implements ScoringTerm {
+
+  private final ScoringConfiguration scoringConfiguration;
+
+  @Override
+  public ScoringTermCost getCost() {
+    return ScoringTermCost.PICKUP_ROUTE;
+  }
+
+  @Override
+  public double getWeight() {
+    return scoringConfiguration.getPickupDistanceWeight();
+  }
+
+  @Override
+  public double score(ScoringContainer container) {
+    return normalize(container.getPickupDistance());
+  }
+
+  @Override
+  public double estimate(ScoringContainer container) {
+    return normalize(GreatCircleDistance.meters(
+        container.getDriverRequest().getDeparturePoint(),
+        container.getPassengerRequest().getDeparturePoint()));
+  }
+
+  private double normalize(double meters) {
+    return 1.0 / (1.0 + meters / scoringConfiguration.getPickupDistanceScaleMeters());
+  }
+}
@@ -0,0 +1,38 @@
+package com.elanlum.ecs.ride.matcher.scoring;
+
+import com.elanlum.ecs.ride.scheduling.config.ScoringConfiguration;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Prefers drivers who reach the passenger sooner: 1 for the immediate pickup, 1/2 for one minute
+ * of driving and so on.
+ */
+@Component
+@RequiredArgsConstructor
+public class PickupEtaTerm implements ScoringTerm {
+
+  private final ScoringConfiguration scoringConfiguration;
+
+  @Override
+  public ScoringTermCost getCost() {
+    return ScoringTermCost.PICKUP_ROUTE;
+  }
+
+  @Override
+  public double getWeight() {
+    return scoringConfiguration.getPickupEtaWeight();
+  }
+
+  @Override
+  public double score(ScoringContainer container) {
+    long pickupTime = container.getPickupRoute().getTime();
+    return 1.0 / (1.0 + (double) pickupTime / TimeUnit.MINUTES.toMillis(1));
+  }
+
+  @Override
+  public double estimate(ScoringContainer container) {
+    return 1.0;
+  }
+}
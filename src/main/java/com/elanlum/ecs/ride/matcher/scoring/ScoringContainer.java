@@ -1,22 +1,48 @@
 package com.elanlum.ecs.ride.matcher.scoring;
 
 import com.elanlum.ecs.map.service.MapService;
+import com.elanlum.ecs.map.service.RouteDistance;
 import com.elanlum.ecs.ride.model.common.DriverRideRequest;
 import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
-import lombok.AccessLevel;
+import com.elanlum.ecs.ride.model.values.Position;
+import java.util.List;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
-@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
 public class ScoringContainer {
 
+  @Getter
   private final DriverRideRequest driverRequest;
   @Getter
   private final PassengerRideRequest passengerRequest;
   private final MapService mapService;
+  private final List<ScoringTerm> scoringTerms;
   private Double cachedScore;
+  private double cachedEstimatedScore = Double.NaN;
+  private double routeDistance = Double.NaN;
+  private RouteDistance pickupRoute;
+  private double directRouteDistance = Double.NaN;
+
+  ScoringContainer(DriverRideRequest driverRequest, PassengerRideRequest passengerRequest,
+      MapService mapService, List<ScoringTerm> scoringTerms) {
+    this.driverRequest = driverRequest;
+    this.passengerRequest = passengerRequest;
+    this.mapService = mapService;
+    this.scoringTerms = scoringTerms;
+  }
+
+  ScoringContainer(DriverRideRequest driverRequest, PassengerRideRequest passengerRequest,
+      MapService mapService, List<ScoringTerm> scoringTerms, double routeDistance) {
+    this(driverRequest, passengerRequest, mapService, scoringTerms);
+    this.routeDistance = routeDistance;
+  }
+
+  ScoringContainer(DriverRideRequest driverRequest, PassengerRideRequest passengerRequest,
+      MapService mapService, List<ScoringTerm> scoringTerms, RouteDistance pickupRoute) {
+    this(driverRequest, passengerRequest, mapService, scoringTerms);
+    this.pickupRoute = pickupRoute;
+  }
 
   /**
    * Returns id of corresponding {@link DriverRideRequest}.
@@ -33,7 +59,26 @@ public class ScoringContainer {
   }
 
   /**
-   * Calculates score of driver-passenger match.
+   * Calculates upper bound of the match score from the great-circle distance without routing.
+   * The real {@link #getScore()} is never greater than this estimate.
+   */
+  public double getEstimatedScore() {
+    double estimatedScore = this.cachedEstimatedScore;
+    if (Double.isNaN(estimatedScore)) {
+      estimatedScore = 0;
+      for (ScoringTerm term : scoringTerms) {
+        if (term.getWeight() != 0) {
+          estimatedScore += term.getWeight() * term.estimate(this);
+        }
+      }
+      this.cachedEstimatedScore = estimatedScore;
+    }
+    return estimatedScore;
+  }
+
+  /**
+   * Calculates score of driver-passenger match as the weighted sum of the scoring terms, a term
+   * equal to zero rejects the pair.
    */
   public double getScore() {
     Double cachedScore = this.cachedScore;
@@ -42,14 +87,63 @@ public class ScoringContainer {
           getDriverRequestId(), getPassengerRequestId(), cachedScore);
       return cachedScore;
     }
-    double distance = mapService.getDistance(
-        driverRequest.getDeparturePoint(),
-        passengerRequest.getDeparturePoint()
-    ).getDistance();
-    double score = 1.0 / distance;
+    double score = 0;
+    for (ScoringTerm term : scoringTerms) {
+      if (term.getWeight() == 0) {
+        continue;
+      }
+      double termScore = term.score(this);
+      if (termScore == 0) {
+        score = 0;
+        break;
+      }
+      score += term.getWeight() * termScore;
+    }
     this.cachedScore = score;
     log.debug("Calculated score for {}-{} match: {}",
         getDriverRequestId(), getPassengerRequestId(), score);
     return score;
   }
+
+  /**
+   * Returns road distance from the driver's departure point to the passenger's one.
+   */
+  public double getPickupDistance() {
+    if (!Double.isNaN(routeDistance)) {
+      return routeDistance;
+    }
+    return getPickupRoute().getDistance();
+  }
+
+  /**
+   * Returns route from the driver's departure point to the passenger's one.
+   */
+  public RouteDistance getPickupRoute() {
+    RouteDistance pickupRoute = this.pickupRoute;
+    if (pickupRoute == null) {
+      pickupRoute = mapService.getRouteDistance(
+          driverRequest.getDeparturePoint(),
+          passengerRequest.getDeparturePoint()
+      );
+      this.pickupRoute = pickupRoute;
+    }
+    return pickupRoute;
+  }
+
+  /**
+   * Returns road distance from the driver's departure point to the driver's destination.
+   */
+  public double getDirectRouteDistance() {
+    double directRouteDistance = this.directRouteDistance;
+    if (Double.isNaN(directRouteDistance)) {
+      directRouteDistance = getRouteDistance(driverRequest.getDeparturePoint(),
+          driverRequest.getDestinationPoint());
+      this.directRouteDistance = directRouteDistance;
+    }
+    return directRouteDistance;
+  }
+
+  public double getRouteDistance(Position from, Position to) {
+    return mapService.getRouteDistance(from, to).getDistance();
+  }
 }
@@ -1,20 +1,57 @@
 package com.elanlum.ecs.ride.matcher.scoring;
 
 import com.elanlum.ecs.map.service.MapService;
+import com.elanlum.ecs.map.service.RouteDistance;
 import com.elanlum.ecs.ride.model.common.DriverRideRequest;
 import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
-import lombok.RequiredArgsConstructor;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 @Component
-@RequiredArgsConstructor
 public class ScoringContainerFactory {
 
   private final MapService mapService;
+  private final List<ScoringTerm> scoringTerms;
+
+  /**
+   * Scoring terms are ordered from the cheapest one.
+   */
+  @Autowired
+  public ScoringContainerFactory(MapService mapService, List<ScoringTerm> scoringTerms) {
+    this.mapService = mapService;
+    this.scoringTerms = scoringTerms.stream()
+        .sorted(Comparator.comparing(ScoringTerm::getCost))
+        .collect(Collectors.toUnmodifiableList());
+  }
 
   public ScoringContainer create(
       DriverRideRequest driverRequest,
       PassengerRideRequest passengerRequest) {
-    return new ScoringContainer(driverRequest, passengerRequest, mapService);
+    return new ScoringContainer(driverRequest, passengerRequest, mapService, scoringTerms);
+  }
+
+  /**
+   * Creates container for the pair with road distance taken from the distance matrix.
+   */
+  public ScoringContainer create(
+      DriverRideRequest driverRequest,
+      PassengerRideRequest passengerRequest,
+      double routeDistance) {
+    return new ScoringContainer(driverRequest, passengerRequest, mapService, scoringTerms,
+        routeDistance);
+  }
+
+  /**
+   * Creates container for the pair with pickup route found by the isochrone search.
+   */
+  public ScoringContainer create(
+      DriverRideRequest driverRequest,
+      PassengerRideRequest passengerRequest,
+      RouteDistance pickupRoute) {
+    return new ScoringContainer(driverRequest, passengerRequest, mapService, scoringTerms,
+        pickupRoute);
   }
 }
@@ -0,0 +1,31 @@
+package com.elanlum.ecs.ride.matcher.scoring;
+
+/**
+ * One weighted objective of the driver-passenger match score. Terms return values where the
+ * higher is the better, the score of the pair is the weighted sum of all terms.
+ */
+public interface ScoringTerm {
+
+  /**
+   * Relative cost of {@link #score(ScoringContainer)}, cheap terms are calculated first.
+   */
+  ScoringTermCost getCost();
+
+  double getWeight();
+
+  /**
+   * Calculates exact value of the term, may require routing.
+   *
+   * @param container - scored pair
+   * @return non-negative value, 0 means the pair is not feasible at all
+   */
+  double score(ScoringContainer container);
+
+  /**
+   * Calculates upper bound of {@link #score(ScoringContainer)} without routing.
+   *
+   * @param container - scored pair
+   * @return value which is never less than the exact one
+   */
+  double estimate(ScoringContainer container);
+}
@@ -0,0 +1,7 @@
+package com.elanlum.ecs.ride.matcher.scoring;
+
+public enum ScoringTermCost {
+  IN_MEMORY,
+  PICKUP_ROUTE,
+  EXTRA_ROUTES
+}
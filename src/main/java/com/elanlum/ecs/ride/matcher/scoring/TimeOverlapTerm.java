@@ -0,0 +1,61 @@
+package com.elanlum.ecs.ride.matcher.scoring;
+
+import com.elanlum.ecs.ride.model.values.Interval;
+import com.elanlum.ecs.ride.scheduling.config.ScoringConfiguration;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Share of the passenger's time window covered by the driver's one.
+ */
+@Component
+@RequiredArgsConstructor
+public class TimeOverlapTerm implements ScoringTerm {
+
+  private final ScoringConfiguration scoringConfiguration;
+
+  @Override
+  public ScoringTermCost getCost() {
+    return ScoringTermCost.IN_MEMORY;
+  }
+
+  @Override
+  public double getWeight() {
+    return scoringConfiguration.getTimeOverlapWeight();
+  }
+
+  @Override
+  public double score(ScoringContainer container) {
+    Interval driverDate = container.getDriverRequest().getRideDate();
+    Interval passengerDate = container.getPassengerRequest().getRideDate();
+    if (driverDate == null || passengerDate == null) {
+      return 1.0;
+    }
+    LocalDateTime start = max(driverDate.getStart(), passengerDate.getStart());
+    LocalDateTime end = min(driverDate.getEnd(), passengerDate.getEnd());
+    if (end.isBefore(start)) {
+      return 0;
+    }
+    long passengerWindow = Duration.between(passengerDate.getStart(), passengerDate.getEnd())
+        .getSeconds();
+    if (passengerWindow == 0) {
+      return 1.0;
+    }
+    return Math.min(1.0, (double) Duration.between(start, end).getSeconds() / passengerWindow);
+  }
+
+  @Override
+  public double estimate(ScoringContainer container) {
+    return score(container);
+  }
+
+  private static LocalDateTime max(LocalDateTime first, LocalDateTime second) {
+    return first.isAfter(second) ? first : second;
+  }
+
+  private static LocalDateTime min(LocalDateTime first, LocalDateTime second) {
+    return first.isBefore(second) ? first : second;
+  }
+}
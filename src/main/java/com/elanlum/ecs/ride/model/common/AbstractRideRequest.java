@@ -7,10 +7,10 @@ import com.elanlum.ecs.validation.ValidationForSave;
 import com.elanlum.ecs.ride.model.values.Interval;
 
 import java.io.Serializable;
+import java.time.LocalDateTime;
 import javax.validation.Valid;
 import javax.validation.constraints.Null;
 import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -20,7 +20,6 @@ import org.springframework.data.mongodb.core.mapping.Field;
 @Getter
 @Setter(AccessLevel.PROTECTED)
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
-@AllArgsConstructor
 public class AbstractRideRequest implements Serializable {
 
   @Null(groups = ValidationForSave.class, message = "Ride request id should be null. ")
@@ -39,4 +38,21 @@ public class AbstractRideRequest implements Serializable {
   private Position destinationPoint;
   @Field("status")
   private RideRequestStatus status;
+  @Setter
+  @Field("lastModified")
+  private LocalDateTime lastModified;
+
+  /**
+   * Constructor for ride request, last modification time is set when the request is saved.
+   */
+  public AbstractRideRequest(String id, String userId, Role role, Interval rideDate,
+      Position departurePoint, Position destinationPoint, RideRequestStatus status) {
+    this.id = id;
+    this.userId = userId;
+    this.role = role;
+    this.rideDate = rideDate;
+    this.departurePoint = departurePoint;
+    this.destinationPoint = destinationPoint;
+    this.status = status;
+  }
 }
@@ -4,18 +4,36 @@ import com.elanlum.ecs.ride.model.values.Interval;
 import com.elanlum.ecs.ride.model.values.Position;
 import com.elanlum.ecs.ride.model.values.RideRequestStatus;
 import com.elanlum.ecs.ride.model.values.Role;
+import com.elanlum.ecs.validation.ValidationForSave;
+import javax.validation.constraints.Min;
 import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.TypeAlias;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
 
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @Document(collection = "driverRide")
 @TypeAlias("driverRide")
 public class DriverRideRequest extends AbstractRideRequest {
 
+  @Getter
+  @Min(value = 1, groups = ValidationForSave.class, message = "Driver should offer a seat. ")
+  @Field("seats")
+  private int seats = 1;
+
   public DriverRideRequest(String id, String userId, Interval rideDate, Position departurePoint,
                            Position destinationPoint, RideRequestStatus status) {
     super(id, userId, Role.DRIVER, rideDate, departurePoint, destinationPoint, status);
   }
+
+  /**
+   * Constructor for the request of a driver who can take several passengers.
+   */
+  public DriverRideRequest(String id, String userId, Interval rideDate, Position departurePoint,
+      Position destinationPoint, RideRequestStatus status, int seats) {
+    this(id, userId, rideDate, departurePoint, destinationPoint, status);
+    this.seats = seats;
+  }
 }
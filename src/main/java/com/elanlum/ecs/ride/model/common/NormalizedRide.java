@@ -0,0 +1,127 @@
+package com.elanlum.ecs.ride.model.common;
+
+import com.elanlum.ecs.ride.model.values.Feedback;
+import com.elanlum.ecs.ride.model.values.RideLeg;
+import com.elanlum.ecs.ride.model.values.RideLegReference;
+import com.elanlum.ecs.ride.model.values.RideStatus;
+import com.elanlum.ecs.ride.model.values.RideSummary;
+import com.elanlum.ecs.user.model.User;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Storage layout of a {@link Ride} which keeps ids of its participants and requests instead of
+ * their copies, plus a small summary. The full ride is restored by {@link #toRide(Map, Map, Map)}
+ * once the references are resolved. Feedback of the passengers is kept in their legs.
+ */
+@Getter
+@Setter(AccessLevel.PROTECTED)
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Document(collection = "normalizedRide")
+public class NormalizedRide implements Serializable {
+
+  @Id
+  String id;
+  String driverId;
+  String passengerId;
+  String driverRideRequestId;
+  String passengerRideRequestId;
+  RideStatus status;
+  Feedback driverFeedback;
+  List<RideLegReference> passengerLegs;
+  RideSummary summary;
+
+  /**
+   * Creates normalized layout of the given ride.
+   *
+   * @param ride - ride with participants and requests
+   * @return normalized ride with the same id
+   */
+  public static NormalizedRide of(Ride ride) {
+    NormalizedRide normalizedRide = new NormalizedRide();
+    normalizedRide.id = ride.getId();
+    normalizedRide.driverId = ride.getDriver().getId();
+    normalizedRide.passengerId = ride.getPassenger().getId();
+    normalizedRide.driverRideRequestId = ride.getDriverRideRequest().getId();
+    normalizedRide.passengerRideRequestId = ride.getPassengerRideRequest().getId();
+    normalizedRide.status = ride.getStatus();
+    normalizedRide.driverFeedback = ride.getDriverFeedback();
+    normalizedRide.passengerLegs = ride.getPassengerLegs().stream()
+        .map(leg -> new RideLegReference(leg.getPassenger().getId(),
+            leg.getPassengerRideRequest().getId(), leg.getPickupStop(), leg.getDropoffStop(),
+            leg.getPassengerFeedback()))
+        .collect(Collectors.toList());
+    normalizedRide.summary = new RideSummary(ride.getDriver().getName(),
+        ride.getPassenger().getName(), ride.getStartingPosition(), ride.getRideDateTime());
+    return normalizedRide;
+  }
+
+  /**
+   * Returns ids of the driver and all the passengers.
+   */
+  public Stream<String> getUserIds() {
+    return Stream.concat(Stream.of(driverId, passengerId),
+        passengerLegs.stream().map(RideLegReference::getPassengerId));
+  }
+
+  /**
+   * Returns ids of the requests of all the passengers.
+   */
+  public Stream<String> getPassengerRideRequestIds() {
+    return Stream.concat(Stream.of(passengerRideRequestId),
+        passengerLegs.stream().map(RideLegReference::getPassengerRideRequestId));
+  }
+
+  /**
+   * Restores the ride from resolved references. References which were not found are left null.
+   *
+   * @param users - users by id
+   * @param driverRideRequests - driver requests by id
+   * @param passengerRideRequests - passenger requests by id
+   * @return ride with participants and requests
+   */
+  public Ride toRide(Map<String, User> users, Map<String, DriverRideRequest> driverRideRequests,
+      Map<String, PassengerRideRequest> passengerRideRequests) {
+    Ride ride = new Ride(id, users.get(driverId), users.get(passengerId),
+        driverRideRequests.get(driverRideRequestId),
+        passengerRideRequests.get(passengerRideRequestId), status, driverFeedback,
+        getPassengerFeedback(passengerId));
+    ride.setPassengerLegs(passengerLegs.stream()
+        .map(leg -> new RideLeg(users.get(leg.getPassengerId()),
+            passengerRideRequests.get(leg.getPassengerRideRequestId()), leg.getPickupStop(),
+            leg.getDropoffStop(), leg.getPassengerFeedback()))
+        .collect(Collectors.toList()));
+    return ride;
+  }
+
+  private Feedback getPassengerFeedback(String userId) {
+    return passengerLegs.stream()
+        .filter(leg -> leg.getPassengerId().equals(userId))
+        .findFirst()
+        .map(RideLegReference::getPassengerFeedback)
+        .orElse(null);
+  }
+
+  /**
+   * Gives the id of this saved document to the ride it was created from.
+   *
+   * @param ride - ride passed to {@link #of(Ride)}
+   * @return the same ride with the id
+   */
+  public Ride identify(Ride ride) {
+    ride.setId(id);
+    return ride;
+  }
+}
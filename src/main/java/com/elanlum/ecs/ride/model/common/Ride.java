@@ -2,17 +2,19 @@ package com.elanlum.ecs.ride.model.common;
 
 import com.elanlum.ecs.ride.model.values.Feedback;
 import com.elanlum.ecs.ride.model.values.Position;
+import com.elanlum.ecs.ride.model.values.RideLeg;
 import com.elanlum.ecs.ride.model.values.RideStatus;
 import com.elanlum.ecs.user.model.User;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Null;
 import javax.validation.groups.Default;
 import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -23,7 +25,6 @@ import org.springframework.data.mongodb.core.mapping.Document;
 @Getter
 @Setter(AccessLevel.PROTECTED)
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
-@AllArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @Document(collection = "rideEntity")
 public class Ride implements Serializable {
@@ -44,6 +45,23 @@ public class Ride implements Serializable {
   RideStatus status;
   Feedback driverFeedback;
   Feedback passengerFeedback;
+  List<RideLeg> passengerLegs;
+
+  /**
+   * Ride constructor with all the fields of a single passenger ride.
+   */
+  public Ride(String id, User driver, User passenger, DriverRideRequest driverRideRequest,
+      PassengerRideRequest passengerRideRequest, RideStatus status, Feedback driverFeedback,
+      Feedback passengerFeedback) {
+    this.id = id;
+    this.driver = driver;
+    this.passenger = passenger;
+    this.driverRideRequest = driverRideRequest;
+    this.passengerRideRequest = passengerRideRequest;
+    this.status = status;
+    this.driverFeedback = driverFeedback;
+    this.passengerFeedback = passengerFeedback;
+  }
 
   /**
    * Ride constructor.
@@ -62,6 +80,45 @@ public class Ride implements Serializable {
     status = RideStatus.OPENED;
   }
 
+  /**
+   * Pooled ride constructor. The passenger of the first leg is kept as the ride's passenger, so
+   * single passenger consumers see the first pickup.
+   *
+   * @param driver - {@link User} instance of the driver.
+   * @param driverRideRequest - {@link DriverRideRequest}.
+   * @param passengerLegs - legs of all the passengers ordered by pickup.
+   */
+  public Ride(User driver, DriverRideRequest driverRideRequest, List<RideLeg> passengerLegs) {
+    this(driver, passengerLegs.get(0).getPassenger(), driverRideRequest,
+        passengerLegs.get(0).getPassengerRideRequest());
+    this.passengerLegs = List.copyOf(passengerLegs);
+  }
+
+  /**
+   * Returns legs of all the passengers, a single passenger ride has exactly one leg which carries
+   * the passenger's feedback of the ride.
+   *
+   * @return legs ordered by pickup
+   */
+  public List<RideLeg> getPassengerLegs() {
+    if (passengerLegs == null || passengerLegs.isEmpty()) {
+      return List.of(new RideLeg(passenger, passengerRideRequest, 1, 2, passengerFeedback));
+    }
+    return passengerLegs;
+  }
+
+  /**
+   * Presents this ride as a single passenger ride of the given leg, e.g. to notify the driver and
+   * this passenger about each other. The passenger's feedback is the one of the leg.
+   *
+   * @param leg - one of the {@link #getPassengerLegs()}
+   * @return ride with the passenger of the leg
+   */
+  public Ride forLeg(RideLeg leg) {
+    return new Ride(id, driver, leg.getPassenger(), driverRideRequest,
+        leg.getPassengerRideRequest(), status, driverFeedback, leg.getPassengerFeedback());
+  }
+
   /**
    * Method returns approximate starting position of the ride.
    *
@@ -72,15 +129,19 @@ public class Ride implements Serializable {
   }
 
   /**
-   * Method returns approximate date and time of the ride.
+   * Method returns approximate date and time of the ride, i.e. of the earliest pickup of all the
+   * passengers.
    *
    * @return {@link LocalDateTime} which indicates date and time of the ride
    */
   public LocalDateTime getRideDateTime() {
-    if (driverRideRequest.getRideDate().getStart()
-        .compareTo(passengerRideRequest.getRideDate().getStart()) > 0) {
+    LocalDateTime passengerStart = getPassengerLegs().stream()
+        .map(leg -> leg.getPassengerRideRequest().getRideDate().getStart())
+        .min(Comparator.naturalOrder())
+        .orElseThrow();
+    if (driverRideRequest.getRideDate().getStart().compareTo(passengerStart) > 0) {
       return driverRideRequest.getRideDate().getStart();
     }
-    return passengerRideRequest.getRideDate().getStart();
+    return passengerStart;
   }
 }
@@ -0,0 +1,36 @@
+package com.elanlum.ecs.ride.model.values;
+
+import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
+import com.elanlum.ecs.user.model.User;
+import java.io.Serializable;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Part of the ride served to one passenger. Pickup and dropoff are positions of the passenger's
+ * stops in the driver's route, the driver's departure point is the stop 0. Each passenger gives
+ * the feedback about own leg.
+ */
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+@Setter(AccessLevel.PROTECTED)
+@Getter
+public class RideLeg implements Serializable {
+
+  private User passenger;
+  private PassengerRideRequest passengerRideRequest;
+  private int pickupStop;
+  private int dropoffStop;
+  private Feedback passengerFeedback;
+
+  /**
+   * Creates a leg without feedback.
+   */
+  public RideLeg(User passenger, PassengerRideRequest passengerRideRequest, int pickupStop,
+      int dropoffStop) {
+    this(passenger, passengerRideRequest, pickupStop, dropoffStop, null);
+  }
+}
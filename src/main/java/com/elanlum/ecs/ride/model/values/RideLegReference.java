@@ -0,0 +1,24 @@
+package com.elanlum.ecs.ride.model.values;
+
+import java.io.Serializable;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * {@link RideLeg} of a normalized ride, the passenger and the request are stored as ids.
+ */
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+@Setter(AccessLevel.PROTECTED)
+@Getter
+public class RideLegReference implements Serializable {
+
+  private String passengerId;
+  private String passengerRideRequestId;
+  private int pickupStop;
+  private int dropoffStop;
+  private Feedback passengerFeedback;
+}
@@ -0,0 +1,25 @@
+package com.elanlum.ecs.ride.model.values;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Small denormalized part of a normalized ride, enough to list rides without resolving their
+ * participants and requests.
+ */
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+@Setter(AccessLevel.PROTECTED)
+@Getter
+public class RideSummary implements Serializable {
+
+  private String driverName;
+  private String passengerName;
+  private Position startingPosition;
+  private LocalDateTime rideDateTime;
+}
@@ -0,0 +1,26 @@
+package com.elanlum.ecs.ride.partition;
+
+import java.time.LocalDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Heartbeat of a node taking part in partitioned matching, used to find the fair share of
+ * partitions for every node.
+ */
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Document(collection = "matchingNode")
+public class MatchingNode {
+
+  @Id
+  String id;
+  LocalDateTime expiresAt;
+}
@@ -0,0 +1,27 @@
+package com.elanlum.ecs.ride.partition;
+
+import java.time.LocalDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Ownership of one matching partition. The lease is valid until {@code expiresAt} and has to be
+ * renewed by its owner, otherwise any node may claim the partition.
+ */
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Document(collection = "matchingPartitionLease")
+public class PartitionLease {
+
+  @Id
+  int partition;
+  String owner;
+  LocalDateTime expiresAt;
+}
@@ -0,0 +1,157 @@
+package com.elanlum.ecs.ride.partition;
+
+import com.elanlum.ecs.ride.index.SpatialGrid;
+import com.elanlum.ecs.ride.model.values.Position;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Splits the map into a fixed number of partitions and keeps the set of partitions owned by this
+ * node. Coarse grid cells are hashed to partitions, ownership is stored as lease documents in
+ * Mongo. Every node takes its fair share of partitions, so the partitions are rebalanced when
+ * nodes join or leave.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "matching-settings", name = "partitioned", havingValue = "true")
+public class PartitionLeaseManager {
+
+  private static final Duration RELEASE_TIMEOUT = Duration.ofSeconds(5);
+
+  private final ReactiveMongoTemplate reactiveMongoTemplate;
+  private final MatchingConfiguration matchingConfiguration;
+  private final SpatialGrid grid;
+  @Getter
+  private final String nodeId = UUID.randomUUID().toString();
+  @Getter
+  private volatile Set<Integer> ownedPartitions = Collections.emptySet();
+
+  /**
+   * Partitions are cells of {@code matching-settings.partition-cell-degrees}.
+   */
+  @Autowired
+  public PartitionLeaseManager(ReactiveMongoTemplate reactiveMongoTemplate,
+      MatchingConfiguration matchingConfiguration) {
+    this.reactiveMongoTemplate = reactiveMongoTemplate;
+    this.matchingConfiguration = matchingConfiguration;
+    this.grid = new SpatialGrid(matchingConfiguration.getPartitionCellDegrees());
+  }
+
+  public int partitionOf(Position position) {
+    return Math.floorMod(Long.hashCode(grid.cellOf(position)),
+        matchingConfiguration.getPartitions());
+  }
+
+  public boolean owns(Position position) {
+    return ownedPartitions.contains(partitionOf(position));
+  }
+
+  /**
+   * Renews the heartbeat of this node and its leases, releases partitions above the fair share
+   * and claims free or expired partitions up to it.
+   *
+   * @return Mono with partitions owned by this node after rebalancing
+   */
+  public Mono<Set<Integer>> rebalance() {
+    LocalDateTime now = LocalDateTime.now();
+    LocalDateTime expiresAt = now.plusSeconds(matchingConfiguration.getPartitionLeaseSeconds());
+    return reactiveMongoTemplate.save(new MatchingNode(nodeId, expiresAt))
+        .then(reactiveMongoTemplate.count(
+            Query.query(Criteria.where("expiresAt").gt(now)), MatchingNode.class))
+        .zipWith(reactiveMongoTemplate.findAll(PartitionLease.class).collectList())
+        .flatMap(nodesAndLeases -> rebalance(fairShare(nodesAndLeases.getT1()),
+            nodesAndLeases.getT2(), now, expiresAt))
+        .doOnNext(partitions -> {
+          if (!partitions.equals(ownedPartitions)) {
+            log.info("Node {} owns {} matching partitions", nodeId, partitions.size());
+          }
+          ownedPartitions = partitions;
+        });
+  }
+
+  /**
+   * Gives all partitions of this node back, so other nodes don't wait for the leases to expire.
+   */
+  @PreDestroy
+  public void release() {
+    ownedPartitions = Collections.emptySet();
+    reactiveMongoTemplate
+        .remove(Query.query(Criteria.where("owner").is(nodeId)), PartitionLease.class)
+        .then(reactiveMongoTemplate.remove(Query.query(Criteria.where("_id").is(nodeId)),
+            MatchingNode.class))
+        .block(RELEASE_TIMEOUT);
+  }
+
+  private int fairShare(long liveNodes) {
+    int partitions = matchingConfiguration.getPartitions();
+    return (int) ((partitions + Math.max(liveNodes, 1) - 1) / Math.max(liveNodes, 1));
+  }
+
+  private Mono<Set<Integer>> rebalance(int fairShare, List<PartitionLease> leases,
+      LocalDateTime now, LocalDateTime expiresAt) {
+    List<Integer> owned = leases.stream()
+        .filter(lease -> nodeId.equals(lease.getOwner()) && lease.getExpiresAt().isAfter(now))
+        .map(PartitionLease::getPartition)
+        .sorted()
+        .collect(Collectors.toList());
+    List<Integer> kept = owned.subList(0, Math.min(owned.size(), fairShare));
+    List<Integer> released = owned.subList(kept.size(), owned.size());
+    Set<Integer> taken = leases.stream()
+        .filter(lease -> lease.getExpiresAt().isAfter(now))
+        .map(PartitionLease::getPartition)
+        .collect(Collectors.toSet());
+    List<Integer> free = new ArrayList<>();
+    for (int partition = 0; partition < matchingConfiguration.getPartitions()
+        && kept.size() + free.size() < fairShare; partition++) {
+      if (!taken.contains(partition)) {
+        free.add(partition);
+      }
+    }
+
+    Mono<Void> release = released.isEmpty() ? Mono.empty() : reactiveMongoTemplate
+        .remove(Query.query(Criteria.where("_id").in(released))
+            .addCriteria(Criteria.where("owner").is(nodeId)), PartitionLease.class)
+        .then();
+    Mono<Void> renew = kept.isEmpty() ? Mono.empty() : reactiveMongoTemplate
+        .updateMulti(Query.query(Criteria.where("_id").in(kept))
+                .addCriteria(Criteria.where("owner").is(nodeId)),
+            Update.update("expiresAt", expiresAt), PartitionLease.class)
+        .then();
+    return release.then(renew)
+        .thenMany(Flux.fromIterable(free)
+            .flatMap(partition -> claim(partition, now, expiresAt)))
+        .collect(() -> new HashSet<>(kept), Set::add);
+  }
+
+  private Mono<Integer> claim(int partition, LocalDateTime now, LocalDateTime expiresAt) {
+    return reactiveMongoTemplate.findAndModify(
+        Query.query(Criteria.where("_id").is(partition).orOperator(
+            Criteria.where("expiresAt").lte(now), Criteria.where("owner").is(nodeId))),
+        Update.update("owner", nodeId).set("expiresAt", expiresAt),
+        new FindAndModifyOptions().upsert(true).returnNew(true), PartitionLease.class)
+        .map(PartitionLease::getPartition)
+        .onErrorResume(DuplicateKeyException.class, exception -> Mono.empty());
+  }
+}
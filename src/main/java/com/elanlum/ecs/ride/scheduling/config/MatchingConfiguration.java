@@ -12,4 +12,35 @@ import org.springframework.context.annotation.Configuration;
 public class MatchingConfiguration {
 
   private String matchFrequencyMinutes;
+  private MatchingMode mode = MatchingMode.ONE_BUDDY;
+  private double gridCellDegrees = 0.01;
+  private int gridRing = 3;
+  private int timeBucketMinutes = 15;
+  private boolean columnarStore;
+  private int routedCandidatesLimit = 10;
+  private boolean isochroneFiltering;
+  private int isochroneMaxMinutes = 30;
+  private int nearPassengersLimit = 3;
+  private double poolingMaxDetourRatio = 1.5;
+  private long bestMatchesMaximumSize = 100000;
+  private long bestMatchesTtlMinutes = 5;
+  private boolean incremental = true;
+  private int fullSweepTicks = 10;
+  private int matchingConcurrency = 16;
+  private boolean coalesceOverlappingRuns = true;
+  private boolean eventDriven;
+  private boolean transactional;
+  private boolean partitioned;
+  private int partitions = 64;
+  private double partitionCellDegrees = 0.02;
+  private int partitionLeaseSeconds = 30;
+  private int routingParallelism;
+  private int indexRefreshSeconds = 10;
+
+  /**
+   * Tells whether ride request indexes of every node see requests saved by the other nodes.
+   */
+  public boolean isIndexSynchronized() {
+    return eventDriven || indexRefreshSeconds > 0;
+  }
 }
@@ -0,0 +1,5 @@
+package com.elanlum.ecs.ride.scheduling.config;
+
+public enum MatchingMode {
+  ONE_BUDDY, BATCH, POOLING
+}
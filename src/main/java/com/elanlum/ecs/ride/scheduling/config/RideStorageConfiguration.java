@@ -0,0 +1,19 @@
+package com.elanlum.ecs.ride.scheduling.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "ride-storage")
+@Getter
+@Setter
+public class RideStorageConfiguration {
+
+  private boolean normalized = false;
+  private boolean embeddedReadFallback = true;
+  private int resolveBatchSize = 100;
+  private long referenceCacheMaximumSize = 10_000;
+  private long referenceCacheTtlMinutes = 5;
+}
@@ -0,0 +1,19 @@
+package com.elanlum.ecs.ride.scheduling.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "scoring-settings")
+@Getter
+@Setter
+public class ScoringConfiguration {
+
+  private double pickupDistanceWeight = 1.0;
+  private double pickupDistanceScaleMeters = 1000;
+  private double timeOverlapWeight = 0.5;
+  private double pickupEtaWeight;
+  private double detourWeight;
+}
@@ -1,7 +1,5 @@
 package com.elanlum.ecs.ride.scheduling.matching;
 
-import com.elanlum.ecs.ride.crud.service.impl.DriverRideRequestService;
-import com.elanlum.ecs.ride.matcher.DriverPassengerMatchingOneBuddyService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.quartz.Job;
@@ -14,13 +12,12 @@ import org.springframework.stereotype.Component;
 @Slf4j
 public class MatcherJob implements Job {
 
-  private final DriverPassengerMatchingOneBuddyService matchingOneService;
-  private final DriverRideRequestService driverRideRequestService;
+  private final MatchingRunner matchingRunner;
 
   @Override
   public void execute(JobExecutionContext context) throws JobExecutionException {
-    driverRideRequestService.getAvailableRequests()
-        .subscribe(matchingOneService::matchAndNotify);
-    log.debug("Matching process started");
+    if (matchingRunner.run(driverRideRequest -> true)) {
+      log.debug("Matching process started");
+    }
   }
 }
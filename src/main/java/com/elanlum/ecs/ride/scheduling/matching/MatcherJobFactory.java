@@ -1,7 +1,5 @@
 package com.elanlum.ecs.ride.scheduling.matching;
 
-import com.elanlum.ecs.ride.crud.service.impl.DriverRideRequestService;
-import com.elanlum.ecs.ride.matcher.DriverPassengerMatchingOneBuddyService;
 import lombok.AllArgsConstructor;
 import org.quartz.Job;
 import org.quartz.Scheduler;
@@ -14,11 +12,10 @@ import org.springframework.stereotype.Component;
 @AllArgsConstructor
 public class MatcherJobFactory implements JobFactory {
 
-  private DriverPassengerMatchingOneBuddyService matchingOneService;
-  private DriverRideRequestService driverRideRequestService;
+  private MatchingRunner matchingRunner;
 
   @Override
   public Job newJob(TriggerFiredBundle bundle, Scheduler scheduler) throws SchedulerException {
-    return new MatcherJob(matchingOneService, driverRideRequestService);
+    return new MatcherJob(matchingRunner);
   }
 }
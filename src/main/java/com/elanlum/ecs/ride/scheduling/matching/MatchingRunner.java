@@ -0,0 +1,123 @@
+package com.elanlum.ecs.ride.scheduling.matching;
+
+import com.elanlum.ecs.map.service.RouteCache;
+import com.elanlum.ecs.ride.matcher.DriverPassengerBatchMatchingService;
+import com.elanlum.ecs.ride.matcher.DriverPassengerMatchingOneBuddyService;
+import com.elanlum.ecs.ride.matcher.DriverPassengerPoolingService;
+import com.elanlum.ecs.ride.matcher.IncrementalMatchingTracker;
+import com.elanlum.ecs.ride.model.common.AbstractRideRequest;
+import com.elanlum.ecs.ride.model.common.DriverRideRequest;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import com.elanlum.ecs.ride.scheduling.config.MatchingMode;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Runs one matching pass as a single reactive pipeline. Drivers are matched with bounded
+ * concurrency and only one run is in progress at a time: a tick arriving during a run is either
+ * skipped or coalesced into one more run started right after the current one.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MatchingRunner {
+
+  private final DriverPassengerMatchingOneBuddyService matchingOneService;
+  private final IncrementalMatchingTracker incrementalMatchingTracker;
+  private final DriverPassengerBatchMatchingService batchMatchingService;
+  private final DriverPassengerPoolingService poolingService;
+  private final MatchingConfiguration matchingConfiguration;
+  private final RouteCache routeCache;
+
+  private final AtomicBoolean running = new AtomicBoolean();
+  private final AtomicReference<Predicate<AbstractRideRequest>> pendingRun =
+      new AtomicReference<>();
+
+  /**
+   * Starts a matching run unless another one is in progress.
+   *
+   * @param requestFilter - chooses driver requests this run is responsible for, in batch mode
+   *     passenger requests as well
+   * @return true if the run was started, false if it was skipped or coalesced
+   */
+  public boolean run(Predicate<AbstractRideRequest> requestFilter) {
+    if (!running.compareAndSet(false, true)) {
+      if (matchingConfiguration.isCoalesceOverlappingRuns()) {
+        pendingRun.set(requestFilter);
+        log.debug("Matching run is in progress, the tick is coalesced into the next run");
+        if (!running.get()) {
+          // the run finished before the tick was stored and might have missed it
+          runPending();
+        }
+      } else {
+        log.debug("Matching run is in progress, the tick is skipped");
+      }
+      return false;
+    }
+
+    AtomicLong drivers = new AtomicLong();
+    long start = System.nanoTime();
+    Predicate<DriverRideRequest> countingFilter = driverRideRequest -> {
+      if (requestFilter.test(driverRideRequest)) {
+        drivers.incrementAndGet();
+        return true;
+      }
+      return false;
+    };
+    match(countingFilter, requestFilter)
+        .doFinally(signal -> {
+          running.set(false);
+          runPending();
+        })
+        .subscribe(rides -> logStats(drivers.get(), rides, System.nanoTime() - start),
+            throwable -> log.warn("Matching run failed: ", throwable));
+    return true;
+  }
+
+  /**
+   * Starts the coalesced run if there is one. Both the finished run and a tick which found the
+   * run finished get here, only one of them takes the pending filter.
+   */
+  private void runPending() {
+    Predicate<AbstractRideRequest> pendingFilter = pendingRun.getAndSet(null);
+    if (pendingFilter != null) {
+      run(pendingFilter);
+    }
+  }
+
+  boolean isRunning() {
+    return running.get();
+  }
+
+  private Mono<Long> match(Predicate<DriverRideRequest> driverFilter,
+      Predicate<AbstractRideRequest> passengerFilter) {
+    if (matchingConfiguration.getMode() == MatchingMode.BATCH) {
+      return batchMatchingService.matchAll(driverFilter, passengerFilter);
+    }
+    if (matchingConfiguration.getMode() == MatchingMode.POOLING) {
+      return incrementalMatchingTracker.getDriversToMatch()
+          .filter(driverFilter)
+          .flatMap(poolingService::match, matchingConfiguration.getMatchingConcurrency())
+          .count();
+    }
+    return incrementalMatchingTracker.getDriversToMatch()
+        .filter(driverFilter)
+        .flatMap(matchingOneService::match, matchingConfiguration.getMatchingConcurrency())
+        .count();
+  }
+
+  private void logStats(long drivers, long rides, long durationNanos) {
+    long durationMillis = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+    log.info("Matching run finished in {} ms: {} drivers, {} rides, {} drivers/s, "
+            + "route cache hit rate {}", durationMillis, drivers, rides,
+        drivers * 1000 / Math.max(durationMillis, 1),
+        String.format("%.2f", routeCache.getStats().hitRate()));
+  }
+}
@@ -0,0 +1,92 @@
+package com.elanlum.ecs.ride.scheduling.matching;
+
+import com.elanlum.ecs.ride.matcher.IncrementalMatchingTracker;
+import com.elanlum.ecs.ride.model.common.AbstractRideRequest;
+import com.elanlum.ecs.ride.partition.PartitionLeaseManager;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import java.time.Duration;
+import java.util.Set;
+import javax.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Runs matching on every node of the cluster instead of the single Quartz trigger. Every node
+ * matches only drivers departing from the partitions it holds leases for, in batch mode it loads
+ * only passengers of these partitions too. Leases are renewed three times per lease period.
+ * Candidates of other nodes are found only if the indexes are kept in sync, see
+ * {@link MatchingConfiguration#isIndexSynchronized()}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "matching-settings", name = "partitioned", havingValue = "true")
+public class PartitionedMatchingRunner {
+
+  private final MatchingRunner matchingRunner;
+  private final IncrementalMatchingTracker incrementalMatchingTracker;
+  private final PartitionLeaseManager partitionLeaseManager;
+  private final MatchingConfiguration matchingConfiguration;
+  private final Disposable.Composite subscriptions = Disposables.composite();
+
+  /**
+   * Starts lease renewal and periodic matching.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    Duration renewalPeriod = Duration
+        .ofSeconds(Math.max(1, matchingConfiguration.getPartitionLeaseSeconds() / 3));
+    Duration matchingPeriod = Duration
+        .ofMinutes(Long.parseLong(matchingConfiguration.getMatchFrequencyMinutes()));
+
+    subscriptions.add(Flux.interval(Duration.ZERO, renewalPeriod)
+        .onBackpressureDrop()
+        .concatMap(tick -> rebalance())
+        .subscribe());
+    subscriptions.add(Flux.interval(matchingPeriod, matchingPeriod)
+        .onBackpressureDrop()
+        .subscribe(tick -> match()));
+    log.debug("Partitioned matching started on node {}", partitionLeaseManager.getNodeId());
+  }
+
+  @PreDestroy
+  public void stop() {
+    subscriptions.dispose();
+  }
+
+  void match() {
+    if (partitionLeaseManager.getOwnedPartitions().isEmpty()) {
+      log.debug("Node {} owns no matching partitions", partitionLeaseManager.getNodeId());
+      return;
+    }
+    if (matchingRunner.run(this::isOwned)) {
+      log.debug("Partitioned matching process started");
+    }
+  }
+
+  Mono<Set<Integer>> rebalance() {
+    Set<Integer> previousPartitions = partitionLeaseManager.getOwnedPartitions();
+    return partitionLeaseManager.rebalance()
+        .doOnNext(partitions -> {
+          if (!previousPartitions.containsAll(partitions)) {
+            incrementalMatchingTracker.requestFullSweep();
+          }
+        })
+        .onErrorResume(throwable -> {
+          log.warn("Matching partitions rebalancing failed: ", throwable);
+          return Mono.empty();
+        });
+  }
+
+  private boolean isOwned(AbstractRideRequest rideRequest) {
+    return partitionLeaseManager.owns(rideRequest.getDeparturePoint());
+  }
+}
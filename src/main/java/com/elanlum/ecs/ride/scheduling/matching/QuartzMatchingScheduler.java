@@ -53,6 +53,15 @@ public class QuartzMatchingScheduler {
   private void schedule(JobElementsSource jobElementsSource,
       MatchingConfiguration matchingConfiguration) {
     try {
+      if (matchingConfiguration.isPartitioned()) {
+        if (!matchingConfiguration.isIndexSynchronized()) {
+          throw new IllegalStateException("Partitioned matching needs ride request indexes in "
+              + "sync across nodes, enable index refresh or event-driven matching");
+        }
+        instance.unscheduleJob(TriggerKey.triggerKey("matching_trigger"));
+        log.debug("Matching job is not scheduled, partitioned matching runs on every node");
+        return;
+      }
       String matchingFrequencyMinutes = matchingConfiguration.getMatchFrequencyMinutes();
       JobDetail jobDetail = jobElementsSource.driverMatcherJobDetail();
       Trigger trigger = jobElementsSource
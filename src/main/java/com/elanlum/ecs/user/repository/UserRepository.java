@@ -1,6 +1,7 @@
 package com.elanlum.ecs.user.repository;
 
 import com.elanlum.ecs.user.model.User;
+import java.util.Collection;
 import javax.annotation.Nonnull;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.mongodb.core.FindAndModifyOptions;
@@ -9,6 +10,7 @@ import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Repository
@@ -25,6 +27,10 @@ public class UserRepository {
     return reactiveMongoTemplate.findById(id, User.class);
   }
 
+  public Flux<User> findAllById(Collection<String> ids) {
+    return reactiveMongoTemplate.find(Query.query(Criteria.where("_id").in(ids)), User.class);
+  }
+
   public Mono<User> findByTelegramId(String telegramId) {
     return Mono.from(reactiveMongoTemplate
         .find(Query.query(Criteria.where("telegramId").is(telegramId)), User.class));
@@ -0,0 +1,15 @@
+package com.elanlum.ecs.user.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published after a user was saved or updated, so copies of the user kept elsewhere can be
+ * dropped.
+ */
+@Getter
+@AllArgsConstructor
+public class UserChangedEvent {
+
+  private final String userId;
+}
@@ -5,9 +5,12 @@ import com.elanlum.ecs.user.model.User;
 import com.elanlum.ecs.user.repository.UserRepository;
 import com.elanlum.ecs.validation.ValidationForSave;
 import com.elanlum.ecs.validation.ValidationService;
+import java.util.Collection;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Slf4j
@@ -17,11 +20,16 @@ public class UserService {
 
   private final UserRepository userRepo;
   private final ValidationService<User> validationService;
+  private final ApplicationEventPublisher applicationEventPublisher;
 
   public Mono<User> findById(String id) {
     return userRepo.findById(id);
   }
 
+  public Flux<User> findAllById(Collection<String> ids) {
+    return userRepo.findAllById(ids);
+  }
+
   public Mono<User> findByTelegramId(String telegramId) {
     return userRepo.findByTelegramId(telegramId);
   }
@@ -34,7 +42,8 @@ public class UserService {
   public Mono<User> save(User user) {
     return validationService.entityValidate(user, ValidationForSave.class)
         .flatMap(userRepo::save)
-        .doOnNext(user1 -> log.debug("User with id {} was saved", user.getId()));
+        .doOnNext(user1 -> log.debug("User with id {} was saved", user.getId()))
+        .doOnNext(this::notifyChanged);
   }
 
   /**
@@ -53,6 +62,11 @@ public class UserService {
     }
 
     return userRepo.updateTelegramChatId(userId, telegramChatId)
-        .doOnNext(user -> log.debug("TelegramId of the user with id {} was updated", user.getId()));
+        .doOnNext(user -> log.debug("TelegramId of the user with id {} was updated", user.getId()))
+        .doOnNext(this::notifyChanged);
+  }
+
+  private void notifyChanged(User user) {
+    applicationEventPublisher.publishEvent(new UserChangedEvent(user.getId()));
   }
 }
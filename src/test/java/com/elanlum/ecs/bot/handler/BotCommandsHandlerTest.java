@@ -25,12 +25,14 @@ import com.elanlum.ecs.ride.model.common.DriverRideRequest;
 import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
 import com.elanlum.ecs.ride.model.common.Ride;
 import com.elanlum.ecs.ride.model.values.Feedback;
+import com.elanlum.ecs.ride.model.values.RideLeg;
 import com.elanlum.ecs.ride.model.values.RideRequestStatus;
 import com.elanlum.ecs.ride.model.values.RideStatus;
 import com.elanlum.ecs.user.model.User;
 import com.elanlum.ecs.user.service.UserService;
 import com.elanlum.ecs.utils.TestCategory;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
@@ -306,7 +308,7 @@ class BotCommandsHandlerTest {
     when(parser.parse(anyString())).thenReturn(buttonCallbackMono);
     when(rideService.findById(anyString())).thenReturn(Mono.just(ride));
     when(userService.findById(anyString())).thenReturn(Mono.just(passenger));
-    when(rideService.updatePassengerFeedback(anyString(), any(Feedback.class)))
+    when(rideService.updatePassengerFeedback(anyString(), anyString(), any(Feedback.class)))
         .thenReturn(Mono.just(updatedPassengerRide));
 
     AnswerCallbackQuery answerCallbackQuery = (AnswerCallbackQuery) handler.handle(update)
@@ -316,6 +318,43 @@ class BotCommandsHandlerTest {
         + RED_CROSS_EMOJI, answerCallbackQuery.getText());
   }
 
+  @Test
+  @DisplayName("Handle feedback of the second passenger of a pooled ride")
+  void handleOccurredPooledPassengerFeedbackTest() {
+    ButtonCallback buttonCallback = new ButtonCallback("occur_button", "rideId", "rideUserId");
+    User driver = new User("driverId", "login1", "Driver", "1", 111L);
+    User passenger = new User("passengerId", "login2", "Passenger", "2", 222L);
+    User secondPassenger = new User("secondPassengerId", "login3", "Passenger", "3", 333L);
+    DriverRideRequest driverRideRequest = new DriverRideRequest("1req", driver.getId(), null, null,
+        null, RideRequestStatus.MATCHED);
+    PassengerRideRequest passengerRideRequest = new PassengerRideRequest("2req", passenger.getId(),
+        null, null, null, RideRequestStatus.MATCHED);
+    PassengerRideRequest secondPassengerRideRequest = new PassengerRideRequest("3req",
+        secondPassenger.getId(), null, null, null, RideRequestStatus.MATCHED);
+    Ride ride = new Ride(driver, driverRideRequest,
+        List.of(new RideLeg(passenger, passengerRideRequest, 1, 3),
+            new RideLeg(secondPassenger, secondPassengerRideRequest, 2, 4)));
+    Mono<ButtonCallback> buttonCallbackMono = Mono.just(buttonCallback);
+
+    when(update.hasCallbackQuery()).thenReturn(true);
+    when(update.getCallbackQuery()).thenReturn(callbackQuery);
+    when(callbackQuery.getData()).thenReturn("call");
+    when(callbackQuery.getId()).thenReturn("callbackId");
+    when(parser.parse(anyString())).thenReturn(buttonCallbackMono);
+    when(rideService.findById(anyString())).thenReturn(Mono.just(ride));
+    when(userService.findById(anyString())).thenReturn(Mono.just(secondPassenger));
+    when(rideService.updatePassengerFeedback(any(), anyString(), any(Feedback.class)))
+        .thenReturn(Mono.just(ride));
+
+    AnswerCallbackQuery answerCallbackQuery = (AnswerCallbackQuery) handler.handle(update)
+        .blockFirst();
+
+    assertEquals("Your approval has been successfully sent " + GREEN_CHECK_MARK_EMOJI,
+        answerCallbackQuery.getText());
+    verify(rideService, times(1))
+        .updatePassengerFeedback(eq(null), eq(secondPassenger.getId()), any(Feedback.class));
+  }
+
   @Test
   @DisplayName("Command does not match any supported")
   void givenCommandIsUnsupportedTest() {
@@ -340,7 +379,7 @@ class BotCommandsHandlerTest {
     when(parser.parse(anyString())).thenReturn(buttonCallbackMono);
     when(rideService.findById(anyString())).thenReturn(Mono.just(ride));
     when(userService.findById(anyString())).thenReturn(Mono.just(passenger));
-    when(rideService.updatePassengerFeedback(anyString(), any(Feedback.class)))
+    when(rideService.updatePassengerFeedback(anyString(), anyString(), any(Feedback.class)))
         .thenReturn(Mono.just(updatedPassengerRide));
 
     AnswerCallbackQuery answerCallbackQuery = (AnswerCallbackQuery) handler.handle(update)
@@ -377,7 +416,7 @@ class BotCommandsHandlerTest {
     when(parser.parse(anyString())).thenReturn(buttonCallbackMono);
     when(rideService.findById(anyString())).thenReturn(Mono.just(ride));
     when(userService.findById(anyString())).thenReturn(Mono.just(anotherPassenger));
-    when(rideService.updatePassengerFeedback(anyString(), any(Feedback.class)))
+    when(rideService.updatePassengerFeedback(anyString(), anyString(), any(Feedback.class)))
         .thenReturn(Mono.just(updatedPassengerRide));
 
     AnswerCallbackQuery answerCallbackQuery = (AnswerCallbackQuery) handler.handle(update)
@@ -6,10 +6,13 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.elanlum.ecs.IntegrationTestsConfig;
+import com.elanlum.ecs.map.service.Isochrone;
 import com.elanlum.ecs.map.service.MapService;
+import com.elanlum.ecs.map.service.RouteDistance;
 import com.elanlum.ecs.utils.TestCategory;
 import com.elanlum.ecs.ride.model.values.Position;
 import com.graphhopper.PathWrapper;
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
@@ -61,4 +64,40 @@ class MapServiceIntegrationTest {
     assertNotNull(answer.getInstructions());
     assertNotNull(answer.getDescription());
   }
+
+  @Test
+  void getRouteDistanceOfSnappedPositions() {
+    RouteDistance routeDistance = hopper.getRouteDistance(hopper.snap(from), hopper.snap(to));
+
+    assertEquals(answer.getDistance(), routeDistance.getDistance(), answer.getDistance() * 0.05);
+    assertTrue(routeDistance.getTime() > 0);
+  }
+
+  @Test
+  void getIsochrone() {
+    Isochrone isochrone = hopper.getIsochrone(hopper.snap(from), answer.getTime() * 2);
+    Isochrone smallIsochrone = hopper.getIsochrone(hopper.snap(from), answer.getTime() / 10);
+
+    assertTrue(isochrone.contains(hopper.snap(to)));
+    assertTrue(smallIsochrone.contains(hopper.snap(from)));
+    assertFalse(smallIsochrone.contains(hopper.snap(to)));
+    assertTrue(smallIsochrone.size() < isochrone.size());
+    RouteDistance routeDistance = hopper.getRouteDistance(hopper.snap(from), hopper.snap(to));
+    assertEquals(routeDistance.getTime(), isochrone.getRoute(hopper.snap(to)).getTime(),
+        routeDistance.getTime() * 0.01);
+  }
+
+  @Test
+  void getDistanceMatrix() {
+    Position other = new Position(59.934280f, 30.335099f);
+
+    double[][] distances = hopper.getDistanceMatrix(List.of(from, other), List.of(to, from));
+
+    assertEquals(2, distances.length);
+    assertEquals(answer.getDistance(), distances[0][0], answer.getDistance() * 0.01);
+    assertEquals(0.0, distances[0][1], 1.0);
+    assertEquals(hopper.getDistance(other, to).getDistance(), distances[1][0],
+        distances[1][0] * 0.01);
+    assertTrue(distances[1][1] > 0);
+  }
 }
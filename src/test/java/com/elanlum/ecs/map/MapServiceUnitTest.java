@@ -1,17 +1,38 @@
 package com.elanlum.ecs.map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
-
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import com.carrotsearch.hppc.IntDoubleHashMap;
+import com.elanlum.ecs.map.config.RouteCacheConfiguration;
 import com.elanlum.ecs.map.exceptions.MapException;
+import com.elanlum.ecs.map.service.Isochrone;
+import com.elanlum.ecs.map.service.IsochroneCache;
 import com.elanlum.ecs.map.service.MapService;
+import com.elanlum.ecs.map.service.RouteCache;
+import com.elanlum.ecs.map.service.RouteDistance;
+import com.elanlum.ecs.map.service.SnapCache;
+import com.elanlum.ecs.map.service.SnappedPosition;
 import com.elanlum.ecs.utils.TestCategory;
 import com.elanlum.ecs.ride.model.values.Position;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.PathWrapper;
+import com.graphhopper.coll.GHIntLongHashMap;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.QueryResult;
+import java.util.Arrays;
 import java.util.List;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
@@ -19,6 +40,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 @Tag(TestCategory.UNIT)
@@ -27,9 +49,19 @@ public class MapServiceUnitTest {
 
   @Mock
   GraphHopper hopper;
+  @Spy
+  RouteCache routeCache = new RouteCache(new RouteCacheConfiguration());
+  @Spy
+  SnapCache snapCache = new SnapCache(new RouteCacheConfiguration());
+  @Spy
+  IsochroneCache isochroneCache = new IsochroneCache(new RouteCacheConfiguration());
+  @Spy
   @InjectMocks
   MapService ghService;
 
+  @Mock
+  LocationIndex locationIndex;
+
   @Mock
   GHResponse ghResponse;
 
@@ -66,4 +98,88 @@ public class MapServiceUnitTest {
 
     assertThrows(MapException.class, () -> ghService.getDistance(from, to));
   }
+
+  @Test
+  public void givenSameRouteRequestedTwice_thenRouteIsComputedOnce() {
+
+    SnappedPosition snappedFrom = new SnappedPosition(from, 1);
+    SnappedPosition snappedTo = new SnappedPosition(to, 2);
+    doReturn(snappedFrom).when(ghService).snap(from);
+    doReturn(snappedTo).when(ghService).snap(to);
+    doReturn(new RouteDistance(3000.0, 537075L)).when(ghService)
+        .getRouteDistance(snappedFrom, snappedTo);
+
+    RouteDistance first = ghService.getRouteDistance(from, to);
+    RouteDistance second = ghService.getRouteDistance(from, to);
+
+    assertEquals(new RouteDistance(3000.0, 537075L), first);
+    assertEquals(first, second);
+    verify(ghService, times(1)).getRouteDistance(snappedFrom, snappedTo);
+    verify(hopper, never()).route(any(GHRequest.class));
+  }
+
+  @Test
+  public void givenSamePositionSnappedTwice_thenLocationIndexIsUsedOnce() {
+
+    QueryResult queryResult = mock(QueryResult.class);
+    Mockito.when(queryResult.isValid()).thenReturn(true);
+    Mockito.when(queryResult.getClosestNode()).thenReturn(42);
+    Mockito.when(hopper.getLocationIndex()).thenReturn(locationIndex);
+    Mockito.when(locationIndex.findClosest(from.getLatitude(), from.getLongitude(),
+        EdgeFilter.ALL_EDGES)).thenReturn(queryResult);
+
+    assertEquals(new SnappedPosition(from, 42), ghService.snap(from));
+    assertEquals(List.of(new SnappedPosition(from, 42)),
+        ghService.snapAll(Arrays.asList(from, null)));
+    verify(locationIndex, times(1)).findClosest(from.getLatitude(), from.getLongitude(),
+        EdgeFilter.ALL_EDGES);
+  }
+
+  @Test
+  public void givenPositionNotSnapped_thenRouteThrowsException() {
+
+    SnappedPosition snappedFrom = new SnappedPosition(from, 1);
+    SnappedPosition notFound = new SnappedPosition(to, SnappedPosition.NOT_FOUND);
+
+    assertThrows(MapException.class, () -> ghService.getRouteDistance(snappedFrom, notFound));
+    verifyZeroInteractions(hopper);
+  }
+
+  @Test
+  public void givenNoTargets_thenMatrixIsEmptyAndGraphIsNotUsed() {
+
+    double[][] distances = ghService.getDistanceMatrix(List.of(from, to), List.of());
+
+    assertEquals(2, distances.length);
+    assertEquals(0, distances[0].length);
+    verifyZeroInteractions(hopper);
+  }
+
+  @Test
+  public void givenCachedIsochrone_thenGraphIsNotExplored() {
+
+    SnappedPosition snappedFrom = new SnappedPosition(from, 1);
+    GHIntLongHashMap times = new GHIntLongHashMap();
+    times.put(1, 0L);
+    times.put(2, 60_000L);
+    IntDoubleHashMap distances = new IntDoubleHashMap();
+    distances.put(1, 0.0);
+    distances.put(2, 800.0);
+    Isochrone isochrone = isochroneCache.get(1, 600_000L, () -> Isochrone.of(times, distances));
+
+    assertSame(isochrone, ghService.getIsochrone(snappedFrom, 600_000L));
+    assertEquals(new RouteDistance(800.0, 60_000L),
+        isochrone.getRoute(new SnappedPosition(to, 2)));
+    verifyZeroInteractions(hopper);
+  }
+
+  @Test
+  public void givenOriginNotSnapped_thenIsochroneIsUnbounded() {
+
+    Isochrone isochrone = ghService.getIsochrone(
+        new SnappedPosition(from, SnappedPosition.NOT_FOUND), 600_000L);
+
+    assertFalse(isochrone.isBounded());
+    verifyZeroInteractions(hopper, isochroneCache);
+  }
 }
@@ -0,0 +1,74 @@
+package com.elanlum.ecs.map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.elanlum.ecs.map.config.RouteCacheConfiguration;
+import com.elanlum.ecs.map.exceptions.MapException;
+import com.elanlum.ecs.map.service.RouteCache;
+import com.elanlum.ecs.map.service.RouteDistance;
+import com.elanlum.ecs.ride.model.values.Position;
+import com.elanlum.ecs.utils.TestCategory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag(TestCategory.UNIT)
+class RouteCacheTest {
+
+  private final RouteCache routeCache = new RouteCache(new RouteCacheConfiguration());
+  private final AtomicInteger routings = new AtomicInteger();
+
+  private final Position from = new Position(59.906842f, 30.298719f);
+  private final Position to = new Position(59.888854f, 30.322629f);
+
+  @Test
+  void givenSameCells_routeIsComputedOnce() {
+    RouteDistance first = routeCache.get(from, to, this::route);
+    RouteDistance second = routeCache.get(new Position(59.906845f, 30.298715f),
+        new Position(59.888850f, 30.322625f), this::route);
+
+    assertThat(second).isEqualTo(first);
+    assertThat(routings.get()).isEqualTo(1);
+    assertThat(routeCache.getStats().hitCount()).isEqualTo(1);
+    assertThat(routeCache.getStats().missCount()).isEqualTo(1);
+  }
+
+  @Test
+  void givenReversedDirection_routeIsComputedAgain() {
+    routeCache.get(from, to, this::route);
+    routeCache.get(to, from, this::route);
+
+    assertThat(routings.get()).isEqualTo(2);
+  }
+
+  @Test
+  void givenRoutingFailed_errorIsNotCached() {
+    assertThatThrownBy(() -> routeCache.get(from, to, () -> {
+      throw new MapException(new RuntimeException());
+    })).isInstanceOf(MapException.class);
+
+    assertThat(routeCache.get(from, to, this::route).getDistance()).isEqualTo(100.0);
+  }
+
+  @Test
+  void givenBoundToRegistry_statsArePublishedAsMetrics() {
+    MeterRegistry registry = new SimpleMeterRegistry();
+    routeCache.bindTo(registry);
+
+    routeCache.get(from, to, this::route);
+    routeCache.get(from, to, this::route);
+
+    assertThat(registry.get("cache.gets").tag("cache", "routeCache").tag("result", "hit")
+        .functionCounter().count()).isEqualTo(1.0);
+    assertThat(registry.get("cache.gets").tag("cache", "routeCache").tag("result", "miss")
+        .functionCounter().count()).isEqualTo(1.0);
+  }
+
+  private RouteDistance route() {
+    routings.incrementAndGet();
+    return new RouteDistance(100.0, 10_000L);
+  }
+}
@@ -0,0 +1,191 @@
+package com.elanlum.ecs.map.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import com.elanlum.ecs.utils.TestCategory;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.reader.osm.GraphHopperOSM;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.util.FileSystemUtils;
+
+@Tag(TestCategory.UNIT)
+class GraphHopperFactoryTest {
+
+  private Path workingDirectory;
+  private Path source;
+  private GraphHopper hopper;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    workingDirectory = Files.createTempDirectory("graphhopper");
+    source = Files.createFile(workingDirectory.resolve(MapConfig.PATHNAME));
+    hopper = spy(GraphHopperFactory
+        .create(workingDirectory.toString(), RoutingMode.CH, GraphStorageMode.RAM_STORE));
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    FileSystemUtils.deleteRecursively(workingDirectory);
+  }
+
+  @Test
+  @DisplayName("Graph without the marker is imported or loaded as is and gets the marker")
+  void importOrLoadWithoutMarker() throws IOException {
+    doReturn(hopper).when(hopper).importOrLoad();
+
+    GraphHopperFactory.importOrLoad(hopper, source.toString(), RoutingMode.CH);
+
+    verify(hopper, never()).clean();
+    verify(hopper).importOrLoad();
+    assertThat(readMarker()).isEqualTo(RoutingMode.CH.name());
+  }
+
+  @Test
+  @DisplayName("Graph prepared for the same routing mode is not cleaned")
+  void importOrLoadWithMatchingMarker() throws IOException {
+    writeMarker(RoutingMode.CH);
+    doReturn(hopper).when(hopper).importOrLoad();
+
+    GraphHopperFactory.importOrLoad(hopper, source.toString(), RoutingMode.CH);
+
+    verify(hopper, never()).clean();
+    verify(hopper).importOrLoad();
+    assertThat(readMarker()).isEqualTo(RoutingMode.CH.name());
+  }
+
+  @Test
+  @DisplayName("Graph prepared for another routing mode is cleaned and imported again")
+  void importOrLoadWithMismatchedMarker() throws IOException {
+    writeMarker(RoutingMode.LM);
+    doNothing().when(hopper).clean();
+    doReturn(hopper).when(hopper).importOrLoad();
+
+    GraphHopperFactory.importOrLoad(hopper, source.toString(), RoutingMode.CH);
+
+    verify(hopper).clean();
+    verify(hopper).importOrLoad();
+    assertThat(readMarker()).isEqualTo(RoutingMode.CH.name());
+  }
+
+  @Test
+  @DisplayName("Graph prepared for the routing mode is loaded")
+  void loadWithMatchingMarker() throws IOException {
+    writeMarker(RoutingMode.CH);
+    doReturn(true).when(hopper).load(workingDirectory.toString());
+
+    GraphHopperFactory.load(hopper, RoutingMode.CH);
+
+    verify(hopper).load(workingDirectory.toString());
+  }
+
+  @Test
+  @DisplayName("Graph without the marker is not loaded")
+  void loadWithoutMarker() {
+    assertThatThrownBy(() -> GraphHopperFactory.load(hopper, RoutingMode.CH))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("importGraph");
+
+    verify(hopper, never()).load(anyString());
+  }
+
+  @Test
+  @DisplayName("Graph prepared for another routing mode is not loaded")
+  void loadWithMismatchedMarker() throws IOException {
+    writeMarker(RoutingMode.FLEXIBLE);
+
+    assertThatThrownBy(() -> GraphHopperFactory.load(hopper, RoutingMode.CH))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining(RoutingMode.CH.name());
+
+    verify(hopper, never()).load(anyString());
+  }
+
+  @Test
+  @DisplayName("Graph files missing next to the marker are reported")
+  void loadWithMarkerButWithoutGraph() throws IOException {
+    writeMarker(RoutingMode.CH);
+    doReturn(false).when(hopper).load(workingDirectory.toString());
+
+    assertThatThrownBy(() -> GraphHopperFactory.load(hopper, RoutingMode.CH))
+        .isInstanceOf(IllegalStateException.class);
+  }
+
+  @ParameterizedTest
+  @EnumSource(GraphStorageMode.class)
+  @DisplayName("Storage mode decides whether the graph is memory mapped or flushed")
+  void configureStorageMode(GraphStorageMode storageMode) {
+    GraphHopper configured = spy(new GraphHopperOSM().forServer());
+
+    GraphHopperFactory.configure(configured, workingDirectory.toString(), RoutingMode.CH,
+        storageMode);
+
+    if (storageMode == GraphStorageMode.MMAP) {
+      verify(configured).setMemoryMapped();
+      verify(configured, never()).setStoreOnFlush(anyBoolean());
+    } else {
+      verify(configured).setStoreOnFlush(storageMode == GraphStorageMode.RAM_STORE);
+      verify(configured, never()).setMemoryMapped();
+    }
+    assertThat(configured.getGraphHopperLocation()).isEqualTo(workingDirectory.toString());
+  }
+
+  @ParameterizedTest
+  @EnumSource(RoutingMode.class)
+  @DisplayName("Only the preparation of the routing mode is enabled")
+  void configureRoutingMode(RoutingMode routingMode) {
+    GraphHopper configured = GraphHopperFactory.create(workingDirectory.toString(), routingMode,
+        GraphStorageMode.RAM);
+
+    assertThat(configured.getCHFactoryDecorator().isEnabled())
+        .isEqualTo(routingMode == RoutingMode.CH);
+    assertThat(configured.getLMFactoryDecorator().isEnabled())
+        .isEqualTo(routingMode == RoutingMode.LM);
+  }
+
+  @ParameterizedTest
+  @EnumSource(GraphStorageMode.class)
+  @DisplayName("Graph imported in any storage mode is loaded afterwards")
+  void importThenLoad(GraphStorageMode storageMode) throws IOException {
+    GraphHopper configured = spy(GraphHopperFactory
+        .create(workingDirectory.toString(), RoutingMode.LM, storageMode));
+    doReturn(configured).when(configured).importOrLoad();
+    doReturn(true).when(configured).load(workingDirectory.toString());
+
+    GraphHopperFactory.importOrLoad(configured, source.toString(), RoutingMode.LM);
+    GraphHopperFactory.load(configured, RoutingMode.LM);
+
+    verify(configured).importOrLoad();
+    verify(configured).load(workingDirectory.toString());
+    verify(configured, never()).clean();
+    assertThat(readMarker()).isEqualTo(RoutingMode.LM.name());
+  }
+
+  private void writeMarker(RoutingMode routingMode) throws IOException {
+    Files.write(workingDirectory.resolve(GraphHopperFactory.ROUTING_MODE_MARKER),
+        routingMode.name().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private String readMarker() throws IOException {
+    return new String(Files.readAllBytes(
+        workingDirectory.resolve(GraphHopperFactory.ROUTING_MODE_MARKER)),
+        StandardCharsets.UTF_8);
+  }
+}
@@ -3,6 +3,7 @@ package com.elanlum.ecs.ride.crud.repository;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -15,17 +16,24 @@ import com.elanlum.ecs.ride.model.values.Interval;
 import com.elanlum.ecs.ride.model.values.Position;
 import com.elanlum.ecs.ride.model.values.RideRequestStatus;
 
+import com.mongodb.client.result.UpdateResult;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import org.bson.Document;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
@@ -84,17 +92,34 @@ class DriverRideRequestRepoTest {
   }
 
   @Test
-  @DisplayName("Get available driver requests")
-  void findAllReqsWithAvailableStatus() {
-    when(reactiveMongoTemplate.find(Query.query(Criteria.where("status").is(
-        RideRequestStatus.AVAILABLE)), DriverRideRequest.class))
+  @DisplayName("Available driver views fetch matching fields and seats only")
+  void getAvailableMatchingViews() {
+    Query query = Query.query(Criteria.where("status").is(RideRequestStatus.AVAILABLE));
+    query.fields().include("userId").include("role").include("rideDate")
+        .include("departurePoint").include("destinationPoint").include("status")
+        .include("lastModified").include("seats");
+    when(reactiveMongoTemplate.find(query, DriverRideRequest.class))
         .thenReturn(Flux.just(driverRideRequest));
-    StepVerifier.create(driverRideRequestRepo.getAvailableRequests())
-        .expectNext(driverRideRequest).verifyComplete();
-    verify(reactiveMongoTemplate, times(1)).find(any(), any());
+
+    StepVerifier.create(driverRideRequestRepo.getAvailableMatchingViews())
+        .expectNext(driverRideRequest)
+        .verifyComplete();
+    verify(reactiveMongoTemplate, times(1)).find(query, DriverRideRequest.class);
     verifyNoMoreInteractions(reactiveMongoTemplate);
   }
 
+  @Test
+  @DisplayName("Matching views keep the last modification time incremental matching relies on")
+  void matchingViewsKeepLastModified() {
+    LocalDateTime lastModified = LocalDateTime.now().minusHours(1);
+    when(reactiveMongoTemplate.find(any(Query.class), eq(DriverRideRequest.class)))
+        .thenAnswer(invocation -> Flux.just(project(invocation.getArgument(0), lastModified)));
+
+    StepVerifier.create(driverRideRequestRepo.getAvailableMatchingViews())
+        .assertNext(view -> assertEquals(lastModified, view.getLastModified()))
+        .verifyComplete();
+  }
+
   @Test
   @DisplayName("Get multiple driverRideRequests from Repo")
   void findAvailableDriverRideRequest() {
@@ -132,4 +157,146 @@ class DriverRideRequestRepoTest {
     verify(reactiveMongoTemplate, times(1)).find(any(), any());
     verifyNoMoreInteractions(reactiveMongoTemplate);
   }
+
+  @Test
+  @DisplayName("Get available driver requests modified since the given time")
+  void findAvailableModifiedSince() {
+    LocalDateTime since = LocalDateTime.now().minusMinutes(1);
+    when(reactiveMongoTemplate.find(Query.query(Criteria.where("status").is(
+        RideRequestStatus.AVAILABLE))
+        .addCriteria(Criteria.where("lastModified").gte(since)), DriverRideRequest.class))
+        .thenReturn(Flux.just(driverRideRequest));
+
+    StepVerifier.create(driverRideRequestRepo.findAvailableModifiedSince(since))
+        .expectNext(driverRideRequest)
+        .verifyComplete();
+    verify(reactiveMongoTemplate, times(1)).find(any(), any());
+    verifyNoMoreInteractions(reactiveMongoTemplate);
+  }
+
+  @Test
+  @DisplayName("Available driver views overlapping the passenger time slot fetch matching fields")
+  void getAvailableDriverViewsInTime() {
+    LocalDateTime start = LocalDateTime.now();
+    LocalDateTime end = start.plusMinutes(30);
+    Query query = Query.query(Criteria.where("status").is(RideRequestStatus.AVAILABLE))
+        .addCriteria(Criteria.where("userId").ne("2"))
+        .addCriteria(Criteria.where("rideDate.end").gte(start)
+            .andOperator(Criteria.where("rideDate.start").lte(end)));
+    query.fields().include("userId").include("role").include("rideDate")
+        .include("departurePoint").include("destinationPoint").include("status")
+        .include("lastModified").include("seats");
+    when(reactiveMongoTemplate.find(query, DriverRideRequest.class))
+        .thenReturn(Flux.just(driverRideRequest));
+
+    StepVerifier.create(driverRideRequestRepo.getAvailableDriverViewsInTime(start, end, "2"))
+        .expectNext(driverRideRequest)
+        .verifyComplete();
+    verify(reactiveMongoTemplate, times(1)).find(any(), any());
+    verifyNoMoreInteractions(reactiveMongoTemplate);
+  }
+
+  @Test
+  @DisplayName("Available driver views overlapping the passenger time slot among candidates")
+  void getAvailableDriverViewsInTimeAmongCandidates() {
+    LocalDateTime start = LocalDateTime.now();
+    LocalDateTime end = start.plusMinutes(30);
+    Query query = Query.query(Criteria.where("_id").in(Set.of("1")))
+        .addCriteria(Criteria.where("status").is(RideRequestStatus.AVAILABLE))
+        .addCriteria(Criteria.where("userId").ne("2"))
+        .addCriteria(Criteria.where("rideDate.end").gte(start)
+            .andOperator(Criteria.where("rideDate.start").lte(end)));
+    query.fields().include("userId").include("role").include("rideDate")
+        .include("departurePoint").include("destinationPoint").include("status")
+        .include("lastModified").include("seats");
+    when(reactiveMongoTemplate.find(query, DriverRideRequest.class))
+        .thenReturn(Flux.just(driverRideRequest));
+
+    StepVerifier.create(driverRideRequestRepo
+        .getAvailableDriverViewsInTime(start, end, "2", Set.of("1")))
+        .expectNext(driverRideRequest)
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("Available ids among the given requests are read without the documents")
+  void findAvailableIds() {
+    Query query = Query.query(Criteria.where("_id").in(Set.of("1", "2")))
+        .addCriteria(Criteria.where("status").is(RideRequestStatus.AVAILABLE));
+    query.fields().include("_id");
+    when(reactiveMongoTemplate.find(query, DriverRideRequest.class))
+        .thenReturn(Flux.just(driverRideRequest));
+
+    StepVerifier.create(driverRideRequestRepo.findAvailableIds(Set.of("1", "2")))
+        .expectNext("1")
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("Indexes of the collection are ensured one by one")
+  void ensureIndexes() {
+    ReactiveIndexOperations indexOperations = mock(ReactiveIndexOperations.class);
+    when(reactiveMongoTemplate.indexOps(DriverRideRequest.class)).thenReturn(indexOperations);
+    when(indexOperations.ensureIndex(any())).thenReturn(Mono.just("index"));
+
+    driverRideRequestRepo.ensureIndexes();
+
+    verify(indexOperations, times(5)).ensureIndex(any());
+  }
+
+  @Test
+  @DisplayName("Bulk status update returns only requests updated by this call and unsets the "
+      + "transition token")
+  void updateStatuses() {
+    when(reactiveMongoTemplate.updateMulti(any(Query.class), any(Update.class),
+        eq(DriverRideRequest.class)))
+        .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+    when(reactiveMongoTemplate.find(any(Query.class), eq(DriverRideRequest.class)))
+        .thenReturn(Flux.just(driverRideRequest));
+
+    StepVerifier.create(driverRideRequestRepo.updateStatuses(List.of("1", "2"),
+        RideRequestStatus.AVAILABLE, RideRequestStatus.MATCHED))
+        .expectNext(driverRideRequest)
+        .verifyComplete();
+
+    ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+    ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+    verify(reactiveMongoTemplate, times(2)).updateMulti(queries.capture(), updates.capture(),
+        eq(DriverRideRequest.class));
+    String transition = updates.getAllValues().get(0).getUpdateObject()
+        .get("$set", Document.class).getString("statusTransition");
+    assertEquals(Query.query(Criteria.where("statusTransition").is(transition)),
+        queries.getAllValues().get(1));
+    assertEquals(new Update().unset("statusTransition"), updates.getAllValues().get(1));
+  }
+
+  @Test
+  @DisplayName("Bulk status update skips reading back when nothing was updated")
+  void updateStatusesWithoutChanges() {
+    when(reactiveMongoTemplate.updateMulti(any(Query.class), any(Update.class),
+        eq(DriverRideRequest.class)))
+        .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+
+    StepVerifier.create(driverRideRequestRepo.updateStatuses(List.of("1"),
+        RideRequestStatus.AVAILABLE, RideRequestStatus.MATCHED))
+        .verifyComplete();
+    verify(reactiveMongoTemplate, times(1)).updateMulti(any(Query.class), any(Update.class),
+        eq(DriverRideRequest.class));
+    verifyNoMoreInteractions(reactiveMongoTemplate);
+  }
+
+  /**
+   * Returns the stored request as the database would, with the fields left out by the projection
+   * of the query unset.
+   */
+  private DriverRideRequest project(Query query, LocalDateTime lastModified) {
+    DriverRideRequest view = new DriverRideRequest(driverRideRequest.getId(),
+        driverRideRequest.getUserId(), driverRideRequest.getRideDate(),
+        driverRideRequest.getDeparturePoint(), driverRideRequest.getDestinationPoint(),
+        driverRideRequest.getStatus());
+    if (query.getFieldsObject().containsKey(AbstractRideRequestRepo.LAST_MODIFIED)) {
+      view.setLastModified(lastModified);
+    }
+    return view;
+  }
 }
@@ -18,6 +18,7 @@ import com.elanlum.ecs.ride.model.values.Position;
 import com.elanlum.ecs.ride.model.values.RideRequestStatus;
 
 import java.time.LocalDateTime;
+import java.util.Set;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
@@ -128,13 +129,16 @@ class PassengerRideRequestRepoTest {
   }
 
   @Test
-  @DisplayName("Get available PassRequests")
-  void returnAllAvailableRequests() {
-    when(reactiveMongoTemplate.find(Query.query(Criteria.where("status").is(
-        RideRequestStatus.AVAILABLE)), PassengerRideRequest.class))
+  @DisplayName("Get matching views of available PassRequests")
+  void returnAllAvailableMatchingViews() {
+    Query query = Query.query(Criteria.where("status").is(RideRequestStatus.AVAILABLE));
+    query.fields().include("userId").include("role").include("rideDate")
+        .include("departurePoint").include("destinationPoint").include("status")
+        .include("lastModified");
+    when(reactiveMongoTemplate.find(query, PassengerRideRequest.class))
         .thenReturn(Flux.just(passengerRideRequest));
     Flux<PassengerRideRequest> allRequests = passengerRideRequestRepo
-        .getAvailableRequests();
+        .getAvailableMatchingViews();
     PassengerRideRequest firstRequest = allRequests.blockFirst();
     assertEquals("1", firstRequest.getId());
     assertEquals(RideRequestStatus.AVAILABLE, passengerRideRequest.getStatus());
@@ -143,8 +147,8 @@ class PassengerRideRequestRepoTest {
   }
 
   @Test
-  @DisplayName("Get available PassRequests with coincided time")
-  void returnAllAvailableRequestsInTime() {
+  @DisplayName("Get matching views of available PassRequests with coincided time")
+  void returnAllAvailableViewsInTime() {
     DriverRideRequest driver = new DriverRideRequest(
         "1", "1",
         new Interval(LocalDateTime.now(), LocalDateTime.now().plusMinutes(120L)),
@@ -162,11 +166,14 @@ class PassengerRideRequestRepoTest {
         .addCriteria(Criteria.where("userId").ne(driver.getUserId()))
         .addCriteria(Criteria.where("rideDate.end").gte(driver.getRideDate().getStart())
             .andOperator(Criteria.where("rideDate.start").lte(driver.getRideDate().getEnd())));
+    query.fields().include("userId").include("role").include("rideDate")
+        .include("departurePoint").include("destinationPoint").include("status")
+        .include("lastModified");
 
     when(reactiveMongoTemplate.find(query, PassengerRideRequest.class))
         .thenReturn(Flux.just(passengerRideRequestTimed));
     Flux<PassengerRideRequest> allRequests = passengerRideRequestRepo
-        .getAvailablePassengerRequestsInTime(driver.getRideDate().getStart(),
+        .getAvailablePassengerViewsInTime(driver.getRideDate().getStart(),
             driver.getRideDate().getEnd(), driver.getUserId());
 
     StepVerifier.create(allRequests)
@@ -180,6 +187,33 @@ class PassengerRideRequestRepoTest {
     verify(reactiveMongoTemplate, times(1)).find(any(), any());
   }
 
+  @Test
+  @DisplayName("Passenger views in time among candidates fetch matching fields only")
+  void getAvailablePassengerViewsInTimeAmongCandidates() {
+    LocalDateTime start = LocalDateTime.now();
+    LocalDateTime end = start.plusMinutes(120L);
+    Set<String> candidateIds = Set.of("1");
+
+    Query query = Query.query(Criteria.where("_id").in(candidateIds))
+        .addCriteria(Criteria.where("status").is(RideRequestStatus.AVAILABLE))
+        .addCriteria(Criteria.where("userId").ne("2"))
+        .addCriteria(Criteria.where("rideDate.end").gte(start)
+            .andOperator(Criteria.where("rideDate.start").lte(end)));
+    query.fields().include("userId").include("role").include("rideDate")
+        .include("departurePoint").include("destinationPoint").include("status")
+        .include("lastModified");
+
+    when(reactiveMongoTemplate.find(query, PassengerRideRequest.class))
+        .thenReturn(Flux.just(passengerRideRequest));
+
+    StepVerifier.create(passengerRideRequestRepo
+        .getAvailablePassengerViewsInTime(start, end, "2", candidateIds))
+        .assertNext(request -> assertEquals("1", request.getId()))
+        .verifyComplete();
+
+    verify(reactiveMongoTemplate, times(1)).find(query, PassengerRideRequest.class);
+  }
+
   @Test
   @DisplayName("Get multiple passengerRideRequests from Repo")
   void findAvailablePassengerRideRequest() {
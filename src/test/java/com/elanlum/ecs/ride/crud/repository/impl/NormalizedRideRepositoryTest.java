@@ -0,0 +1,80 @@
+package com.elanlum.ecs.ride.crud.repository.impl;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.elanlum.ecs.ride.model.common.DriverRideRequest;
+import com.elanlum.ecs.ride.model.common.NormalizedRide;
+import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
+import com.elanlum.ecs.ride.model.common.Ride;
+import com.elanlum.ecs.ride.model.values.Interval;
+import com.elanlum.ecs.ride.model.values.RideRequestStatus;
+import com.elanlum.ecs.ride.model.values.RideStatus;
+import com.elanlum.ecs.user.model.User;
+import com.elanlum.ecs.utils.TestCategory;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@Tag(TestCategory.UNIT)
+@ExtendWith(MockitoExtension.class)
+class NormalizedRideRepositoryTest {
+
+  @Mock
+  private ReactiveMongoTemplate template;
+  @InjectMocks
+  private NormalizedRideRepository normalizedRideRepository;
+
+  @Test
+  @DisplayName("Rides of the user are looked up by the driver, the passenger and the legs")
+  void getRidesForUserByStatus() {
+    User driver = new User("id", "testlogin", "Vasya", "1", 111L);
+    User passenger = new User("id2", "newtestlogin", "Ivan", "2", 222L);
+    Interval rideDate = new Interval(LocalDateTime.now(), LocalDateTime.now().plusMinutes(30));
+    NormalizedRide ride = NormalizedRide.of(new Ride(driver, passenger,
+        new DriverRideRequest("driverReq", driver.getId(), rideDate, null, null,
+            RideRequestStatus.AVAILABLE),
+        new PassengerRideRequest("passReq", passenger.getId(), rideDate, null, null,
+            RideRequestStatus.AVAILABLE)));
+    Criteria fieldsCriteria = new Criteria()
+        .orOperator(Criteria.where("driverId").is(passenger.getId()),
+            Criteria.where("passengerId").is(passenger.getId()),
+            Criteria.where("passengerLegs.passengerId").is(passenger.getId()));
+    doReturn(Flux.just(ride)).when(template).find(Query
+        .query(Criteria.where("status").is(RideStatus.OPENED)
+            .andOperator(fieldsCriteria)), NormalizedRide.class);
+
+    StepVerifier.create(normalizedRideRepository
+        .getRidesForUserByStatus(passenger.getId(), RideStatus.OPENED))
+        .expectNext(ride)
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("Indexes of the driver, the passenger and the legs are ensured one by one")
+  void ensureIndexes() {
+    ReactiveIndexOperations indexOperations = mock(ReactiveIndexOperations.class);
+    when(template.indexOps(NormalizedRide.class)).thenReturn(indexOperations);
+    when(indexOperations.ensureIndex(any())).thenReturn(Mono.just("index"));
+
+    normalizedRideRepository.ensureIndexes();
+
+    verify(indexOperations, times(3)).ensureIndex(any());
+  }
+}
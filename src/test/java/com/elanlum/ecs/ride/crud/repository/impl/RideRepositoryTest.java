@@ -1,6 +1,7 @@
 package com.elanlum.ecs.ride.crud.repository.impl;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
@@ -13,9 +14,11 @@ import com.elanlum.ecs.ride.model.common.DriverRideRequest;
 import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
 import com.elanlum.ecs.ride.model.common.Ride;
 import com.elanlum.ecs.ride.model.values.Feedback;
+import com.elanlum.ecs.ride.model.values.RideLeg;
 import com.elanlum.ecs.ride.model.values.RideRequestStatus;
 import com.elanlum.ecs.ride.model.values.RideStatus;
 import com.elanlum.ecs.user.model.User;
+import java.util.List;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
@@ -117,7 +120,7 @@ class RideRepositoryTest {
   @SuppressWarnings("Duplicates")
   void whenUpdatePassengerFeedbackReturnMonoRide() {
     User driver = new User(null, "login1", "Driver", "1", 111L);
-    User passenger = new User(null, "login2", "Passenger", "2", 222L);
+    User passenger = new User("passengerId", "login2", "Passenger", "2", 222L);
     DriverRideRequest driverRideRequest = new DriverRideRequest("1req", driver.getId(), null, null,
         null, RideRequestStatus.AVAILABLE);
     PassengerRideRequest passengerRideRequest = new PassengerRideRequest("2req", passenger.getId(),
@@ -130,15 +133,58 @@ class RideRepositoryTest {
 
     Ride savedRide = template.save(ride).block();
 
+    doReturn(Mono.empty()).when(template)
+        .findAndModify(eq(getLegFeedbackQuery(savedRide.getId(), passenger.getId())),
+            eq(Update.update("passengerLegs.$.passengerFeedback", feedback)),
+            any(FindAndModifyOptions.class), eq(Ride.class));
     doReturn(Mono.just(ride)).when(template)
         .findAndModify(eq(Query.query(
-            Criteria.where("_id").is(savedRide.getId()).and("passengerFeedback").exists(false))),
+            Criteria.where("_id").is(savedRide.getId()).and("passengerLegs").exists(false)
+                .and("passenger.id").is(passenger.getId()).and("passengerFeedback").exists(false))),
             eq(Update.update("passengerFeedback", feedback)),
             any(FindAndModifyOptions.class), eq(Ride.class));
 
-    StepVerifier.create(rideRepository.updatePassengerFeedback(savedRide.getId(), feedback))
+    StepVerifier.create(
+        rideRepository.updatePassengerFeedback(savedRide.getId(), passenger.getId(), feedback))
         .assertNext(ride1 -> assertEquals(true, ride1.getPassengerFeedback().isRideHappened()))
         .verifyComplete();
+    verify(template, times(2))
+        .findAndModify(any(Query.class),
+            any(Update.class),
+            any(FindAndModifyOptions.class),
+            eq(Ride.class));
+    verifyNoMoreInteractions(template);
+  }
+
+  @Test
+  @DisplayName("Passenger of a pooled ride gives the feedback in own leg")
+  void whenUpdatePassengerFeedbackOfPooledRideThenLegIsUpdated() {
+    User driver = new User("driverId", "login1", "Driver", "1", 111L);
+    User passenger = new User("passengerId", "login2", "Passenger", "2", 222L);
+    User secondPassenger = new User("secondPassengerId", "login3", "Passenger", "3", 333L);
+    DriverRideRequest driverRideRequest = new DriverRideRequest("1req", driver.getId(), null, null,
+        null, RideRequestStatus.MATCHED);
+    PassengerRideRequest passengerRideRequest = new PassengerRideRequest("2req", passenger.getId(),
+        null, null, null, RideRequestStatus.MATCHED);
+    PassengerRideRequest secondPassengerRideRequest = new PassengerRideRequest("3req",
+        secondPassenger.getId(), null, null, null, RideRequestStatus.MATCHED);
+    Feedback feedback = new Feedback(false);
+    Ride ride = new Ride(driver, driverRideRequest,
+        List.of(new RideLeg(passenger, passengerRideRequest, 1, 3),
+            new RideLeg(secondPassenger, secondPassengerRideRequest, 2, 4, feedback)));
+
+    doReturn(Mono.just(ride)).when(template)
+        .findAndModify(eq(getLegFeedbackQuery(ride.getId(), secondPassenger.getId())),
+            eq(Update.update("passengerLegs.$.passengerFeedback", feedback)),
+            any(FindAndModifyOptions.class), eq(Ride.class));
+
+    StepVerifier.create(
+        rideRepository.updatePassengerFeedback(ride.getId(), secondPassenger.getId(), feedback))
+        .assertNext(ride1 -> {
+          assertNull(ride1.getPassengerLegs().get(0).getPassengerFeedback());
+          assertEquals(feedback, ride1.getPassengerLegs().get(1).getPassengerFeedback());
+        })
+        .verifyComplete();
     verify(template, times(1))
         .findAndModify(any(Query.class),
             any(Update.class),
@@ -166,7 +212,8 @@ class RideRepositoryTest {
 
     Criteria fieldsCriteria = new Criteria()
         .orOperator(Criteria.where("driver.id").is(userOne.getId()),
-            Criteria.where("passenger.id").is(userOne.getId()));
+            Criteria.where("passenger.id").is(userOne.getId()),
+            Criteria.where("passengerLegs.passenger.id").is(userOne.getId()));
 
     doReturn(Flux.just(rideAsDriver, rideAsPassenger)).when(template).find(Query
         .query(Criteria.where("status").is(RideStatus.OPENED)
@@ -204,7 +251,8 @@ class RideRepositoryTest {
 
     Criteria fieldsCriteria = new Criteria()
         .orOperator(Criteria.where("driver.id").is(userOne.getId()),
-            Criteria.where("passenger.id").is(userOne.getId()));
+            Criteria.where("passenger.id").is(userOne.getId()),
+            Criteria.where("passengerLegs.passenger.id").is(userOne.getId()));
 
     doReturn(Flux.just(rideAsDriver, rideAsPassenger)).when(template).findAll(Ride.class);
 
@@ -220,4 +268,10 @@ class RideRepositoryTest {
     verify(template, times(1)).findAll(eq(Ride.class));
     verifyNoMoreInteractions(template);
   }
+
+  private Query getLegFeedbackQuery(String rideId, String passengerId) {
+    return Query.query(Criteria.where("_id").is(rideId).and("passengerLegs")
+        .elemMatch(Criteria.where("passenger.id").is(passengerId)
+            .and("passengerFeedback").exists(false)));
+  }
 }
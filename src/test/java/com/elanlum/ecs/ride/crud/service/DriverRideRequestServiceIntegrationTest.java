@@ -1,6 +1,7 @@
 package com.elanlum.ecs.ride.crud.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 import com.elanlum.ecs.IntegrationTestsConfig;
@@ -215,7 +216,7 @@ class DriverRideRequestServiceIntegrationTest {
     savedReqThree.block();
 
     Flux<DriverRideRequest> availableDriverRequests = driverRideRequestService
-        .getAvailableRequests();
+        .getAvailableMatchingViews();
 
     StepVerifier.create(availableDriverRequests)
         .assertNext(
@@ -384,4 +385,32 @@ class DriverRideRequestServiceIntegrationTest {
         .cancelRequest("pip"))
         .verifyComplete();
   }
+
+  @Test
+  @DisplayName("Saved and updated driver requests are found as modified")
+  void findModifiedSince() {
+    User savedUser = userService.save(new User(null, "testUser", "Dummy", "2", null)).block();
+    LocalDateTime beforeSave = LocalDateTime.now().minusSeconds(1);
+    DriverRideRequest savedRequest = driverRideRequestService.save(new DriverRideRequest(
+        null, savedUser.getId(),
+        new Interval(LocalDateTime.now().plusMinutes(5), LocalDateTime.now().plusMinutes(20)),
+        new Position(0, 0),
+        new Position(1, 1),
+        RideRequestStatus.AVAILABLE)).block();
+    assertNotNull(savedRequest.getLastModified());
+
+    StepVerifier.create(driverRideRequestService.findAvailableModifiedSince(beforeSave))
+        .expectNextMatches(request -> request.getId().equals(savedRequest.getId()))
+        .verifyComplete();
+    StepVerifier.create(driverRideRequestService
+        .findAvailableModifiedSince(LocalDateTime.now().plusMinutes(1)))
+        .verifyComplete();
+
+    DriverRideRequest canceledRequest = driverRideRequestService
+        .cancelRequest(savedRequest.getId()).block();
+    assertFalse(canceledRequest.getLastModified().isBefore(savedRequest.getLastModified()));
+    StepVerifier.create(driverRideRequestService.findModifiedSince(beforeSave))
+        .expectNextMatches(request -> request.getStatus() == RideRequestStatus.CANCELED)
+        .verifyComplete();
+  }
 }
@@ -10,9 +10,11 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import com.elanlum.ecs.map.service.MapService;
 import com.elanlum.ecs.ride.crud.controller.values.RideRequestCriteria;
 import com.elanlum.ecs.ride.crud.repository.impl.DriverRideRequestRepo;
 import com.elanlum.ecs.ride.crud.service.impl.DriverRideRequestService;
+import com.elanlum.ecs.ride.index.DriverRideRequestIndex;
 import com.elanlum.ecs.user.model.User;
 import com.elanlum.ecs.user.service.UserService;
 import com.elanlum.ecs.utils.TestCategory;
@@ -28,15 +30,18 @@ import com.elanlum.ecs.ride.model.values.Position;
 import com.elanlum.ecs.ride.model.values.RideRequestStatus;
 
 import java.time.LocalDateTime;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
 
 @Tag(TestCategory.UNIT)
@@ -51,7 +56,12 @@ class DriverRideRequestServiceUnitTest {
   UserService userService;
   @Mock
   DriverPassengerMatchingOneBuddyService oneBuddyService;
-  @InjectMocks
+  @Mock
+  ApplicationEventPublisher applicationEventPublisher;
+  @Mock
+  DriverRideRequestIndex driverRideRequestIndex;
+  @Mock
+  MapService mapService;
   DriverRideRequestService driverRideRequestService;
 
   DriverRideRequest driverRideRequest = new DriverRideRequest(
@@ -64,6 +74,13 @@ class DriverRideRequestServiceUnitTest {
   User user = new User(
       "1", "testUser", "Dummy", "2", null);
 
+  @BeforeEach
+  void setUp() {
+    driverRideRequestService = new DriverRideRequestService(driverRideRequestRepo,
+        validationService, userService, applicationEventPublisher, driverRideRequestIndex,
+        mapService, Schedulers.immediate());
+  }
+
   @Test
   @DisplayName("Saving a driver ride request through service returns available ride request")
   void save() {
@@ -124,11 +141,11 @@ class DriverRideRequestServiceUnitTest {
   @Test
   @DisplayName("Get available driver requests")
   public void findAllReqsWithAvailableStatus() {
-    when(driverRideRequestRepo.getAvailableRequests())
+    when(driverRideRequestRepo.getAvailableMatchingViews())
         .thenReturn(Flux.just(driverRideRequest));
-    StepVerifier.create(driverRideRequestService.getAvailableRequests())
+    StepVerifier.create(driverRideRequestService.getAvailableMatchingViews())
         .expectNext(driverRideRequest);
-    verify(driverRideRequestRepo, times(1)).getAvailableRequests();
+    verify(driverRideRequestRepo, times(1)).getAvailableMatchingViews();
     verifyNoMoreInteractions(driverRideRequestRepo);
   }
 
@@ -189,6 +206,8 @@ class DriverRideRequestServiceUnitTest {
         .assertNext(
             updatedRequest -> assertEquals(RideRequestStatus.CANCELED, updatedRequest.getStatus()))
         .verifyComplete();
+    verifyUnavailableEventPublished("1");
+    verify(driverRideRequestIndex).update(afterCancelRequest);
   }
 
   @Test
@@ -215,4 +234,27 @@ class DriverRideRequestServiceUnitTest {
         .expectError(InvalidRideRequestUpdatingException.class)
         .verify();
   }
+
+  @Test
+  @DisplayName("Request matched in a transaction leaves the index and publishes an event")
+  void onMatchedInTransaction() {
+    driverRideRequestService.onMatchedInTransaction("1");
+
+    verify(driverRideRequestIndex, times(1)).remove("1");
+    verifyUnavailableEventPublished("1");
+    verifyNoMoreInteractions(driverRideRequestRepo);
+  }
+
+  private void verifyUnavailableEventPublished(String driverRideRequestId) {
+    ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+    verify(applicationEventPublisher, times(2)).publishEvent(events.capture());
+    assertEquals(driverRideRequestId, events.getAllValues().stream()
+        .filter(DriverRideRequestUnavailableEvent.class::isInstance)
+        .map(DriverRideRequestUnavailableEvent.class::cast)
+        .findFirst().orElseThrow().getDriverRideRequestId());
+    assertEquals(driverRideRequestId, events.getAllValues().stream()
+        .filter(RideRequestChangedEvent.class::isInstance)
+        .map(RideRequestChangedEvent.class::cast)
+        .findFirst().orElseThrow().getRideRequestId());
+  }
 }
@@ -317,7 +317,7 @@ class PassengerRideRequestServiceIntegrationTest {
     savedReqThree.block();
 
     Flux<PassengerRideRequest> availablePassengerRequests = passengerRideRequestService
-        .getAvailableRequests();
+        .getAvailableMatchingViews();
 
     Long l = 2L;
     assertEquals(l, availablePassengerRequests.count().block());
@@ -390,7 +390,7 @@ class PassengerRideRequestServiceIntegrationTest {
         RideRequestStatus.AVAILABLE);
 
     Flux<PassengerRideRequest> availablePassengerRequestsInTime = passengerRideRequestService
-        .getAvailablePassengerRequestsInTime(driverRideRequest.getRideDate().getStart(),
+        .getAvailablePassengerMatchingViews(driverRideRequest.getRideDate().getStart(),
             driverRideRequest.getRideDate().getEnd(), driverRideRequest.getUserId());
 
     StepVerifier.create(availablePassengerRequestsInTime)
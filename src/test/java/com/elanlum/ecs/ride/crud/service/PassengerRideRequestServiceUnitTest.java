@@ -4,17 +4,23 @@ import static com.elanlum.ecs.ride.model.values.RideRequestStatus.AVAILABLE;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
+import com.elanlum.ecs.map.service.MapService;
 import com.elanlum.ecs.ride.crud.controller.values.RideRequestCriteria;
 import com.elanlum.ecs.ride.crud.repository.impl.PassengerRideRequestRepo;
 import com.elanlum.ecs.ride.crud.service.impl.PassengerRideRequestService;
+import com.elanlum.ecs.ride.index.PassengerRideRequestIndex;
 import com.elanlum.ecs.user.model.User;
 import com.elanlum.ecs.user.service.UserService;
 import com.elanlum.ecs.utils.TestCategory;
@@ -30,15 +36,21 @@ import com.elanlum.ecs.ride.model.values.Position;
 import com.elanlum.ecs.ride.model.values.RideRequestStatus;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
 
 @Tag(TestCategory.UNIT)
@@ -51,7 +63,12 @@ class PassengerRideRequestServiceUnitTest {
   ValidationService<PassengerRideRequest> validationService;
   @Mock
   UserService userService;
-  @InjectMocks
+  @Mock
+  ApplicationEventPublisher applicationEventPublisher;
+  @Mock
+  PassengerRideRequestIndex passengerRideRequestIndex;
+  @Mock
+  MapService mapService;
   PassengerRideRequestService passengerRideRequestService;
 
   private PassengerRideRequest passengerRideRequest = new PassengerRideRequest(
@@ -63,6 +80,13 @@ class PassengerRideRequestServiceUnitTest {
   private User user = new User(
       "1", "testUser", "Dummy", "2", null);
 
+  @BeforeEach
+  void setUp() {
+    passengerRideRequestService = new PassengerRideRequestService(passengerRideRequestRepo,
+        validationService, userService, applicationEventPublisher, passengerRideRequestIndex,
+        mapService, Schedulers.immediate());
+  }
+
   @Test
   @DisplayName("Saving a passenger ride request through service returns available ride request")
   void save() {
@@ -80,6 +104,125 @@ class PassengerRideRequestServiceUnitTest {
     verify(validationService, times(1))
         .entityValidate(passengerRideRequest, ValidationForSave.class);
     verify(userService, times(1)).findById("1");
+    verify(passengerRideRequestIndex, times(1)).update(passengerRideRequest);
+    verify(mapService, times(1)).snapAll(List.of(passengerRideRequest.getDeparturePoint(),
+        passengerRideRequest.getDestinationPoint()));
+  }
+
+  @Test
+  @DisplayName("Positions of the saved request are snapped on the routing scheduler")
+  void saveSnapsPositionsOnRoutingScheduler() {
+    Scheduler routingScheduler = Schedulers.newSingle("routing-test");
+    passengerRideRequestService = new PassengerRideRequestService(passengerRideRequestRepo,
+        validationService, userService, applicationEventPublisher, passengerRideRequestIndex,
+        mapService, routingScheduler);
+    List<String> threadNames = new CopyOnWriteArrayList<>();
+    doAnswer(invocation -> {
+      threadNames.add(Thread.currentThread().getName());
+      return List.of();
+    }).when(mapService).snapAll(any());
+    when(validationService.entityValidate(passengerRideRequest, ValidationForSave.class))
+        .thenReturn(Mono.just(passengerRideRequest));
+    when(userService.findById("1")).thenReturn(Mono.just(user));
+    when(passengerRideRequestRepo.save(passengerRideRequest))
+        .thenReturn(Mono.just(passengerRideRequest));
+
+    try {
+      StepVerifier.create(passengerRideRequestService.save(passengerRideRequest))
+          .expectNext(passengerRideRequest)
+          .verifyComplete();
+      verify(mapService, timeout(1000)).snapAll(any());
+    } finally {
+      routingScheduler.dispose();
+    }
+
+    assertTrue(threadNames.get(0).startsWith("routing-test"));
+  }
+
+  @Test
+  @DisplayName("Looking for passengers among empty candidates doesn't query the repo")
+  void getAvailablePassengerMatchingViewsWithoutCandidates() {
+    when(passengerRideRequestIndex.isLoaded()).thenReturn(true);
+
+    StepVerifier.create(passengerRideRequestService.getAvailablePassengerMatchingViews(
+        LocalDateTime.now(), LocalDateTime.now().plusMinutes(10), "1", Set.of()))
+        .verifyComplete();
+
+    verifyZeroInteractions(passengerRideRequestRepo);
+  }
+
+  @Test
+  @DisplayName("Looking for passengers with the columnar store reads the index and checks "
+      + "only statuses in the repo")
+  void getAvailablePassengerMatchingViewsFromIndex() {
+    LocalDateTime start = LocalDateTime.now();
+    LocalDateTime end = start.plusMinutes(10);
+    when(passengerRideRequestIndex.isLoaded()).thenReturn(true);
+    when(passengerRideRequestIndex.isStoringRequests()).thenReturn(true);
+    when(passengerRideRequestIndex.getAvailable(Set.of("1"), start, end, "2"))
+        .thenReturn(List.of(passengerRideRequest));
+    when(passengerRideRequestRepo.findAvailableIds(Set.of("1"))).thenReturn(Flux.just("1"));
+
+    StepVerifier.create(passengerRideRequestService.getAvailablePassengerMatchingViews(
+        start, end, "2", Set.of("1")))
+        .expectNext(passengerRideRequest)
+        .verifyComplete();
+
+    verify(passengerRideRequestRepo).findAvailableIds(Set.of("1"));
+    verifyNoMoreInteractions(passengerRideRequestRepo);
+    verify(passengerRideRequestIndex, never()).remove(anyString());
+  }
+
+  @Test
+  @DisplayName("Passengers which are not available in the repo anymore are dropped from the index")
+  void getAvailablePassengerMatchingViewsSkipsStaleIndexEntries() {
+    LocalDateTime start = LocalDateTime.now();
+    LocalDateTime end = start.plusMinutes(10);
+    when(passengerRideRequestIndex.isLoaded()).thenReturn(true);
+    when(passengerRideRequestIndex.isStoringRequests()).thenReturn(true);
+    when(passengerRideRequestIndex.getAvailable(Set.of("1"), start, end, "2"))
+        .thenReturn(List.of(passengerRideRequest));
+    when(passengerRideRequestRepo.findAvailableIds(Set.of("1"))).thenReturn(Flux.empty());
+
+    StepVerifier.create(passengerRideRequestService.getAvailablePassengerMatchingViews(
+        start, end, "2", Set.of("1")))
+        .verifyComplete();
+
+    verify(passengerRideRequestIndex).remove("1");
+  }
+
+  @Test
+  @DisplayName("Until the index is loaded passengers are looked for in the repo by time only")
+  void getAvailablePassengerMatchingViewsBeforeIndexIsLoaded() {
+    LocalDateTime start = LocalDateTime.now();
+    LocalDateTime end = start.plusMinutes(10);
+    when(passengerRideRequestRepo.getAvailablePassengerViewsInTime(start, end, "2"))
+        .thenReturn(Flux.just(passengerRideRequest));
+
+    StepVerifier.create(passengerRideRequestService.getAvailablePassengerMatchingViews(
+        start, end, "2", Set.of()))
+        .expectNext(passengerRideRequest)
+        .verifyComplete();
+
+    verify(passengerRideRequestIndex, never()).getAvailable(any(), any(), any(), any());
+  }
+
+  @Test
+  @DisplayName("Requests changed since the given time are applied to the index")
+  void refreshIndex() {
+    LocalDateTime since = LocalDateTime.now();
+    PassengerRideRequest canceled = new PassengerRideRequest("2", "2",
+        passengerRideRequest.getRideDate(), new Position(0, 0), new Position(0, 0),
+        RideRequestStatus.CANCELED);
+    when(passengerRideRequestRepo.findModifiedSince(since))
+        .thenReturn(Flux.just(passengerRideRequest, canceled));
+
+    StepVerifier.create(passengerRideRequestService.refreshIndex(since))
+        .expectNext(2L)
+        .verifyComplete();
+
+    verify(passengerRideRequestIndex).update(passengerRideRequest);
+    verify(passengerRideRequestIndex).update(canceled);
   }
 
   @Test
@@ -121,13 +264,13 @@ class PassengerRideRequestServiceUnitTest {
   @Test
   @DisplayName("Get available passRequests")
   public void findAllReqsWithAvailableStatus() {
-    when(passengerRideRequestRepo.getAvailableRequests())
+    when(passengerRideRequestRepo.getAvailableMatchingViews())
         .thenReturn(Flux.just(passengerRideRequest));
     PassengerRideRequest passengerRideRequestFromFlux = passengerRideRequestService
-        .getAvailableRequests().blockFirst();
+        .getAvailableMatchingViews().blockFirst();
 
     assertEquals(RideRequestStatus.AVAILABLE, passengerRideRequestFromFlux.getStatus());
-    verify(passengerRideRequestRepo, times(1)).getAvailableRequests();
+    verify(passengerRideRequestRepo, times(1)).getAvailableMatchingViews();
     verifyNoMoreInteractions(passengerRideRequestRepo);
   }
 
@@ -148,11 +291,11 @@ class PassengerRideRequestServiceUnitTest {
         new Position(0, 0), RideRequestStatus.AVAILABLE);
 
     when(passengerRideRequestRepo
-        .getAvailablePassengerRequestsInTime(driver.getRideDate().getStart(),
+        .getAvailablePassengerViewsInTime(driver.getRideDate().getStart(),
             driver.getRideDate().getEnd(), driver.getUserId()))
         .thenReturn(Flux.just(passengerRideRequestTimed));
     Flux<PassengerRideRequest> allRequests = passengerRideRequestService
-        .getAvailablePassengerRequestsInTime(driver.getRideDate().getStart(),
+        .getAvailablePassengerMatchingViews(driver.getRideDate().getStart(),
             driver.getRideDate().getEnd(), driver.getUserId());
 
     StepVerifier.create(allRequests)
@@ -164,7 +307,7 @@ class PassengerRideRequestServiceUnitTest {
         .verifyComplete();
 
     verify(passengerRideRequestRepo, times(1))
-        .getAvailablePassengerRequestsInTime(any(), any(), any());
+        .getAvailablePassengerViewsInTime(any(), any(), any());
     verifyNoMoreInteractions(passengerRideRequestRepo);
   }
 
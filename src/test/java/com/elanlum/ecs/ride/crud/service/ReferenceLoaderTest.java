@@ -0,0 +1,84 @@
+package com.elanlum.ecs.ride.crud.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.elanlum.ecs.ride.crud.service.impl.ReferenceLoader;
+import com.elanlum.ecs.utils.TestCategory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@Tag(TestCategory.UNIT)
+class ReferenceLoaderTest {
+
+  private final Set<String> knownIds = Set.of("1", "2", "3");
+  private final List<Collection<String>> queries = new ArrayList<>();
+
+  @Test
+  @DisplayName("Only ids missing in the cache are loaded, with one query per call")
+  void loadAllLoadsMissingIdsOnly() {
+    ReferenceLoader<String> loader = createLoader(Function.identity());
+
+    StepVerifier.create(loader.loadAll(Set.of("1", "2", "unknown")))
+        .assertNext(documents -> assertEquals(Map.of("1", "1", "2", "2"), documents))
+        .verifyComplete();
+    StepVerifier.create(loader.loadAll(Set.of("1", "3")))
+        .assertNext(documents -> assertEquals(Map.of("1", "1", "3", "3"), documents))
+        .verifyComplete();
+
+    assertEquals(2, queries.size());
+    assertEquals(Set.of("1", "2", "unknown"), Set.copyOf(queries.get(0)));
+    assertEquals(List.of("3"), queries.get(1));
+  }
+
+  @Test
+  @DisplayName("Concurrent requests of the same ids share one load")
+  void loadAllCoalescesConcurrentRequests() {
+    ReferenceLoader<String> loader =
+        createLoader(documents -> documents.delayElements(Duration.ofMillis(50)));
+
+    StepVerifier.create(Mono.zip(loader.loadAll(Set.of("1", "2")), loader.loadAll(Set.of("2"))))
+        .assertNext(documents -> {
+          assertEquals(Map.of("1", "1", "2", "2"), documents.getT1());
+          assertEquals(Map.of("2", "2"), documents.getT2());
+        })
+        .verifyComplete();
+
+    assertEquals(1, queries.size());
+  }
+
+  @Test
+  @DisplayName("Invalidated id is loaded again")
+  void invalidateReloadsTheDocument() {
+    ReferenceLoader<String> loader = createLoader(Function.identity());
+
+    StepVerifier.create(loader.loadAll(Set.of("1", "2")))
+        .expectNextCount(1)
+        .verifyComplete();
+    loader.invalidate("1");
+    StepVerifier.create(loader.loadAll(Set.of("1", "2")))
+        .assertNext(documents -> assertEquals(Map.of("1", "1", "2", "2"), documents))
+        .verifyComplete();
+
+    assertEquals(2, queries.size());
+    assertEquals(List.of("1"), queries.get(1));
+  }
+
+  private ReferenceLoader<String> createLoader(
+      Function<Flux<String>, Flux<String>> responseTransformer) {
+    return new ReferenceLoader<>(ids -> {
+      queries.add(ids);
+      return responseTransformer.apply(Flux.fromIterable(ids).filter(knownIds::contains));
+    }, Function.identity(), 100, Duration.ofMinutes(1));
+  }
+}
@@ -12,26 +12,35 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import com.elanlum.ecs.ride.crud.controller.values.RideCriteria;
+import com.elanlum.ecs.ride.crud.repository.impl.NormalizedRideRepository;
 import com.elanlum.ecs.ride.crud.repository.impl.RideRepository;
+import com.elanlum.ecs.ride.crud.service.impl.RideReferenceResolver;
 import com.elanlum.ecs.ride.crud.service.impl.RideService;
 import com.elanlum.ecs.user.model.User;
 import com.elanlum.ecs.utils.TestCategory;
 import com.elanlum.ecs.validation.ValidationService;
 import com.elanlum.ecs.ride.model.common.DriverRideRequest;
+import com.elanlum.ecs.ride.model.common.NormalizedRide;
 import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
 import com.elanlum.ecs.ride.model.common.Ride;
 import com.elanlum.ecs.ride.model.values.Feedback;
+import com.elanlum.ecs.ride.model.values.Interval;
+import com.elanlum.ecs.ride.model.values.Position;
 import com.elanlum.ecs.ride.model.values.RideRequestStatus;
 import com.elanlum.ecs.ride.model.values.RideStatus;
+import com.elanlum.ecs.ride.scheduling.config.RideStorageConfiguration;
 
+import java.time.LocalDateTime;
 import javax.validation.groups.Default;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -47,6 +56,12 @@ class RideServiceTest {
   private RideRepository rideRepository;
   @Mock
   private ValidationService<Ride> validationService;
+  @Mock
+  private NormalizedRideRepository normalizedRideRepository;
+  @Mock
+  private RideReferenceResolver rideReferenceResolver;
+  @Mock
+  private RideStorageConfiguration rideStorageConfiguration;
   @InjectMocks
   RideService rideService;
 
@@ -156,13 +171,15 @@ class RideServiceTest {
     Ride updatedRide = new Ride("id", driver, passenger, driverRideRequest,
         passengerRideRequest, RideStatus.OPENED, null, null);
 
-    when(rideRepository.updatePassengerFeedback(ride.getId(), updatedFeedback))
+    when(rideRepository.updatePassengerFeedback(ride.getId(), passenger.getId(), updatedFeedback))
         .thenReturn(Mono.just(updatedRide));
 
-    StepVerifier.create(rideService.updatePassengerFeedback(ride.getId(), updatedFeedback))
+    StepVerifier.create(
+        rideService.updatePassengerFeedback(ride.getId(), passenger.getId(), updatedFeedback))
         .assertNext(ride1 -> assertNull(ride1.getPassengerFeedback()))
         .verifyComplete();
-    verify(rideRepository, times(1)).updatePassengerFeedback(ride.getId(), updatedFeedback);
+    verify(rideRepository, times(1))
+        .updatePassengerFeedback(ride.getId(), passenger.getId(), updatedFeedback);
     verifyNoMoreInteractions(rideRepository);
   }
 
@@ -180,9 +197,11 @@ class RideServiceTest {
     Ride ride = new Ride(null, driver, passenger, driverRideRequest,
         passengerRideRequest, RideStatus.OPENED, null, null);
 
-    StepVerifier.create(rideService.updatePassengerFeedback(ride.getId(), updatedFeedback))
+    StepVerifier.create(
+        rideService.updatePassengerFeedback(ride.getId(), passenger.getId(), updatedFeedback))
         .verifyError();
-    verify(rideRepository, times(0)).updatePassengerFeedback(ride.getId(), updatedFeedback);
+    verify(rideRepository, times(0))
+        .updatePassengerFeedback(ride.getId(), passenger.getId(), updatedFeedback);
   }
 
   @Test
@@ -289,4 +308,102 @@ class RideServiceTest {
     assertThrows(IllegalArgumentException.class, () -> rideService.getRidesForUserByStatus("id",
         new RideCriteria("unknown")).blockFirst());
   }
+
+  @Test
+  @DisplayName("Save in the normalized layout stores references and gives the ride its id")
+  void saveNormalized() {
+    LocalDateTime now = LocalDateTime.now();
+    User driver = new User("1", "login1", "Driver", "1", 111L);
+    User passenger = new User("2", "login2", "Passenger", "2", 222L);
+    DriverRideRequest driverRideRequest = new DriverRideRequest("1req", driver.getId(),
+        new Interval(now, now.plusMinutes(30)), new Position(0, 0), new Position(1, 1),
+        RideRequestStatus.AVAILABLE);
+    PassengerRideRequest passengerRideRequest = new PassengerRideRequest("2req",
+        passenger.getId(), new Interval(now.plusMinutes(5), now.plusMinutes(30)),
+        new Position(0, 0), new Position(1, 1), RideRequestStatus.AVAILABLE);
+    Ride ride = new Ride(driver, passenger, driverRideRequest, passengerRideRequest);
+    NormalizedRide savedRide = NormalizedRide.of(new Ride("rideId", driver, passenger,
+        driverRideRequest, passengerRideRequest, RideStatus.OPENED, null, null));
+
+    when(rideStorageConfiguration.isNormalized()).thenReturn(true);
+    doReturn(Mono.just(ride)).when(validationService).entityValidate(ride, Default.class);
+    ArgumentCaptor<NormalizedRide> captor = ArgumentCaptor.forClass(NormalizedRide.class);
+    when(normalizedRideRepository.save(captor.capture())).thenReturn(Mono.just(savedRide));
+
+    StepVerifier.create(rideService.save(ride))
+        .assertNext(ride1 -> {
+          assertEquals("rideId", ride1.getId());
+          assertEquals("Driver", ride1.getDriver().getName());
+        })
+        .verifyComplete();
+    NormalizedRide normalizedRide = captor.getValue();
+    assertEquals("1", normalizedRide.getDriverId());
+    assertEquals("2req", normalizedRide.getPassengerRideRequestId());
+    assertEquals("Passenger", normalizedRide.getSummary().getPassengerName());
+    assertEquals(now.plusMinutes(5), normalizedRide.getSummary().getRideDateTime());
+    verifyZeroInteractions(rideRepository);
+  }
+
+  @Test
+  @DisplayName("Rides of the user in the normalized layout are resolved")
+  void getRidesForUserByStatusNormalized() {
+    User driver = new User("1", "login1", "Driver", "1", 111L);
+    User passenger = new User("2", "login2", "Passenger", "2", 222L);
+    Ride ride = new Ride("rideId", driver, passenger,
+        new DriverRideRequest("1req", driver.getId(), new Interval(LocalDateTime.now(),
+            LocalDateTime.now()), null, null, RideRequestStatus.MATCHED),
+        new PassengerRideRequest("2req", passenger.getId(), new Interval(LocalDateTime.now(),
+            LocalDateTime.now()), null, null, RideRequestStatus.MATCHED),
+        RideStatus.OPENED, null, null);
+    Flux<NormalizedRide> normalizedRides = Flux.just(NormalizedRide.of(ride));
+
+    when(rideStorageConfiguration.isNormalized()).thenReturn(true);
+    when(normalizedRideRepository.getRidesForUserByStatus("1", RideStatus.OPENED))
+        .thenReturn(normalizedRides);
+    when(rideReferenceResolver.resolveAll(normalizedRides)).thenReturn(Flux.just(ride));
+
+    StepVerifier.create(rideService.getRidesForUserByStatus("1", new RideCriteria("OPENED")))
+        .expectNext(ride)
+        .verifyComplete();
+    verifyZeroInteractions(rideRepository);
+  }
+
+  @Test
+  @DisplayName("Ride saved before the switch to the normalized layout is still found")
+  void findByIdNormalizedFallsBackToEmbedded() {
+    Ride ride = new Ride("rideId", null, null, null, null, RideStatus.OPENED, null, null);
+    Mono<NormalizedRide> notFound = Mono.empty();
+
+    when(rideStorageConfiguration.isNormalized()).thenReturn(true);
+    when(rideStorageConfiguration.isEmbeddedReadFallback()).thenReturn(true);
+    when(normalizedRideRepository.findById("rideId")).thenReturn(notFound);
+    when(rideReferenceResolver.resolve(notFound)).thenReturn(Mono.empty());
+    when(rideRepository.findById("rideId")).thenReturn(Mono.just(ride));
+
+    StepVerifier.create(rideService.findById("rideId"))
+        .expectNext(ride)
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("Rides of the user from both layouts are listed after the switch")
+  void getRidesForUserByStatusNormalizedWithEmbedded() {
+    Ride normalizedRide = new Ride("rideId", null, null, null, null, RideStatus.OPENED, null,
+        null);
+    Ride embeddedRide = new Ride("oldRideId", null, null, null, null, RideStatus.OPENED, null,
+        null);
+    Flux<NormalizedRide> normalizedRides = Flux.empty();
+
+    when(rideStorageConfiguration.isNormalized()).thenReturn(true);
+    when(rideStorageConfiguration.isEmbeddedReadFallback()).thenReturn(true);
+    when(normalizedRideRepository.getRidesForUserByStatus("1", RideStatus.OPENED))
+        .thenReturn(normalizedRides);
+    when(rideReferenceResolver.resolveAll(normalizedRides)).thenReturn(Flux.just(normalizedRide));
+    when(rideRepository.getRidesForUserByStatus("1", RideStatus.OPENED))
+        .thenReturn(Flux.just(embeddedRide));
+
+    StepVerifier.create(rideService.getRidesForUserByStatus("1", new RideCriteria("OPENED")))
+        .expectNext(normalizedRide, embeddedRide)
+        .verifyComplete();
+  }
 }
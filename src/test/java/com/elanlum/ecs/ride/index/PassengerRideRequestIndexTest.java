@@ -0,0 +1,180 @@
+package com.elanlum.ecs.ride.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
+import com.elanlum.ecs.ride.model.values.Interval;
+import com.elanlum.ecs.ride.model.values.Position;
+import com.elanlum.ecs.ride.model.values.RideRequestStatus;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import com.elanlum.ecs.utils.TestCategory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag(TestCategory.UNIT)
+class PassengerRideRequestIndexTest {
+
+  private Position center = new Position(59.906842f, 30.298719f);
+  private Position near = new Position(59.888854f, 30.322629f);
+  private Position far = new Position(59.964789f, 30.418935f);
+  private LocalDateTime midnight = LocalDateTime.of(2019, 1, 1, 0, 0);
+
+  private PassengerRideRequestIndex index = new PassengerRideRequestIndex(configuration());
+
+  @Test
+  @DisplayName("Only available requests from the k-ring are found")
+  void findNear() {
+    index.update(request("1", near, RideRequestStatus.AVAILABLE));
+    index.update(request("2", far, RideRequestStatus.AVAILABLE));
+    index.update(request("3", near, RideRequestStatus.MATCHED));
+
+    assertThat(index.findNear(center)).containsExactly("1");
+    assertThat(index.findNear(null)).isEmpty();
+    assertEquals(2, index.size());
+  }
+
+  @Test
+  @DisplayName("Status change and relocation keep the index consistent")
+  void update() {
+    index.update(request("1", near, RideRequestStatus.AVAILABLE));
+    index.update(request("1", far, RideRequestStatus.AVAILABLE));
+
+    assertThat(index.findNear(center)).isEmpty();
+    assertThat(index.findNear(far)).containsExactly("1");
+
+    index.update(request("1", far, RideRequestStatus.CANCELED));
+
+    assertThat(index.findNear(far)).isEmpty();
+    assertEquals(0, index.size());
+  }
+
+  @Test
+  @DisplayName("Only requests with overlapping ride time are found near")
+  void findNearInTime() {
+    index.update(request("1", near, interval(10, 30), RideRequestStatus.AVAILABLE));
+    index.update(request("2", near, interval(40, 60), RideRequestStatus.AVAILABLE));
+    index.update(request("3", far, interval(10, 30), RideRequestStatus.AVAILABLE));
+    index.update(request("4", near, null, RideRequestStatus.AVAILABLE));
+
+    assertThat(index.findNear(center, interval(0, 10))).containsExactly("1");
+    assertThat(index.findNear(center, interval(20, 50))).containsExactlyInAnyOrder("1", "2");
+    assertThat(index.findNear(center, interval(61, 90))).isEmpty();
+    assertThat(index.findNear(center, null)).containsExactlyInAnyOrder("1", "2", "4");
+  }
+
+  @Test
+  @DisplayName("Rescheduling and removal keep the time buckets consistent")
+  void findOverlapping() {
+    index.update(request("1", near, interval(10, 30), RideRequestStatus.AVAILABLE));
+    index.update(request("2", far, interval(0, 300), RideRequestStatus.AVAILABLE));
+
+    assertThat(index.findOverlapping(interval(20, 25))).containsExactlyInAnyOrder("1", "2");
+
+    index.update(request("1", near, interval(120, 150), RideRequestStatus.AVAILABLE));
+    assertThat(index.findOverlapping(interval(20, 25))).containsExactly("2");
+    assertThat(index.findOverlapping(interval(150, 160))).containsExactlyInAnyOrder("1", "2");
+
+    index.update(request("2", far, interval(0, 300), RideRequestStatus.MATCHED));
+    assertThat(index.findOverlapping(interval(0, 300))).containsExactly("1");
+    assertThat(index.findOverlapping(null)).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Positions are near when they lie within the configured ring")
+  void isNear() {
+    assertTrue(index.isNear(center, near));
+    assertFalse(index.isNear(center, far));
+    assertFalse(index.isNear(center, null));
+  }
+
+  @Test
+  @DisplayName("Columnar store returns available requests of other users overlapping in time")
+  void getAvailable() {
+    MatchingConfiguration configuration = configuration();
+    configuration.setColumnarStore(true);
+    PassengerRideRequestIndex columnarIndex = new PassengerRideRequestIndex(configuration);
+    PassengerRideRequest request = new PassengerRideRequest("1", "u1", interval(10, 30), near,
+        far, RideRequestStatus.AVAILABLE);
+    columnarIndex.update(request);
+    columnarIndex.update(new PassengerRideRequest("2", "u2", interval(10, 30), near, null,
+        RideRequestStatus.AVAILABLE));
+    columnarIndex.update(request("3", near, interval(40, 60), RideRequestStatus.AVAILABLE));
+    columnarIndex.update(request("4", near, interval(10, 30), RideRequestStatus.AVAILABLE));
+    columnarIndex.update(request("4", near, interval(10, 30), RideRequestStatus.MATCHED));
+
+    List<PassengerRideRequest> found = columnarIndex.getAvailable(List.of("1", "2", "3", "4",
+        "5"), midnight.plusMinutes(20), midnight.plusMinutes(35), "u2");
+
+    assertTrue(columnarIndex.isStoringRequests());
+    assertEquals(1, found.size());
+    assertEquals("1", found.get(0).getId());
+    assertEquals("u1", found.get(0).getUserId());
+    assertEquals(request.getRideDate().getStart(), found.get(0).getRideDate().getStart());
+    assertEquals(request.getRideDate().getEnd(), found.get(0).getRideDate().getEnd());
+    assertEquals(near, found.get(0).getDeparturePoint());
+    assertEquals(far, found.get(0).getDestinationPoint());
+    assertEquals(RideRequestStatus.AVAILABLE, found.get(0).getStatus());
+  }
+
+  @Test
+  @DisplayName("Columnar store reuses slots of removed requests and grows when it is full")
+  void getAvailableAfterRemovals() {
+    MatchingConfiguration configuration = configuration();
+    configuration.setColumnarStore(true);
+    PassengerRideRequestIndex columnarIndex = new PassengerRideRequestIndex(configuration);
+    List<String> ids = new ArrayList<>();
+    for (int request = 0; request < 3000; request++) {
+      ids.add(String.valueOf(request));
+      columnarIndex.update(request(String.valueOf(request), near, interval(10, 30),
+          RideRequestStatus.AVAILABLE));
+    }
+    for (int request = 0; request < 3000; request += 2) {
+      columnarIndex.remove(String.valueOf(request));
+    }
+    columnarIndex.update(request("new", near, interval(10, 30), RideRequestStatus.AVAILABLE));
+    ids.add("new");
+
+    List<PassengerRideRequest> found = columnarIndex.getAvailable(ids, midnight,
+        midnight.plusMinutes(60), null);
+
+    assertEquals(1501, found.size());
+    assertThat(found).extracting(PassengerRideRequest::getId).contains("1", "2999", "new")
+        .doesNotContain("0", "2998");
+  }
+
+  @Test
+  @DisplayName("Requests are not read from the index without the columnar store")
+  void getAvailableWithoutColumnarStore() {
+    assertFalse(index.isStoringRequests());
+    assertThrows(IllegalStateException.class,
+        () -> index.getAvailable(List.of("1"), midnight, midnight, null));
+  }
+
+  private MatchingConfiguration configuration() {
+    MatchingConfiguration configuration = new MatchingConfiguration();
+    configuration.setGridCellDegrees(0.01);
+    configuration.setGridRing(3);
+    return configuration;
+  }
+
+  private PassengerRideRequest request(String id, Position position, RideRequestStatus status) {
+    return request(id, position, null, status);
+  }
+
+  private PassengerRideRequest request(String id, Position position, Interval interval,
+      RideRequestStatus status) {
+    return new PassengerRideRequest(id, id, interval, position, null, status);
+  }
+
+  private Interval interval(int startMinute, int endMinute) {
+    return new Interval(midnight.plusMinutes(startMinute), midnight.plusMinutes(endMinute));
+  }
+}
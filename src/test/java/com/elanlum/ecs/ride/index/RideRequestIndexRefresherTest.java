@@ -0,0 +1,102 @@
+package com.elanlum.ecs.ride.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import com.elanlum.ecs.ride.crud.service.impl.DriverRideRequestService;
+import com.elanlum.ecs.ride.crud.service.impl.PassengerRideRequestService;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import com.elanlum.ecs.utils.TestCategory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+@Tag(TestCategory.UNIT)
+@ExtendWith(MockitoExtension.class)
+class RideRequestIndexRefresherTest {
+
+  @Mock
+  DriverRideRequestService driverRideRequestService;
+  @Mock
+  PassengerRideRequestService passengerRideRequestService;
+
+  MatchingConfiguration matchingConfiguration = new MatchingConfiguration();
+  VirtualTimeScheduler scheduler;
+  RideRequestIndexRefresher refresher;
+
+  @BeforeEach
+  void setUp() {
+    scheduler = VirtualTimeScheduler.getOrSet();
+    refresher = new RideRequestIndexRefresher(driverRideRequestService,
+        passengerRideRequestService, matchingConfiguration);
+  }
+
+  @AfterEach
+  void tearDown() {
+    refresher.stop();
+    VirtualTimeScheduler.reset();
+  }
+
+  @Test
+  @DisplayName("Changes of both roles are applied every refresh period")
+  void refreshesPeriodically() {
+    LocalDateTime start = LocalDateTime.now();
+    doReturn(Mono.just(2L)).when(driverRideRequestService).refreshIndex(any());
+    doReturn(Mono.just(1L)).when(passengerRideRequestService).refreshIndex(any());
+
+    refresher.start();
+    scheduler.advanceTimeBy(Duration.ofSeconds(20));
+
+    LocalDateTime end = LocalDateTime.now();
+    ArgumentCaptor<LocalDateTime> since = ArgumentCaptor.forClass(LocalDateTime.class);
+    verify(driverRideRequestService, times(2)).refreshIndex(since.capture());
+    verify(passengerRideRequestService, times(2)).refreshIndex(any());
+    LocalDateTime firstSince = since.getAllValues().get(0);
+    assertFalse(firstSince.isBefore(start.minusSeconds(10)));
+    assertFalse(firstSince.isAfter(end.minusSeconds(10)));
+  }
+
+  @Test
+  @DisplayName("Failed refresh is retried from the same time on the next period")
+  void failedRefreshKeepsWatermark() {
+    doReturn(Mono.error(new IllegalStateException()), Mono.just(0L))
+        .when(driverRideRequestService).refreshIndex(any());
+    doReturn(Mono.just(0L)).when(passengerRideRequestService).refreshIndex(any());
+
+    refresher.start();
+    scheduler.advanceTimeBy(Duration.ofSeconds(20));
+
+    ArgumentCaptor<LocalDateTime> since = ArgumentCaptor.forClass(LocalDateTime.class);
+    verify(driverRideRequestService, times(2)).refreshIndex(since.capture());
+    List<LocalDateTime> sinceValues = since.getAllValues();
+    assertEquals(sinceValues.get(0), sinceValues.get(1));
+  }
+
+  @Test
+  @DisplayName("Disabled refresh doesn't touch the services")
+  void disabledRefresh() {
+    matchingConfiguration.setIndexRefreshSeconds(0);
+
+    refresher.start();
+    scheduler.advanceTimeBy(Duration.ofMinutes(1));
+
+    assertFalse(refresher.isEnabled());
+    verifyZeroInteractions(driverRideRequestService, passengerRideRequestService);
+  }
+}
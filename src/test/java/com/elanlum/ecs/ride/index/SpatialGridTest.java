@@ -0,0 +1,52 @@
+package com.elanlum.ecs.ride.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.elanlum.ecs.ride.model.values.Position;
+import com.elanlum.ecs.utils.TestCategory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag(TestCategory.UNIT)
+class SpatialGridTest {
+
+  private SpatialGrid grid = new SpatialGrid(0.01);
+
+  @Test
+  @DisplayName("Close positions share the cell, distant ones don't")
+  void cellOf() {
+    Position position = new Position(59.9061f, 30.2981f);
+
+    assertEquals(grid.cellOf(position), grid.cellOf(new Position(59.9069f, 30.2989f)));
+    assertNotEquals(grid.cellOf(position), grid.cellOf(new Position(59.9161f, 30.2981f)));
+    assertNotEquals(grid.cellOf(position), grid.cellOf(new Position(59.9061f, 30.3081f)));
+  }
+
+  @Test
+  @DisplayName("K-ring contains the central cell and all its neighbours")
+  void ring() {
+    Position center = new Position(59.9061f, 30.2981f);
+
+    long[] ring = grid.ring(center, 1);
+
+    assertEquals(9, ring.length);
+    assertThat(ring).contains(grid.cellOf(center),
+        grid.cellOf(new Position(59.8961f, 30.2881f)),
+        grid.cellOf(new Position(59.9161f, 30.3081f)));
+    assertThat(ring).doesNotContain(grid.cellOf(new Position(59.9261f, 30.2981f)));
+  }
+
+  @Test
+  @DisplayName("Ring membership works for negative coordinates too")
+  void isWithinRing() {
+    Position center = new Position(-0.005f, -0.005f);
+
+    assertTrue(grid.isWithinRing(center, new Position(0.005f, 0.005f), 1));
+    assertFalse(grid.isWithinRing(center, new Position(0.015f, 0.005f), 1));
+  }
+}
@@ -0,0 +1,79 @@
+package com.elanlum.ecs.ride.matcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.elanlum.ecs.ride.crud.service.DriverRideRequestUnavailableEvent;
+import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
+import com.elanlum.ecs.ride.model.values.RideRequestStatus;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import com.elanlum.ecs.utils.TestCategory;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.DigestUtils;
+import reactor.test.StepVerifier;
+
+@Tag(TestCategory.UNIT)
+class BestMatchesCacheTest {
+
+  private BestMatchesCache bestMatchesCache = new BestMatchesCache(new MatchingConfiguration());
+  private PassengerRideRequest first = passengerRequest("first");
+  private PassengerRideRequest second = passengerRequest("second");
+
+  @Test
+  void put_thenGetAndEvict() {
+    bestMatchesCache.put("driver", List.of(first));
+
+    assertEquals(List.of(first), bestMatchesCache.get("driver").orElseThrow());
+    bestMatchesCache.evict("driver");
+    assertTrue(bestMatchesCache.get("driver").isEmpty());
+  }
+
+  @Test
+  void onDriverRideRequestUnavailable_evictsTheDriver() {
+    bestMatchesCache.put("driver", List.of(first));
+    bestMatchesCache.put("otherDriver", List.of(second));
+
+    bestMatchesCache
+        .onDriverRideRequestUnavailable(new DriverRideRequestUnavailableEvent("driver"));
+
+    assertTrue(bestMatchesCache.get("driver").isEmpty());
+    assertEquals(List.of(second), bestMatchesCache.get("otherDriver").orElseThrow());
+  }
+
+  @Test
+  void getRefreshes_emitsRefreshesOfTheDriverOnly() {
+    StepVerifier.create(bestMatchesCache.getRefreshes("driver"))
+        .then(() -> bestMatchesCache.put("otherDriver", List.of(first)))
+        .then(() -> bestMatchesCache.put("driver", List.of(second)))
+        .assertNext(passengers -> assertEquals(List.of(second), passengers))
+        .thenCancel()
+        .verify();
+  }
+
+  @Test
+  void bestMatches_etagDependsOnCandidates() {
+    assertEquals(BestMatches.of("driver", List.of(first, second)).getEtag(),
+        BestMatches.of("driver", List.of(first, second)).getEtag());
+    assertNotEquals(BestMatches.of("driver", List.of(first, second)).getEtag(),
+        BestMatches.of("driver", List.of(second, first)).getEtag());
+    assertNotEquals(BestMatches.of("driver", List.of(first)).getEtag(),
+        BestMatches.of("otherDriver", List.of(first)).getEtag());
+  }
+
+  @Test
+  void bestMatches_etagIsQuotedDigestOfIds() {
+    String digest = DigestUtils
+        .md5DigestAsHex("driver:first:second".getBytes(StandardCharsets.UTF_8));
+
+    assertEquals("\"" + digest + "\"",
+        BestMatches.of("driver", List.of(first, second)).getEtag());
+  }
+
+  private PassengerRideRequest passengerRequest(String id) {
+    return new PassengerRideRequest(id, null, null, null, null, RideRequestStatus.AVAILABLE);
+  }
+}
@@ -0,0 +1,227 @@
+package com.elanlum.ecs.ride.matcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import com.elanlum.ecs.ride.crud.service.impl.DriverRideRequestService;
+import com.elanlum.ecs.ride.index.DriverRideRequestIndex;
+import com.elanlum.ecs.ride.index.PassengerRideRequestIndex;
+import com.elanlum.ecs.ride.model.common.DriverRideRequest;
+import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
+import com.elanlum.ecs.ride.model.values.Interval;
+import com.elanlum.ecs.ride.model.values.Position;
+import com.elanlum.ecs.ride.model.values.RideRequestStatus;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import com.elanlum.ecs.utils.TestCategory;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+@Tag(TestCategory.UNIT)
+@ExtendWith(MockitoExtension.class)
+class ChangeStreamMatchingListenerTest {
+
+  @Mock
+  ReactiveMongoTemplate reactiveMongoTemplate;
+  @Mock
+  DriverPassengerMatchingOneBuddyService matchingOneBuddyService;
+  @Mock
+  DriverRideRequestService driverRideRequestService;
+
+  PassengerRideRequestIndex passengerRideRequestIndex =
+      new PassengerRideRequestIndex(new MatchingConfiguration());
+  DriverRideRequestIndex driverRideRequestIndex =
+      new DriverRideRequestIndex(new MatchingConfiguration());
+  ChangeStreamMatchingListener listener;
+
+  LocalDateTime now = LocalDateTime.now();
+  PassengerRideRequest passenger = new PassengerRideRequest("p1", "u1",
+      new Interval(now, now.plusMinutes(30)), new Position(59.90f, 30.30f), null,
+      RideRequestStatus.AVAILABLE);
+
+  @BeforeEach
+  void setUp() {
+    listener = new ChangeStreamMatchingListener(reactiveMongoTemplate, matchingOneBuddyService,
+        driverRideRequestService, passengerRideRequestIndex, driverRideRequestIndex,
+        new MatchingConfiguration());
+  }
+
+  @Test
+  @DisplayName("Inserted available driver request is indexed and matched immediately")
+  void driverInsertTriggersMatching() {
+    DriverRideRequest driver = driverRequest("d1", new Position(59.90f, 30.30f),
+        RideRequestStatus.AVAILABLE);
+
+    StepVerifier.create(listener.onDriverChanged(event(OperationType.INSERT, driver)))
+        .expectNext(driver)
+        .verifyComplete();
+    StepVerifier.create(listener.onDriverChanged(event(OperationType.INSERT, driverRequest("d2",
+        new Position(59.90f, 30.30f), RideRequestStatus.MATCHED))))
+        .verifyComplete();
+
+    assertEquals(1, driverRideRequestIndex.size());
+  }
+
+  @Test
+  @DisplayName("Updated driver request only refreshes the index")
+  void driverUpdateRefreshesIndex() {
+    DriverRideRequest driver = driverRequest("d1", new Position(59.90f, 30.30f),
+        RideRequestStatus.AVAILABLE);
+    driverRideRequestIndex.update(driver);
+
+    StepVerifier.create(listener.onDriverChanged(event(OperationType.UPDATE, driverRequest("d1",
+        new Position(59.90f, 30.30f), RideRequestStatus.CANCELED))))
+        .verifyComplete();
+
+    assertEquals(0, driverRideRequestIndex.size());
+  }
+
+  @Test
+  @DisplayName("Deleted driver request leaves the index")
+  void driverDeleteRemovesFromIndex() {
+    driverRideRequestIndex.update(driverRequest("5c0a7e2f9d1e8a3b4c5d6e7f",
+        new Position(59.90f, 30.30f), RideRequestStatus.AVAILABLE));
+
+    StepVerifier.create(listener.onDriverChanged(deleteEvent(
+        new BsonObjectId(new ObjectId("5c0a7e2f9d1e8a3b4c5d6e7f")))))
+        .verifyComplete();
+
+    assertEquals(0, driverRideRequestIndex.size());
+  }
+
+  @Test
+  @DisplayName("Inserted passenger request is indexed and near drivers are matched")
+  void passengerInsertTriggersNearDrivers() {
+    DriverRideRequest nearDriver = driverRequest("d1", new Position(59.901f, 30.301f),
+        RideRequestStatus.AVAILABLE);
+    DriverRideRequest farDriver = driverRequest("d2", new Position(55.75f, 37.61f),
+        RideRequestStatus.AVAILABLE);
+    driverRideRequestIndex.update(nearDriver);
+    driverRideRequestIndex.update(farDriver);
+    doReturn(Flux.just(nearDriver)).when(driverRideRequestService)
+        .getAvailableDriverMatchingViews(passenger.getRideDate().getStart(),
+            passenger.getRideDate().getEnd(), passenger.getUserId(), Set.of("d1"));
+
+    StepVerifier.create(listener.onPassengerChanged(event(OperationType.INSERT, passenger)))
+        .expectNext(nearDriver)
+        .verifyComplete();
+
+    assertEquals(1, passengerRideRequestIndex.size());
+  }
+
+  @Test
+  @DisplayName("Updated passenger request only refreshes the index")
+  void passengerUpdateRefreshesIndex() {
+    StepVerifier.create(listener.onPassengerChanged(event(OperationType.UPDATE, passenger)))
+        .verifyComplete();
+
+    verifyZeroInteractions(driverRideRequestService);
+    assertEquals(1, passengerRideRequestIndex.size());
+  }
+
+  @Test
+  @DisplayName("Deleted passenger request leaves the index")
+  void passengerDeleteRemovesFromIndex() {
+    passengerRideRequestIndex.update(passenger);
+
+    StepVerifier.create(listener.onPassengerChanged(deleteEvent(new BsonString("p1"))))
+        .verifyComplete();
+
+    verifyZeroInteractions(driverRideRequestService);
+    assertEquals(0, passengerRideRequestIndex.size());
+  }
+
+  @Test
+  @DisplayName("Change streams are subscribed on start and disposed on shutdown")
+  void subscribeAndDispose() {
+    when(reactiveMongoTemplate.getCollectionName(any())).thenReturn("collection");
+    doReturn(Flux.never()).when(reactiveMongoTemplate)
+        .changeStream(anyString(), any(ChangeStreamOptions.class), any(Class.class));
+
+    listener.subscribe();
+    listener.unsubscribe();
+
+    verify(reactiveMongoTemplate, times(2))
+        .changeStream(anyString(), any(ChangeStreamOptions.class), any(Class.class));
+  }
+
+  @Test
+  @DisplayName("Failed change stream is reopened after the last seen change")
+  @SuppressWarnings("unchecked")
+  void changesResumeAfterLastSeenToken() {
+    ChangeStreamEvent<DriverRideRequest> event = mock(ChangeStreamEvent.class);
+    when(event.getResumeToken()).thenReturn(new BsonString("token"));
+    when(reactiveMongoTemplate.getCollectionName(DriverRideRequest.class))
+        .thenReturn("driverRideRequest");
+    ArgumentCaptor<ChangeStreamOptions> options =
+        ArgumentCaptor.forClass(ChangeStreamOptions.class);
+    doReturn(Flux.just(event).concatWith(Flux.error(new IllegalStateException("closed"))),
+        Flux.never()).when(reactiveMongoTemplate)
+        .changeStream(eq("driverRideRequest"), options.capture(), eq(DriverRideRequest.class));
+
+    StepVerifier.withVirtualTime(() -> listener.changes(DriverRideRequest.class))
+        .expectNext(event)
+        .thenAwait(Duration.ofMinutes(1))
+        .thenCancel()
+        .verify();
+
+    assertEquals(2, options.getAllValues().size());
+    assertTrue(options.getAllValues().get(0).getResumeToken().isEmpty());
+    assertEquals(new BsonString("token"),
+        options.getAllValues().get(1).getResumeToken().orElseThrow());
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> ChangeStreamEvent<T> event(OperationType operationType, T body) {
+    ChangeStreamEvent<T> event = mock(ChangeStreamEvent.class);
+    when(event.getOperationType()).thenReturn(operationType);
+    when(event.getBody()).thenReturn(body);
+    return event;
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> ChangeStreamEvent<T> deleteEvent(BsonValue id) {
+    ChangeStreamEvent<T> event = mock(ChangeStreamEvent.class);
+    ChangeStreamDocument<Document> raw = mock(ChangeStreamDocument.class);
+    when(event.getOperationType()).thenReturn(OperationType.DELETE);
+    when(event.getRaw()).thenReturn(raw);
+    when(raw.getDocumentKey()).thenReturn(new BsonDocument("_id", id));
+    return event;
+  }
+
+  private DriverRideRequest driverRequest(String id, Position position,
+      RideRequestStatus status) {
+    return new DriverRideRequest(id, "u2", new Interval(now, now.plusMinutes(20)), position,
+        null, status);
+  }
+}
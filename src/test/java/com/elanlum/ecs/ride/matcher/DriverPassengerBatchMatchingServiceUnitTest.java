@@ -0,0 +1,222 @@
+package com.elanlum.ecs.ride.matcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.elanlum.ecs.map.service.MapService;
+import com.elanlum.ecs.ride.crud.service.impl.DriverRideRequestService;
+import com.elanlum.ecs.ride.crud.service.impl.PassengerRideRequestService;
+import com.elanlum.ecs.ride.index.PassengerRideRequestIndex;
+import com.elanlum.ecs.ride.matcher.assignment.HungarianAssignmentSolver;
+import com.elanlum.ecs.ride.matcher.scoring.ScoringContainer;
+import com.elanlum.ecs.ride.matcher.scoring.ScoringContainerFactory;
+import com.elanlum.ecs.ride.model.common.DriverRideRequest;
+import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
+import com.elanlum.ecs.ride.model.common.Ride;
+import com.elanlum.ecs.ride.model.values.Interval;
+import com.elanlum.ecs.ride.model.values.Position;
+import com.elanlum.ecs.ride.model.values.RideRequestStatus;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import com.elanlum.ecs.utils.TestCategory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+import reactor.util.function.Tuples;
+
+@Tag(TestCategory.UNIT)
+@ExtendWith(MockitoExtension.class)
+class DriverPassengerBatchMatchingServiceUnitTest {
+
+  @Mock
+  DriverRideRequestService driverRideRequestService;
+  @Mock
+  PassengerRideRequestService passengerRideRequestService;
+  @Mock
+  ScoringContainerFactory containerFactory;
+  @Spy
+  HungarianAssignmentSolver assignmentSolver;
+  @Mock
+  RideRequestStatusUpdater statusUpdater;
+  @Mock
+  DriverPassengerMatchingOneBuddyService oneBuddyService;
+  @Spy
+  PassengerRideRequestIndex passengerRideRequestIndex = new PassengerRideRequestIndex(
+      new MatchingConfiguration());
+  @Mock
+  MapService mapService;
+  @Spy
+  MatchingConfiguration matchingConfiguration = new MatchingConfiguration();
+  DriverPassengerBatchMatchingService batchMatchingService;
+
+  LocalDateTime now = LocalDateTime.now();
+  DriverRideRequest firstDriver = driverRequest("d1", "u1", now, now.plusMinutes(20));
+  DriverRideRequest secondDriver = driverRequest("d2", "u2", now, now.plusMinutes(20));
+  PassengerRideRequest firstPassenger = passengerRequest("p1", "u3", now, now.plusMinutes(20));
+  PassengerRideRequest secondPassenger = passengerRequest("p2", "u4", now, now.plusMinutes(20));
+  PassengerRideRequest latePassenger = passengerRequest("p3", "u5", now.plusHours(2),
+      now.plusHours(3));
+
+  @BeforeEach
+  void setUp() {
+    batchMatchingService = createService(Schedulers.immediate());
+  }
+
+  @Test
+  @DisplayName("Batch matching assigns pairs globally and commits every pair once")
+  void matchAllCommitsOptimalPairs() {
+    Map<String, Double> scores = Map.of(
+        "d1p1", 0.9, "d1p2", 0.8,
+        "d2p1", 0.85, "d2p2", 0.1);
+    when(mapService.getDistanceMatrix(anyList(), anyList())).thenReturn(new double[][]{
+        {1000, 1000, 1000},
+        {1000, 1000, Double.POSITIVE_INFINITY}});
+    when(containerFactory.create(any(), any(), anyDouble())).thenAnswer(invocation -> {
+      DriverRideRequest driver = invocation.getArgument(0);
+      PassengerRideRequest passenger = invocation.getArgument(1);
+      ScoringContainer container = mock(ScoringContainer.class);
+      when(container.getScore()).thenReturn(scores.get(driver.getId() + passenger.getId()));
+      return container;
+    });
+    doReturn(Flux.just(firstDriver, secondDriver)).when(driverRideRequestService)
+        .getAvailableMatchingViews();
+    doReturn(Flux.just(firstPassenger, secondPassenger, latePassenger))
+        .when(passengerRideRequestService).getAvailableMatchingViews();
+    doReturn(Flux.just(Tuples.of(firstDriver, secondPassenger))).when(statusUpdater)
+        .updateStatusesToMatched(List.of(Tuples.of(firstDriver, secondPassenger),
+            Tuples.of(secondDriver, firstPassenger)));
+    Ride ride = mock(Ride.class);
+    doReturn(Mono.just(ride)).when(oneBuddyService)
+        .createRideAndNotify(firstDriver, secondPassenger);
+
+    StepVerifier.create(batchMatchingService.matchAll())
+        .expectNext(1L)
+        .verifyComplete();
+
+    verify(mapService, times(1)).getDistanceMatrix(anyList(), anyList());
+    verify(containerFactory, times(4)).create(any(), any(), anyDouble());
+    verify(statusUpdater, times(1)).updateStatusesToMatched(anyList());
+    verify(oneBuddyService, never()).createRideAndNotify(secondDriver, firstPassenger);
+    verify(oneBuddyService, times(1)).notifyAboutTheRideStart(ride);
+  }
+
+  @Test
+  @DisplayName("Transactional batch matching creates every ride together with its statuses")
+  void matchAllInTransactions() {
+    matchingConfiguration.setTransactional(true);
+    when(mapService.getDistanceMatrix(anyList(), anyList()))
+        .thenReturn(new double[][]{{1000}});
+    ScoringContainer container = mock(ScoringContainer.class);
+    when(container.getScore()).thenReturn(0.5);
+    when(containerFactory.create(any(), any(), anyDouble())).thenReturn(container);
+    doReturn(Flux.just(firstDriver)).when(driverRideRequestService).getAvailableMatchingViews();
+    doReturn(Flux.just(firstPassenger)).when(passengerRideRequestService)
+        .getAvailableMatchingViews();
+    Ride ride = mock(Ride.class);
+    doReturn(Mono.just(ride)).when(oneBuddyService)
+        .createMatchedRideAndNotify(firstDriver, firstPassenger);
+
+    StepVerifier.create(batchMatchingService.matchAll())
+        .expectNext(1L)
+        .verifyComplete();
+
+    verify(statusUpdater, never()).updateStatusesToMatched(anyList());
+    verify(oneBuddyService, times(1)).notifyAboutTheRideStart(ride);
+  }
+
+  @Test
+  @DisplayName("Requests of the same user and without time overlap are never paired")
+  void getAssignedPairsSkipsInfeasiblePairs() {
+    PassengerRideRequest sameUserPassenger = passengerRequest("p4", "u1", now,
+        now.plusMinutes(20));
+
+    StepVerifier.create(Flux.fromIterable(batchMatchingService.getAssignedPairs(
+        List.of(firstDriver), List.of(sameUserPassenger, latePassenger))))
+        .verifyComplete();
+
+    verify(containerFactory, never()).create(any(), any(), anyDouble());
+    verify(mapService, never()).getDistanceMatrix(anyList(), anyList());
+  }
+
+  @Test
+  @DisplayName("Pairs without a route are never paired")
+  void getAssignedPairsSkipsUnreachablePairs() {
+    when(mapService.getDistanceMatrix(anyList(), anyList()))
+        .thenReturn(new double[][]{{Double.POSITIVE_INFINITY}});
+
+    StepVerifier.create(Flux.fromIterable(batchMatchingService.getAssignedPairs(
+        List.of(firstDriver), List.of(firstPassenger))))
+        .verifyComplete();
+
+    verify(containerFactory, never()).create(any(), any(), anyDouble());
+  }
+
+  @Test
+  @DisplayName("Distance matrix and assignment are computed on the routing scheduler")
+  void matchAllComputesAssignmentOnRoutingScheduler() {
+    Scheduler routingScheduler = Schedulers.newSingle("routing-test");
+    batchMatchingService = createService(routingScheduler);
+    List<String> threadNames = new ArrayList<>();
+    when(mapService.getDistanceMatrix(anyList(), anyList())).thenAnswer(invocation -> {
+      threadNames.add(Thread.currentThread().getName());
+      return new double[][]{{Double.POSITIVE_INFINITY}};
+    });
+    doReturn(Flux.just(firstDriver)).when(driverRideRequestService).getAvailableMatchingViews();
+    doReturn(Flux.just(firstPassenger)).when(passengerRideRequestService)
+        .getAvailableMatchingViews();
+    doReturn(Flux.empty()).when(statusUpdater).updateStatusesToMatched(List.of());
+
+    try {
+      StepVerifier.create(batchMatchingService.matchAll())
+          .expectNext(0L)
+          .verifyComplete();
+    } finally {
+      routingScheduler.dispose();
+    }
+
+    assertEquals(1, threadNames.size(), "Distance matrix is requested once per run");
+    assertTrue(threadNames.get(0).startsWith("routing-test"),
+        () -> "Distance matrix was requested on " + threadNames.get(0));
+  }
+
+  private DriverPassengerBatchMatchingService createService(Scheduler routingScheduler) {
+    return new DriverPassengerBatchMatchingService(driverRideRequestService,
+        passengerRideRequestService, containerFactory, assignmentSolver, statusUpdater,
+        oneBuddyService, passengerRideRequestIndex, mapService, matchingConfiguration,
+        routingScheduler);
+  }
+
+  private DriverRideRequest driverRequest(String id, String userId, LocalDateTime start,
+      LocalDateTime end) {
+    return new DriverRideRequest(id, userId, new Interval(start, end), new Position(0f, 0f),
+        null, RideRequestStatus.AVAILABLE);
+  }
+
+  private PassengerRideRequest passengerRequest(String id, String userId, LocalDateTime start,
+      LocalDateTime end) {
+    return new PassengerRideRequest(id, userId, new Interval(start, end), new Position(0f, 0f),
+        null, RideRequestStatus.AVAILABLE);
+  }
+}
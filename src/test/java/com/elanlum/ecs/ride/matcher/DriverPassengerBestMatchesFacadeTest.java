@@ -4,18 +4,24 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
 import com.elanlum.ecs.ride.crud.service.impl.DriverRideRequestService;
+import com.elanlum.ecs.ride.crud.service.impl.PassengerRideRequestService;
+import com.elanlum.ecs.ride.index.PassengerRideRequestIndex;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
 import com.elanlum.ecs.utils.TestCategory;
 import com.elanlum.ecs.ride.matcher.scoring.ScoringContainer;
 import com.elanlum.ecs.ride.model.common.DriverRideRequest;
 import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
 import com.elanlum.ecs.ride.model.values.RideRequestStatus;
+import java.util.List;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -28,7 +34,13 @@ class DriverPassengerBestMatchesFacadeTest {
   @Mock
   DriverRideRequestService driverRideRequestService;
   @Mock
+  PassengerRideRequestService passengerRideRequestService;
+  @Mock
   DriverPassengerMatchingService matchingService;
+  @Mock
+  PassengerRideRequestIndex passengerRideRequestIndex;
+  @Spy
+  BestMatchesCache bestMatchesCache = new BestMatchesCache(new MatchingConfiguration());
   @InjectMocks
   DriverPassengerBestMatchesFacade facade;
   DriverRideRequest driverRideRequest = new DriverRideRequest("dReqId", null,
@@ -50,4 +62,55 @@ class DriverPassengerBestMatchesFacadeTest {
         .expectComplete()
         .verify();
   }
-}
\ No newline at end of file
+
+  @Test
+  void getBestDrivers() {
+    doReturn(Flux.just(scoringContainer)).when(matchingService).getNearDrivers(any(Mono.class));
+    doReturn(Mono.just(passengerRideRequest)).when(passengerRideRequestService)
+        .findById("pasReqId");
+    doReturn(driverRideRequest).when(scoringContainer).getDriverRequest();
+
+    StepVerifier.create(facade.getBestDrivers("pasReqId"))
+        .assertNext(request -> assertEquals(driverRideRequest.getId(), request.getId()))
+        .expectComplete()
+        .verify();
+  }
+
+  @Test
+  void getBestMatches_fromCache_skipsNotAvailablePassengers() {
+    PassengerRideRequest matchedRequest = new PassengerRideRequest("matchedReqId", null,
+        null, null, null, RideRequestStatus.MATCHED);
+    bestMatchesCache.put("dReqId", List.of(passengerRideRequest, matchedRequest));
+    doReturn(true).when(passengerRideRequestIndex).contains("pasReqId");
+    doReturn(false).when(passengerRideRequestIndex).contains("matchedReqId");
+
+    StepVerifier.create(facade.getBestMatches("dReqId"))
+        .assertNext(bestMatches -> {
+          assertEquals(List.of(passengerRideRequest), bestMatches.getPassengers());
+          assertEquals(BestMatches.of("dReqId", List.of(passengerRideRequest)).getEtag(),
+              bestMatches.getEtag());
+        })
+        .expectComplete()
+        .verify();
+    verifyZeroInteractions(matchingService, driverRideRequestService);
+  }
+
+  @Test
+  void streamBestMatches_emitsChangedCandidatesOnly() {
+    PassengerRideRequest otherRequest = new PassengerRideRequest("otherReqId", null,
+        null, null, null, RideRequestStatus.AVAILABLE);
+    bestMatchesCache.put("dReqId", List.of(passengerRideRequest));
+    doReturn(true).when(passengerRideRequestIndex).contains(any());
+
+    StepVerifier.create(facade.streamBestMatches("dReqId"))
+        .assertNext(bestMatches -> assertEquals(List.of(passengerRideRequest),
+            bestMatches.getPassengers()))
+        .then(() -> bestMatchesCache.put("dReqId", List.of(passengerRideRequest)))
+        .then(() -> bestMatchesCache.put("anotherDriverReqId", List.of(otherRequest)))
+        .then(() -> bestMatchesCache.put("dReqId", List.of(otherRequest)))
+        .assertNext(bestMatches -> assertEquals(List.of(otherRequest),
+            bestMatches.getPassengers()))
+        .thenCancel()
+        .verify();
+  }
+}
@@ -1,16 +1,25 @@
 package com.elanlum.ecs.ride.matcher;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 
 import com.elanlum.ecs.utils.TestCategory;
+import com.elanlum.ecs.ride.model.common.DriverRideRequest;
 import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
 import com.elanlum.ecs.ride.model.values.RideRequestStatus;
+import java.util.List;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 @Tag(TestCategory.UNIT)
 class DriverPassengerMatchingControllerTest {
@@ -25,18 +34,66 @@ class DriverPassengerMatchingControllerTest {
       .baseUrl("/pairs")
       .build();
 
+  private BestMatches bestMatches = BestMatches.of("driverTest", List.of(
+      new PassengerRideRequest("test", null, null, null, null, RideRequestStatus.AVAILABLE)));
+
   @Test
   void getNearPassengers() {
-    doReturn(Flux.just(new PassengerRideRequest("test",
-        null, null, null, null, RideRequestStatus.AVAILABLE)))
-        .when(implementation).getBestPassengers(any(String.class));
+    doReturn(Mono.just(bestMatches)).when(implementation).getBestMatches(any(String.class));
 
     webTestClient.get()
-        .uri("/driver/{id}", "test")
+        .uri("/driver/{id}", "driverTest")
         .exchange()
         .expectStatus()
         .isOk()
+        .expectHeader().valueEquals(HttpHeaders.ETAG, bestMatches.getEtag())
         .expectBody()
         .jsonPath("$[0].id").isEqualTo("test");
   }
-}
\ No newline at end of file
+
+  @Test
+  void getNearPassengers_whenEtagMatches_returnNotModified() {
+    doReturn(Mono.just(bestMatches)).when(implementation).getBestMatches(any(String.class));
+
+    webTestClient.get()
+        .uri("/driver/{id}", "driverTest")
+        .header(HttpHeaders.IF_NONE_MATCH, bestMatches.getEtag())
+        .exchange()
+        .expectStatus()
+        .isNotModified()
+        .expectBody()
+        .isEmpty();
+  }
+
+  @Test
+  void streamNearPassengers() {
+    doReturn(Flux.just(bestMatches)).when(implementation).streamBestMatches(any(String.class));
+
+    StepVerifier.create(webTestClient.get()
+        .uri("/driver/{id}/stream", "driverTest")
+        .accept(MediaType.TEXT_EVENT_STREAM)
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .returnResult(new ParameterizedTypeReference<ServerSentEvent<List<Object>>>() {
+        })
+        .getResponseBody())
+        .assertNext(event -> assertEquals(bestMatches.getEtag(), event.id()))
+        .verifyComplete();
+  }
+
+  @Test
+  void getNearDrivers() {
+    doReturn(Flux.just(new DriverRideRequest("driverTest",
+        null, null, null, null, RideRequestStatus.AVAILABLE)))
+        .when(implementation).getBestDrivers(any(String.class));
+
+    webTestClient.get()
+        .uri("/passenger/{id}", "test")
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBody()
+        .jsonPath("$[0].id").isEqualTo("driverTest");
+  }
+}
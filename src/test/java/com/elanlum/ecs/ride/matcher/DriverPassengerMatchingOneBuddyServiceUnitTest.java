@@ -21,6 +21,7 @@ import com.elanlum.ecs.ride.model.common.Ride;
 import com.elanlum.ecs.ride.model.values.Interval;
 import com.elanlum.ecs.ride.model.values.Position;
 import com.elanlum.ecs.ride.model.values.RideRequestStatus;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
 import com.elanlum.ecs.ride.scheduling.config.NotificationConfiguration;
 import com.elanlum.ecs.ride.scheduling.notifying.NotificationFacade;
 import com.elanlum.ecs.user.model.User;
@@ -36,9 +37,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.function.Executable;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 
 @Tag(TestCategory.UNIT)
@@ -57,6 +60,8 @@ class DriverPassengerMatchingOneBuddyServiceUnitTest {
   NotificationFacade notificationFacade;
   @Mock
   RideService rideService;
+  @Spy
+  MatchingConfiguration matchingConfiguration = new MatchingConfiguration();
   @InjectMocks
   DriverPassengerMatchingOneBuddyService onePassengerService;
 
@@ -147,4 +152,33 @@ class DriverPassengerMatchingOneBuddyServiceUnitTest {
     verify(statusUpdater, times(1)).updateStatusesToMatched("2", "1");
     verifyZeroInteractions(userService, notificationFacade);
   }
+
+  @Test
+  @DisplayName("Transactional ride creation matches statuses together with the ride")
+  void matchAndNotifyInTransaction() {
+    matchingConfiguration.setTransactional(true);
+    User passenger = new User("2", "passenger", "passenger", "1", 1L);
+    User driver = new User("4", "driver", "driver", "2", 2L);
+    PassengerRideRequest passengerRideRequest = new PassengerRideRequest("1", "2",
+        new Interval(testLocalDateTime, testLocalDateTime.plusMinutes(15)), passengerPosition,
+        null, RideRequestStatus.AVAILABLE);
+    DriverRideRequest driverRideRequest = new DriverRideRequest("2", "4",
+        new Interval(testLocalDateTime, testLocalDateTime.plusMinutes(15)), driverPosition,
+        null, RideRequestStatus.AVAILABLE);
+
+    doReturn(Mono.just(driver)).when(userService).findById("4");
+    doReturn(Mono.just(passenger)).when(userService).findById("2");
+    Ride createdRide = new Ride(driver, passenger, driverRideRequest, passengerRideRequest);
+    when(rideService.saveMatched(any())).thenReturn(Mono.just(createdRide));
+
+    StepVerifier.create(onePassengerService.createMatchedRideAndNotify(driverRideRequest,
+        passengerRideRequest))
+        .expectNext(createdRide)
+        .verifyComplete();
+
+    verify(rideService, times(1)).saveMatched(any());
+    verify(notificationFacade, times(2)).sendNow(any(Notification.class));
+    verify(statusUpdater, times(1)).onMatchedInTransaction("2", "1");
+    verifyNoMoreInteractions(statusUpdater);
+  }
 }
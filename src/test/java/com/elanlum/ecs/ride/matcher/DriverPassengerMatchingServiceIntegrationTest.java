@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import com.elanlum.ecs.IntegrationTestsConfig;
 import com.elanlum.ecs.ride.crud.repository.impl.PassengerRideRequestRepo;
+import com.elanlum.ecs.ride.index.PassengerRideRequestIndex;
 import com.elanlum.ecs.utils.TestCategory;
 import com.elanlum.ecs.ride.matcher.scoring.ScoringContainer;
 import com.elanlum.ecs.ride.model.common.DriverRideRequest;
@@ -36,6 +37,8 @@ class DriverPassengerMatchingServiceIntegrationTest {
   DriverPassengerMatchingService driverPassengerMatchingService;
   @Autowired
   PassengerRideRequestRepo passengerRideRequestRepo;
+  @Autowired
+  PassengerRideRequestIndex passengerRideRequestIndex;
 
   @Test
   void getDriverPassengerDistances() {
@@ -100,13 +103,13 @@ class DriverPassengerMatchingServiceIntegrationTest {
         driverPosition, null, RideRequestStatus.AVAILABLE);
 
     Mono<PassengerRideRequest> save = passengerRideRequestRepo.save(passRideRequestOne);
-    save.block().getId();
+    passengerRideRequestIndex.update(save.block());
     Mono<PassengerRideRequest> save1 = passengerRideRequestRepo.save(passRideRequestTwo);
-    save1.block().getId();
+    passengerRideRequestIndex.update(save1.block());
     Mono<PassengerRideRequest> save2 = passengerRideRequestRepo.save(passRideRequestThree);
-    save2.block().getId();
+    passengerRideRequestIndex.update(save2.block());
     Mono<PassengerRideRequest> save3 = passengerRideRequestRepo.save(passRideRequestFour);
-    save3.block().getId();
+    passengerRideRequestIndex.update(save3.block());
 
     Mono<DriverRideRequest> driverRideRequestMono = Mono.just(driverRideRequest);
 
@@ -137,7 +140,7 @@ class DriverPassengerMatchingServiceIntegrationTest {
         driverPassengerDeparture, null, RideRequestStatus.AVAILABLE);
 
     Mono<PassengerRideRequest> saved = passengerRideRequestRepo.save(passRideRequest);
-    saved.block();
+    passengerRideRequestIndex.update(saved.block());
     Mono<DriverRideRequest> driverRideRequestMono = Mono.just(driverRideRequest);
 
     Flux<ScoringContainer> nearPassengers = driverPassengerMatchingService
@@ -169,9 +172,9 @@ class DriverPassengerMatchingServiceIntegrationTest {
         driverPosition, null, RideRequestStatus.AVAILABLE);
 
     Mono<PassengerRideRequest> save = passengerRideRequestRepo.save(passRideRequestOne);
-    save.block().getId();
+    passengerRideRequestIndex.update(save.block());
     Mono<PassengerRideRequest> save1 = passengerRideRequestRepo.save(passRideRequestTwo);
-    save1.block().getId();
+    passengerRideRequestIndex.update(save1.block());
 
     Mono<DriverRideRequest> driverRideRequestMono = Mono.just(driverRideRequest);
 
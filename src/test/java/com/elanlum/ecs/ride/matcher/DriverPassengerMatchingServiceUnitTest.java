@@ -1,17 +1,24 @@
 package com.elanlum.ecs.ride.matcher;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import com.carrotsearch.hppc.IntDoubleHashMap;
+import com.elanlum.ecs.map.service.Isochrone;
+import com.elanlum.ecs.map.service.MapService;
+import com.elanlum.ecs.map.service.RouteDistance;
+import com.elanlum.ecs.map.service.SnappedPosition;
+import com.elanlum.ecs.ride.crud.service.impl.DriverRideRequestService;
 import com.elanlum.ecs.ride.crud.service.impl.PassengerRideRequestService;
+import com.elanlum.ecs.ride.index.DriverRideRequestIndex;
+import com.elanlum.ecs.ride.index.PassengerRideRequestIndex;
 import com.elanlum.ecs.utils.TestCategory;
 import com.elanlum.ecs.ride.matcher.scoring.ScoringContainer;
 import com.elanlum.ecs.ride.matcher.scoring.ScoringContainerFactory;
@@ -20,20 +27,25 @@ import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
 import com.elanlum.ecs.ride.model.values.Interval;
 import com.elanlum.ecs.ride.model.values.Position;
 import com.elanlum.ecs.ride.model.values.RideRequestStatus;
-
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import com.graphhopper.coll.GHIntLongHashMap;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.function.BinaryOperator;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
 
 @Tag(TestCategory.UNIT)
@@ -44,9 +56,27 @@ class DriverPassengerMatchingServiceUnitTest {
   ScoringContainerFactory containerFactory;
   @Mock
   PassengerRideRequestService passengerRideRequestService;
-  @InjectMocks
+  @Mock
+  PassengerRideRequestIndex passengerRideRequestIndex;
+  @Mock
+  BestMatchesCache bestMatchesCache;
+  @Mock
+  DriverRideRequestService driverRideRequestService;
+  @Mock
+  DriverRideRequestIndex driverRideRequestIndex;
+  @Mock
+  MapService mapService;
+  MatchingConfiguration matchingConfiguration = new MatchingConfiguration();
   DriverPassengerMatchingService driverPassengerMatchingService;
 
+  @BeforeEach
+  void setUp() {
+    driverPassengerMatchingService = new DriverPassengerMatchingService(containerFactory,
+        passengerRideRequestService, passengerRideRequestIndex, matchingConfiguration,
+        Schedulers.immediate(), bestMatchesCache, driverRideRequestService,
+        driverRideRequestIndex, mapService);
+  }
+
   @Test
   void whenGetDriverPassengerDistances_thenReturnFluxWithDistances() {
     Position driverPosition = new Position(0.0f, 0.0f);
@@ -88,6 +118,43 @@ class DriverPassengerMatchingServiceUnitTest {
     verify(containerFactory).create(driverRequest, passengerRequest3);
   }
 
+  @Test
+  @DisplayName("GetNearDrivers looks only through indexed drivers")
+  void whenPassengerRequestMono_returnBestDrivers() {
+    Position passengerPosition = new Position(0.0f, 0.0f);
+    PassengerRideRequest passengerRideRequest = new PassengerRideRequest("p", "p",
+        new Interval(LocalDateTime.now(), LocalDateTime.now().plusMinutes(20)),
+        passengerPosition, null, RideRequestStatus.AVAILABLE);
+    DriverRideRequest driverRequest1 = new DriverRideRequest("1", "1", null,
+        new Position(0.001f, 0.001f), null, RideRequestStatus.AVAILABLE);
+    DriverRideRequest driverRequest2 = new DriverRideRequest("2", "2", null,
+        new Position(0.002f, 0.002f), null, RideRequestStatus.AVAILABLE);
+
+    when(containerFactory.create(any(), any())).thenAnswer(invocation -> {
+      ScoringContainer container = mock(ScoringContainer.class);
+      DriverRideRequest driverRideRequest = invocation.getArgument(0);
+      when(container.getScore()).thenReturn(Double.parseDouble(driverRideRequest.getId()));
+      return container;
+    });
+    Set<String> nearDriverIds = Set.of("1", "2");
+    when(driverRideRequestIndex.findNear(passengerPosition,
+        passengerRideRequest.getRideDate())).thenReturn(nearDriverIds);
+    when(driverRideRequestService.getAvailableDriverMatchingViews(
+        passengerRideRequest.getRideDate().getStart(), passengerRideRequest.getRideDate().getEnd(),
+        passengerRideRequest.getUserId(), nearDriverIds))
+        .thenReturn(Flux.just(driverRequest1, driverRequest2));
+
+    StepVerifier.create(driverPassengerMatchingService
+        .getNearDrivers(Mono.just(passengerRideRequest)))
+        .assertNext(scoringContainer -> assertThat(scoringContainer.getScore()).isEqualTo(2.0))
+        .assertNext(scoringContainer -> assertThat(scoringContainer.getScore()).isEqualTo(1.0))
+        .verifyComplete();
+
+    verify(containerFactory).create(driverRequest1, passengerRideRequest);
+    verify(containerFactory).create(driverRequest2, passengerRideRequest);
+    verifyNoMoreInteractions(passengerRideRequestService, bestMatchesCache);
+  }
+
   private PassengerRideRequest passengerRequest(Position position, String id) {
     return new PassengerRideRequest(id, id, null, position, null, RideRequestStatus.AVAILABLE);
   }
@@ -124,9 +191,13 @@ class DriverPassengerMatchingServiceUnitTest {
     Flux<PassengerRideRequest> passRideReqFlux = Flux
         .just(passengerRequest1, passengerRequest2, passengerRequest3, passengerRequest4);
 
+    Set<String> nearPassengerIds = Set.of("1", "2", "3", "4");
+    when(passengerRideRequestIndex.findNear(driverPosition,
+        driverRideRequest.getRideDate())).thenReturn(nearPassengerIds);
     when(passengerRideRequestService
-        .getAvailablePassengerRequestsInTime(eq(driverRideRequest.getRideDate().getStart()),
-            eq(driverRideRequest.getRideDate().getEnd()), eq(driverRideRequest.getUserId())))
+        .getAvailablePassengerMatchingViews(eq(driverRideRequest.getRideDate().getStart()),
+            eq(driverRideRequest.getRideDate().getEnd()), eq(driverRideRequest.getUserId()),
+            eq(nearPassengerIds)))
         .thenReturn(passRideReqFlux);
 
     Flux<ScoringContainer> fluxThree = driverPassengerMatchingService
@@ -139,12 +210,54 @@ class DriverPassengerMatchingServiceUnitTest {
         .verifyComplete();
 
     verify(passengerRideRequestService, times(1))
-        .getAvailablePassengerRequestsInTime(any(), any(), any());
+        .getAvailablePassengerMatchingViews(any(), any(), any(), any());
     verifyNoMoreInteractions(passengerRideRequestService);
     verify(containerFactory).create(driverRideRequest, passengerRequest1);
     verify(containerFactory).create(driverRideRequest, passengerRequest2);
     verify(containerFactory).create(driverRideRequest, passengerRequest3);
     verify(containerFactory).create(driverRideRequest, passengerRequest4);
+    verify(bestMatchesCache).put(any(), any());
+  }
+
+  @Test
+  @DisplayName("GetNearPassengers scores only passengers inside the driver's isochrone")
+  void whenIsochroneFiltering_thenUnreachablePassengersAreNotScored() {
+    matchingConfiguration.setIsochroneFiltering(true);
+    Position driverPosition = new Position(0.0f, 0.0f);
+    Position reachablePosition = new Position(1.0f, 1.0f);
+    Position unreachablePosition = new Position(2.0f, 2.0f);
+    PassengerRideRequest reachableRequest = passengerRequest(reachablePosition, "1");
+    PassengerRideRequest unreachableRequest = passengerRequest(unreachablePosition, "2");
+    LocalDateTime now = LocalDateTime.now();
+    final DriverRideRequest driverRideRequest = new DriverRideRequest("1", "1",
+        new Interval(now, now.plusMinutes(20)), driverPosition, null,
+        RideRequestStatus.AVAILABLE);
+
+    when(containerFactory.create(any(), any(), any(RouteDistance.class)))
+        .thenReturn(mock(ScoringContainer.class));
+    Set<String> nearPassengerIds = Set.of("1", "2");
+    when(passengerRideRequestIndex.findNear(driverPosition,
+        driverRideRequest.getRideDate())).thenReturn(nearPassengerIds);
+    when(passengerRideRequestService.getAvailablePassengerMatchingViews(any(), any(), any(),
+        eq(nearPassengerIds))).thenReturn(Flux.just(reachableRequest, unreachableRequest));
+    SnappedPosition snappedDriver = new SnappedPosition(driverPosition, 0);
+    when(mapService.snap(driverPosition)).thenReturn(snappedDriver);
+    when(mapService.snap(reachablePosition)).thenReturn(new SnappedPosition(reachablePosition, 1));
+    when(mapService.snap(unreachablePosition))
+        .thenReturn(new SnappedPosition(unreachablePosition, 2));
+    when(mapService.getIsochrone(snappedDriver, Duration.ofMinutes(20).toMillis()))
+        .thenReturn(isochrone(Map.of(0, 0L, 1, 60_000L)));
+
+    StepVerifier.create(driverPassengerMatchingService
+        .getNearPassengers(Mono.just(driverRideRequest)))
+        .expectNextCount(1)
+        .verifyComplete();
+
+    verify(containerFactory).create(driverRideRequest, reachableRequest,
+        new RouteDistance(60.0, 60_000L));
+    verify(containerFactory, never()).create(eq(driverRideRequest), eq(unreachableRequest),
+        any(RouteDistance.class));
+    verify(containerFactory, never()).create(driverRideRequest, unreachableRequest);
   }
 
   @Test
@@ -175,9 +288,13 @@ class DriverPassengerMatchingServiceUnitTest {
         LocalDateTime.now(), LocalDateTime.now().plusMinutes(20)),
         driverPosition, null, RideRequestStatus.AVAILABLE);
 
+    Set<String> nearPassengerIds = Set.of("1", "2");
+    when(passengerRideRequestIndex.findNear(driverPosition,
+        driverRideRequest.getRideDate())).thenReturn(nearPassengerIds);
     when(passengerRideRequestService
-        .getAvailablePassengerRequestsInTime(eq(driverRideRequest.getRideDate().getStart()),
-            eq(driverRideRequest.getRideDate().getEnd()), eq(driverRideRequest.getUserId())))
+        .getAvailablePassengerMatchingViews(eq(driverRideRequest.getRideDate().getStart()),
+            eq(driverRideRequest.getRideDate().getEnd()), eq(driverRideRequest.getUserId()),
+            eq(nearPassengerIds)))
         .thenReturn(passRideReqFlux);
 
     Flux<ScoringContainer> fluxTwo = driverPassengerMatchingService
@@ -189,43 +306,81 @@ class DriverPassengerMatchingServiceUnitTest {
         .verifyComplete();
 
     verify(passengerRideRequestService, times(1))
-        .getAvailablePassengerRequestsInTime(any(), any(), any());
+        .getAvailablePassengerMatchingViews(any(), any(), any(), any());
     verifyNoMoreInteractions(passengerRideRequestService);
     verify(containerFactory).create(driverRideRequest, passengerRequest1);
     verify(containerFactory).create(driverRideRequest, passengerRequest2);
   }
 
+  @Test
+  @DisplayName("GetNearPassengers routes only the best estimated candidates")
+  public void whenManyCandidates_onlyBestEstimatedAreScored() {
+    matchingConfiguration.setRoutedCandidatesLimit(2);
+    Position driverPosition = new Position(0.0f, 0.0f);
+    PassengerRideRequest passengerRequest1 = passengerRequest(new Position(1.0f, 1.0f), "1");
+    PassengerRideRequest passengerRequest2 = passengerRequest(new Position(2.0f, 2.0f), "2");
+    PassengerRideRequest passengerRequest3 = passengerRequest(new Position(3.0f, 3.0f), "3");
+    final DriverRideRequest driverRideRequest = new DriverRideRequest("1", "1", new Interval(
+        LocalDateTime.now(), LocalDateTime.now().plusMinutes(20)),
+        driverPosition, null, RideRequestStatus.AVAILABLE);
+
+    List<ScoringContainer> containers = new ArrayList<>();
+    when(containerFactory.create(any(), any())).thenAnswer(invocation -> {
+      ScoringContainer container = mock(ScoringContainer.class);
+      PassengerRideRequest passengerRideRequest = invocation.getArgument(1);
+      double estimate = 1.0 / Double.parseDouble(passengerRideRequest.getId());
+      when(container.getEstimatedScore()).thenReturn(estimate);
+      containers.add(container);
+      return container;
+    });
+    Set<String> nearPassengerIds = Set.of("1", "2", "3");
+    when(passengerRideRequestIndex.findNear(driverPosition,
+        driverRideRequest.getRideDate())).thenReturn(nearPassengerIds);
+    when(passengerRideRequestService.getAvailablePassengerMatchingViews(any(), any(), any(),
+        eq(nearPassengerIds)))
+        .thenReturn(Flux.just(passengerRequest3, passengerRequest1, passengerRequest2));
+
+    Flux<ScoringContainer> result = driverPassengerMatchingService
+        .getNearPassengers(Mono.just(driverRideRequest));
+
+    StepVerifier.create(result.collectList())
+        .assertNext(scored -> assertThat(scored)
+            .containsExactlyInAnyOrder(containers.get(1), containers.get(2)))
+        .verifyComplete();
+    verify(containers.get(0), never()).getScore();
+  }
+
   @Test
   @DisplayName("Merging method test")
-  public void whenListsApplied_ReturnBinaryOperator() {
+  public void whenSelectorsMerged_keepOnlyBestContainers() {
 
     ScoringContainer scoringContainerOne = mock(ScoringContainer.class);
     ScoringContainer scoringContainerTwo = mock(ScoringContainer.class);
     ScoringContainer scoringContainerThree = mock(ScoringContainer.class);
     ScoringContainer scoringContainerFour = mock(ScoringContainer.class);
 
-    Double d1 = 0.5;
-    Double d2 = 0.2;
-    Double d3 = 0.7;
-    Double d4 = 0.6;
-
-    doReturn(d1).when(scoringContainerOne).getScore();
-    doReturn(d2).when(scoringContainerTwo).getScore();
-    doReturn(d3).when(scoringContainerThree).getScore();
-    doReturn(d4).when(scoringContainerFour).getScore();
-
-    List<ScoringContainer> list = new ArrayList<>();
-    List<ScoringContainer> listTwo = new ArrayList<>();
-
-    list.add(scoringContainerOne);
-    list.add(scoringContainerTwo);
-    listTwo.add(scoringContainerThree);
-    listTwo.add(scoringContainerFour);
-
-    BinaryOperator<List<ScoringContainer>> listBinaryOperator = driverPassengerMatchingService
-        .getListBinaryOperator();
-    List<ScoringContainer> apply = listBinaryOperator.apply(list, listTwo);
-    assertEquals(0.7, apply.get(0).getScore());
-    assertEquals(0.2, apply.get(3).getScore());
+    TopKSelector<ScoringContainer> selector = new TopKSelector<>(3);
+    TopKSelector<ScoringContainer> selectorTwo = new TopKSelector<>(3);
+
+    selector.offer(scoringContainerOne, 0.5);
+    selector.offer(scoringContainerTwo, 0.2);
+    selectorTwo.offer(scoringContainerThree, 0.7);
+    selectorTwo.offer(scoringContainerFour, 0.6);
+
+    BinaryOperator<TopKSelector<ScoringContainer>> selectorMerger = driverPassengerMatchingService
+        .getSelectorMerger();
+    List<ScoringContainer> merged = selectorMerger.apply(selector, selectorTwo).toSortedList();
+    assertThat(merged)
+        .containsExactly(scoringContainerThree, scoringContainerFour, scoringContainerOne);
+  }
+
+  private Isochrone isochrone(Map<Integer, Long> nodeTimes) {
+    GHIntLongHashMap times = new GHIntLongHashMap();
+    IntDoubleHashMap distances = new IntDoubleHashMap();
+    nodeTimes.forEach((node, time) -> {
+      times.put(node, time);
+      distances.put(node, time / 1000.0);
+    });
+    return Isochrone.of(times, distances);
   }
 }
@@ -0,0 +1,217 @@
+package com.elanlum.ecs.ride.matcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import com.elanlum.ecs.map.service.MapService;
+import com.elanlum.ecs.ride.crud.service.impl.DriverRideRequestService;
+import com.elanlum.ecs.ride.crud.service.impl.PassengerRideRequestService;
+import com.elanlum.ecs.ride.crud.service.impl.RideService;
+import com.elanlum.ecs.ride.index.PassengerRideRequestIndex;
+import com.elanlum.ecs.ride.matcher.pooling.InsertionRoutePlanner;
+import com.elanlum.ecs.ride.matcher.scoring.ScoringContainer;
+import com.elanlum.ecs.ride.matcher.scoring.ScoringContainerFactory;
+import com.elanlum.ecs.ride.model.common.DriverRideRequest;
+import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
+import com.elanlum.ecs.ride.model.common.Ride;
+import com.elanlum.ecs.ride.model.values.Interval;
+import com.elanlum.ecs.ride.model.values.Position;
+import com.elanlum.ecs.ride.model.values.RideLeg;
+import com.elanlum.ecs.ride.model.values.RideRequestStatus;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import com.elanlum.ecs.user.model.User;
+import com.elanlum.ecs.user.service.UserService;
+import com.elanlum.ecs.utils.TestCategory;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@Tag(TestCategory.UNIT)
+@ExtendWith(MockitoExtension.class)
+class DriverPassengerPoolingServiceUnitTest {
+
+  @Mock
+  DriverPassengerMatchingOneBuddyService oneBuddyService;
+  @Mock
+  DriverRideRequestService driverRideRequestService;
+  @Mock
+  PassengerRideRequestService passengerRideRequestService;
+  @Mock
+  PassengerRideRequestIndex passengerRideRequestIndex;
+  @Mock
+  ScoringContainerFactory containerFactory;
+  @Spy
+  InsertionRoutePlanner routePlanner;
+  @Mock
+  MapService mapService;
+  @Mock
+  UserService userService;
+  @Mock
+  RideService rideService;
+  @Spy
+  MatchingConfiguration matchingConfiguration = new MatchingConfiguration();
+  @InjectMocks
+  DriverPassengerPoolingService poolingService;
+
+  LocalDateTime now = LocalDateTime.now();
+  DriverRideRequest driver = new DriverRideRequest("d1", "u1",
+      new Interval(now, now.plusMinutes(20)), new Position(0f, 0f), new Position(0f, 10f),
+      RideRequestStatus.AVAILABLE, 2);
+  PassengerRideRequest firstPassenger = passengerRequest("p1", "u2", 2f, 6f);
+  PassengerRideRequest secondPassenger = passengerRequest("p2", "u3", 3f, 8f);
+
+  @Test
+  @DisplayName("Driver with one seat is matched by one buddy service")
+  void matchSingleSeat() {
+    DriverRideRequest singleSeatDriver = new DriverRideRequest("d2", "u1",
+        new Interval(now, now.plusMinutes(20)), new Position(0f, 0f), null,
+        RideRequestStatus.AVAILABLE);
+    doReturn(Mono.empty()).when(oneBuddyService).match(singleSeatDriver);
+
+    StepVerifier.create(poolingService.match(singleSeatDriver)).verifyComplete();
+
+    verify(oneBuddyService, times(1)).match(singleSeatDriver);
+    verifyZeroInteractions(passengerRideRequestService, mapService);
+  }
+
+  @Test
+  @DisplayName("Pooled ride contains legs of all passengers in the order of the route")
+  void matchPooledRide() {
+    mockCandidates();
+    doReturn(Mono.just(driver)).when(driverRideRequestService)
+        .updateStatus("d1", RideRequestStatus.AVAILABLE, RideRequestStatus.MATCHED);
+    doReturn(Flux.just(firstPassenger, secondPassenger)).when(passengerRideRequestService)
+        .updateStatuses(List.of("p1", "p2"), RideRequestStatus.AVAILABLE,
+            RideRequestStatus.MATCHED);
+    doReturn(Mono.just(user("u1"))).when(userService).findById("u1");
+    doReturn(Mono.just(user("u2"))).when(userService).findById("u2");
+    doReturn(Mono.just(user("u3"))).when(userService).findById("u3");
+    doAnswer(invocation -> Mono.just(invocation.getArgument(0))).when(rideService)
+        .save(any(Ride.class));
+
+    StepVerifier.create(poolingService.match(driver)).expectNextCount(1).verifyComplete();
+
+    ArgumentCaptor<Ride> rideCaptor = ArgumentCaptor.forClass(Ride.class);
+    verify(rideService).save(rideCaptor.capture());
+    List<RideLeg> legs = rideCaptor.getValue().getPassengerLegs();
+    assertEquals(2, legs.size());
+    assertEquals(firstPassenger, legs.get(0).getPassengerRideRequest());
+    assertEquals(1, legs.get(0).getPickupStop());
+    assertEquals(3, legs.get(0).getDropoffStop());
+    assertEquals(secondPassenger, legs.get(1).getPassengerRideRequest());
+    assertEquals(2, legs.get(1).getPickupStop());
+    assertEquals(4, legs.get(1).getDropoffStop());
+    assertEquals(firstPassenger, rideCaptor.getValue().getPassengerRideRequest());
+    verify(oneBuddyService, times(1)).notifyDriverAboutTheRideStart(rideCaptor.getValue());
+    verify(oneBuddyService, times(2)).notifyPassengerAboutTheRideStart(any(Ride.class));
+    verify(oneBuddyService, times(2)).notifyAboutTheMatch(any(Ride.class));
+  }
+
+  @Test
+  @DisplayName("Driver and passengers are rolled back when the ride can't be saved")
+  void matchRollsBackAllWhenRideIsNotSaved() {
+    mockCandidates();
+    doReturn(Mono.just(driver)).when(driverRideRequestService)
+        .updateStatus("d1", RideRequestStatus.AVAILABLE, RideRequestStatus.MATCHED);
+    doReturn(Flux.just(firstPassenger, secondPassenger)).when(passengerRideRequestService)
+        .updateStatuses(List.of("p1", "p2"), RideRequestStatus.AVAILABLE,
+            RideRequestStatus.MATCHED);
+    doReturn(Mono.just(user("u1"))).when(userService).findById("u1");
+    doReturn(Mono.just(user("u2"))).when(userService).findById("u2");
+    doReturn(Mono.just(user("u3"))).when(userService).findById("u3");
+    doReturn(Mono.error(new IllegalStateException("Ride is not valid"))).when(rideService)
+        .save(any(Ride.class));
+    doReturn(Mono.just(driver)).when(driverRideRequestService)
+        .updateStatus("d1", RideRequestStatus.MATCHED, RideRequestStatus.AVAILABLE);
+    doReturn(Flux.just(firstPassenger, secondPassenger)).when(passengerRideRequestService)
+        .updateStatuses(List.of("p1", "p2"), RideRequestStatus.MATCHED,
+            RideRequestStatus.AVAILABLE);
+
+    StepVerifier.create(poolingService.match(driver)).verifyComplete();
+
+    verify(driverRideRequestService, times(1))
+        .updateStatus("d1", RideRequestStatus.MATCHED, RideRequestStatus.AVAILABLE);
+    verify(passengerRideRequestService, times(1))
+        .updateStatuses(List.of("p1", "p2"), RideRequestStatus.MATCHED,
+            RideRequestStatus.AVAILABLE);
+    verifyZeroInteractions(oneBuddyService);
+  }
+
+  @Test
+  @DisplayName("Driver is rolled back when all passengers were matched concurrently")
+  void matchRollsBackDriver() {
+    mockCandidates();
+    doReturn(Mono.just(driver)).when(driverRideRequestService)
+        .updateStatus("d1", RideRequestStatus.AVAILABLE, RideRequestStatus.MATCHED);
+    doReturn(Flux.empty()).when(passengerRideRequestService)
+        .updateStatuses(List.of("p1", "p2"), RideRequestStatus.AVAILABLE,
+            RideRequestStatus.MATCHED);
+    doReturn(Mono.just(driver)).when(driverRideRequestService)
+        .updateStatus("d1", RideRequestStatus.MATCHED, RideRequestStatus.AVAILABLE);
+
+    StepVerifier.create(poolingService.match(driver)).verifyComplete();
+
+    verify(driverRideRequestService, times(1))
+        .updateStatus("d1", RideRequestStatus.MATCHED, RideRequestStatus.AVAILABLE);
+    verifyZeroInteractions(rideService, oneBuddyService);
+  }
+
+  private void mockCandidates() {
+    doReturn(Set.of("p1", "p2")).when(passengerRideRequestIndex)
+        .findNear(driver.getDeparturePoint(), driver.getRideDate());
+    doReturn(Flux.just(firstPassenger, secondPassenger)).when(passengerRideRequestService)
+        .getAvailablePassengerMatchingViews(eq(driver.getRideDate().getStart()),
+            eq(driver.getRideDate().getEnd()), eq("u1"), anySet());
+    ScoringContainer firstContainer = container(firstPassenger, 2);
+    ScoringContainer secondContainer = container(secondPassenger, 1);
+    doReturn(firstContainer).when(containerFactory).create(driver, firstPassenger);
+    doReturn(secondContainer).when(containerFactory).create(driver, secondPassenger);
+    // points on a line: driver 0 -> 10, passengers 2 -> 6 and 3 -> 8
+    double[] coordinates = {0, 10, 2, 6, 3, 8};
+    double[][] distances = new double[coordinates.length][coordinates.length];
+    for (int from = 0; from < coordinates.length; from++) {
+      for (int to = 0; to < coordinates.length; to++) {
+        distances[from][to] = Math.abs(coordinates[from] - coordinates[to]);
+      }
+    }
+    doReturn(distances).when(mapService).getDistanceMatrix(anyList(), anyList());
+  }
+
+  private ScoringContainer container(PassengerRideRequest passengerRequest, double score) {
+    ScoringContainer container = mock(ScoringContainer.class);
+    doReturn(score).when(container).getEstimatedScore();
+    doReturn(passengerRequest).when(container).getPassengerRequest();
+    return container;
+  }
+
+  private PassengerRideRequest passengerRequest(String id, String userId, float departure,
+      float destination) {
+    return new PassengerRideRequest(id, userId, new Interval(now, now.plusMinutes(20)),
+        new Position(0f, departure), new Position(0f, destination), RideRequestStatus.AVAILABLE);
+  }
+
+  private User user(String id) {
+    return new User(id, "login" + id, "name" + id, id, null);
+  }
+}
@@ -0,0 +1,136 @@
+package com.elanlum.ecs.ride.matcher;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.elanlum.ecs.ride.crud.service.impl.DriverRideRequestService;
+import com.elanlum.ecs.ride.crud.service.impl.PassengerRideRequestService;
+import com.elanlum.ecs.ride.index.PassengerRideRequestIndex;
+import com.elanlum.ecs.ride.model.common.DriverRideRequest;
+import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
+import com.elanlum.ecs.ride.model.values.Interval;
+import com.elanlum.ecs.ride.model.values.Position;
+import com.elanlum.ecs.ride.model.values.RideRequestStatus;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import com.elanlum.ecs.utils.TestCategory;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+@Tag(TestCategory.UNIT)
+@ExtendWith(MockitoExtension.class)
+class IncrementalMatchingTrackerTest {
+
+  @Mock
+  DriverRideRequestService driverRideRequestService;
+  @Mock
+  PassengerRideRequestService passengerRideRequestService;
+
+  MatchingConfiguration matchingConfiguration = new MatchingConfiguration();
+  IncrementalMatchingTracker tracker;
+
+  LocalDateTime now = LocalDateTime.now();
+  DriverRideRequest nearDriver = driverRequest("d1", "u1", new Position(59.90f, 30.30f), now);
+  DriverRideRequest farDriver = driverRequest("d2", "u2", new Position(55.75f, 37.61f), now);
+  DriverRideRequest lateDriver = driverRequest("d3", "u3", new Position(59.90f, 30.30f),
+      now.plusHours(5));
+
+  @BeforeEach
+  void setUp() {
+    tracker = new IncrementalMatchingTracker(driverRideRequestService,
+        passengerRideRequestService,
+        new PassengerRideRequestIndex(matchingConfiguration), matchingConfiguration);
+  }
+
+  @Test
+  @DisplayName("First tick matches all available drivers")
+  void firstTickIsFullSweep() {
+    doReturn(Flux.just(nearDriver, farDriver)).when(driverRideRequestService)
+        .getAvailableMatchingViews();
+
+    StepVerifier.create(tracker.getDriversToMatch())
+        .expectNext(nearDriver, farDriver)
+        .verifyComplete();
+
+    verify(passengerRideRequestService, never()).findModifiedSince(any());
+  }
+
+  @Test
+  @DisplayName("Without changed passengers only changed drivers are matched")
+  void withoutChangesOnlyChangedDriversAreMatched() {
+    doReturn(Flux.just(nearDriver, farDriver)).when(driverRideRequestService)
+        .getAvailableMatchingViews();
+    StepVerifier.create(tracker.getDriversToMatch()).expectNextCount(2).verifyComplete();
+    doReturn(Flux.empty()).when(passengerRideRequestService).findModifiedSince(any());
+    doReturn(Flux.empty()).when(driverRideRequestService).findAvailableModifiedSince(any());
+
+    StepVerifier.create(tracker.getDriversToMatch()).verifyComplete();
+
+    verify(driverRideRequestService, times(1)).getAvailableMatchingViews();
+    verify(driverRideRequestService, times(1)).findAvailableModifiedSince(any());
+  }
+
+  @Test
+  @DisplayName("Changed passenger triggers matching of near drivers with overlapping time only")
+  void changedPassengerTriggersNearOverlappingDrivers() {
+    doReturn(Flux.just(nearDriver, farDriver, lateDriver)).when(driverRideRequestService)
+        .getAvailableMatchingViews();
+    StepVerifier.create(tracker.getDriversToMatch()).expectNextCount(3).verifyComplete();
+    PassengerRideRequest passenger = new PassengerRideRequest("p1", "u4",
+        new Interval(now, now.plusMinutes(30)), new Position(59.901f, 30.301f), null,
+        RideRequestStatus.CANCELED);
+    doReturn(Flux.just(passenger)).when(passengerRideRequestService).findModifiedSince(any());
+
+    StepVerifier.create(tracker.getDriversToMatch())
+        .expectNext(nearDriver)
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("Every full-sweep-ticks tick and disabled incremental mode match all drivers")
+  void fullSweeps() {
+    matchingConfiguration.setFullSweepTicks(2);
+    doReturn(Flux.just(nearDriver)).when(driverRideRequestService).getAvailableMatchingViews();
+    doReturn(Flux.empty()).when(passengerRideRequestService).findModifiedSince(any());
+    doReturn(Flux.empty()).when(driverRideRequestService).findAvailableModifiedSince(any());
+
+    StepVerifier.create(tracker.getDriversToMatch()).expectNextCount(1).verifyComplete();
+    StepVerifier.create(tracker.getDriversToMatch()).verifyComplete();
+    StepVerifier.create(tracker.getDriversToMatch()).expectNextCount(1).verifyComplete();
+    matchingConfiguration.setIncremental(false);
+    StepVerifier.create(tracker.getDriversToMatch()).expectNextCount(1).verifyComplete();
+
+    verify(driverRideRequestService, times(3)).getAvailableMatchingViews();
+  }
+
+  @Test
+  @DisplayName("Requested full sweep matches all drivers on the next tick")
+  void requestedFullSweep() {
+    doReturn(Flux.just(nearDriver)).when(driverRideRequestService).getAvailableMatchingViews();
+    StepVerifier.create(tracker.getDriversToMatch()).expectNextCount(1).verifyComplete();
+
+    tracker.requestFullSweep();
+
+    StepVerifier.create(tracker.getDriversToMatch()).expectNextCount(1).verifyComplete();
+    verify(driverRideRequestService, times(2)).getAvailableMatchingViews();
+    verify(passengerRideRequestService, never()).findModifiedSince(any());
+  }
+
+  private DriverRideRequest driverRequest(String id, String userId, Position position,
+      LocalDateTime start) {
+    DriverRideRequest request = new DriverRideRequest(id, userId,
+        new Interval(start, start.plusMinutes(20)), position, null, RideRequestStatus.AVAILABLE);
+    request.setLastModified(now.minusHours(1));
+    return request;
+  }
+}
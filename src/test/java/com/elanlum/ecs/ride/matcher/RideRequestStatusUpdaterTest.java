@@ -4,6 +4,7 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
 import com.elanlum.ecs.ride.crud.service.impl.DriverRideRequestService;
 import com.elanlum.ecs.ride.crud.service.impl.PassengerRideRequestService;
@@ -15,6 +16,7 @@ import com.elanlum.ecs.ride.model.values.Position;
 import com.elanlum.ecs.ride.model.values.RideRequestStatus;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
@@ -23,8 +25,10 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
+import reactor.util.function.Tuples;
 
 @Tag(TestCategory.UNIT)
 @ExtendWith(MockitoExtension.class)
@@ -125,6 +129,51 @@ class RideRequestStatusUpdaterTest {
     verifyNoMoreInteractions(driverRideRequestService, passengerRideRequestService);
   }
 
+  @Test
+  @DisplayName("Bulk updater matches all pairs at once and rolls back only the losers")
+  void updateStatusesToMatched_inBulk() {
+    DriverRideRequest secondDriverRideRequest = new DriverRideRequest(
+        "3", "Doka", interval(), position(), position(), RideRequestStatus.AVAILABLE);
+    PassengerRideRequest secondPassengerRideRequest = new PassengerRideRequest(
+        "4", "Moka", interval(), position(), position(), RideRequestStatus.AVAILABLE);
+    PassengerRideRequest thirdPassengerRideRequest = new PassengerRideRequest(
+        "6", "Soka", interval(), position(), position(), RideRequestStatus.AVAILABLE);
+    DriverRideRequest thirdDriverRideRequest = new DriverRideRequest(
+        "5", "Roka", interval(), position(), position(), RideRequestStatus.AVAILABLE);
+
+    doReturn(Flux.just(updatedDriverRideRequest, secondDriverRideRequest))
+        .when(driverRideRequestService).updateStatuses(List.of("1", "3", "5"),
+        RideRequestStatus.AVAILABLE, RideRequestStatus.MATCHED);
+    doReturn(Flux.just(updatedPassengerRideRequest, thirdPassengerRideRequest))
+        .when(passengerRideRequestService).updateStatuses(List.of("2", "4", "6"),
+        RideRequestStatus.AVAILABLE, RideRequestStatus.MATCHED);
+    doReturn(Flux.just(rolledBackDriverRideRequest)).when(driverRideRequestService)
+        .updateStatuses(List.of("3"), RideRequestStatus.MATCHED, RideRequestStatus.AVAILABLE);
+    doReturn(Flux.empty()).when(passengerRideRequestService)
+        .updateStatuses(List.of("6"), RideRequestStatus.MATCHED, RideRequestStatus.AVAILABLE);
+
+    StepVerifier.create(statusUpdater.updateStatusesToMatched(List.of(
+        Tuples.of(updatedDriverRideRequest, updatedPassengerRideRequest),
+        Tuples.of(secondDriverRideRequest, secondPassengerRideRequest),
+        Tuples.of(thirdDriverRideRequest, thirdPassengerRideRequest))))
+        .expectNext(Tuples.of(updatedDriverRideRequest, updatedPassengerRideRequest))
+        .verifyComplete();
+
+    verify(driverRideRequestService, times(1))
+        .updateStatuses(List.of("3"), RideRequestStatus.MATCHED, RideRequestStatus.AVAILABLE);
+    verify(passengerRideRequestService, times(1))
+        .updateStatuses(List.of("6"), RideRequestStatus.MATCHED, RideRequestStatus.AVAILABLE);
+  }
+
+  @Test
+  @DisplayName("Bulk updater does nothing for empty pairs")
+  void updateStatusesToMatched_emptyPairs() {
+    StepVerifier.create(statusUpdater.updateStatusesToMatched(List.of()))
+        .verifyComplete();
+
+    verifyZeroInteractions(driverRideRequestService, passengerRideRequestService);
+  }
+
   private Interval interval() {
     return new Interval(LocalDateTime.now().plusMinutes(5), LocalDateTime.now().plusMinutes(15));
   }
@@ -0,0 +1,87 @@
+package com.elanlum.ecs.ride.matcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.elanlum.ecs.utils.TestCategory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag(TestCategory.UNIT)
+class TopKSelectorTest {
+
+  @Test
+  void keepsBestItemsInDescendingOrder() {
+    TopKSelector<String> selector = new TopKSelector<>(3);
+
+    selector.offer("a", 0.1);
+    selector.offer("b", 0.5);
+    selector.offer("c", 0.3);
+    selector.offer("d", 0.9);
+    selector.offer("e", 0.2);
+
+    assertThat(selector.size()).isEqualTo(3);
+    assertThat(selector.toSortedList()).containsExactly("d", "b", "c");
+  }
+
+  @Test
+  void keepsFirstItemsOnEqualScores() {
+    TopKSelector<String> selector = new TopKSelector<>(2);
+
+    selector.offer("a", 1.0);
+    selector.offer("b", 1.0);
+    selector.offer("c", 1.0);
+
+    assertThat(selector.toSortedList()).containsExactly("a", "b");
+  }
+
+  @Test
+  void mergeIsBounded() {
+    TopKSelector<Integer> first = new TopKSelector<>(2);
+    TopKSelector<Integer> second = new TopKSelector<>(2);
+    first.offer(1, 1);
+    first.offer(4, 4);
+    second.offer(3, 3);
+    second.offer(2, 2);
+
+    assertThat(first.merge(second).toSortedList()).containsExactly(4, 3);
+  }
+
+  @Test
+  void matchesFullSortOnRandomScores() {
+    Random random = new Random(42);
+    List<Double> scores = new ArrayList<>();
+    TopKSelector<Double> selector = new TopKSelector<>(10);
+    for (int i = 0; i < 1000; i++) {
+      double score = random.nextDouble();
+      scores.add(score);
+      selector.offer(score, score);
+    }
+
+    List<Double> expected = scores.stream()
+        .sorted(Comparator.reverseOrder())
+        .limit(10)
+        .collect(Collectors.toList());
+    assertThat(selector.toSortedList()).isEqualTo(expected);
+  }
+
+  @Test
+  void zeroLimitKeepsNothing() {
+    TopKSelector<String> selector = new TopKSelector<>(0);
+
+    selector.offer("a", 1.0);
+
+    assertThat(selector.toSortedList()).isEmpty();
+  }
+
+  @Test
+  void negativeLimitIsRejected() {
+    assertThatThrownBy(() -> new TopKSelector<>(-1))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -0,0 +1,61 @@
+package com.elanlum.ecs.ride.matcher.assignment;
+
+import static com.elanlum.ecs.ride.matcher.assignment.HungarianAssignmentSolver.INFEASIBLE;
+import static com.elanlum.ecs.ride.matcher.assignment.HungarianAssignmentSolver.UNASSIGNED;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import com.elanlum.ecs.utils.TestCategory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag(TestCategory.UNIT)
+class HungarianAssignmentSolverTest {
+
+  private HungarianAssignmentSolver solver = new HungarianAssignmentSolver();
+
+  @Test
+  @DisplayName("Solver maximizes total score instead of taking the best pair greedily")
+  void solveSquareMatrix() {
+    double[][] scores = {
+        {0.9, 0.8},
+        {0.85, 0.1}
+    };
+
+    assertArrayEquals(new int[]{1, 0}, solver.solve(scores));
+  }
+
+  @Test
+  @DisplayName("Solver never assigns infeasible pairs")
+  void solveWithInfeasibleCells() {
+    double[][] scores = {
+        {5, 1},
+        {4, INFEASIBLE},
+        {INFEASIBLE, INFEASIBLE}
+    };
+
+    assertArrayEquals(new int[]{1, 0, UNASSIGNED}, solver.solve(scores));
+  }
+
+  @Test
+  @DisplayName("Solver handles more columns than rows")
+  void solveWideMatrix() {
+    double[][] scores = {
+        {0.1, 0.2, 0.7},
+        {0.3, 0.9, 0.8}
+    };
+
+    assertArrayEquals(new int[]{2, 1}, solver.solve(scores));
+  }
+
+  @Test
+  @DisplayName("Solver returns empty assignment when nothing is feasible")
+  void solveWithoutFeasibleCells() {
+    double[][] scores = {
+        {INFEASIBLE, INFEASIBLE}
+    };
+
+    assertArrayEquals(new int[]{UNASSIGNED}, solver.solve(scores));
+    assertArrayEquals(new int[0], solver.solve(new double[0][0]));
+  }
+}
@@ -0,0 +1,61 @@
+package com.elanlum.ecs.ride.matcher.pooling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.elanlum.ecs.utils.TestCategory;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag(TestCategory.UNIT)
+class InsertionRoutePlannerTest {
+
+  private InsertionRoutePlanner planner = new InsertionRoutePlanner();
+
+  @Test
+  @DisplayName("Planner puts passengers on the way and skips the ones with too long detour")
+  void planSkipsDetours() {
+    // driver 0 -> 10, passengers 2 -> 6, 5 -> -5 and 3 -> 8
+    double[][] distances = getLineDistances(0, 10, 2, 6, 5, -5, 3, 8);
+
+    List<Integer> route = planner.plan(distances, 3, 3, 1.5, true);
+
+    assertEquals(List.of(0, 2, 6, 3, 7, 1), route);
+  }
+
+  @Test
+  @DisplayName("Planner takes no more passengers than seats")
+  void planRespectsSeats() {
+    double[][] distances = getLineDistances(0, 10, 2, 6, 3, 8);
+
+    assertEquals(List.of(0, 2, 3, 1), planner.plan(distances, 2, 1, 1.5, true));
+  }
+
+  @Test
+  @DisplayName("Seat freed at a dropoff is taken by the next passenger")
+  void planReusesFreedSeats() {
+    // driver 0 -> 10, passengers 1 -> 3 and 5 -> 8 one after another
+    double[][] distances = getLineDistances(0, 10, 1, 3, 5, 8);
+
+    assertEquals(List.of(0, 2, 3, 4, 5, 1), planner.plan(distances, 2, 1, 1.5, true));
+  }
+
+  @Test
+  @DisplayName("Route of the driver without destination ends at the last dropoff")
+  void planWithoutDestination() {
+    double[][] distances = getLineDistances(0, 0, 2, 6, 3, 8);
+
+    assertEquals(List.of(0, 2, 4, 3, 5), planner.plan(distances, 2, 2, 1.5, false));
+  }
+
+  private double[][] getLineDistances(double... coordinates) {
+    double[][] distances = new double[coordinates.length][coordinates.length];
+    for (int from = 0; from < coordinates.length; from++) {
+      for (int to = 0; to < coordinates.length; to++) {
+        distances[from][to] = Math.abs(coordinates[from] - coordinates[to]);
+      }
+    }
+    return distances;
+  }
+}
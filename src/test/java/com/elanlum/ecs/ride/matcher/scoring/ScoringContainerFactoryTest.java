@@ -7,10 +7,12 @@ import com.elanlum.ecs.map.service.MapService;
 import com.elanlum.ecs.utils.TestCategory;
 import com.elanlum.ecs.ride.model.common.DriverRideRequest;
 import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
+import com.elanlum.ecs.ride.scheduling.config.ScoringConfiguration;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -27,9 +29,14 @@ class ScoringContainerFactoryTest {
   @Mock
   private DriverRideRequest driverRideRequest;
 
-  @InjectMocks
   private ScoringContainerFactory containerFactory;
 
+  @BeforeEach
+  void setUp() {
+    containerFactory = new ScoringContainerFactory(mapService,
+        List.of(new PickupDistanceTerm(new ScoringConfiguration())));
+  }
+
   @Test
   void createPriorityContainer() {
     String driverRequestId = "driverRequestId";
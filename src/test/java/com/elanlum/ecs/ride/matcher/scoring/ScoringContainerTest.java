@@ -3,17 +3,23 @@ package com.elanlum.ecs.ride.matcher.scoring;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.offset;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import com.elanlum.ecs.map.service.MapService;
+import com.elanlum.ecs.map.service.RouteDistance;
 import com.elanlum.ecs.utils.TestCategory;
 import com.elanlum.ecs.ride.model.common.DriverRideRequest;
 import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
 import com.elanlum.ecs.ride.model.values.Position;
 import com.elanlum.ecs.ride.model.values.RideRequestStatus;
-import com.graphhopper.PathWrapper;
+import com.elanlum.ecs.ride.scheduling.config.ScoringConfiguration;
+import java.util.List;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -27,8 +33,12 @@ class ScoringContainerTest {
   @Mock
   private MapService mapService;
 
-  @Mock
-  private PathWrapper pathWrapper;
+  private DriverRideRequest driverRequest = new DriverRideRequest("4", "4", null,
+      new Position(1.0f, 1.0f), null, RideRequestStatus.AVAILABLE);
+  private PassengerRideRequest passengerRequest = new PassengerRideRequest("1", "1", null,
+      new Position(2.0f, 2.0f), null, RideRequestStatus.AVAILABLE);
+  private List<ScoringTerm> pickupDistanceTerms =
+      List.of(new PickupDistanceTerm(new ScoringConfiguration()));
 
   @Test
   void scoring() {
@@ -39,17 +49,16 @@ class ScoringContainerTest {
         RideRequestStatus.AVAILABLE);
     DriverRideRequest driverRideRequest
         = new DriverRideRequest("4", "4", null, driverPosition, null, RideRequestStatus.AVAILABLE);
-    when(mapService.getDistance(driverPosition, passengerPosition))
-        .thenReturn(pathWrapper);
-    when(pathWrapper.getDistance()).thenReturn(10.0);
+    when(mapService.getRouteDistance(driverPosition, passengerPosition))
+        .thenReturn(new RouteDistance(10.0, 1000L));
 
     ScoringContainer scoringContainer = new ScoringContainer(driverRideRequest,
-        passengerRideRequest, mapService);
+        passengerRideRequest, mapService, pickupDistanceTerms);
 
-    assertThat(scoringContainer.getScore()).isCloseTo(0.1, offset(Math.pow(10, -6)));
+    assertThat(scoringContainer.getScore()).isCloseTo(1.0 / 1.01, offset(Math.pow(10, -6)));
     assertThat(scoringContainer.getPassengerRequestId()).isEqualTo(passengerRideRequest.getId());
     assertThat(scoringContainer.getDriverRequestId()).isEqualTo(driverRideRequest.getId());
-    verify(mapService).getDistance(driverPosition, passengerPosition);
+    verify(mapService).getRouteDistance(driverPosition, passengerPosition);
     verifyNoMoreInteractions(mapService);
   }
 
@@ -62,17 +71,113 @@ class ScoringContainerTest {
         RideRequestStatus.AVAILABLE);
     DriverRideRequest driverRideRequest
         = new DriverRideRequest("4", "4", null, driverPosition, null, RideRequestStatus.AVAILABLE);
-    when(mapService.getDistance(driverPosition, passengerPosition))
-        .thenReturn(pathWrapper);
-    when(pathWrapper.getDistance()).thenReturn(10.0);
+    when(mapService.getRouteDistance(driverPosition, passengerPosition))
+        .thenReturn(new RouteDistance(10.0, 1000L));
 
     ScoringContainer scoringContainer = new ScoringContainer(driverRideRequest,
-        passengerRideRequest, mapService);
+        passengerRideRequest, mapService, pickupDistanceTerms);
     double score1 = scoringContainer.getScore();
     double score2 = scoringContainer.getScore();
 
     assertThat(score1).isCloseTo(score2, offset(Math.pow(10, -6)));
-    verify(mapService).getDistance(any(), any());
+    verify(mapService).getRouteDistance(any(), any());
     verifyNoMoreInteractions(mapService);
   }
-}
\ No newline at end of file
+
+  @Test
+  void estimatedScoreDoesNotRoute() {
+    Position driverPosition = new Position(0.0f, 0.0f);
+    Position passengerPosition = new Position(0.0f, 1.0f);
+    PassengerRideRequest passengerRideRequest
+        = new PassengerRideRequest("1", "1", null, passengerPosition, null,
+        RideRequestStatus.AVAILABLE);
+    DriverRideRequest driverRideRequest
+        = new DriverRideRequest("4", "4", null, driverPosition, null, RideRequestStatus.AVAILABLE);
+
+    ScoringContainer scoringContainer = new ScoringContainer(driverRideRequest,
+        passengerRideRequest, mapService, pickupDistanceTerms);
+
+    double oneDegreeOfEquator = 2 * Math.PI * GreatCircleDistance.EARTH_RADIUS_METERS / 360;
+    assertThat(scoringContainer.getEstimatedScore())
+        .isCloseTo(1.0 / (1.0 + oneDegreeOfEquator / 1000), offset(Math.pow(10, -9)));
+    verifyZeroInteractions(mapService);
+  }
+
+  @Test
+  void knownRouteDistanceIsNotRoutedAgain() {
+    Position driverPosition = new Position(1.0f, 1.0f);
+    Position passengerPosition = new Position(2.0f, 2.0f);
+    PassengerRideRequest passengerRideRequest
+        = new PassengerRideRequest("1", "1", null, passengerPosition, null,
+        RideRequestStatus.AVAILABLE);
+    DriverRideRequest driverRideRequest
+        = new DriverRideRequest("4", "4", null, driverPosition, null, RideRequestStatus.AVAILABLE);
+
+    ScoringContainer scoringContainer = new ScoringContainer(driverRideRequest,
+        passengerRideRequest, mapService, pickupDistanceTerms, 20.0);
+
+    assertThat(scoringContainer.getScore()).isCloseTo(1.0 / 1.02, offset(Math.pow(10, -6)));
+    verifyZeroInteractions(mapService);
+  }
+
+  @Test
+  void weightedTermsAreSummedFromTheCheapest() {
+    ScoringTerm cheapTerm = term(ScoringTermCost.IN_MEMORY, 2.0, 0.5);
+    ScoringTerm heavyTerm = term(ScoringTermCost.EXTRA_ROUTES, 1.0, 0.25);
+
+    ScoringContainer scoringContainer = new ScoringContainer(driverRequest, passengerRequest,
+        mapService, List.of(cheapTerm, heavyTerm));
+
+    assertThat(scoringContainer.getScore()).isCloseTo(1.25, offset(Math.pow(10, -6)));
+    assertThat(scoringContainer.getEstimatedScore()).isCloseTo(1.25, offset(Math.pow(10, -6)));
+  }
+
+  @Test
+  void rejectedPairSkipsHeavierTerms() {
+    ScoringTerm cheapTerm = term(ScoringTermCost.IN_MEMORY, 1.0, 0.0);
+    ScoringTerm heavyTerm = mock(ScoringTerm.class);
+    lenient().when(heavyTerm.getWeight()).thenReturn(1.0);
+
+    ScoringContainer scoringContainer = new ScoringContainer(driverRequest, passengerRequest,
+        mapService, List.of(cheapTerm, heavyTerm));
+
+    assertThat(scoringContainer.getScore()).isZero();
+    verify(heavyTerm, never()).score(any());
+  }
+
+  @Test
+  void termsWithZeroWeightAreSkipped() {
+    ScoringTerm disabledTerm = mock(ScoringTerm.class);
+    ScoringTerm enabledTerm = term(ScoringTermCost.PICKUP_ROUTE, 1.0, 0.1);
+
+    ScoringContainer scoringContainer = new ScoringContainer(driverRequest, passengerRequest,
+        mapService, List.of(disabledTerm, enabledTerm));
+
+    assertThat(scoringContainer.getScore()).isCloseTo(0.1, offset(Math.pow(10, -6)));
+    verify(disabledTerm, never()).score(any());
+  }
+
+  private ScoringTerm term(ScoringTermCost cost, double weight, double value) {
+    return new ScoringTerm() {
+      @Override
+      public ScoringTermCost getCost() {
+        return cost;
+      }
+
+      @Override
+      public double getWeight() {
+        return weight;
+      }
+
+      @Override
+      public double score(ScoringContainer container) {
+        return value;
+      }
+
+      @Override
+      public double estimate(ScoringContainer container) {
+        return value;
+      }
+    };
+  }
+}
@@ -0,0 +1,158 @@
+package com.elanlum.ecs.ride.matcher.scoring;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import com.elanlum.ecs.map.service.MapService;
+import com.elanlum.ecs.map.service.RouteDistance;
+import com.elanlum.ecs.ride.model.common.DriverRideRequest;
+import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
+import com.elanlum.ecs.ride.model.values.Interval;
+import com.elanlum.ecs.ride.model.values.Position;
+import com.elanlum.ecs.ride.model.values.RideRequestStatus;
+import com.elanlum.ecs.ride.scheduling.config.ScoringConfiguration;
+import com.elanlum.ecs.utils.TestCategory;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@Tag(TestCategory.UNIT)
+@ExtendWith(MockitoExtension.class)
+class ScoringTermTest {
+
+  @Mock
+  private MapService mapService;
+
+  private ScoringConfiguration scoringConfiguration = new ScoringConfiguration();
+  private LocalDateTime now = LocalDateTime.now();
+  private Position driverDeparture = new Position(59.90f, 30.30f);
+  private Position driverDestination = new Position(59.95f, 30.30f);
+  private Position passengerDeparture = new Position(59.91f, 30.30f);
+  private Position passengerDestination = new Position(59.94f, 30.30f);
+
+  @Test
+  void timeOverlapIsShareOfThePassengerWindow() {
+    TimeOverlapTerm term = new TimeOverlapTerm(scoringConfiguration);
+
+    assertThat(term.score(container(interval(0, 60), interval(30, 90))))
+        .isCloseTo(0.5, offset(Math.pow(10, -6)));
+    assertThat(term.score(container(interval(0, 60), interval(10, 20)))).isEqualTo(1.0);
+    assertThat(term.score(container(interval(0, 60), interval(60, 90)))).isZero();
+    assertThat(term.score(container(null, interval(60, 90)))).isEqualTo(1.0);
+    verifyZeroInteractions(mapService);
+  }
+
+  @Test
+  void detourComparesDirectRouteWithSharedOne() {
+    when(mapService.getRouteDistance(driverDeparture, passengerDeparture))
+        .thenReturn(new RouteDistance(1000, 60_000));
+    when(mapService.getRouteDistance(passengerDeparture, passengerDestination))
+        .thenReturn(new RouteDistance(3000, 180_000));
+    when(mapService.getRouteDistance(passengerDestination, driverDestination))
+        .thenReturn(new RouteDistance(1000, 60_000));
+    when(mapService.getRouteDistance(driverDeparture, driverDestination))
+        .thenReturn(new RouteDistance(4000, 240_000));
+
+    DetourTerm term = new DetourTerm(scoringConfiguration);
+
+    assertThat(term.score(container(interval(0, 60), interval(0, 60))))
+        .isCloseTo(0.8, offset(Math.pow(10, -6)));
+    assertThat(term.estimate(container(interval(0, 60), interval(0, 60)))).isEqualTo(1.0);
+  }
+
+  @Test
+  void pickupEtaDecreasesWithDrivingTime() {
+    when(mapService.getRouteDistance(driverDeparture, passengerDeparture))
+        .thenReturn(new RouteDistance(1000, 180_000));
+
+    PickupEtaTerm term = new PickupEtaTerm(scoringConfiguration);
+
+    assertThat(term.score(container(interval(0, 60), interval(0, 60))))
+        .isCloseTo(0.25, offset(Math.pow(10, -6)));
+  }
+
+  @Test
+  void pickupDistanceIsNormalizedByTheScale() {
+    when(mapService.getRouteDistance(driverDeparture, passengerDeparture))
+        .thenReturn(new RouteDistance(1000, 60_000));
+
+    PickupDistanceTerm term = new PickupDistanceTerm(scoringConfiguration);
+
+    assertThat(term.score(container(interval(0, 60), interval(0, 60))))
+        .isCloseTo(0.5, offset(Math.pow(10, -6)));
+    assertThat(term.estimate(container(interval(0, 60), interval(0, 60))))
+        .isCloseTo(1.0 / (1.0 + GreatCircleDistance.meters(driverDeparture, passengerDeparture)
+            / 1000), offset(Math.pow(10, -9)));
+  }
+
+  @Test
+  void defaultWeightsKeepOrderOfPickupDistance() {
+    when(mapService.getRouteDistance(driverDeparture, passengerDeparture))
+        .thenReturn(new RouteDistance(500, 60_000), new RouteDistance(2000, 60_000));
+
+    ScoringContainer nearContainer = defaultWeightsContainer();
+    ScoringContainer farContainer = defaultWeightsContainer();
+
+    assertThat(nearContainer.getScore())
+        .isCloseTo(1.0 / 1.5 + 0.5 * 0.5, offset(Math.pow(10, -9)));
+    assertThat(farContainer.getScore()).isCloseTo(1.0 / 3 + 0.5 * 0.5, offset(Math.pow(10, -9)));
+  }
+
+  @Test
+  void weightedTermsAreSummedAndDirectRouteIsRoutedOnce() {
+    scoringConfiguration.setPickupEtaWeight(2.0);
+    scoringConfiguration.setDetourWeight(3.0);
+    when(mapService.getRouteDistance(driverDeparture, passengerDeparture))
+        .thenReturn(new RouteDistance(1000, 180_000));
+    when(mapService.getRouteDistance(passengerDeparture, passengerDestination))
+        .thenReturn(new RouteDistance(3000, 180_000));
+    when(mapService.getRouteDistance(passengerDestination, driverDestination))
+        .thenReturn(new RouteDistance(1000, 60_000));
+    when(mapService.getRouteDistance(driverDeparture, driverDestination))
+        .thenReturn(new RouteDistance(4000, 240_000));
+
+    ScoringContainer container = defaultWeightsContainer();
+
+    assertThat(container.getScore())
+        .isCloseTo(0.5 * 0.5 + 1.0 * 0.5 + 2.0 * 0.25 + 3.0 * 0.8, offset(Math.pow(10, -9)));
+    assertThat(container.getDirectRouteDistance()).isEqualTo(4000);
+    verify(mapService, times(1)).getRouteDistance(driverDeparture, driverDestination);
+    verify(mapService, times(1)).getRouteDistance(driverDeparture, passengerDeparture);
+  }
+
+  private ScoringContainer defaultWeightsContainer() {
+    return new ScoringContainer(
+        driverRequest(interval(0, 60)), passengerRequest(interval(30, 90)), mapService,
+        List.of(new TimeOverlapTerm(scoringConfiguration),
+            new PickupDistanceTerm(scoringConfiguration),
+            new PickupEtaTerm(scoringConfiguration),
+            new DetourTerm(scoringConfiguration)));
+  }
+
+  private ScoringContainer container(Interval driverDate, Interval passengerDate) {
+    return new ScoringContainer(driverRequest(driverDate), passengerRequest(passengerDate),
+        mapService, List.of());
+  }
+
+  private DriverRideRequest driverRequest(Interval rideDate) {
+    return new DriverRideRequest("d", "d", rideDate, driverDeparture, driverDestination,
+        RideRequestStatus.AVAILABLE);
+  }
+
+  private PassengerRideRequest passengerRequest(Interval rideDate) {
+    return new PassengerRideRequest("p", "p", rideDate, passengerDeparture,
+        passengerDestination, RideRequestStatus.AVAILABLE);
+  }
+
+  private Interval interval(int startMinute, int endMinute) {
+    return new Interval(now.plusMinutes(startMinute), now.plusMinutes(endMinute));
+  }
+}
@@ -9,9 +9,11 @@ import com.elanlum.ecs.ride.model.common.DriverRideRequest;
 import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
 import com.elanlum.ecs.ride.model.common.Ride;
 import com.elanlum.ecs.ride.model.values.Position;
+import com.elanlum.ecs.ride.model.values.RideLeg;
 
 import java.time.LocalDateTime;
 import java.time.Month;
+import java.util.List;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -57,4 +59,17 @@ class RideTest {
 
     assertEquals(testDriverLaterLdt, ride.getRideDateTime());
   }
-}
\ No newline at end of file
+
+  @Test
+  void givenPooledRide_returnsEarliestPickupLdt(
+      @Mock(answer = Answers.RETURNS_DEEP_STUBS) PassengerRideRequest laterPassengerRideRequest) {
+    when(driverRideRequest.getRideDate().getStart()).thenReturn(testDriverEarlierLdt);
+    when(laterPassengerRideRequest.getRideDate().getStart()).thenReturn(testDriverLaterLdt);
+    when(passengerRideRequest.getRideDate().getStart()).thenReturn(testPassengerLdt);
+    Ride pooledRide = new Ride(null, driverRideRequest,
+        List.of(new RideLeg(null, laterPassengerRideRequest, 1, 3),
+            new RideLeg(null, passengerRideRequest, 2, 4)));
+
+    assertEquals(testPassengerLdt, pooledRide.getRideDateTime());
+  }
+}
@@ -0,0 +1,137 @@
+package com.elanlum.ecs.ride.partition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.elanlum.ecs.ride.model.values.Position;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import com.elanlum.ecs.utils.TestCategory;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import java.time.LocalDateTime;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@Tag(TestCategory.UNIT)
+@ExtendWith(MockitoExtension.class)
+class PartitionLeaseManagerTest {
+
+  @Mock
+  ReactiveMongoTemplate reactiveMongoTemplate;
+
+  MatchingConfiguration matchingConfiguration = new MatchingConfiguration();
+  PartitionLeaseManager partitionLeaseManager;
+  LocalDateTime now = LocalDateTime.now();
+
+  @BeforeEach
+  void setUp() {
+    matchingConfiguration.setPartitions(4);
+    partitionLeaseManager = new PartitionLeaseManager(reactiveMongoTemplate,
+        matchingConfiguration);
+  }
+
+  @Test
+  @DisplayName("Node renews its leases and claims free partitions up to its fair share")
+  void rebalanceClaimsFairShare() {
+    String nodeId = partitionLeaseManager.getNodeId();
+    givenNodes(2L, Flux.just(
+        new PartitionLease(0, nodeId, now.plusMinutes(1)),
+        new PartitionLease(1, "other", now.plusMinutes(1)),
+        new PartitionLease(3, "other", now.minusMinutes(1))));
+    doReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null))).when(reactiveMongoTemplate)
+        .updateMulti(any(Query.class), any(Update.class), eq(PartitionLease.class));
+    doReturn(Mono.just(new PartitionLease(2, nodeId, now.plusMinutes(1))))
+        .when(reactiveMongoTemplate).findAndModify(any(Query.class), any(Update.class),
+        any(FindAndModifyOptions.class), eq(PartitionLease.class));
+
+    StepVerifier.create(partitionLeaseManager.rebalance())
+        .expectNext(Set.of(0, 2))
+        .verifyComplete();
+
+    assertEquals(Set.of(0, 2), partitionLeaseManager.getOwnedPartitions());
+    verify(reactiveMongoTemplate, times(1)).findAndModify(any(Query.class), any(Update.class),
+        any(FindAndModifyOptions.class), eq(PartitionLease.class));
+    verify(reactiveMongoTemplate, never()).remove(any(Query.class), eq(PartitionLease.class));
+  }
+
+  @Test
+  @DisplayName("Partition claimed concurrently by another node is skipped")
+  void rebalanceSkipsConcurrentlyClaimedPartitions() {
+    givenNodes(4L, Flux.empty());
+    doReturn(Mono.error(new DuplicateKeyException("duplicate"))).when(reactiveMongoTemplate)
+        .findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+            eq(PartitionLease.class));
+
+    StepVerifier.create(partitionLeaseManager.rebalance())
+        .expectNext(Set.of())
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("Node releases partitions above its fair share when another node joins")
+  void rebalanceReleasesExtraPartitions() {
+    String nodeId = partitionLeaseManager.getNodeId();
+    givenNodes(2L, Flux.just(
+        new PartitionLease(0, nodeId, now.plusMinutes(1)),
+        new PartitionLease(1, nodeId, now.plusMinutes(1)),
+        new PartitionLease(2, nodeId, now.plusMinutes(1)),
+        new PartitionLease(3, nodeId, now.plusMinutes(1))));
+    doReturn(Mono.just(DeleteResult.acknowledged(2L))).when(reactiveMongoTemplate)
+        .remove(any(Query.class), eq(PartitionLease.class));
+    doReturn(Mono.just(UpdateResult.acknowledged(2, 2L, null))).when(reactiveMongoTemplate)
+        .updateMulti(any(Query.class), any(Update.class), eq(PartitionLease.class));
+
+    StepVerifier.create(partitionLeaseManager.rebalance())
+        .expectNext(Set.of(0, 1))
+        .verifyComplete();
+
+    verify(reactiveMongoTemplate, times(1)).remove(any(Query.class), eq(PartitionLease.class));
+  }
+
+  @Test
+  @DisplayName("Positions are mapped to owned partitions by their coarse cells")
+  void ownsPositionsOfOwnedPartitions() {
+    givenNodes(1L, Flux.empty());
+    Position position = new Position(59.91f, 30.31f);
+    int partition = partitionLeaseManager.partitionOf(position);
+    doReturn(Mono.just(new PartitionLease(partition, partitionLeaseManager.getNodeId(),
+        now.plusMinutes(1))), Mono.empty(), Mono.empty(), Mono.empty())
+        .when(reactiveMongoTemplate).findAndModify(any(Query.class), any(Update.class),
+        any(FindAndModifyOptions.class), eq(PartitionLease.class));
+
+    assertFalse(partitionLeaseManager.owns(position));
+    partitionLeaseManager.rebalance().block();
+
+    assertEquals(partition, partitionLeaseManager.partitionOf(new Position(59.915f, 30.315f)));
+    assertTrue(partitionLeaseManager.owns(position));
+  }
+
+  private void givenNodes(long liveNodes, Flux<PartitionLease> leases) {
+    doReturn(Mono.just(new MatchingNode(partitionLeaseManager.getNodeId(), now)))
+        .when(reactiveMongoTemplate).save(any(MatchingNode.class));
+    doReturn(Mono.just(liveNodes)).when(reactiveMongoTemplate)
+        .count(any(Query.class), eq(MatchingNode.class));
+    doReturn(leases).when(reactiveMongoTemplate).findAll(PartitionLease.class);
+  }
+}
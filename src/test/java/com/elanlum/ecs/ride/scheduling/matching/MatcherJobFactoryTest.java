@@ -3,9 +3,7 @@ package com.elanlum.ecs.ride.scheduling.matching;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
-import com.elanlum.ecs.ride.crud.service.impl.DriverRideRequestService;
 import com.elanlum.ecs.utils.TestCategory;
-import com.elanlum.ecs.ride.matcher.DriverPassengerMatchingOneBuddyService;
 
 import java.util.Objects;
 import org.junit.jupiter.api.DisplayName;
@@ -28,9 +26,7 @@ class MatcherJobFactoryTest {
   @Mock
   TriggerFiredBundle triggerFiredBundle;
   @Mock
-  DriverPassengerMatchingOneBuddyService oneBuddyService;
-  @Mock
-  DriverRideRequestService driverRideRequestService;
+  MatchingRunner matchingRunner;
   @Mock
   Scheduler scheduler;
   @InjectMocks
@@ -0,0 +1,182 @@
+package com.elanlum.ecs.ride.scheduling.matching;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import com.elanlum.ecs.map.service.RouteCache;
+import com.elanlum.ecs.ride.matcher.DriverPassengerBatchMatchingService;
+import com.elanlum.ecs.ride.matcher.DriverPassengerMatchingOneBuddyService;
+import com.elanlum.ecs.ride.matcher.DriverPassengerPoolingService;
+import com.elanlum.ecs.ride.matcher.IncrementalMatchingTracker;
+import com.elanlum.ecs.ride.model.common.DriverRideRequest;
+import com.elanlum.ecs.ride.model.common.Ride;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import com.elanlum.ecs.ride.scheduling.config.MatchingMode;
+import com.elanlum.ecs.utils.TestCategory;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.publisher.TestPublisher;
+
+@Tag(TestCategory.UNIT)
+@ExtendWith(MockitoExtension.class)
+class MatchingRunnerTest {
+
+  @Mock
+  DriverPassengerMatchingOneBuddyService oneBuddyService;
+  @Mock
+  IncrementalMatchingTracker incrementalMatchingTracker;
+  @Mock
+  DriverPassengerBatchMatchingService batchMatchingService;
+  @Mock
+  DriverPassengerPoolingService poolingService;
+  @Mock
+  RouteCache routeCache;
+
+  MatchingConfiguration matchingConfiguration = new MatchingConfiguration();
+  MatchingRunner matchingRunner;
+
+  DriverRideRequest request1 = mock(DriverRideRequest.class);
+  DriverRideRequest request2 = mock(DriverRideRequest.class);
+  DriverRideRequest request3 = mock(DriverRideRequest.class);
+
+  @BeforeEach
+  void setUp() {
+    matchingRunner = new MatchingRunner(oneBuddyService, incrementalMatchingTracker,
+        batchMatchingService, poolingService, matchingConfiguration, routeCache);
+  }
+
+  @Test
+  @DisplayName("Run matches drivers chosen by the tracker and accepted by the filter")
+  void runMatchesFilteredDrivers() {
+    doReturn(CacheStats.empty()).when(routeCache).getStats();
+    doReturn(Flux.just(request1, request2, request3)).when(incrementalMatchingTracker)
+        .getDriversToMatch();
+    doReturn(Mono.just(mock(Ride.class))).when(oneBuddyService).match(request1);
+    doReturn(Mono.empty()).when(oneBuddyService).match(request3);
+
+    assertTrue(matchingRunner.run(driverRideRequest -> driverRideRequest != request2));
+
+    verify(oneBuddyService, times(2)).match(any(DriverRideRequest.class));
+    verify(oneBuddyService, never()).match(request2);
+    verifyZeroInteractions(batchMatchingService);
+    assertFalse(matchingRunner.isRunning());
+  }
+
+  @Test
+  @DisplayName("Run in batch mode invokes batch matching service")
+  void runBatch() {
+    matchingConfiguration.setMode(MatchingMode.BATCH);
+    doReturn(CacheStats.empty()).when(routeCache).getStats();
+    doReturn(Mono.just(2L)).when(batchMatchingService).matchAll(any(), any());
+
+    assertTrue(matchingRunner.run(driverRideRequest -> true));
+
+    verify(batchMatchingService, times(1)).matchAll(any(), any());
+    verifyZeroInteractions(incrementalMatchingTracker, oneBuddyService);
+  }
+
+  @Test
+  @DisplayName("Run in pooling mode matches drivers with pooling service")
+  void runPooling() {
+    matchingConfiguration.setMode(MatchingMode.POOLING);
+    doReturn(CacheStats.empty()).when(routeCache).getStats();
+    doReturn(Flux.just(request1, request2)).when(incrementalMatchingTracker).getDriversToMatch();
+    doReturn(Mono.just(mock(Ride.class))).when(poolingService).match(any());
+
+    assertTrue(matchingRunner.run(driverRideRequest -> true));
+
+    verify(poolingService, times(2)).match(any(DriverRideRequest.class));
+    verifyZeroInteractions(oneBuddyService, batchMatchingService);
+  }
+
+  @Test
+  @DisplayName("Overlapping tick is skipped while a run is in progress")
+  void overlappingTickIsSkipped() {
+    matchingConfiguration.setCoalesceOverlappingRuns(false);
+    TestPublisher<DriverRideRequest> drivers = TestPublisher.create();
+    doReturn(drivers.flux()).when(incrementalMatchingTracker).getDriversToMatch();
+
+    assertTrue(matchingRunner.run(driverRideRequest -> true));
+    assertFalse(matchingRunner.run(driverRideRequest -> true));
+    assertTrue(matchingRunner.isRunning());
+
+    drivers.error(new IllegalStateException("Mongo is down"));
+
+    assertFalse(matchingRunner.isRunning());
+    verify(incrementalMatchingTracker, times(1)).getDriversToMatch();
+  }
+
+  @Test
+  @DisplayName("Overlapping ticks are coalesced into one more run")
+  void overlappingTicksAreCoalesced() {
+    doReturn(CacheStats.empty()).when(routeCache).getStats();
+    TestPublisher<DriverRideRequest> drivers = TestPublisher.create();
+    doReturn(drivers.flux(), Flux.empty()).when(incrementalMatchingTracker).getDriversToMatch();
+
+    assertTrue(matchingRunner.run(driverRideRequest -> true));
+    assertFalse(matchingRunner.run(driverRideRequest -> true));
+    assertFalse(matchingRunner.run(driverRideRequest -> true));
+
+    drivers.complete();
+
+    assertFalse(matchingRunner.isRunning());
+    verify(incrementalMatchingTracker, times(2)).getDriversToMatch();
+  }
+
+  @Test
+  @DisplayName("Tick coalesced while the run is finishing still starts one more run")
+  void tickCoalescedWhileRunFinishesIsNotLost() {
+    doReturn(CacheStats.empty()).when(routeCache).getStats();
+    TestPublisher<DriverRideRequest> drivers = TestPublisher.create();
+    doReturn(drivers.flux(), Flux.empty()).when(incrementalMatchingTracker).getDriversToMatch();
+    MatchingConfiguration finishingConfiguration = new MatchingConfiguration() {
+      @Override
+      public boolean isCoalesceOverlappingRuns() {
+        // the run finishes after the tick found it in progress, but before the tick is stored
+        drivers.complete();
+        return true;
+      }
+    };
+    matchingRunner = new MatchingRunner(oneBuddyService, incrementalMatchingTracker,
+        batchMatchingService, poolingService, finishingConfiguration, routeCache);
+
+    assertTrue(matchingRunner.run(driverRideRequest -> true));
+    assertFalse(matchingRunner.run(driverRideRequest -> true));
+
+    assertFalse(matchingRunner.isRunning());
+    verify(incrementalMatchingTracker, times(2)).getDriversToMatch();
+  }
+
+  @Test
+  @DisplayName("Driver matching concurrency is bounded by the configuration")
+  void concurrencyIsBounded() {
+    matchingConfiguration.setMatchingConcurrency(2);
+    doReturn(Flux.just(request1, request2, request3)).when(incrementalMatchingTracker)
+        .getDriversToMatch();
+    TestPublisher<Ride> firstRide = TestPublisher.create();
+    doReturn(firstRide.mono()).when(oneBuddyService).match(request1);
+    doReturn(Mono.never()).when(oneBuddyService).match(request2);
+
+    matchingRunner.run(driverRideRequest -> true);
+
+    verify(oneBuddyService, never()).match(request3);
+    doReturn(Mono.never()).when(oneBuddyService).match(request3);
+    firstRide.complete();
+    verify(oneBuddyService, times(1)).match(request3);
+  }
+}
@@ -0,0 +1,121 @@
+package com.elanlum.ecs.ride.scheduling.matching;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import com.elanlum.ecs.ride.matcher.IncrementalMatchingTracker;
+import com.elanlum.ecs.ride.model.common.AbstractRideRequest;
+import com.elanlum.ecs.ride.model.common.DriverRideRequest;
+import com.elanlum.ecs.ride.model.common.PassengerRideRequest;
+import com.elanlum.ecs.ride.model.values.Interval;
+import com.elanlum.ecs.ride.model.values.Position;
+import com.elanlum.ecs.ride.model.values.RideRequestStatus;
+import com.elanlum.ecs.ride.partition.PartitionLeaseManager;
+import com.elanlum.ecs.ride.scheduling.config.MatchingConfiguration;
+import com.elanlum.ecs.utils.TestCategory;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@Tag(TestCategory.UNIT)
+@ExtendWith(MockitoExtension.class)
+class PartitionedMatchingRunnerTest {
+
+  @Mock
+  MatchingRunner matchingRunner;
+  @Mock
+  IncrementalMatchingTracker incrementalMatchingTracker;
+  @Mock
+  PartitionLeaseManager partitionLeaseManager;
+
+  MatchingConfiguration matchingConfiguration = new MatchingConfiguration();
+  PartitionedMatchingRunner runner;
+
+  Position ownedPosition = new Position(59.90f, 30.30f);
+  Position foreignPosition = new Position(55.75f, 37.61f);
+
+  @BeforeEach
+  void setUp() {
+    runner = new PartitionedMatchingRunner(matchingRunner, incrementalMatchingTracker,
+        partitionLeaseManager, matchingConfiguration);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  @DisplayName("Node matches only requests departing from its partitions")
+  void matchOwnedRequests() {
+    DriverRideRequest ownedDriver = driverRequest("d1", ownedPosition);
+    DriverRideRequest foreignDriver = driverRequest("d2", foreignPosition);
+    LocalDateTime now = LocalDateTime.now();
+    PassengerRideRequest foreignPassenger = new PassengerRideRequest("p1", "up1",
+        new Interval(now, now.plusMinutes(20)), foreignPosition, null,
+        RideRequestStatus.AVAILABLE);
+    doReturn(Set.of(1)).when(partitionLeaseManager).getOwnedPartitions();
+    doReturn(true).when(partitionLeaseManager).owns(ownedPosition);
+    doReturn(false).when(partitionLeaseManager).owns(foreignPosition);
+    doReturn(true).when(matchingRunner).run(any());
+
+    runner.match();
+
+    ArgumentCaptor<Predicate<AbstractRideRequest>> requestFilter =
+        ArgumentCaptor.forClass(Predicate.class);
+    verify(matchingRunner, times(1)).run(requestFilter.capture());
+    assertTrue(requestFilter.getValue().test(ownedDriver));
+    assertFalse(requestFilter.getValue().test(foreignDriver));
+    assertFalse(requestFilter.getValue().test(foreignPassenger));
+  }
+
+  @Test
+  @DisplayName("Node without partitions doesn't match at all")
+  void matchWithoutPartitions() {
+    doReturn(Set.of()).when(partitionLeaseManager).getOwnedPartitions();
+
+    runner.match();
+
+    verifyZeroInteractions(matchingRunner);
+  }
+
+  @Test
+  @DisplayName("Newly claimed partitions make the next tick a full sweep")
+  void rebalanceRequestsFullSweepForNewPartitions() {
+    doReturn(Set.of(1), Set.of(1, 2)).when(partitionLeaseManager).getOwnedPartitions();
+    doReturn(Mono.just(Set.of(1, 2)), Mono.just(Set.of(1, 2))).when(partitionLeaseManager)
+        .rebalance();
+
+    StepVerifier.create(runner.rebalance()).expectNextCount(1).verifyComplete();
+    StepVerifier.create(runner.rebalance()).expectNextCount(1).verifyComplete();
+
+    verify(incrementalMatchingTracker, times(1)).requestFullSweep();
+  }
+
+  @Test
+  @DisplayName("Failed rebalancing keeps the runner alive")
+  void rebalanceFailureIsSwallowed() {
+    doReturn(Set.of()).when(partitionLeaseManager).getOwnedPartitions();
+    doReturn(Mono.error(new IllegalStateException("Mongo is down")))
+        .when(partitionLeaseManager).rebalance();
+
+    StepVerifier.create(runner.rebalance()).verifyComplete();
+  }
+
+  private DriverRideRequest driverRequest(String id, Position position) {
+    LocalDateTime now = LocalDateTime.now();
+    return new DriverRideRequest(id, "u" + id, new Interval(now, now.plusMinutes(20)), position,
+        null, RideRequestStatus.AVAILABLE);
+  }
+}
@@ -2,12 +2,15 @@ package com.elanlum.ecs.ride.scheduling.matching;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.quartz.CronScheduleBuilder.cronSchedule;
 
 import com.elanlum.ecs.utils.TestCategory;
@@ -92,6 +95,35 @@ class QuartzMatchingSchedulerTest {
     }
   }
 
+  @Test
+  @DisplayName("Matching job is unscheduled when matching is partitioned across nodes")
+  void quartzMatchingSchedulerSkipsPartitionedMatching() throws SchedulerException {
+    doNothing().when(schedulerFactory).initialize(anyString());
+    doReturn(scheduler).when(schedulerFactory).getScheduler();
+    doReturn(true).when(configuration).isPartitioned();
+    doReturn(true).when(configuration).isIndexSynchronized();
+
+    new QuartzMatchingScheduler(matcherJobFactory, jobElementsSource, configuration,
+        schedulerFactory, "anyString");
+
+    verify(scheduler, times(1)).start();
+    verify(scheduler, times(1)).unscheduleJob(TriggerKey.triggerKey("matching_trigger"));
+    verifyZeroInteractions(jobElementsSource);
+  }
+
+  @Test
+  @DisplayName("Partitioned matching doesn't start and keeps the job without index sync")
+  void quartzMatchingSchedulerRejectsPartitioningWithoutIndexSync() throws SchedulerException {
+    doNothing().when(schedulerFactory).initialize(anyString());
+    doReturn(scheduler).when(schedulerFactory).getScheduler();
+    doReturn(true).when(configuration).isPartitioned();
+
+    assertThrows(IllegalStateException.class,
+        () -> new QuartzMatchingScheduler(matcherJobFactory, jobElementsSource, configuration,
+            schedulerFactory, "anyString"));
+    verify(scheduler, never()).unscheduleJob(any());
+  }
+
   @Test
   @DisplayName("Exception is thrown if initializing scheduler factory in Matching Scheduler fails")
   void exceptionIsCaughtDuringQuartzMatchingSchedulerInitialization()
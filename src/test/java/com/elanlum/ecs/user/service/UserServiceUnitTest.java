@@ -16,9 +16,11 @@ import com.elanlum.ecs.validation.ValidationService;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
@@ -30,6 +32,8 @@ public class UserServiceUnitTest {
   private UserRepository userRepo;
   @Mock
   private ValidationService<User> validationService;
+  @Mock
+  private ApplicationEventPublisher applicationEventPublisher;
   @InjectMocks
   private UserService userService;
 
@@ -63,6 +67,9 @@ public class UserServiceUnitTest {
     verify(userRepo, times(1)).save(user);
     verify(validationService, times(1))
         .entityValidate(user, ValidationForSave.class);
+    ArgumentCaptor<Object> event = ArgumentCaptor.forClass(Object.class);
+    verify(applicationEventPublisher, times(1)).publishEvent(event.capture());
+    assertEquals("11", ((UserChangedEvent) event.getValue()).getUserId());
   }
 
   @Test